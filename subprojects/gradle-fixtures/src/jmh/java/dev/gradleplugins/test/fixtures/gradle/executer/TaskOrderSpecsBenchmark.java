@@ -0,0 +1,79 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.test.fixtures.gradle.executer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures checking the order of every executed task of a build.
+ *
+ * Run with {@code ./gradlew :gradle-fixtures:jmh -Pjmh.includes=TaskOrderSpecsBenchmark -Pjmh.profilers=gc}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TaskOrderSpecsBenchmark {
+    @Param({"100", "1000", "10000"})
+    public int taskCount;
+
+    private List<String> executedTaskPaths;
+    private TaskOrderSpec exactOrder;
+    private TaskOrderSpec nestedOrder;
+
+    @Setup
+    public void setUp() {
+        executedTaskPaths = new ArrayList<>();
+        List<Object> groups = new ArrayList<>();
+        for (int i = 0; i < taskCount; i += 10) {
+            List<String> group = new ArrayList<>();
+            for (int j = i; j < Math.min(i + 10, taskCount); j++) {
+                group.add(":project" + j + ":compileJava");
+            }
+            executedTaskPaths.addAll(group);
+            groups.add(TaskOrderSpecs.any(group.toArray()));
+        }
+        exactOrder = TaskOrderSpecs.exact(executedTaskPaths.toArray());
+        nestedOrder = TaskOrderSpecs.exact(groups.toArray());
+    }
+
+    @Benchmark
+    public int exact() {
+        return exactOrder.assertMatches(-1, executedTaskPaths);
+    }
+
+    @Benchmark
+    public int exactOfAny() {
+        return nestedOrder.assertMatches(-1, executedTaskPaths);
+    }
+}
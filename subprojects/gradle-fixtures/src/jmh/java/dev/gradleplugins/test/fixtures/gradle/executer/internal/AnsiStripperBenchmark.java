@@ -0,0 +1,114 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.test.fixtures.gradle.executer.internal;
+
+import net.rubygrapefruit.ansi.AnsiParser;
+import net.rubygrapefruit.ansi.console.AnsiConsole;
+import net.rubygrapefruit.ansi.token.NewLine;
+import net.rubygrapefruit.ansi.token.Text;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the linear ANSI stripping of {@link LogContent#ansiCharsToPlainText()} against the full console emulation on a rich console capture.
+ *
+ * Run with {@code ./gradlew :gradle-fixtures:jmh -Pjmh.includes=AnsiStripperBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnsiStripperBenchmark {
+    private static final String ESCAPE = "\u001B";
+    private static final String BOLD = ESCAPE + "[1m";
+    private static final String GREEN = ESCAPE + "[32;1m";
+    private static final String YELLOW = ESCAPE + "[33m";
+    private static final String RESET = ESCAPE + "[m";
+    private static final String ERASE_TO_END_OF_LINE = ESCAPE + "[0K";
+
+    @Param({"100", "10000"})
+    public int taskCount;
+
+    private String capture;
+
+    @Setup
+    public void setUp() {
+        capture = richConsoleCapture(taskCount);
+    }
+
+    @Benchmark
+    public LogContent fastPath() {
+        return LogContent.of(capture).ansiCharsToPlainText();
+    }
+
+    @Benchmark
+    public String consoleEmulation() throws IOException {
+        AnsiConsole console = new AnsiConsole();
+        AnsiParser parser = new AnsiParser();
+        try (Writer writer = new OutputStreamWriter(parser.newParser("utf-8", console))) {
+            writer.write(capture);
+        }
+        StringBuilder result = new StringBuilder();
+        console.contents(token -> {
+            if (token instanceof Text) {
+                result.append(((Text) token).getText());
+            } else if (token instanceof NewLine) {
+                result.append("\n");
+            }
+        });
+        return result.toString();
+    }
+
+    /**
+     * Mimics what Gradle writes with {@code --console=rich} when the output isn't attached to a terminal.
+     */
+    private static String richConsoleCapture(int taskCount) {
+        StringBuilder result = new StringBuilder();
+        result.append(ERASE_TO_END_OF_LINE).append("\n");
+        for (int i = 0; i < taskCount; i++) {
+            result.append(ERASE_TO_END_OF_LINE).append(BOLD).append("> Task :project").append(i % 10).append(":compileJava").append(RESET);
+            if (i % 3 == 0) {
+                result.append(YELLOW).append(" UP-TO-DATE").append(RESET);
+            }
+            result.append("\n");
+            if (i % 5 == 0) {
+                result.append("warning: [options] bootstrap class path not set in conjunction with -source 8\n");
+                result.append("1 warning\n");
+            }
+        }
+        result.append("\n");
+        result.append(GREEN).append("BUILD SUCCESSFUL").append(RESET).append(" in 3s\n");
+        result.append(taskCount).append(" actionable tasks: ").append(taskCount).append(" executed\n");
+        return result.toString();
+    }
+}
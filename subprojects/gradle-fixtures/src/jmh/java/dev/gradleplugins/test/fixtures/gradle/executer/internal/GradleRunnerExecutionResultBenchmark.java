@@ -0,0 +1,103 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.test.fixtures.gradle.executer.internal;
+
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.BuildTask;
+import org.gradle.testkit.runner.TaskOutcome;
+import org.gradle.testkit.runner.internal.DefaultBuildResult;
+import org.gradle.testkit.runner.internal.DefaultBuildTask;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the memory allocated per TestKit result when a test only checks one task outcome.
+ * The eager benchmarks reproduce what the results used to do on construction: scrape the whole output, twice for a failure.
+ *
+ * Run with {@code ./gradlew :gradle-fixtures:jmh -Pjmh.includes=GradleRunnerExecutionResultBenchmark -Pjmh.profilers=gc} and compare {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GradleRunnerExecutionResultBenchmark {
+    private static final String CHECKED_TASK = ":project0:compileJava";
+
+    @Param({"1000", "50000"})
+    public int taskCount;
+
+    private BuildResult successfulResult;
+    private BuildResult failedResult;
+
+    @Setup
+    public void setUp() {
+        List<BuildTask> tasks = new ArrayList<>();
+        StringBuilder output = new StringBuilder();
+        for (int i = 0; i < taskCount; i++) {
+            String path = ":project" + (i % 100) + ":task" + i;
+            if (i == 0) {
+                path = CHECKED_TASK;
+            }
+            tasks.add(new DefaultBuildTask(path, i % 3 == 0 ? TaskOutcome.UP_TO_DATE : TaskOutcome.SUCCESS));
+            output.append("> Task ").append(path).append(i % 3 == 0 ? " UP-TO-DATE" : "").append("\n");
+            output.append("Some output of ").append(path).append("\n");
+        }
+        String successfulOutput = output + "\nBUILD SUCCESSFUL in 42s\n" + taskCount + " actionable tasks: " + taskCount + " executed\n";
+        String failedOutput = output + "\nFAILURE: Build failed with an exception.\n\n* What went wrong:\nExecution failed for task ':foo'.\n> Some failure\n\nBUILD FAILED in 42s\n";
+        successfulResult = new DefaultBuildResult(successfulOutput, tasks);
+        failedResult = new DefaultBuildResult(failedOutput, tasks);
+    }
+
+    @Benchmark
+    public Object checkTaskOutcome() {
+        return new GradleRunnerExecuter.GradleRunnerExecutionResult(successfulResult).assertTaskSkipped(CHECKED_TASK);
+    }
+
+    @Benchmark
+    public Object checkTaskOutcomeWithEagerScraping(Blackhole blackhole) {
+        blackhole.consume(OutputScrapingExecutionResult.from(successfulResult.getOutput(), ""));
+        return new GradleRunnerExecuter.GradleRunnerExecutionResult(successfulResult).assertTaskSkipped(CHECKED_TASK);
+    }
+
+    @Benchmark
+    public Object checkTaskOutcomeOfFailure() {
+        return new GradleRunnerExecuter.GradleRunnerExecutionFailure(failedResult).assertTaskSkipped(CHECKED_TASK);
+    }
+
+    @Benchmark
+    public Object checkTaskOutcomeOfFailureWithEagerScraping(Blackhole blackhole) {
+        blackhole.consume(OutputScrapingExecutionResult.from(failedResult.getOutput(), ""));
+        blackhole.consume(OutputScrapingExecutionFailure.from(failedResult.getOutput(), failedResult.getOutput()));
+        return new GradleRunnerExecuter.GradleRunnerExecutionFailure(failedResult).assertTaskSkipped(CHECKED_TASK);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.test.fixtures.gradle.executer.internal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the normalizations every result applies to the captured output.
+ * Derived contents are memoized, so each operation starts from the raw capture.
+ *
+ * Run with {@code ./gradlew :gradle-fixtures:jmh -Pjmh.includes=LogContentBenchmark -Pjmh.profilers=gc}.
+ * Larger captures can be selected with {@code -Pjmh.params=size=100MB}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogContentBenchmark {
+    @Param({"PLAIN", "RICH", "VERBOSE", "DEBUG"})
+    public OutputCorpus corpus;
+
+    @Param({"1KB", "1MB"})
+    public String size;
+
+    private String capture;
+
+    @Setup
+    public void setUp() {
+        capture = corpus.getCapture(size);
+    }
+
+    @Benchmark
+    public LogContent of() {
+        return LogContent.of(capture);
+    }
+
+    @Benchmark
+    public LogContent ansiCharsToPlainText() {
+        return LogContent.of(capture).ansiCharsToPlainText();
+    }
+
+    @Benchmark
+    public LogContent removeDebugPrefix() {
+        return LogContent.of(capture).removeDebugPrefix();
+    }
+
+    @Benchmark
+    public String normalize() {
+        return OutputScrapingExecutionResult.normalize(LogContent.of(capture));
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.test.fixtures.gradle.executer.internal;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Gradle outputs captured from a small multi-project build, scaled to the size a benchmark asks for.
+ *
+ * The captures live in the {@code corpus} resource directory.
+ * A capture is scaled by repeating the lines before its build outcome, renaming the tasks of each repetition, then appending the build outcome once.
+ * The result keeps a single failure section and distinct task paths, whatever its size.
+ */
+public enum OutputCorpus {
+    /** {@code --console=plain} */
+    PLAIN("plain.txt"),
+    /** {@code --console=rich} redirected to a file, with progress and styling escape sequences */
+    RICH("rich.txt"),
+    /** {@code --console=verbose} */
+    VERBOSE("verbose.txt"),
+    /** {@code --console=plain --debug} */
+    DEBUG("debug.txt"),
+    /** {@code --console=plain} of a failing task */
+    FAILURE("failure.txt"),
+    /** {@code --console=plain --stacktrace} of a failing task */
+    FAILURE_WITH_STACKTRACE("failure-stacktrace.txt");
+
+    private static final Pattern BUILD_OUTCOME = Pattern.compile("(?m)^.*(FAILURE: |BUILD SUCCESSFUL|BUILD FAILED)");
+
+    private final String resourceName;
+
+    OutputCorpus(String resourceName) {
+        this.resourceName = resourceName;
+    }
+
+    public boolean isFailure() {
+        return this == FAILURE || this == FAILURE_WITH_STACKTRACE;
+    }
+
+    /**
+     * Returns the capture as written by Gradle.
+     */
+    public String getCapture() {
+        try (InputStream inStream = OutputCorpus.class.getResourceAsStream("corpus/" + resourceName)) {
+            if (inStream == null) {
+                throw new IllegalStateException(String.format("Could not find corpus resource '%s'.", resourceName));
+            }
+            return IOUtils.toString(inStream, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the capture scaled to about the given number of chars.
+     *
+     * @param size the size to reach, for example {@code 1KB}, {@code 1MB} or {@code 100MB}
+     */
+    public String getCapture(String size) {
+        return scale(getCapture(), parseSize(size));
+    }
+
+    static int parseSize(String size) {
+        if (size.endsWith("MB")) {
+            return Integer.parseInt(size.substring(0, size.length() - 2)) * 1024 * 1024;
+        } else if (size.endsWith("KB")) {
+            return Integer.parseInt(size.substring(0, size.length() - 2)) * 1024;
+        }
+        return Integer.parseInt(size);
+    }
+
+    private static String scale(String capture, int size) {
+        Matcher matcher = BUILD_OUTCOME.matcher(capture);
+        int outcomeStart = matcher.find() ? matcher.start() : capture.length();
+        List<String> lines = IOUtils.readLines(new StringReader(capture.substring(0, outcomeStart)));
+        String outcome = capture.substring(outcomeStart);
+        if (lines.isEmpty()) {
+            return capture;
+        }
+
+        StringBuilder result = new StringBuilder(size + outcome.length());
+        for (int repetition = 0; result.length() + outcome.length() < size; repetition++) {
+            for (String line : lines) {
+                if (result.length() + outcome.length() >= size) {
+                    break;
+                }
+                result.append(repetition == 0 ? line : line.replace("Task :", "Task :repetition" + repetition + ":")).append('\n');
+            }
+        }
+        return result.append(outcome).toString();
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.test.fixtures.gradle.executer.internal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures matching a whole expected output, in order and in any order, including the diff reported on a mismatch.
+ *
+ * Run with {@code ./gradlew :gradle-fixtures:jmh -Pjmh.includes=OutputMatcherBenchmark -Pjmh.profilers=gc}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OutputMatcherBenchmark {
+    @Param({"PLAIN", "VERBOSE", "DEBUG"})
+    public OutputCorpus corpus;
+
+    @Param({"1KB", "1MB"})
+    public String size;
+
+    private String actual;
+    private String shuffled;
+    private String mismatching;
+
+    @Setup
+    public void setUp() {
+        actual = OutputScrapingExecutionResult.from(corpus.getCapture(size), "").getNormalizedOutput();
+        List<String> lines = LogContent.of(actual).getLines();
+
+        List<String> shuffledLines = new ArrayList<>(lines);
+        Collections.shuffle(shuffledLines, new Random(42));
+        shuffled = String.join("\n", shuffledLines);
+
+        List<String> mismatchingLines = new ArrayList<>(lines);
+        mismatchingLines.set(mismatchingLines.size() / 2, "Some unexpected line");
+        mismatching = String.join("\n", mismatchingLines);
+    }
+
+    @Benchmark
+    public void sequential() {
+        new SequentialOutputMatcher().assertOutputMatches(actual, actual, false);
+    }
+
+    @Benchmark
+    public void anyOrder() {
+        new AnyOrderOutputMatcher().assertOutputMatches(shuffled, actual, false);
+    }
+
+    @Benchmark
+    public String sequentialMismatch() {
+        try {
+            new SequentialOutputMatcher().assertOutputMatches(mismatching, actual, false);
+        } catch (AssertionError e) {
+            return e.getMessage();
+        }
+        throw new IllegalStateException("Expected a mismatch.");
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.test.fixtures.gradle.executer.internal;
+
+import dev.gradleplugins.test.fixtures.gradle.executer.ExecutionFailure;
+import dev.gradleplugins.test.fixtures.gradle.logging.GroupedOutputFixture;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures scraping a captured output into a result, then querying it the way a functional test does.
+ * Results are lazy, so each benchmark queries the view it measures.
+ *
+ * Run with {@code ./gradlew :gradle-fixtures:jmh -Pjmh.includes=OutputScrapingBenchmark -Pjmh.profilers=gc}.
+ * Larger captures can be selected with {@code -Pjmh.params=size=100MB}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OutputScrapingBenchmark {
+    @Param({"PLAIN", "RICH", "VERBOSE", "DEBUG", "FAILURE", "FAILURE_WITH_STACKTRACE"})
+    public OutputCorpus corpus;
+
+    @Param({"1KB", "1MB"})
+    public String size;
+
+    private String capture;
+    private String lastLine;
+
+    @Setup
+    public void setUp() {
+        capture = corpus.getCapture(size);
+        lastLine = LogContent.of(capture).ansiCharsToPlainText().removeDebugPrefix().getLines().stream().filter(it -> !it.isEmpty()).reduce((first, second) -> second).orElse("");
+    }
+
+    @Benchmark
+    public void executedTasks(Blackhole blackhole) {
+        OutputScrapingExecutionResult result = OutputScrapingExecutionResult.from(capture, "");
+        blackhole.consume(result.getExecutedTasks());
+        blackhole.consume(result.getSkippedTasks());
+    }
+
+    @Benchmark
+    public void outputContains(Blackhole blackhole) {
+        blackhole.consume(OutputScrapingExecutionResult.from(capture, "").getOutput().contains(lastLine));
+    }
+
+    @Benchmark
+    public ExecutionFailure failure() {
+        // Parsing happens on construction
+        return OutputScrapingExecutionFailure.from(capture, "");
+    }
+
+    @Benchmark
+    public void groupedOutput(Blackhole blackhole) {
+        GroupedOutputFixture groupedOutput = OutputScrapingExecutionResult.from(capture, "").getGroupedOutput();
+        blackhole.consume(groupedOutput.getTaskCount());
+    }
+}
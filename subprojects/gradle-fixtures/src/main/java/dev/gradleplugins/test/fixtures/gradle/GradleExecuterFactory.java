@@ -2,7 +2,9 @@ package dev.gradleplugins.test.fixtures.gradle;
 
 import dev.gradleplugins.test.fixtures.file.TestFile;
 import dev.gradleplugins.test.fixtures.gradle.executer.GradleExecuter;
+import dev.gradleplugins.test.fixtures.gradle.executer.internal.GradleRunnerDaemonPool;
 import dev.gradleplugins.test.fixtures.gradle.executer.internal.GradleRunnerExecuter;
+import dev.gradleplugins.test.fixtures.gradle.executer.internal.GradleToolingApiExecuter;
 import dev.gradleplugins.test.fixtures.gradle.executer.internal.GradleWrapperExecuter;
 
 public class GradleExecuterFactory {
@@ -10,13 +12,17 @@ public class GradleExecuterFactory {
         return new GradleRunnerExecuter(null, testDirectory);
     }
 
+    public GradleExecuter pooledTestKit(TestFile testDirectory) {
+        return new GradleRunnerExecuter(null, testDirectory).withDaemonPool(GradleRunnerDaemonPool.getDefault());
+    }
+
     public GradleExecuter wrapper(TestFile testDirectory) {
         return new GradleWrapperExecuter(testDirectory);
     }
 
-//    public GradleExecuter toolingApi(TestFile testDirectory) {
-//        return new GradleToolingApiExecuter(testDirectory);
-//    }
+    public GradleExecuter toolingApi(TestFile testDirectory) {
+        return new GradleToolingApiExecuter(null, testDirectory);
+    }
 
 //    public GradleExecuter forking(TestFile testDirectory) {
 //        return new GradleForkingExecuter(testDirectory);
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.test.fixtures.gradle.executer;
+
+import lombok.Value;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * What the build under test spent its time on, as recorded from inside the build by {@link GradleExecuter#withBuildProfiling()}.
+ * The projects and tasks of included builds, including {@code buildSrc}, are identified by their build path followed by their path, for example {@code :buildSrc:compileJava}.
+ *
+ * <pre>
+ * ExecutionResult result = executer.withBuildProfiling().withTasks("assemble").run();
+ * assert result.getBuildProfile().getProjectConfiguration(":app").getDurationMillis() &lt; 200;
+ * assert result.getBuildProfile().getTaskExecution(":app:compileJava").getOutcome().equals("FROM_CACHE");
+ * </pre>
+ */
+@Value
+public class BuildProfile {
+    /** The projects in the order their configuration completed. */
+    List<ProjectConfiguration> projectConfigurations;
+
+    /** The tasks in the order their execution completed. */
+    List<TaskExecution> taskExecutions;
+
+    /**
+     * Returns the configuration of the given project.
+     *
+     * @param projectPath the path of the project, for example {@code :app}
+     * @return the configuration of the project, never null
+     * @throws IllegalArgumentException if the project was not configured by the build
+     */
+    public ProjectConfiguration getProjectConfiguration(String projectPath) {
+        return findProjectConfiguration(projectPath).orElseThrow(() -> new IllegalArgumentException(String.format("Project '%s' was not configured by the build, configured projects are %s.", projectPath, projectConfigurations)));
+    }
+
+    public Optional<ProjectConfiguration> findProjectConfiguration(String projectPath) {
+        return projectConfigurations.stream().filter(it -> it.getPath().equals(projectPath)).findFirst();
+    }
+
+    /**
+     * Returns the execution of the given task.
+     *
+     * @param taskPath the path of the task, for example {@code :app:compileJava}
+     * @return the execution of the task, never null
+     * @throws IllegalArgumentException if the task was not executed by the build
+     */
+    public TaskExecution getTaskExecution(String taskPath) {
+        return findTaskExecution(taskPath).orElseThrow(() -> new IllegalArgumentException(String.format("Task '%s' was not executed by the build, executed tasks are %s.", taskPath, taskExecutions)));
+    }
+
+    public Optional<TaskExecution> findTaskExecution(String taskPath) {
+        return taskExecutions.stream().filter(it -> it.getPath().equals(taskPath)).findFirst();
+    }
+
+    /**
+     * Returns the time spent configuring all the projects.
+     */
+    public long getTotalConfigurationTimeMillis() {
+        return projectConfigurations.stream().mapToLong(ProjectConfiguration::getDurationMillis).sum();
+    }
+
+    /**
+     * Returns the time spent executing all the tasks, tasks running in parallel are counted separately.
+     */
+    public long getTotalTaskExecutionTimeMillis() {
+        return taskExecutions.stream().mapToLong(TaskExecution::getDurationMillis).sum();
+    }
+
+    @Value
+    public static class ProjectConfiguration {
+        String path;
+
+        /** From evaluating the build script until the {@code afterEvaluate} actions completed. */
+        long durationMillis;
+
+        @Override
+        public String toString() {
+            return String.format("%s (%d ms)", path, durationMillis);
+        }
+    }
+
+    @Value
+    public static class TaskExecution {
+        String path;
+
+        /** From resolving the inputs of the task until its outputs are stored, including loading them from the build cache. */
+        long durationMillis;
+
+        /** The outcome of the task, named as {@code org.gradle.testkit.runner.TaskOutcome}: {@code SUCCESS}, {@code FAILED}, {@code UP_TO_DATE}, {@code SKIPPED}, {@code FROM_CACHE} or {@code NO_SOURCE}. */
+        String outcome;
+
+        /** The build cache key of the task, in hexadecimal, or null if the task never got as far as snapshotting its inputs. */
+        @Nullable String cacheKey;
+
+        @Override
+        public String toString() {
+            return String.format("%s %s (%d ms)", path, outcome, durationMillis);
+        }
+    }
+}
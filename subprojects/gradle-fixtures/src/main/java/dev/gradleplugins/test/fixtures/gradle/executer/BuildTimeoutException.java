@@ -0,0 +1,45 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.test.fixtures.gradle.executer;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a build did not complete within the timeout of {@link GradleExecuter#withTimeout(Duration)}.
+ * The build was killed, its message holds the thread dumps taken right before.
+ */
+public class BuildTimeoutException extends RuntimeException {
+    private final Duration timeout;
+    private final String threadDumps;
+
+    public BuildTimeoutException(String description, Duration timeout, String threadDumps) {
+        super(description + System.lineSeparator() + System.lineSeparator() + threadDumps);
+        this.timeout = timeout;
+        this.threadDumps = threadDumps;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Returns the thread dumps of the build JVM and the daemon, taken right before killing them.
+     */
+    public String getThreadDumps() {
+        return threadDumps;
+    }
+}
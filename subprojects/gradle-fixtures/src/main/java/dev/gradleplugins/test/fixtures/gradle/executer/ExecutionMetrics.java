@@ -0,0 +1,43 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.test.fixtures.gradle.executer;
+
+import lombok.Value;
+
+import javax.annotation.Nullable;
+
+/**
+ * Timing and resource usage of a single build invocation, as recorded by the executer.
+ * A metric the executer could not observe is null, for example the resource usage on operating systems without {@code /proc}.
+ */
+@Value
+public class ExecutionMetrics {
+    /** From the start of the invocation until the build completed, including waiting for a daemon. */
+    long wallTimeMillis;
+
+    /** From the start of the invocation until the build printed something. */
+    @Nullable Long timeToFirstOutputMillis;
+
+    /** Whether the build ran in a daemon that was already running. */
+    @Nullable Boolean daemonReused;
+
+    /** The peak resident set size of the process running the build, during the build. */
+    @Nullable Long peakResidentSetSizeBytes;
+
+    /** The CPU time the process running the build spent on the build. */
+    @Nullable Long cpuTimeMillis;
+}
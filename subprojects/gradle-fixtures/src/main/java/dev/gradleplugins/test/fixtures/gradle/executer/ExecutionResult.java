@@ -3,6 +3,8 @@ package dev.gradleplugins.test.fixtures.gradle.executer;
 import dev.gradleplugins.test.fixtures.gradle.logging.GroupedOutputFixture;
 import org.hamcrest.Matcher;
 
+import javax.annotation.Nullable;
+
 public interface ExecutionResult {
     /**
      * Stdout of the Gradle execution, normalized to use new-line char as line separator.
@@ -85,4 +87,20 @@ public interface ExecutionResult {
      * @param expectedOutput The expected log message, with line endings normalized to a newline character.
      */
     ExecutionResult assertHasPostBuildOutput(String expectedOutput);
+
+    /**
+     * Returns the timing and resource usage of the build.
+     *
+     * @return the metrics recorded by the executer, or null if the result was not produced by an executer
+     */
+    @Nullable
+    ExecutionMetrics getMetrics();
+
+    /**
+     * Returns what the build spent its configuration and task execution time on, see {@link GradleExecuter#withBuildProfiling()}.
+     *
+     * @return the profile recorded from inside the build, or null if the build was not profiled
+     */
+    @Nullable
+    BuildProfile getBuildProfile();
 }
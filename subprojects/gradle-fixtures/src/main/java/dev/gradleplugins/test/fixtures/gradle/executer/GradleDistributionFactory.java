@@ -7,6 +7,11 @@ import javax.annotation.Nullable;
 import java.io.File;
 
 public class GradleDistributionFactory {
+    /**
+     * The directory distributions are installed into, shared with the task pre-fetching them before the tests run.
+     */
+    public static final String DISTRIBUTIONS_DIR_SYSPROP_NAME = "dev.gradleplugins.gradleDistributionsDir";
+
     // Collect this early, as the process' current directory can change during embedded test execution
     private static final TestFile TEST_DIR = TestFile.of(new File("."));
 
@@ -14,7 +19,7 @@ public class GradleDistributionFactory {
 //        if (version.equals(getVersion().getVersion())) {
 //            return new UnderDevelopmentGradleDistribution();
 //        }
-        TestFile previousVersionDir = getGradleUserHomeDir().getParentFile().file("previousVersion");
+        TestFile previousVersionDir = getDistributionsDir();
 //        if (version.startsWith("#")) {
 //            return new BuildServerGradleDistribution(version, previousVersionDir.file(version));
 //        }
@@ -25,6 +30,14 @@ public class GradleDistributionFactory {
         return new ReleasedGradleDistribution(version, previousVersionDir.file(version));
     }
 
+    private static TestFile getDistributionsDir() {
+        TestFile distributionsDir = optionalFile(DISTRIBUTIONS_DIR_SYSPROP_NAME);
+        if (distributionsDir != null) {
+            return distributionsDir;
+        }
+        return getGradleUserHomeDir().getParentFile().file("previousVersion");
+    }
+
     private static TestFile getGradleUserHomeDir() {
         return file("integTest.gradleUserHomeDir", "intTestHomeDir").file("worker-1");
     }
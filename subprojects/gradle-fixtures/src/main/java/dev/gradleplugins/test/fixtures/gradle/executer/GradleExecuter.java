@@ -20,6 +20,8 @@ import dev.gradleplugins.test.fixtures.file.TestFile;
 import dev.gradleplugins.test.fixtures.gradle.logging.ConsoleOutput;
 
 import java.io.File;
+import java.time.Duration;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
@@ -76,6 +78,29 @@ public interface GradleExecuter {
      */
     GradleExecuter withBuildCacheEnabled();
 
+    /**
+     * Profiles the configuration of each project and the execution of each task from inside the build, see {@link ExecutionResult#getBuildProfile()}.
+     * The build never reuses the configuration cache, as a cached configuration wouldn't be profiled.
+     * The profile is empty, and the build warns about it, on the Gradle versions lacking the internal build operations the profiling relies on.
+     */
+    GradleExecuter withBuildProfiling();
+
+    /**
+     * Reports the metrics of the builds under the given test class.
+     * Defaults to the test class calling into the executer when it is created, which is the class declaring the test rather than its runtime class for a test inherited from an abstract test class.
+     *
+     * @param testClass the runtime class of the test
+     * @return a new {@link GradleExecuter} instance with the new configuration.
+     */
+    GradleExecuter withTestClass(Class<?> testClass);
+
+    /**
+     * Sets how long each build may run before it's killed, along with its daemon, after taking their thread dumps.
+     * A build that times out throws a {@link BuildTimeoutException}, or fails with the thread dumps as its exception when a failure is expected.
+     * Defaults to the {@code dev.gradleplugins.buildTimeout} system property, as an ISO-8601 duration such as {@code PT10M}, or no timeout.
+     */
+    GradleExecuter withTimeout(Duration timeout);
+
     /**
      * Activates the plugin classpath from the plugins under test.
      */
@@ -83,9 +108,17 @@ public interface GradleExecuter {
 
     /**
      * Sets the user's home dir to use when running the build. Implementations are not 100% accurate.
+     *
+     * <p>Note: only the build sees it, the Gradle user home and the daemon are unaffected, see {@link #withBuildSystemProperty(String, String)}.</p>
      */
     GradleExecuter withUserHomeDirectory(File userHomeDirectory);
 
+    /**
+     * Sets a system property for the duration of the build only.
+     * Contrary to a {@code -D} argument, the Gradle client never sees it, so per-test values don't prevent the build from reusing a running daemon.
+     */
+    GradleExecuter withBuildSystemProperty(String name, String value);
+
     /**
      * Sets the <em>Gradle</em> user home dir.
      * Setting to null requests that the executer use the real default Gradle user home dir rather than the default used for testing.
@@ -140,6 +173,15 @@ public interface GradleExecuter {
      */
     ExecutionFailure runWithFailure();
 
+    /**
+     * Executes each scenario concurrently against its own copy of the test directory, starting from this executer configuration.
+     * Failures are collected in the results instead of being thrown.
+     *
+     * @param scenarios the scenarios to execute, with unique names
+     * @return the outcome of every scenario, keyed by scenario
+     */
+    ScenarioResults runAll(Collection<ScenarioSpec> scenarios);
+
     /**
      * Adds an action to be called immediately before execution, to allow extra configuration to be injected.
      */
@@ -159,6 +201,7 @@ public interface GradleExecuter {
      * Configures a unique gradle user home dir for the test.
      *
      * The gradle user home dir used will be underneath the {@link #getTestDirectory()} directory.
+     * It starts empty, but its builds resolve what they can from a read-only snapshot of a warm dependency cache taken once per test JVM.
      *
      * <p>Note: does not affect the daemon base dir.</p>
      */
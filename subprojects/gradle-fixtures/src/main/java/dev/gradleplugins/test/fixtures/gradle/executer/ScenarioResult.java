@@ -0,0 +1,40 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.test.fixtures.gradle.executer;
+
+import lombok.Value;
+
+import javax.annotation.Nullable;
+
+/**
+ * The outcome of a single scenario of a batch.
+ * Exactly one of the result or the failure is present.
+ */
+@Value
+public class ScenarioResult {
+    ScenarioSpec scenario;
+
+    /** The result of the scenario, or null if the scenario did not complete as expected. */
+    @Nullable ExecutionResult result;
+
+    /** The error raised while running the scenario, or null if the scenario completed as expected. */
+    @Nullable Throwable failure;
+
+    public boolean isSuccessful() {
+        return failure == null;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.test.fixtures.gradle.executer;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The outcome of every scenario of a batch, keyed by scenario in submission order.
+ */
+public final class ScenarioResults {
+    private final Map<ScenarioSpec, ScenarioResult> results;
+
+    public ScenarioResults(List<ScenarioResult> results) {
+        Map<ScenarioSpec, ScenarioResult> map = new LinkedHashMap<>();
+        results.forEach(it -> map.put(it.getScenario(), it));
+        this.results = Collections.unmodifiableMap(map);
+    }
+
+    public Map<ScenarioSpec, ScenarioResult> asMap() {
+        return results;
+    }
+
+    public ScenarioResult get(ScenarioSpec scenario) {
+        ScenarioResult result = results.get(scenario);
+        if (result == null) {
+            throw new IllegalArgumentException(String.format("Unknown %s.", scenario));
+        }
+        return result;
+    }
+
+    public ScenarioResult get(String name) {
+        return results.values().stream().filter(it -> it.getScenario().getName().equals(name)).findFirst().orElseThrow(() -> new IllegalArgumentException(String.format("Unknown scenario '%s'.", name)));
+    }
+
+    public List<ScenarioResult> getFailures() {
+        return results.values().stream().filter(it -> !it.isSuccessful()).collect(Collectors.toList());
+    }
+
+    /**
+     * Asserts every scenario completed as expected, reporting all failures at once.
+     */
+    public ScenarioResults assertAllSucceeded() {
+        List<ScenarioResult> failures = getFailures();
+        if (!failures.isEmpty()) {
+            AssertionError error = new AssertionError(String.format("%d of %d scenarios did not complete as expected: %s", failures.size(), results.size(), failures.stream().map(it -> it.getScenario().getName()).collect(Collectors.toList())));
+            failures.forEach(it -> error.addSuppressed(it.getFailure()));
+            throw error;
+        }
+        return this;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.test.fixtures.gradle.executer;
+
+import lombok.Value;
+
+import java.util.function.Function;
+
+/**
+ * A named variant of a build, executed by {@link GradleExecuter#runAll(java.util.Collection)}.
+ */
+@Value
+public class ScenarioSpec {
+    /** The name of the scenario, unique within a batch. */
+    String name;
+
+    /** Configures the executer for this scenario, for example to add tasks, arguments or a Gradle version. */
+    Function<? super GradleExecuter, GradleExecuter> action;
+
+    /** Whether the scenario is expected to fail, in which case its result is an {@link ExecutionFailure}. */
+    boolean expectFailure;
+
+    /**
+     * Creates a scenario expected to succeed.
+     */
+    public static ScenarioSpec succeeds(String name, Function<? super GradleExecuter, GradleExecuter> action) {
+        return new ScenarioSpec(name, action, false);
+    }
+
+    /**
+     * Creates a scenario expected to fail.
+     */
+    public static ScenarioSpec fails(String name, Function<? super GradleExecuter, GradleExecuter> action) {
+        return new ScenarioSpec(name, action, true);
+    }
+
+    @Override
+    public String toString() {
+        return "scenario '" + name + "'";
+    }
+}
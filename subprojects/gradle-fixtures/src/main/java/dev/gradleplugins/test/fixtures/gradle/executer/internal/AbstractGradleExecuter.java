@@ -4,16 +4,22 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Maps;
 import dev.gradleplugins.test.fixtures.file.TestFile;
 import dev.gradleplugins.test.fixtures.gradle.executer.ExecutionFailure;
+import dev.gradleplugins.test.fixtures.gradle.executer.ExecutionMetrics;
 import dev.gradleplugins.test.fixtures.gradle.executer.ExecutionResult;
 import dev.gradleplugins.test.fixtures.gradle.executer.GradleDistribution;
 import dev.gradleplugins.test.fixtures.gradle.executer.GradleExecuter;
+import dev.gradleplugins.test.fixtures.gradle.executer.ScenarioResults;
+import dev.gradleplugins.test.fixtures.gradle.executer.ScenarioSpec;
 import dev.gradleplugins.test.fixtures.gradle.logging.ConsoleOutput;
 import lombok.NonNull;
 import lombok.val;
 
 import javax.annotation.Nullable;
 import java.io.File;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
@@ -32,7 +38,8 @@ abstract class AbstractGradleExecuter implements GradleExecuter {
 
     // TODO: Remove nullability at some point
     public AbstractGradleExecuter(@Nullable GradleDistribution distribution, @NonNull TestFile testDirectory) {
-        this(testDirectory, new GradleExecuterConfiguration(distribution));
+        // Scenarios of a batch run on other threads, the test class is only known from here
+        this(testDirectory, new GradleExecuterConfiguration(distribution).withTestClassName(ExecutionMetricsReport.findTestClass()));
     }
 
     protected AbstractGradleExecuter(TestFile testDirectory, GradleExecuterConfiguration configuration) {
@@ -62,11 +69,25 @@ abstract class AbstractGradleExecuter implements GradleExecuter {
     }
     //endregion
 
-    //region Flag `-Djava.home` configuration
+    //region Build system properties configuration
     @Override
     public GradleExecuter withUserHomeDirectory(File userHomeDirectory) {
         return newInstance(configuration.withUserHomeDirectory(userHomeDirectory));
     }
+
+    @Override
+    public GradleExecuter withBuildSystemProperty(String name, String value) {
+        Map<String, String> buildSystemProperties = new LinkedHashMap<>(configuration.getBuildSystemProperties());
+        buildSystemProperties.put(name, value);
+        return newInstance(configuration.withBuildSystemProperties(buildSystemProperties));
+    }
+
+    private Map<String, String> getAllBuildSystemProperties() {
+        Map<String, String> result = new LinkedHashMap<>();
+        ofNullable(configuration.getUserHomeDirectory()).ifPresent(it -> result.put("user.home", it.getAbsolutePath()));
+        result.putAll(configuration.getBuildSystemProperties());
+        return result;
+    }
     //endregion
 
     //region Flag `--gradle-user-home` configuration
@@ -77,7 +98,8 @@ abstract class AbstractGradleExecuter implements GradleExecuter {
 
     @Override
     public GradleExecuter requireOwnGradleUserHomeDirectory() {
-        return newInstance(configuration.withGradleUserHomeDirectory(testDirectory.createDirectory("user-home")));
+        TestFile gradleUserHomeDirectory = testDirectory.createDirectory("user-home");
+        return ReadOnlyDependencyCache.getDefault().apply(newInstance(configuration.withGradleUserHomeDirectory(gradleUserHomeDirectory)), gradleUserHomeDirectory);
     }
     //endregion
 
@@ -143,6 +165,35 @@ abstract class AbstractGradleExecuter implements GradleExecuter {
     }
     //endregion
 
+    //region Test class configuration
+    @Override
+    public GradleExecuter withTestClass(Class<?> testClass) {
+        return newInstance(configuration.withTestClassName(testClass.getName()));
+    }
+    //endregion
+
+    //region Build profiling configuration
+    @Override
+    public GradleExecuter withBuildProfiling() {
+        return newInstance(configuration.withBuildProfiling(true));
+    }
+
+    private <T extends ExecutionResult> T runProfiled(Function<GradleExecuter, T> action) {
+        File profileFile = BuildProfilingInitScript.newProfileFile();
+        try {
+            T result = action.apply(newInstance(configuration.withBuildProfiling(false))
+                    .usingInitScript(BuildProfilingInitScript.get())
+                    .withArgument("-P" + BuildProfilingInitScript.PROFILE_FILE_PROPERTY_NAME + "=" + profileFile.getAbsolutePath()));
+            if (result instanceof MeasuredExecutionResult) {
+                ((MeasuredExecutionResult) result).setBuildProfile(BuildProfilingInitScript.read(profileFile));
+            }
+            return result;
+        } finally {
+            profileFile.delete();
+        }
+    }
+    //endregion
+
     //region Process arguments configuration
     @Override
     public GradleExecuter withArguments(String... args) {
@@ -221,11 +272,45 @@ abstract class AbstractGradleExecuter implements GradleExecuter {
     }
     //endregion
 
+    //region Timeout configuration
+    @Override
+    public GradleExecuter withTimeout(Duration timeout) {
+        return newInstance(configuration.withTimeout(timeout));
+    }
+
+    @Nullable
+    private Duration getTimeout() {
+        return ofNullable(configuration.getTimeout()).orElseGet(BuildWatchdog::getDefaultTimeout);
+    }
+
+    private <T extends ExecutionResult> T watched(Function<BuildWatchdog.Watch, T> build, Function<BuildWatchdog.Watch, T> onTimeout) {
+        BuildWatchdog.Watch watch = BuildWatchdog.getDefault().watch(getTimeout(), getWorkingDirectory());
+        T result;
+        try {
+            result = build.apply(watch);
+        } catch (RuntimeException | Error e) {
+            watch.close();
+            if (watch.isTimedOut()) {
+                // Whatever the client reported, such as the daemon disappearing, the build was killed
+                return onTimeout.apply(watch);
+            }
+            throw e;
+        }
+        watch.close();
+        return watch.isTimedOut() ? onTimeout.apply(watch) : result;
+    }
+    //endregion
+
     @Override
     public ExecutionResult run() {
-        if (configuration.getBeforeExecute().isEmpty()) {
-            try {
-                ExecutionResult result = doRun();
+        if (configuration.getBeforeExecute().isEmpty() && configuration.isBuildProfiling()) {
+            return runProfiled(GradleExecuter::run);
+        } else if (configuration.getBeforeExecute().isEmpty()) {
+            try (ExecutionMetricsRecorder metrics = new ExecutionMetricsRecorder(getWorkingDirectory())) {
+                ExecutionResult result = watched(watch -> doRun(metrics, watch), watch -> {
+                    throw watch.toException();
+                });
+                recordMetrics(result, metrics);
                 fireAfterExecute();
                 return result;
             } finally {
@@ -236,13 +321,16 @@ abstract class AbstractGradleExecuter implements GradleExecuter {
         }
     }
 
-    protected abstract ExecutionResult doRun();
+    protected abstract ExecutionResult doRun(ExecutionMetricsRecorder metrics, BuildWatchdog.Watch watch);
 
     @Override
     public ExecutionFailure runWithFailure() {
-        if (configuration.getBeforeExecute().isEmpty()) {
-            try {
-                ExecutionFailure result = doRunWithFailure();
+        if (configuration.getBeforeExecute().isEmpty() && configuration.isBuildProfiling()) {
+            return runProfiled(GradleExecuter::runWithFailure);
+        } else if (configuration.getBeforeExecute().isEmpty()) {
+            try (ExecutionMetricsRecorder metrics = new ExecutionMetricsRecorder(getWorkingDirectory())) {
+                ExecutionFailure result = watched(watch -> doRunWithFailure(metrics, watch), BuildWatchdog.Watch::toFailure);
+                recordMetrics(result, metrics);
                 fireAfterExecute();
                 return result;
             } finally {
@@ -253,7 +341,29 @@ abstract class AbstractGradleExecuter implements GradleExecuter {
         }
     }
 
-    protected abstract ExecutionFailure doRunWithFailure();
+    protected abstract ExecutionFailure doRunWithFailure(ExecutionMetricsRecorder metrics, BuildWatchdog.Watch watch);
+
+    private void recordMetrics(@Nullable ExecutionResult result, ExecutionMetricsRecorder recorder) {
+        ExecutionMetrics metrics = recorder.complete();
+        if (result instanceof MeasuredExecutionResult) {
+            ((MeasuredExecutionResult) result).setMetrics(metrics);
+        }
+        ExecutionMetricsReport.getDefault().record(getTestClassName(), metrics);
+    }
+
+    /**
+     * Returns the test class the builds of this executer report on.
+     */
+    String getTestClassName() {
+        return ofNullable(configuration.getTestClassName()).orElseGet(ExecutionMetricsReport::findTestClass);
+    }
+
+    //region Batch execution
+    @Override
+    public ScenarioResults runAll(Collection<ScenarioSpec> scenarios) {
+        return new ScenarioBatchRunner(this).runAll(scenarios);
+    }
+    //endregion
 
     private void finished() {
     }
@@ -261,10 +371,9 @@ abstract class AbstractGradleExecuter implements GradleExecuter {
     protected List<String> getAllArguments() {
         List<String> allArguments = new ArrayList<>();
 
-        // JVM arguments
-        allArguments.addAll(ofNullable(configuration.getUserHomeDirectory()).map(it -> singletonList("-Duser.home=" + it.getAbsolutePath())).orElse(emptyList()));
-
         // Gradle arguments
+        Map<String, String> buildSystemProperties = getAllBuildSystemProperties();
+        allArguments.addAll(buildSystemProperties.isEmpty() ? emptyList() : asList("--init-script", BuildSystemPropertiesInitScript.of(buildSystemProperties).getAbsolutePath()));
         allArguments.addAll(ofNullable(configuration.getBuildScript()).map(it -> asList("--build-file", it.getAbsolutePath())).orElse(emptyList()));
         allArguments.addAll(ofNullable(configuration.getBuildScript()).map(it -> asList("--project-dir", it.getAbsolutePath())).orElse(emptyList()));
         allArguments.addAll(ofNullable(configuration.getInitScripts()).map(it -> it.stream().flatMap(initScript -> Stream.of("--init-script", initScript.getAbsolutePath())).collect(toList())).orElse(emptyList()));
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.test.fixtures.gradle.executer.internal;
+
+import javax.annotation.Nullable;
+
+/**
+ * Removes ANSI control sequences from a line in a single linear scan, without emulating the console.
+ *
+ * Only sequences that don't move the cursor are handled: SGR (text attributes, {@code ESC[...m}) and erase to end of line ({@code ESC[K} or {@code ESC[0K}).
+ * Since text is only ever appended, erasing to the end of the line has no visible effect.
+ * Any other control sequence or character, such as cursor movements or a carriage return, requires the full console emulation.
+ */
+final class AnsiStripper {
+    private static final char ESCAPE = '\u001B';
+
+    private AnsiStripper() {}
+
+    /**
+     * Returns the line without its SGR and erase to end of line sequences, or null if the line requires the full console emulation.
+     */
+    @Nullable
+    static CharSequence strip(CharSequence line) {
+        int escape = indexOfControlChar(line, 0);
+        if (escape < 0) {
+            return line;
+        }
+
+        StringBuilder result = new StringBuilder(line.length());
+        int start = 0;
+        while (escape >= 0) {
+            int end = endOfSupportedSequence(line, escape);
+            if (end < 0) {
+                return null;
+            }
+            result.append(line, start, escape);
+            start = end;
+            escape = indexOfControlChar(line, start);
+        }
+        result.append(line, start, line.length());
+        return result;
+    }
+
+    private static int indexOfControlChar(CharSequence line, int fromIndex) {
+        for (int i = fromIndex; i < line.length(); i++) {
+            if (LogContent.isControlChar(line.charAt(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index following the control sequence starting at the given index, or -1 if the sequence is not supported.
+     */
+    private static int endOfSupportedSequence(CharSequence line, int index) {
+        if (line.charAt(index) != ESCAPE || index + 1 >= line.length() || line.charAt(index + 1) != '[') {
+            return -1;
+        }
+        int i = index + 2;
+        while (i < line.length() && (Character.isDigit(line.charAt(i)) || line.charAt(i) == ';')) {
+            i++;
+        }
+        if (i >= line.length()) {
+            return -1;
+        }
+
+        char command = line.charAt(i);
+        if (command == 'm') {
+            return i + 1;
+        } else if (command == 'K' && (i == index + 2 || (i == index + 3 && line.charAt(index + 2) == '0'))) {
+            return i + 1;
+        }
+        return -1;
+    }
+}
@@ -19,33 +19,22 @@ package dev.gradleplugins.test.fixtures.gradle.executer.internal;
 
 import org.junit.Assert;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Checks that all lines contained in the expected output are present in the actual output, in any order.
+ * Each expected line consumes one matching actual line, so repeated lines must be repeated in the actual output.
  */
 public class AnyOrderOutputMatcher extends SequentialOutputMatcher {
     protected void assertOutputLinesMatch(List<String> expectedLines, List<String> actualLines, boolean ignoreExtraLines, String actual) {
-        List<String> unmatchedLines = new ArrayList<String>(actualLines);
-        expectedLines.removeIf(String::isEmpty);
-        unmatchedLines.removeIf(String::isEmpty);
-
-        expectedLines.forEach( expectedLine -> {
-            List<String> matchedLine = unmatchedLines.stream().filter(actualLine -> {
-                return compare(expectedLine, actualLine);
-            }).collect(Collectors.toList());
-            if (!matchedLine.isEmpty()) {
-                unmatchedLines.removeAll(matchedLine);
-            } else {
-                Assert.fail(String.format("Line missing from output.%n%s%n---%nActual output:%n%s%n---", expectedLine, actual));
-            }
-        });
+        OutputDiff.Unmatched unmatched = OutputDiff.of(expectedLines, actualLines, this::getMatchingExpectedLines).matchInAnyOrder();
+        if (!unmatched.getMissingLines().isEmpty()) {
+            Assert.fail(String.format("Line missing from output.%n%s%n---%nUnmatched output:%n%s%n---", String.join(System.lineSeparator(), unmatched.getMissingLines()), String.join(System.lineSeparator(), unmatched.getExtraLines())));
+        }
 
-        if (!(ignoreExtraLines || unmatchedLines.isEmpty())) {
-            String unmatched = String.join(System.lineSeparator(), unmatchedLines);
-            Assert.fail(String.format("Extra lines in output.%n%s%n---%nActual output:%n%s%n---", unmatched, actual));
+        if (!(ignoreExtraLines || unmatched.getExtraLines().isEmpty())) {
+            String unmatchedLines = String.join(System.lineSeparator(), unmatched.getExtraLines());
+            Assert.fail(String.format("Extra lines in output.%n%s%n---", unmatchedLines));
         }
     }
 }
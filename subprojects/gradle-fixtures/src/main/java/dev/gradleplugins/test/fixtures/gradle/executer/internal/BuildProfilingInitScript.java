@@ -0,0 +1,222 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.test.fixtures.gradle.executer.internal;
+
+import com.google.common.hash.Hashing;
+import dev.gradleplugins.internal.files.LocalFiles;
+import dev.gradleplugins.test.fixtures.gradle.executer.BuildProfile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates the init script profiling the build under test, see {@code GradleExecuter#withBuildProfiling}.
+ *
+ * The script listens to the build operations of Gradle, the same ones build scans are made of, so it sees the configuration of each project, the execution of each task and the cache key of the task.
+ * Each record is appended to the profile file as soon as its operation completes, one tab-separated line per project or task, so a build that dies still leaves the records up to that point.
+ * The listener detaches itself once the build completes, nothing is left behind in the daemon.
+ * The build operation types are internal to Gradle, the script resolves them by name and only profiles the build if the Gradle version under test has all of them, warning otherwise.
+ *
+ * The profile file is handed to the build as the {@code dev.gradleplugins.buildProfile} project property: a {@code -D} argument would take part in the daemon compatibility, and a different file per build would then prevent reusing the daemon.
+ * As a project property, it also prevents the build from reusing the configuration cache, which would skip the init scripts and the configuration of the projects.
+ */
+final class BuildProfilingInitScript {
+    static final String PROFILE_FILE_PROPERTY_NAME = "dev.gradleplugins.buildProfile";
+    private static final String CONTENT = String.join(System.lineSeparator(),
+            "// Generated by the Gradle fixtures, records the configuration and task execution times of the build under test",
+            "import java.util.concurrent.ConcurrentHashMap",
+            "",
+            "// The listener of the top level build sees the operations of the nested builds as well",
+            "if (gradle.parent == null) {",
+            "    def profileFile = gradle.startParameter.projectProperties['" + PROFILE_FILE_PROPERTY_NAME + "']",
+            "    if (profileFile != null) {",
+            "        def types = null",
+            "        try {",
+            "            types = new BuildOperationTypes(getClass().classLoader)",
+            "        } catch (ReflectiveOperationException e) {",
+            "            logger.warn(\"The build is not profiled, Gradle ${gradle.gradleVersion} lacks the internal build operation API ${e.message}.\")",
+            "        }",
+            "        if (types != null) {",
+            "            new BuildProfilingListener(new File(profileFile), types).attach(gradle.services.get(types.listenerManager))",
+            "        }",
+            "    }",
+            "}",
+            "",
+            "// The build operations are internal to Gradle, so they are resolved by name to fail gracefully on the Gradle versions where they moved or changed",
+            "class BuildOperationTypes {",
+            "    final Class<?> listenerManager",
+            "    final Class<?> listener",
+            "    final Class<?> snapshotTaskInputsResult",
+            "    final Class<?> configureProjectDetails",
+            "    final Class<?> executeTaskDetails",
+            "",
+            "    BuildOperationTypes(ClassLoader classLoader) throws ReflectiveOperationException {",
+            "        listenerManager = load(classLoader, 'org.gradle.internal.operations.BuildOperationListenerManager', 'addListener', 'removeListener')",
+            "        listener = load(classLoader, 'org.gradle.internal.operations.BuildOperationListener', 'started', 'progress', 'finished')",
+            "        load(classLoader, 'org.gradle.internal.operations.BuildOperationDescriptor', 'getId', 'getParentId', 'getDetails')",
+            "        load(classLoader, 'org.gradle.internal.operations.OperationFinishEvent', 'getStartTime', 'getEndTime', 'getFailure', 'getResult')",
+            "        snapshotTaskInputsResult = load(classLoader, 'org.gradle.api.internal.tasks.SnapshotTaskInputsBuildOperationType$Result', 'getHashBytes')",
+            "        configureProjectDetails = load(classLoader, 'org.gradle.configuration.project.ConfigureProjectBuildOperationType$Details', 'getBuildPath', 'getProjectPath')",
+            "        executeTaskDetails = load(classLoader, 'org.gradle.api.internal.tasks.execution.ExecuteTaskBuildOperationType$Details', 'getBuildPath', 'getTaskPath')",
+            "        load(classLoader, 'org.gradle.api.internal.tasks.execution.ExecuteTaskBuildOperationType$Result', 'getSkipMessage', 'isActionable')",
+            "    }",
+            "",
+            "    private static Class<?> load(ClassLoader classLoader, String className, String... methodNames) throws ReflectiveOperationException {",
+            "        def result = Class.forName(className, false, classLoader)",
+            "        for (String methodName : methodNames) {",
+            "            if (!result.methods.any { it.name == methodName }) {",
+            "                throw new NoSuchMethodException(\"${className}.${methodName}\")",
+            "            }",
+            "        }",
+            "        return result",
+            "    }",
+            "}",
+            "",
+            "class BuildProfilingListener {",
+            "    private final Writer out",
+            "    private final BuildOperationTypes types",
+            "    private final Map<Object, String> cacheKeys = new ConcurrentHashMap<>()",
+            "    private Object listenerManager",
+            "    private Object listener",
+            "",
+            "    BuildProfilingListener(File profileFile, BuildOperationTypes types) {",
+            "        this.out = profileFile.newWriter('UTF-8')",
+            "        this.types = types",
+            "    }",
+            "",
+            "    void attach(Object listenerManager) {",
+            "        this.listenerManager = listenerManager",
+            "        this.listener = [",
+            "            started: { descriptor, startEvent -> },",
+            "            progress: { operationIdentifier, progressEvent -> },",
+            "            finished: { descriptor, finishEvent -> finished(descriptor, finishEvent) },",
+            "        ].asType(types.listener)",
+            "        listenerManager.addListener(listener)",
+            "    }",
+            "",
+            "    private void finished(Object descriptor, Object finishEvent) {",
+            "        def details = descriptor.details",
+            "        def result = finishEvent.result",
+            "        if (descriptor.parentId == null) {",
+            "            // The build completed",
+            "            listenerManager.removeListener(listener)",
+            "            synchronized (this) {",
+            "                out.close()",
+            "            }",
+            "        } else if (types.snapshotTaskInputsResult.isInstance(result) && result.hashBytes != null) {",
+            "            // A child of the task execution",
+            "            cacheKeys.put(descriptor.parentId, result.hashBytes.encodeHex().toString())",
+            "        } else if (types.configureProjectDetails.isInstance(details)) {",
+            "            write('project', identityPath(details.buildPath, details.projectPath), finishEvent)",
+            "        } else if (types.executeTaskDetails.isInstance(details)) {",
+            "            write('task', identityPath(details.buildPath, details.taskPath), finishEvent, outcomeOf(finishEvent), cacheKeys.remove(descriptor.id) ?: '')",
+            "        }",
+            "    }",
+            "",
+            "    private static String identityPath(String buildPath, String path) {",
+            "        return buildPath == ':' ? path : buildPath + path",
+            "    }",
+            "",
+            "    private static String outcomeOf(Object finishEvent) {",
+            "        if (finishEvent.failure != null) {",
+            "            return 'FAILED'",
+            "        }",
+            "        def result = finishEvent.result",
+            "        if (result?.skipMessage != null) {",
+            "            return result.skipMessage.replace('-', '_')",
+            "        }",
+            "        // Tasks without actions, such as lifecycle tasks, are reported up-to-date",
+            "        return result?.actionable ? 'SUCCESS' : 'UP_TO_DATE'",
+            "    }",
+            "",
+            "    private synchronized void write(String kind, String path, Object finishEvent, String... extras) {",
+            "        out.write(([kind, path, finishEvent.endTime - finishEvent.startTime] + extras.toList()).join('\\t'))",
+            "        out.write('\\n')",
+            "        out.flush()",
+            "    }",
+            "}",
+            "");
+
+    private BuildProfilingInitScript() {}
+
+    /**
+     * Returns the init script profiling the build, creating it if needed.
+     *
+     * @return the init script, never null
+     */
+    static File get() {
+        return get(new File(LocalFiles.TEST_FIXTURES_DIRECTORY, "init-scripts"));
+    }
+
+    static File get(File directory) {
+        File initScript = new File(directory, "build-profiling-" + Hashing.sha256().hashString(CONTENT, StandardCharsets.UTF_8).toString().substring(0, 16) + ".init.gradle");
+        if (!initScript.isFile()) {
+            try {
+                LocalFiles.writeAtomically(initScript, CONTENT);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return initScript;
+    }
+
+    /**
+     * Returns a new file for the init script to write the profile of a build into.
+     *
+     * @return the profile file, never null
+     */
+    static File newProfileFile() {
+        try {
+            File directory = new File(LocalFiles.TEST_FIXTURES_DIRECTORY, "build-profiles");
+            Files.createDirectories(directory.toPath());
+            File result = File.createTempFile("build-profile-", ".tsv", directory);
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the profile written by the init script.
+     *
+     * @param profileFile the profile file handed to the build
+     * @return the profile, never null
+     */
+    static BuildProfile read(File profileFile) {
+        List<BuildProfile.ProjectConfiguration> projectConfigurations = new ArrayList<>();
+        List<BuildProfile.TaskExecution> taskExecutions = new ArrayList<>();
+        try {
+            for (String line : Files.readAllLines(profileFile.toPath(), StandardCharsets.UTF_8)) {
+                // A build killed mid-write leaves a truncated last line
+                String[] fields = line.split("\t", -1);
+                if (fields[0].equals("project") && fields.length == 3) {
+                    projectConfigurations.add(new BuildProfile.ProjectConfiguration(fields[1], Long.parseLong(fields[2])));
+                } else if (fields[0].equals("task") && fields.length == 5) {
+                    taskExecutions.add(new BuildProfile.TaskExecution(fields[1], Long.parseLong(fields[2]), fields[3], fields[4].isEmpty() ? null : fields[4]));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new BuildProfile(projectConfigurations, taskExecutions);
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.test.fixtures.gradle.executer.internal;
+
+import com.google.common.hash.Hashing;
+import dev.gradleplugins.internal.files.LocalFiles;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Generates the init script setting the system properties scoped to a single build, such as the user home of {@code GradleExecuter#withUserHomeDirectory}.
+ *
+ * Passed as {@code -D} arguments, the Gradle client adopts them as well: a per-test {@code user.home} moves the default Gradle user home, and with it the daemon registry, so every test forks a new daemon.
+ * They also end up in the key of the {@link GradleRunnerDaemonPool}, so no two tests share a warm daemon.
+ * An init script only runs inside the daemon, and the daemon restores its system properties once the build completes, so nothing leaks into the next build.
+ */
+final class BuildSystemPropertiesInitScript {
+
+    private BuildSystemPropertiesInitScript() {}
+
+    /**
+     * Returns an init script setting the given system properties, creating it if needed.
+     *
+     * @param systemProperties the system properties to set for the build, in order
+     * @return the init script, never null
+     */
+    static File of(Map<String, String> systemProperties) {
+        return of(new File(LocalFiles.TEST_FIXTURES_DIRECTORY, "init-scripts"), systemProperties);
+    }
+
+    static File of(File directory, Map<String, String> systemProperties) {
+        StringBuilder content = new StringBuilder();
+        content.append("// Generated by the Gradle fixtures, sets the system properties scoped to the build under test").append(System.lineSeparator());
+        systemProperties.forEach((key, value) -> content.append("System.setProperty(").append(quote(key)).append(", ").append(quote(value)).append(")").append(System.lineSeparator()));
+
+        File initScript = new File(directory, "build-system-properties-" + Hashing.sha256().hashString(content, StandardCharsets.UTF_8).toString().substring(0, 16) + ".init.gradle");
+        if (!initScript.isFile()) {
+            try {
+                LocalFiles.writeAtomically(initScript, content.toString());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return initScript;
+    }
+
+    private static String quote(String value) {
+        return "'" + value.replace("\\", "\\\\").replace("'", "\\'").replace("\n", "\\n").replace("\r", "\\r") + "'";
+    }
+}
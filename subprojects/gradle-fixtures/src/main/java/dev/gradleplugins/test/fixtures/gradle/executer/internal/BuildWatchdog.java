@@ -0,0 +1,229 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.test.fixtures.gradle.executer.internal;
+
+import dev.gradleplugins.test.fixtures.gradle.executer.BuildTimeoutException;
+import dev.gradleplugins.test.fixtures.gradle.executer.ExecutionFailure;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kills the builds that don't complete within their timeout, so a hung build fails its test instead of blocking the test JVM until the CI job times out.
+ *
+ * All the executers of the test JVM share one watchdog, and the watchdog a single scheduler thread, whatever the number of concurrent builds.
+ * When a build times out, the watchdog dumps the threads of the JVMs running it, then kills them along with their child processes:
+ * <ul>
+ *     <li>the Gradle client, which is the test JVM itself for TestKit and the Tooling API, so only its threads are dumped, or the process started by the wrapper;</li>
+ *     <li>the daemon that logged starting a build from the working directory of the build, since the build started.</li>
+ * </ul>
+ *
+ * The default timeout comes from the {@code dev.gradleplugins.buildTimeout} system property, as an ISO-8601 duration such as {@code PT10M}.
+ */
+final class BuildWatchdog {
+    static final String TIMEOUT_SYSPROP_NAME = "dev.gradleplugins.buildTimeout";
+    private static BuildWatchdog defaultWatchdog = null;
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    BuildWatchdog() {
+        this.scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread result = new Thread(runnable, "Gradle build watchdog");
+            result.setDaemon(true);
+            return result;
+        });
+        // Most builds complete in time, their watch shouldn't linger in the queue until their timeout
+        this.scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    static synchronized BuildWatchdog getDefault() {
+        if (defaultWatchdog == null) {
+            defaultWatchdog = new BuildWatchdog();
+        }
+        return defaultWatchdog;
+    }
+
+    /**
+     * Returns the timeout of the {@code dev.gradleplugins.buildTimeout} system property.
+     *
+     * @return the timeout, or null if the builds never time out
+     */
+    @Nullable
+    static Duration getDefaultTimeout() {
+        String timeout = System.getProperty(TIMEOUT_SYSPROP_NAME);
+        return timeout == null ? null : Duration.parse(timeout);
+    }
+
+    /**
+     * Starts watching a build.
+     *
+     * @param timeout the timeout of the build, or null to never time out
+     * @param workingDirectory the directory the build is started from
+     * @return the watch to report the processes of the build to, and to close once the build completed
+     */
+    Watch watch(@Nullable Duration timeout, File workingDirectory) {
+        Watch result = new Watch(timeout, workingDirectory);
+        if (timeout != null) {
+            result.future = scheduler.schedule(result::timedOut, timeout.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        return result;
+    }
+
+    static final class Watch implements AutoCloseable {
+        @Nullable private final Duration timeout;
+        private final File workingDirectory;
+        private final Map<Long, Long> daemonLogLengthsBeforeBuild = new ConcurrentHashMap<>();
+        private volatile ScheduledFuture<?> future = null;
+        private volatile File daemonBaseDirectory = null;
+        private volatile Process buildProcess = null;
+        private volatile boolean timedOut = false;
+        private volatile String threadDumps = null;
+
+        private Watch(@Nullable Duration timeout, File workingDirectory) {
+            this.timeout = timeout;
+            this.workingDirectory = workingDirectory;
+        }
+
+        /**
+         * Notes where the daemon running the build will log, right before the build is handed to it.
+         *
+         * @param daemonBaseDirectory the daemon base directory of the build
+         */
+        void buildStarting(File daemonBaseDirectory) {
+            DaemonLogs.findDaemonLogFiles(daemonBaseDirectory).forEach((pid, logFile) -> daemonLogLengthsBeforeBuild.put(pid, logFile.length()));
+            this.daemonBaseDirectory = daemonBaseDirectory;
+        }
+
+        /**
+         * Notes the process running the Gradle client, for the executers not running it in the test JVM.
+         */
+        void buildProcessStarted(Process process) {
+            this.buildProcess = process;
+        }
+
+        /**
+         * Returns true if the build timed out, only meaningful once the watch is closed.
+         */
+        boolean isTimedOut() {
+            return timedOut;
+        }
+
+        /**
+         * Stops watching the build, waiting for the build to be killed if it timed out in the meantime.
+         */
+        @Override
+        public void close() {
+            ScheduledFuture<?> future = this.future;
+            if (future != null && !future.cancel(false)) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    // Reported through the thread dumps
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        BuildTimeoutException toException() {
+            return new BuildTimeoutException(getDescription(), timeout, threadDumps);
+        }
+
+        /**
+         * Returns a failure reporting the timeout the same way Gradle reports a build failure, with the thread dumps in place of the exception.
+         */
+        ExecutionFailure toFailure() {
+            return OutputScrapingExecutionFailure.from("", String.join("\n",
+                    "FAILURE: Build failed with an exception.",
+                    "",
+                    "* What went wrong:",
+                    getDescription(),
+                    "",
+                    "* Try:",
+                    "Look for the stuck threads in the thread dumps below.",
+                    "",
+                    "* Exception is:",
+                    threadDumps));
+        }
+
+        private String getDescription() {
+            return String.format("Build did not complete within %s, it was killed along with its daemon.", timeout);
+        }
+
+        private void timedOut() {
+            timedOut = true;
+            StringBuilder dumps = new StringBuilder();
+            Process process = buildProcess;
+            List<Long> daemonPids = new ArrayList<>();
+            try {
+                File daemonBaseDirectory = this.daemonBaseDirectory;
+                Map<Long, File> daemonLogFiles = new TreeMap<>();
+                if (daemonBaseDirectory != null) {
+                    DaemonLogs.findDaemonLogFiles(daemonBaseDirectory).forEach((pid, logFile) -> {
+                        if (DaemonLogs.isGradleDaemon(pid) && DaemonLogs.hasStartedBuildIn(logFile, daemonLogLengthsBeforeBuild.getOrDefault(pid, 0L), workingDirectory)) {
+                            daemonLogFiles.put(pid, logFile);
+                        }
+                    });
+                }
+                daemonPids.addAll(daemonLogFiles.keySet());
+
+                if (process == null) {
+                    appendThreadDump(dumps, "the test JVM, running the Gradle client", ThreadDumps.ofCurrentJvm());
+                } else {
+                    Long pid = ProcessTree.pidOf(process);
+                    if (pid != null) {
+                        for (long it : ProcessTree.of(pid)) {
+                            // The wrapper script is not a JVM, and a daemon started for the build is a child of the client
+                            String dump = daemonLogFiles.containsKey(it) ? null : ThreadDumps.of(it, null);
+                            if (dump != null) {
+                                appendThreadDump(dumps, String.format("the Gradle client (pid %d)", it), dump);
+                            }
+                        }
+                    }
+                }
+
+                daemonLogFiles.forEach((pid, logFile) -> appendThreadDump(dumps, String.format("the Gradle daemon (pid %d)", pid), ThreadDumps.of(pid, logFile)));
+            } catch (RuntimeException e) {
+                dumps.append("Failed to take the thread dumps: ").append(e).append('\n');
+            } finally {
+                threadDumps = dumps.toString();
+                if (process != null) {
+                    Long pid = ProcessTree.pidOf(process);
+                    if (pid != null) {
+                        ProcessTree.kill(pid);
+                    }
+                    process.destroyForcibly();
+                }
+                daemonPids.forEach(ProcessTree::kill);
+            }
+        }
+
+        private static void appendThreadDump(StringBuilder dumps, String jvm, @Nullable String dump) {
+            dumps.append("Thread dump of ").append(jvm).append(":\n");
+            dumps.append(dump == null ? "Unavailable, the JVM did not respond.\n" : dump).append('\n');
+        }
+    }
+}
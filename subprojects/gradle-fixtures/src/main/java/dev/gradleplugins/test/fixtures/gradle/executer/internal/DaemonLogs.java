@@ -0,0 +1,181 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.test.fixtures.gradle.executer.internal;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.SystemUtils;
+
+import javax.annotation.Nullable;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Locates Gradle daemons from the log files they write in their daemon base directory.
+ *
+ * Each daemon writes {@code <daemon-base-dir>/<gradle-version>/daemon-<pid>.out.log}, which is the only process information available without internal Gradle services.
+ */
+final class DaemonLogs {
+    private static final Pattern DAEMON_LOG_FILE_NAME = Pattern.compile("daemon-(\\d+)\\.out\\.log");
+    private static final Pattern BUILD_STARTED_LINE = Pattern.compile("Daemon is about to start building Build\\{id=[^,]*, currentDir=([^}]*)}");
+
+    private DaemonLogs() {}
+
+    /**
+     * Returns the daemon base directory TestKit uses for the given TestKit directory.
+     */
+    static File testKitDaemonBaseDirectory(File testKitDirectory) {
+        return new File(testKitDirectory, "test-kit-daemon");
+    }
+
+    /**
+     * Returns the TestKit directory {@code GradleRunner} uses when none is specified.
+     */
+    static File defaultTestKitDirectory() {
+        return new File(System.getProperty("java.io.tmpdir"), ".gradle-test-kit-" + System.getProperty("user.name"));
+    }
+
+    /**
+     * Returns the daemon base directory of the builds using the given Gradle user home, or the Gradle user home of the current user when null.
+     */
+    static File daemonBaseDirectory(@Nullable File gradleUserHomeDirectory) {
+        if (gradleUserHomeDirectory != null) {
+            return new File(gradleUserHomeDirectory, "daemon");
+        }
+        String gradleUserHome = System.getenv("GRADLE_USER_HOME");
+        if (gradleUserHome == null) {
+            return new File(System.getProperty("user.home"), ".gradle/daemon");
+        }
+        return new File(gradleUserHome, "daemon");
+    }
+
+    /**
+     * Returns the PID of every daemon that ever logged into the given daemon base directory, alive or not.
+     */
+    static Set<Long> findDaemonPids(File daemonBaseDirectory) {
+        return new TreeSet<>(findDaemonLogFiles(daemonBaseDirectory).keySet());
+    }
+
+    /**
+     * Returns the log file of every daemon that ever logged into the given daemon base directory, by PID.
+     */
+    static Map<Long, File> findDaemonLogFiles(File daemonBaseDirectory) {
+        Map<Long, File> result = new TreeMap<>();
+        File[] versionDirectories = daemonBaseDirectory.listFiles(File::isDirectory);
+        if (versionDirectories == null) {
+            return result;
+        }
+        for (File versionDirectory : versionDirectories) {
+            String[] fileNames = versionDirectory.list();
+            if (fileNames == null) {
+                continue;
+            }
+            for (String fileName : fileNames) {
+                Matcher matcher = DAEMON_LOG_FILE_NAME.matcher(fileName);
+                if (matcher.matches()) {
+                    result.put(Long.parseLong(matcher.group(1)), new File(versionDirectory, fileName));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns true if the daemon logged, after the given offset, that it started a build from the given directory.
+     * Each test builds from its own directory, so this tells the daemon running the build of a test apart from the daemons busy with the other test JVMs.
+     *
+     * @param logFile the log file of the daemon
+     * @param offset the length of the log file before the build started
+     * @param directory the directory the build was started from
+     */
+    static boolean hasStartedBuildIn(File logFile, long offset, File directory) {
+        try (InputStream inputStream = new FileInputStream(logFile)) {
+            IOUtils.skip(inputStream, offset);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, Charset.defaultCharset()));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Matcher matcher = BUILD_STARTED_LINE.matcher(line);
+                if (matcher.find() && new File(matcher.group(1)).getCanonicalFile().equals(directory.getCanonicalFile())) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Forcefully stops every live daemon that logged into the given daemon base directory.
+     */
+    static void killAll(File daemonBaseDirectory) {
+        for (long pid : findDaemonPids(daemonBaseDirectory)) {
+            if (isGradleDaemon(pid)) {
+                kill(pid);
+            }
+        }
+    }
+
+    /**
+     * Returns true if the given PID is a live Gradle daemon.
+     * The log files outlive their daemon, so a PID may since have been reused by an unrelated process.
+     */
+    static boolean isGradleDaemon(long pid) {
+        if (SystemUtils.IS_OS_WINDOWS) {
+            return run("tasklist", "/FI", "PID eq " + pid, "/NH").contains(String.valueOf(pid));
+        }
+        File commandLine = new File("/proc/" + pid + "/cmdline");
+        if (commandLine.getParentFile().getParentFile().isDirectory()) {
+            try {
+                return commandLine.exists() && new String(Files.readAllBytes(commandLine.toPath()), Charset.defaultCharset()).contains("GradleDaemon");
+            } catch (IOException e) {
+                return false;
+            }
+        }
+        return run("ps", "-o", "command=", "-p", String.valueOf(pid)).contains("GradleDaemon");
+    }
+
+    private static void kill(long pid) {
+        // Along with its worker processes, they would otherwise outlive the daemon
+        ProcessTree.kill(pid);
+    }
+
+    private static String run(String... commandLine) {
+        try {
+            Process process = new ProcessBuilder(commandLine).redirectErrorStream(true).start();
+            String output = IOUtils.toString(process.getInputStream(), Charset.defaultCharset());
+            process.waitFor();
+            return output;
+        } catch (IOException e) {
+            return "";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "";
+        }
+    }
+}
@@ -16,80 +16,59 @@
 
 package dev.gradleplugins.test.fixtures.gradle.executer.internal;
 
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
+import dev.gradleplugins.internal.distributions.GradleDistributionCache;
+import dev.gradleplugins.internal.distributions.InstalledGradleDistributionLocator;
 import dev.gradleplugins.test.fixtures.file.TestFile;
-import lombok.Value;
 import org.gradle.util.GradleVersion;
 
-import java.io.File;
 import java.net.URL;
 
+/**
+ * A distribution downloaded on first use into a version directory shared across test JVMs, see {@link GradleDistributionCache}.
+ * A matching distribution already installed by the wrapper is used in place, and one available in a mirror directory is installed from there, see {@link InstalledGradleDistributionLocator}.
+ */
 public abstract class DownloadableGradleDistribution extends DefaultGradleDistribution {
-    private static final LoadingCache<Key, File> CACHE = createCache();
-
-    private static LoadingCache<Key, File> createCache() {
-        return CacheBuilder.newBuilder()
-                .maximumSize(10000)
-//                .removalListener(MY_LISTENER)
-                .build(
-                        new CacheLoader<Key, File>() {
-                            public File load(Key key) {
-                                System.out.println("downloading " + key.url.toString());
-                                key.getBinDistribution().copyFrom(key.url);
-                                key.getBinDistribution().usingNativeTools().unzipTo(key.versionDir);
-                                return key.getBinDistribution();
-                            }
-                        });
-//        return new DefaultCacheFactory(
-//                new DefaultFileLockManager(
-//                        new DefaultProcessMetaDataProvider(
-//                                NativeServicesTestFixture.getInstance().get(org.gradle.internal.nativeintegration.ProcessEnvironment)),
-//                        20 * 60 * 1000 // allow up to 20 minutes to download a distribution
-//                        , new NoOpFileLockContentionHandler()), new DefaultExecutorFactory(), new NoOpProgressLoggerFactory())
-    }
-
-    @Value
-    private static class Key {
-        URL url;
-        TestFile binDistribution;
-        TestFile versionDir;
-    }
-
     protected TestFile versionDir;
-//    private PersistentCache cache;
+    private InstalledGradleDistributionLocator.Installation installation = null;
 
     public DownloadableGradleDistribution(String version, TestFile versionDir) {
-        super(GradleVersion.version(version), versionDir.file("gradle-$version"), versionDir.file("gradle-$version-bin.zip"));
+        super(GradleVersion.version(version), TestFile.of(GradleDistributionCache.getGradleHomeDir(versionDir, version)), TestFile.of(GradleDistributionCache.getBinDistribution(versionDir, version)));
         this.versionDir = versionDir;
     }
 
     public TestFile getBinDistribution() {
-        download();
-        return super.getBinDistribution();
+        return TestFile.of(getInstallation().getBinDistribution());
     }
 
     public TestFile getGradleHomeDir() {
-        download();
-        return super.getGradleHomeDir();
+        return TestFile.of(getInstallation().getGradleHomeDir());
+    }
+
+    private synchronized InstalledGradleDistributionLocator.Installation getInstallation() {
+        if (installation == null) {
+            installation = locateOrDownload();
+        }
+        return installation;
     }
 
-    private void download() {
-//        if (cache == null) {
-//            def downloadAction = { cache ->
-//                URL url = getDownloadURL();
-//                System.out.println("downloading $url");
-//                super.getBinDistribution().copyFrom(url);
-//                super.getBinDistribution().usingNativeTools().unzipTo(versionDir);
-//            }
-//            //noinspection GrDeprecatedAPIUsage
-////            cache = CACHE_FACTORY.open(versionDir, getVersion(), [:], CacheBuilder.LockTarget.DefaultTarget, LockOptionsBuilder.mode(FileLockManager.LockMode.Shared).useCrossVersionImplementation(), downloadAction as Action, null)
-//        }
-        CACHE.getUnchecked(new Key(getDownloadURL(), getBinDistribution(), versionDir));
+    private InstalledGradleDistributionLocator.Installation locateOrDownload() {
+        String version = getVersion().getVersion();
+        URL downloadUrl = getDownloadURL();
+        InstalledGradleDistributionLocator locator = InstalledGradleDistributionLocator.getDefault();
+
+        // A distribution installed by this cache is as good as a wrapper one, and cheaper to check
+        if (!GradleDistributionCache.isInstalled(versionDir, version)) {
+            InstalledGradleDistributionLocator.Installation result = locator.findWrapperInstallation(version, downloadUrl, versionDir);
+            if (result != null) {
+                return result;
+            }
+        }
+
+        GradleDistributionCache.install(versionDir, version, locator.findDistribution(version, downloadUrl), downloadUrl, url -> System.out.println(("file".equals(url.getProtocol()) ? "installing " : "downloading ") + url));
 
         super.getBinDistribution().assertIsFile();
         super.getGradleHomeDir().assertIsDirectory();
+        return new InstalledGradleDistributionLocator.Installation(super.getGradleHomeDir(), super.getBinDistribution());
     }
 
     protected abstract URL getDownloadURL();
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.test.fixtures.gradle.executer.internal;
+
+import lombok.Value;
+import org.gradle.testkit.runner.TaskOutcome;
+
+import javax.annotation.Nullable;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * A task that started during a build, with its outcome and timing.
+ */
+@Value
+public class ExecutedTask {
+    private static final Set<TaskOutcome> SKIPPED_TASK_OUTCOMES = EnumSet.of(TaskOutcome.FROM_CACHE, TaskOutcome.NO_SOURCE, TaskOutcome.SKIPPED, TaskOutcome.UP_TO_DATE);
+
+    String path;
+
+    /** The task outcome, or null if the task never finished. */
+    @Nullable TaskOutcome outcome;
+
+    /** Start time, in milliseconds since the epoch. */
+    long startTime;
+
+    /** End time, in milliseconds since the epoch, or 0 if the task never finished. */
+    long endTime;
+
+    /**
+     * Returns true if the task did not execute its actions, matching the statuses printed next to the task name in the console.
+     */
+    public boolean isSkipped() {
+        return outcome != null && SKIPPED_TASK_OUTCOMES.contains(outcome);
+    }
+}
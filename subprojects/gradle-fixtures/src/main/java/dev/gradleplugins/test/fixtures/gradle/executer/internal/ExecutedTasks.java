@@ -0,0 +1,65 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.test.fixtures.gradle.executer.internal;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * The immutable list of tasks of a build, in the order they started.
+ */
+public final class ExecutedTasks {
+    private final List<ExecutedTask> tasks;
+
+    public ExecutedTasks(List<ExecutedTask> tasks) {
+        this.tasks = ImmutableList.copyOf(tasks);
+    }
+
+    public List<ExecutedTask> getTasks() {
+        return tasks;
+    }
+
+    public Optional<ExecutedTask> find(String taskPath) {
+        return tasks.stream().filter(it -> it.getPath().equals(taskPath)).findFirst();
+    }
+
+    /**
+     * Returns the path of every task, in the order they started.
+     */
+    public Set<String> getPaths() {
+        return tasks.stream().map(ExecutedTask::getPath).collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    public Set<String> getSkippedPaths() {
+        return tasks.stream().filter(ExecutedTask::isSkipped).map(ExecutedTask::getPath).collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    public Set<String> getNotSkippedPaths() {
+        return tasks.stream().filter(it -> !it.isSkipped()).map(ExecutedTask::getPath).collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    @Override
+    public String toString() {
+        return tasks.toString();
+    }
+}
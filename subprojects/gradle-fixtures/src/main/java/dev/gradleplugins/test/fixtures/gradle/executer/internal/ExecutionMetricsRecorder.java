@@ -0,0 +1,260 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.test.fixtures.gradle.executer.internal;
+
+import dev.gradleplugins.test.fixtures.gradle.executer.ExecutionMetrics;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records the metrics of a single build invocation.
+ *
+ * The executer routes the output of the build through the recorder, to time the first output, and brackets the build with {@link #buildStarting(File)} and {@link #buildFinished()}.
+ * The daemon running the build is the one logging that it is about to start building from the working directory of the build, the same way the {@link BuildWatchdog} finds it.
+ * The recorder polls the daemon logs until then, so the daemon is known as the build starts, and the daemons busy with the builds of other test JVMs are left alone.
+ * The build reused that daemon if its log file existed before the build.
+ * The resource usage is read from {@code /proc}, so it is only available on Linux.
+ * The CPU time is how much user and system time the daemon spent since it started the build.
+ * The peak RSS is the high-water mark of the daemon, reset when it started the build, so it covers the build only.
+ * A reused daemon only found once the build finished, too short for the polling to notice, has no resource usage recorded.
+ * The recorder is closed once the invocation completed, which stops the polling when the build failed before finishing.
+ */
+final class ExecutionMetricsRecorder implements AutoCloseable {
+    private static final File PROC_DIRECTORY = new File("/proc");
+    // USER_HZ, which the kernel fixes to 100 for user space on the architectures Gradle runs on
+    private static final long CLOCK_TICKS_PER_SECOND = 100;
+    private static final long POLL_INTERVAL_MILLIS = 50;
+    private static final long UNSET = Long.MIN_VALUE;
+    private static ScheduledThreadPoolExecutor poller = null;
+    private final File workingDirectory;
+    private final long startTime = System.nanoTime();
+    private final AtomicLong firstOutputTime = new AtomicLong(UNSET);
+    private File daemonBaseDirectory = null;
+    private final Map<Long, Long> daemonLogLengthsBeforeBuild = new HashMap<>();
+    private ScheduledFuture<?> poll = null;
+    private Long buildPid = null;
+    private Long cpuTimeMillisBeforeBuild = null;
+    private Boolean daemonReused = null;
+    private Long peakResidentSetSizeBytes = null;
+    private Long cpuTimeMillis = null;
+
+    /**
+     * @param workingDirectory the directory the build is started from
+     */
+    ExecutionMetricsRecorder(File workingDirectory) {
+        this.workingDirectory = workingDirectory;
+    }
+
+    private static synchronized ScheduledThreadPoolExecutor getPoller() {
+        if (poller == null) {
+            poller = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread result = new Thread(runnable, "Gradle build metrics");
+                result.setDaemon(true);
+                return result;
+            });
+            poller.setRemoveOnCancelPolicy(true);
+        }
+        return poller;
+    }
+
+    /**
+     * Returns a stream forwarding to the given one, noting when the build prints something first.
+     */
+    OutputStream observe(OutputStream outputStream) {
+        return new FilterOutputStream(outputStream) {
+            @Override
+            public void write(int b) throws IOException {
+                outputObserved();
+                out.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                if (len > 0) {
+                    outputObserved();
+                }
+                out.write(b, off, len);
+            }
+        };
+    }
+
+    /**
+     * Returns a writer forwarding to the given one, noting when the build prints something first.
+     * Each write is flushed, so the output is forwarded as soon as it is observed.
+     */
+    Writer observe(Writer writer) {
+        return new FilterWriter(writer) {
+            @Override
+            public void write(int c) throws IOException {
+                outputObserved();
+                out.write(c);
+                out.flush();
+            }
+
+            @Override
+            public void write(char[] cbuf, int off, int len) throws IOException {
+                if (len > 0) {
+                    outputObserved();
+                }
+                out.write(cbuf, off, len);
+                out.flush();
+            }
+
+            @Override
+            public void write(String str, int off, int len) throws IOException {
+                if (len > 0) {
+                    outputObserved();
+                }
+                out.write(str, off, len);
+                out.flush();
+            }
+        };
+    }
+
+    private void outputObserved() {
+        if (firstOutputTime.get() == UNSET) {
+            firstOutputTime.compareAndSet(UNSET, System.nanoTime());
+        }
+    }
+
+    /**
+     * Starts looking for the daemon running the build, right before the build is handed to it.
+     *
+     * @param daemonBaseDirectory the daemon base directory of the build
+     */
+    synchronized void buildStarting(File daemonBaseDirectory) {
+        this.daemonBaseDirectory = daemonBaseDirectory;
+        DaemonLogs.findDaemonLogFiles(daemonBaseDirectory).forEach((pid, logFile) -> daemonLogLengthsBeforeBuild.put(pid, logFile.length()));
+        poll = getPoller().scheduleWithFixedDelay(() -> findBuildDaemon(true), POLL_INTERVAL_MILLIS, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Works out what the build cost its daemon, right after the build completed.
+     */
+    synchronized void buildFinished() {
+        if (daemonBaseDirectory == null) {
+            return;
+        }
+        poll.cancel(false);
+        findBuildDaemon(false);
+        if (buildPid == null || cpuTimeMillisBeforeBuild == null) {
+            return;
+        }
+
+        Long cpuTime = readCpuTimeMillis(buildPid);
+        if (cpuTime != null) {
+            cpuTimeMillis = cpuTime - cpuTimeMillisBeforeBuild;
+        }
+        peakResidentSetSizeBytes = readPeakResidentSetSizeBytes(buildPid);
+    }
+
+    /**
+     * Stops looking for the daemon running the build.
+     */
+    @Override
+    public synchronized void close() {
+        if (poll != null) {
+            poll.cancel(false);
+        }
+    }
+
+    private synchronized void findBuildDaemon(boolean buildRunning) {
+        if (buildPid != null || (buildRunning && poll.isCancelled())) {
+            return;
+        }
+        for (Map.Entry<Long, File> entry : DaemonLogs.findDaemonLogFiles(daemonBaseDirectory).entrySet()) {
+            long pid = entry.getKey();
+            if (DaemonLogs.hasStartedBuildIn(entry.getValue(), daemonLogLengthsBeforeBuild.getOrDefault(pid, 0L), workingDirectory) && DaemonLogs.isGradleDaemon(pid)) {
+                buildPid = pid;
+                daemonReused = daemonLogLengthsBeforeBuild.containsKey(pid);
+                if (PROC_DIRECTORY.isDirectory() && (buildRunning || !daemonReused)) {
+                    // A daemon started for the build spent all of its CPU time and memory on the build
+                    cpuTimeMillisBeforeBuild = daemonReused ? readCpuTimeMillis(pid) : Long.valueOf(0L);
+                    if (daemonReused) {
+                        resetPeakResidentSetSize(pid);
+                    }
+                }
+                poll.cancel(false);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the metrics of the build, the invocation is considered completed.
+     */
+    ExecutionMetrics complete() {
+        long endTime = System.nanoTime();
+        long outputTime = firstOutputTime.get();
+        return new ExecutionMetrics(toMillis(endTime - startTime), outputTime == UNSET ? null : toMillis(outputTime - startTime), daemonReused, peakResidentSetSizeBytes, cpuTimeMillis);
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    @Nullable
+    private static Long readCpuTimeMillis(long pid) {
+        try {
+            String stat = new String(Files.readAllBytes(new File(PROC_DIRECTORY, pid + "/stat").toPath()), StandardCharsets.US_ASCII);
+            // The command name may contain spaces, the fields after it start with the state, the 3rd field
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+            long ticks = Long.parseLong(fields[11]) + Long.parseLong(fields[12]);
+            return ticks * 1000 / CLOCK_TICKS_PER_SECOND;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    @Nullable
+    private static Long readPeakResidentSetSizeBytes(long pid) {
+        try {
+            List<String> lines = Files.readAllLines(new File(PROC_DIRECTORY, pid + "/status").toPath(), StandardCharsets.US_ASCII);
+            for (String line : lines) {
+                if (line.startsWith("VmHWM:")) {
+                    return Long.parseLong(line.substring("VmHWM:".length()).replace("kB", "").trim()) * 1024;
+                }
+            }
+            return null;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static void resetPeakResidentSetSize(long pid) {
+        try {
+            Files.write(new File(PROC_DIRECTORY, pid + "/clear_refs").toPath(), "5".getBytes(StandardCharsets.US_ASCII));
+        } catch (IOException | RuntimeException e) {
+            // Older kernels, the peak then covers the whole life of the daemon
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.test.fixtures.gradle.executer.internal;
+
+import dev.gradleplugins.internal.files.LocalFiles;
+import dev.gradleplugins.test.fixtures.gradle.executer.ExecutionMetrics;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Aggregates the metrics of the builds per test class into {@code <test-class>-<pid>.json} and {@code <test-class>-<pid>.csv}, inside the directory of the {@code dev.gradleplugins.executionMetricsReportDirectory} system property.
+ *
+ * The reports of a test class are rewritten after each of its builds, under a temporary name then renamed in place, so they are complete even when the test JVM dies.
+ * Concurrent tests of the same JVM are serialized by the report.
+ * Parallel forks may run the same test class, or report under the same class, so each test JVM writes its own reports.
+ */
+final class ExecutionMetricsReport {
+    public static final String REPORT_DIRECTORY_SYSPROP_NAME = "dev.gradleplugins.executionMetricsReportDirectory";
+    static final String UNKNOWN_TEST_CLASS = "unknown";
+    private static final List<String> NON_TEST_PACKAGES = Arrays.asList("java.", "javax.", "jdk.", "sun.", "com.sun.", "groovy.", "org.codehaus.groovy.", "org.spockframework.", "spock.", "org.junit.", "junit.", "org.gradle.", "worker.org.gradle.", "dev.gradleplugins.test.fixtures.", "dev.gradleplugins.integtests.fixtures.", "dev.gradleplugins.fixtures.");
+    private static ExecutionMetricsReport defaultReport = null;
+
+    @Nullable private final File reportDirectory;
+    private final String processId;
+    private final Map<String, List<ExecutionMetrics>> metricsByTestClass = new HashMap<>();
+
+    ExecutionMetricsReport(@Nullable File reportDirectory) {
+        this.reportDirectory = reportDirectory;
+        this.processId = LocalFiles.getProcessId();
+    }
+
+    /**
+     * Returns the report of the whole test JVM, which ignores every metrics if the report directory system property is not set.
+     */
+    static synchronized ExecutionMetricsReport getDefault() {
+        if (defaultReport == null) {
+            String reportDirectory = System.getProperty(REPORT_DIRECTORY_SYSPROP_NAME);
+            defaultReport = new ExecutionMetricsReport(reportDirectory == null ? null : new File(reportDirectory));
+        }
+        return defaultReport;
+    }
+
+    /**
+     * Returns the test class calling into the fixtures from the current thread, meaning the first caller outside the test frameworks and the fixtures.
+     * When that caller is a constructor, the test class is the one at the bottom of the chain of constructors, the abstract test classes only being its superclasses.
+     * The stack only tells the class declaring each method, a test inherited from an abstract test class should name its runtime class with {@code GradleExecuter#withTestClass}.
+     */
+    static String findTestClass() {
+        StackTraceElement[] stack = Thread.currentThread().getStackTrace();
+        for (int i = 0; i < stack.length; i++) {
+            String className = stack[i].getClassName();
+            if (isTestClass(className)) {
+                if (stack[i].getMethodName().equals("<init>")) {
+                    // Each constructor is called by the one of its subclass, maybe through the Groovy runtime
+                    for (int j = i + 1; j < stack.length && (stack[j].getMethodName().equals("<init>") || stack[j].getClassName().startsWith("org.codehaus.groovy.")); j++) {
+                        if (isTestClass(stack[j].getClassName())) {
+                            className = stack[j].getClassName();
+                        }
+                    }
+                }
+                // Closures and inner classes report on their outer class
+                int separator = className.indexOf('$');
+                return separator < 0 ? className : className.substring(0, separator);
+            }
+        }
+        return UNKNOWN_TEST_CLASS;
+    }
+
+    private static boolean isTestClass(String className) {
+        return NON_TEST_PACKAGES.stream().noneMatch(className::startsWith);
+    }
+
+    synchronized void record(String testClass, ExecutionMetrics metrics) {
+        if (reportDirectory == null) {
+            return;
+        }
+        List<ExecutionMetrics> allMetrics = metricsByTestClass.computeIfAbsent(testClass, it -> new ArrayList<>());
+        allMetrics.add(metrics);
+        try {
+            Files.createDirectories(reportDirectory.toPath());
+            LocalFiles.writeAtomically(new File(reportDirectory, testClass + "-" + processId + ".json"), toJson(testClass, allMetrics));
+            LocalFiles.writeAtomically(new File(reportDirectory, testClass + "-" + processId + ".csv"), toCsv(testClass, allMetrics));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static String toJson(String testClass, List<ExecutionMetrics> allMetrics) {
+        long totalWallTime = 0;
+        long maxWallTime = 0;
+        int daemonReusedCount = 0;
+        Long totalCpuTime = null;
+        Long maxPeakResidentSetSize = null;
+        for (ExecutionMetrics metrics : allMetrics) {
+            totalWallTime += metrics.getWallTimeMillis();
+            maxWallTime = Math.max(maxWallTime, metrics.getWallTimeMillis());
+            if (Boolean.TRUE.equals(metrics.getDaemonReused())) {
+                daemonReusedCount++;
+            }
+            if (metrics.getCpuTimeMillis() != null) {
+                totalCpuTime = (totalCpuTime == null ? 0 : totalCpuTime) + metrics.getCpuTimeMillis();
+            }
+            if (metrics.getPeakResidentSetSizeBytes() != null) {
+                maxPeakResidentSetSize = Math.max(maxPeakResidentSetSize == null ? 0 : maxPeakResidentSetSize, metrics.getPeakResidentSetSizeBytes());
+            }
+        }
+
+        StringBuilder result = new StringBuilder();
+        result.append("{\n");
+        result.append("  \"testClass\": \"").append(testClass.replace("\\", "\\\\").replace("\"", "\\\"")).append("\",\n");
+        result.append("  \"invocationCount\": ").append(allMetrics.size()).append(",\n");
+        result.append("  \"totalWallTimeMillis\": ").append(totalWallTime).append(",\n");
+        result.append("  \"maxWallTimeMillis\": ").append(maxWallTime).append(",\n");
+        result.append("  \"daemonReusedCount\": ").append(daemonReusedCount).append(",\n");
+        result.append("  \"totalCpuTimeMillis\": ").append(totalCpuTime).append(",\n");
+        result.append("  \"maxPeakResidentSetSizeBytes\": ").append(maxPeakResidentSetSize).append(",\n");
+        result.append("  \"invocations\": [");
+        for (int i = 0; i < allMetrics.size(); i++) {
+            ExecutionMetrics metrics = allMetrics.get(i);
+            result.append(i == 0 ? "\n" : ",\n");
+            result.append("    {\"wallTimeMillis\": ").append(metrics.getWallTimeMillis())
+                    .append(", \"timeToFirstOutputMillis\": ").append(metrics.getTimeToFirstOutputMillis())
+                    .append(", \"daemonReused\": ").append(metrics.getDaemonReused())
+                    .append(", \"peakResidentSetSizeBytes\": ").append(metrics.getPeakResidentSetSizeBytes())
+                    .append(", \"cpuTimeMillis\": ").append(metrics.getCpuTimeMillis())
+                    .append("}");
+        }
+        result.append(allMetrics.isEmpty() ? "]\n" : "\n  ]\n");
+        result.append("}\n");
+        return result.toString();
+    }
+
+    static String toCsv(String testClass, List<ExecutionMetrics> allMetrics) {
+        StringBuilder result = new StringBuilder();
+        result.append("testClass,invocation,wallTimeMillis,timeToFirstOutputMillis,daemonReused,peakResidentSetSizeBytes,cpuTimeMillis\n");
+        for (int i = 0; i < allMetrics.size(); i++) {
+            ExecutionMetrics metrics = allMetrics.get(i);
+            result.append(testClass).append(',').append(i + 1).append(',').append(metrics.getWallTimeMillis())
+                    .append(',').append(Objects.toString(metrics.getTimeToFirstOutputMillis(), ""))
+                    .append(',').append(Objects.toString(metrics.getDaemonReused(), ""))
+                    .append(',').append(Objects.toString(metrics.getPeakResidentSetSizeBytes(), ""))
+                    .append(',').append(Objects.toString(metrics.getCpuTimeMillis(), ""))
+                    .append('\n');
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.test.fixtures.gradle.executer.internal;
+
+import com.google.common.collect.ImmutableList;
+import lombok.Value;
+import org.gradle.util.TextUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The failure section of a build output, such as:
+ * <pre>
+ * FAILURE: Build failed with an exception.
+ *
+ * * Where:
+ * Build file '/path/to/build.gradle' line: 3
+ *
+ * * What went wrong:
+ * A problem occurred evaluating root project 'foo'.
+ * &gt; Some cause
+ *
+ * * Try:
+ * Run with --stacktrace option to get the stack trace.
+ * </pre>
+ */
+@Value
+public class FailureReport {
+    private static final Pattern FAILURE_PATTERN = Pattern.compile("FAILURE: (.+)");
+    private static final Pattern CAUSE_PATTERN = Pattern.compile("(?m)(^\\s*> )");
+    private static final String WHERE_HEADER = "* Where:";
+    private static final String WHAT_WENT_WRONG_HEADER = "* What went wrong:";
+    private static final String TRY_HEADER = "* Try:";
+    private static final String EXCEPTION_HEADER = "* Exception is:";
+    private static final String LINE_NUMBER_SEPARATOR = "' line: ";
+
+    /** The text following {@code FAILURE:}, or an empty string if there is no failure section. */
+    String summary;
+
+    /** The problems, each in its own {@code * What went wrong:} section. */
+    List<Problem> problems;
+
+    /** The script locations, each in its own {@code * Where:} section. */
+    List<Location> locations;
+
+    /** The first {@code * Try:} section, only present when followed by an {@code * Exception is:} section, otherwise an empty string. */
+    String resolution;
+
+    /** The stack traces, each in its own {@code * Exception is:} section. */
+    List<String> exceptions;
+
+    public List<String> getDescriptions() {
+        List<String> result = new ArrayList<>(problems.size());
+        for (Problem problem : problems) {
+            result.add(problem.getDescription());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the causes of every problem.
+     */
+    public List<String> getCauses() {
+        List<String> result = new ArrayList<>();
+        for (Problem problem : problems) {
+            result.addAll(problem.getCauses());
+        }
+        return result;
+    }
+
+    @Value
+    public static class Problem {
+        String description;
+
+        /** The cause chain, from the outermost cause. */
+        List<String> causes;
+    }
+
+    @Value
+    public static class Location {
+        String fileName;
+        String lineNumber;
+    }
+
+    /**
+     * Parses the failure section, starting with the {@code FAILURE:} line, in a single pass over its lines.
+     */
+    static FailureReport parse(LogContent failureContent) {
+        List<String> lines = failureContent.getLines();
+        String summary = "";
+        List<Integer> whereLines = new ArrayList<>();
+        List<Integer> whatWentWrongLines = new ArrayList<>();
+        List<Integer> tryLines = new ArrayList<>();
+        List<Integer> exceptionLines = new ArrayList<>();
+        int[] lineNumberSeparators = new int[lines.size()];
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (i == 0) {
+                Matcher matcher = FAILURE_PATTERN.matcher(line);
+                if (matcher.lookingAt()) {
+                    summary = matcher.group(1);
+                }
+            }
+            if (line.startsWith("* ")) {
+                if (line.startsWith(WHERE_HEADER)) {
+                    whereLines.add(i);
+                } else if (line.equals(WHAT_WENT_WRONG_HEADER)) {
+                    whatWentWrongLines.add(i);
+                } else if (line.equals(TRY_HEADER)) {
+                    tryLines.add(i);
+                } else if (line.equals(EXCEPTION_HEADER)) {
+                    exceptionLines.add(i);
+                }
+            }
+            lineNumberSeparators[i] = indexOfLineNumberSeparator(line);
+        }
+
+        return new FailureReport(summary, parseProblems(lines, whatWentWrongLines, tryLines), parseLocations(lines, whereLines, lineNumberSeparators), parseResolution(lines, tryLines, exceptionLines), parseExceptions(lines, exceptionLines));
+    }
+
+    /**
+     * Returns the index of the quote ending a file name followed by a line number at the end of the line, for example {@code 'build.gradle' line: 3}, or -1 if there is none.
+     * The separator is searched from the start of the line, the first one followed by a line number wins.
+     */
+    private static int indexOfLineNumberSeparator(String line) {
+        for (int result = line.indexOf(LINE_NUMBER_SEPARATOR); result >= 0; result = line.indexOf(LINE_NUMBER_SEPARATOR, result + 1)) {
+            if (isLineNumber(line, result + LINE_NUMBER_SEPARATOR.length())) {
+                return result;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isLineNumber(String line, int start) {
+        if (start == line.length()) {
+            return false;
+        }
+        for (int i = start; i < line.length(); i++) {
+            if (line.charAt(i) < '0' || line.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A problem spans from its header to the next {@code * Try:} header.
+     */
+    private static List<Problem> parseProblems(List<String> lines, List<Integer> whatWentWrongLines, List<Integer> tryLines) {
+        List<Problem> result = new ArrayList<>();
+        int tryIndex = 0;
+        int previousEnd = -1;
+        for (int start : whatWentWrongLines) {
+            if (start <= previousEnd) {
+                continue;
+            }
+            while (tryIndex < tryLines.size() && tryLines.get(tryIndex) <= start) {
+                tryIndex++;
+            }
+            if (tryIndex == tryLines.size()) {
+                break;
+            }
+            int end = tryLines.get(tryIndex);
+            result.add(extract(section(lines, start, end)));
+            previousEnd = end;
+        }
+        return ImmutableList.copyOf(result);
+    }
+
+    /**
+     * A location spans from its header to the first quoted file name followed by a line number, possibly on the following lines.
+     */
+    private static List<Location> parseLocations(List<String> lines, List<Integer> whereLines, int[] lineNumberSeparators) {
+        // Backward pass to find the next line containing a quote, and the next line ending with a line number
+        int[] nextQuoteLines = new int[lines.size() + 1];
+        int[] nextLineNumberLines = new int[lines.size() + 1];
+        nextQuoteLines[lines.size()] = -1;
+        nextLineNumberLines[lines.size()] = -1;
+        for (int i = lines.size() - 1; i >= 0; i--) {
+            nextQuoteLines[i] = lines.get(i).indexOf('\'') >= 0 ? i : nextQuoteLines[i + 1];
+            nextLineNumberLines[i] = lineNumberSeparators[i] >= 0 ? i : nextLineNumberLines[i + 1];
+        }
+
+        List<Location> result = new ArrayList<>();
+        int previousEnd = -1;
+        for (int start : whereLines) {
+            if (start <= previousEnd) {
+                continue;
+            }
+
+            // The file name starts at least one char after the header, which may be the line separator
+            int openingQuoteLine = start;
+            int openingQuote = lines.get(start).indexOf('\'', WHERE_HEADER.length() + 1);
+            if (openingQuote < 0) {
+                openingQuoteLine = nextQuoteLines[start + 1];
+                if (openingQuoteLine < 0) {
+                    continue;
+                }
+                openingQuote = lines.get(openingQuoteLine).indexOf('\'');
+            }
+
+            // The closing quote is at least two chars after the opening quote
+            int closingQuoteLine = lineNumberSeparators[openingQuoteLine] >= openingQuote + 2 ? openingQuoteLine : nextLineNumberLines[openingQuoteLine + 1];
+            if (closingQuoteLine < 0) {
+                continue;
+            }
+            int closingQuote = lineNumberSeparators[closingQuoteLine];
+
+            StringBuilder fileName = new StringBuilder();
+            for (int i = start; i <= closingQuoteLine; i++) {
+                String line = lines.get(i);
+                if (i > start) {
+                    fileName.append('\n');
+                }
+                fileName.append(line, i == start ? WHERE_HEADER.length() : 0, i == closingQuoteLine ? closingQuote + 1 : line.length());
+            }
+            String closingLine = lines.get(closingQuoteLine);
+            result.add(new Location(fileName.toString().trim(), closingLine.substring(closingQuote + LINE_NUMBER_SEPARATOR.length())));
+            previousEnd = closingQuoteLine;
+        }
+        return ImmutableList.copyOf(result);
+    }
+
+    private static String parseResolution(List<String> lines, List<Integer> tryLines, List<Integer> exceptionLines) {
+        if (tryLines.isEmpty()) {
+            return "";
+        }
+        int start = tryLines.get(0);
+        for (int end : exceptionLines) {
+            if (end > start) {
+                return section(lines, start, end).trim();
+            }
+        }
+        return "";
+    }
+
+    /**
+     * A stack trace spans from its header to the next section header.
+     */
+    private static List<String> parseExceptions(List<String> lines, List<Integer> exceptionLines) {
+        List<String> result = new ArrayList<>();
+        for (int start : exceptionLines) {
+            int end = start + 1;
+            while (end < lines.size() && !lines.get(end).startsWith("* ")) {
+                end++;
+            }
+            result.add(section(lines, start, end).trim());
+        }
+        return ImmutableList.copyOf(result);
+    }
+
+    /**
+     * Returns the text between the header line and the end line, including the line separators around it.
+     */
+    private static String section(List<String> lines, int header, int end) {
+        StringBuilder result = new StringBuilder("\n");
+        for (int i = header + 1; i < end; i++) {
+            result.append(lines.get(i)).append('\n');
+        }
+        return result.toString();
+    }
+
+    private static Problem extract(String problem) {
+        Matcher matcher = CAUSE_PATTERN.matcher(problem);
+        String description;
+        List<String> causes = new ArrayList<>();
+        if (!matcher.find()) {
+            description = TextUtil.normaliseLineSeparators(problem.trim());
+        } else {
+            description = TextUtil.normaliseLineSeparators(problem.substring(0, matcher.start()).trim());
+            while (true) {
+                int pos = matcher.end();
+                int prefix = matcher.group(1).length();
+                if (matcher.find(pos)) {
+                    causes.add(TextUtil.normaliseLineSeparators(removeIndentation(problem.substring(pos, matcher.start()).trim(), prefix)));
+                } else {
+                    causes.add(TextUtil.normaliseLineSeparators(removeIndentation(problem.substring(pos).trim(), prefix)));
+                    break;
+                }
+            }
+        }
+        return new Problem(description, ImmutableList.copyOf(causes));
+    }
+
+    /**
+     * Removes the given number of spaces at the start of each line, from the lines starting with at least that many spaces.
+     */
+    private static String removeIndentation(String text, int indentation) {
+        StringBuilder result = new StringBuilder(text.length());
+        int lineStart = 0;
+        while (lineStart <= text.length()) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            if (lineEnd < 0) {
+                lineEnd = text.length();
+            }
+            int contentStart = lineStart + indentation <= lineEnd && isIndented(text, lineStart, indentation) ? lineStart + indentation : lineStart;
+            result.append(text, contentStart, lineEnd);
+            if (lineEnd < text.length()) {
+                result.append('\n');
+            }
+            lineStart = lineEnd + 1;
+        }
+        return result.toString();
+    }
+
+    private static boolean isIndented(String text, int lineStart, int indentation) {
+        for (int i = lineStart; i < lineStart + indentation; i++) {
+            if (text.charAt(i) != ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
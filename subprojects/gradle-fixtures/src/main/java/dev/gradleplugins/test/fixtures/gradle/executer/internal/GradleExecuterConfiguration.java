@@ -6,6 +6,7 @@ import dev.gradleplugins.test.fixtures.gradle.logging.ConsoleOutput;
 import lombok.*;
 
 import java.io.File;
+import java.time.Duration;
 import java.util.*;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -20,6 +21,7 @@ public class GradleExecuterConfiguration {
     private final GradleDistribution distribution;
     @With private File workingDirectory = null;
     @With private File userHomeDirectory = null;
+    @With @NonNull private Map<String, String> buildSystemProperties = emptyMap();
     @With private File gradleUserHomeDirectory = null;
     @With private boolean showStacktrace = true;
     @With private File settingsFile = null;
@@ -37,4 +39,8 @@ public class GradleExecuterConfiguration {
     @With @NonNull private List<Function<? super GradleExecuter, GradleExecuter>> beforeExecute = emptyList();
     @With @NonNull private List<Consumer<? super GradleExecuter>> afterExecute = emptyList();
     @With private boolean allowDeprecations = false;
+    @With private boolean buildProfiling = false;
+    @With private Duration timeout = null;
+    @With private GradleRunnerDaemonPool daemonPool = null;
+    @With private String testClassName = null;
 }
@@ -0,0 +1,334 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.test.fixtures.gradle.executer.internal;
+
+import dev.gradleplugins.internal.files.LocalFiles;
+import lombok.Value;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A bounded set of TestKit directories, each hosting warm Gradle daemons, shared across {@link GradleRunnerExecuter} invocations.
+ *
+ * TestKit only reuses an idle daemon living in the same TestKit directory and compatible with the build request.
+ * Each invocation leases a slot for its whole duration so a slot never hosts two concurrent builds.
+ * The slots of a root directory are shared by the forked test JVMs, each slot is locked by the pool using it, so the other JVMs pick another slot and never stop its daemons.
+ * Slots are matched on a {@link Key} so compatible invocations keep landing on the same warm daemon.
+ * When every slot is taken by a different key, the least recently used idle slot is evicted and its daemons are stopped.
+ *
+ * When the {@code dev.gradleplugins.daemonReuseReportDirectory} system property is set, a daemon reuse report is written into that directory once the pool is closed.
+ * It counts the builds, the daemons they started and the distinct keys they asked for, a per-test key is what forces a new daemon for every test.
+ */
+public final class GradleRunnerDaemonPool implements AutoCloseable {
+    public static final String POOL_SIZE_SYSPROP_NAME = "dev.gradleplugins.daemonPoolSize";
+    public static final String REPORT_DIRECTORY_SYSPROP_NAME = "dev.gradleplugins.daemonReuseReportDirectory";
+    private static GradleRunnerDaemonPool defaultPool = null;
+
+    private final File rootDirectory;
+    private final int maximumSize;
+    @Nullable private final File reportDirectory;
+    private final List<Slot> slots = new ArrayList<>();
+    private int nextSlotIndex = 0;
+    private final Set<Key> requestedKeys = new HashSet<>();
+    private int hits = 0;
+    private int misses = 0;
+    private int evictions = 0;
+    private boolean closed = false;
+
+    public GradleRunnerDaemonPool(File rootDirectory, int maximumSize) {
+        this(rootDirectory, maximumSize, null);
+    }
+
+    public GradleRunnerDaemonPool(File rootDirectory, int maximumSize, @Nullable File reportDirectory) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException(String.format("Daemon pool size must be at least 1, got %d.", maximumSize));
+        }
+        this.rootDirectory = rootDirectory;
+        this.maximumSize = maximumSize;
+        this.reportDirectory = reportDirectory;
+    }
+
+    /**
+     * Returns the pool shared by the whole test JVM.
+     * The pool size is read from the {@code dev.gradleplugins.daemonPoolSize} system property and defaults to half the available processors.
+     * Its daemons are stopped when the JVM shuts down.
+     */
+    public static synchronized GradleRunnerDaemonPool getDefault() {
+        if (defaultPool == null) {
+            File rootDirectory = new File(System.getProperty("java.io.tmpdir"), ".gradle-test-kit-pool-" + System.getProperty("user.name"));
+            int defaultSize = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+            String reportDirectory = System.getProperty(REPORT_DIRECTORY_SYSPROP_NAME);
+            defaultPool = new GradleRunnerDaemonPool(rootDirectory, Integer.getInteger(POOL_SIZE_SYSPROP_NAME, defaultSize), reportDirectory == null ? null : new File(reportDirectory));
+            Runtime.getRuntime().addShutdownHook(new Thread(defaultPool::close, "Gradle TestKit daemon pool shutdown"));
+        }
+        return defaultPool;
+    }
+
+    /**
+     * Leases a slot compatible with the given key, blocking until one is available.
+     *
+     * @param key the daemon compatibility key of the invocation
+     * @return a lease to close once the build completes, never null
+     */
+    public synchronized Lease acquire(Key key) {
+        while (true) {
+            if (closed) {
+                throw new IllegalStateException("Daemon pool was already closed.");
+            }
+            requestedKeys.add(key);
+
+            Slot leastRecentlyUsedIdleSlot = null;
+            for (Slot slot : slots) {
+                if (slot.busy) {
+                    continue;
+                }
+                if (slot.key.equals(key)) {
+                    hits++;
+                    return slot.lease(key);
+                }
+                if (leastRecentlyUsedIdleSlot == null || slot.lastReleased < leastRecentlyUsedIdleSlot.lastReleased) {
+                    leastRecentlyUsedIdleSlot = slot;
+                }
+            }
+
+            if (slots.size() < maximumSize) {
+                Slot slot = newSlot();
+                slots.add(slot);
+                misses++;
+                return slot.lease(key);
+            }
+
+            if (leastRecentlyUsedIdleSlot != null) {
+                DaemonLogs.killAll(DaemonLogs.testKitDaemonBaseDirectory(leastRecentlyUsedIdleSlot.testKitDirectory));
+                misses++;
+                evictions++;
+                return leastRecentlyUsedIdleSlot.lease(key);
+            }
+
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for a daemon pool slot.", e);
+            }
+        }
+    }
+
+    private Slot newSlot() {
+        try {
+            Files.createDirectories(rootDirectory.toPath());
+            while (true) {
+                File testKitDirectory = new File(rootDirectory, "slot-" + nextSlotIndex++);
+                FileChannel lockChannel = FileChannel.open(new File(rootDirectory, testKitDirectory.getName() + ".lock").toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                FileLock lock = null;
+                try {
+                    lock = lockChannel.tryLock();
+                } catch (OverlappingFileLockException e) {
+                    // Locked by another pool of this JVM
+                }
+                if (lock != null) {
+                    return new Slot(testKitDirectory, lockChannel);
+                }
+                // Locked by another test JVM
+                lockChannel.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private synchronized void release(Slot slot) {
+        slot.busy = false;
+        slot.lastReleased = System.nanoTime();
+        notifyAll();
+    }
+
+    public synchronized Statistics getStatistics() {
+        int daemonsStarted = 0;
+        for (Slot slot : slots) {
+            daemonsStarted += slot.getStartedDaemonPids().size();
+        }
+        return new Statistics(hits, misses, evictions, daemonsStarted, requestedKeys.size());
+    }
+
+    /**
+     * Stops every daemon hosted by this pool, writes the daemon reuse report and unlocks the slots.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        Statistics statistics = getStatistics();
+        for (Slot slot : slots) {
+            DaemonLogs.killAll(DaemonLogs.testKitDaemonBaseDirectory(slot.testKitDirectory));
+        }
+        if (reportDirectory != null) {
+            writeReport(statistics);
+        }
+        for (Slot slot : slots) {
+            slot.unlock();
+        }
+        notifyAll();
+    }
+
+    private void writeReport(Statistics statistics) {
+        List<String> lines = new ArrayList<>();
+        lines.add("Gradle TestKit daemon reuse");
+        lines.add(String.format("builds: %d", statistics.getBuilds()));
+        lines.add(String.format("daemons started: %d", statistics.getDaemonsStarted()));
+        lines.add(String.format("distinct daemon keys: %d", statistics.getDistinctKeys()));
+        lines.add(String.format("hits: %d", statistics.getHits()));
+        lines.add(String.format("misses: %d", statistics.getMisses()));
+        lines.add(String.format("evictions: %d", statistics.getEvictions()));
+        for (Slot slot : slots) {
+            lines.add(String.format("%s: %d builds, %d daemons started, last key %s", slot.testKitDirectory.getName(), slot.builds, slot.getStartedDaemonPids().size(), slot.key));
+        }
+
+        // Forked test JVMs share the report directory
+        File reportFile = new File(reportDirectory, "daemon-reuse-" + LocalFiles.getProcessId() + ".txt");
+        try {
+            Files.createDirectories(reportDirectory.toPath());
+            Files.write(reportFile.toPath(), lines, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * What makes a daemon compatible with a build request, as far as the fixtures can influence it.
+     */
+    @Value
+    public static class Key {
+        /** The requested Gradle version, or null when using the TestKit default. */
+        @Nullable String gradleVersion;
+        /** The JVM arguments of the daemon, from {@code org.gradle.jvmargs}, or null when using the Gradle default. */
+        @Nullable String jvmArguments;
+        /** The other {@code -D} arguments; they are applied to the daemon JVM when forking a new daemon. */
+        List<String> systemPropertyArguments;
+        /** The Gradle user home, or null when using the TestKit default. */
+        @Nullable File gradleUserHomeDirectory;
+    }
+
+    @Value
+    public static class Statistics {
+        int hits;
+        int misses;
+        int evictions;
+        /** The daemons the builds of this pool started, as found in the daemon logs. */
+        int daemonsStarted;
+        /** The distinct keys the builds asked for, ideally one per Gradle version. */
+        int distinctKeys;
+
+        public int getBuilds() {
+            return hits + misses;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d builds, %d daemons started, %d distinct keys, %d hits, %d misses (%d evictions)", getBuilds(), daemonsStarted, distinctKeys, hits, misses, evictions);
+        }
+    }
+
+    /**
+     * A leased TestKit directory.
+     * Closing the lease returns the slot to the pool.
+     */
+    public final class Lease implements AutoCloseable {
+        private final Slot slot;
+        private final boolean warm;
+        private boolean released = false;
+
+        private Lease(Slot slot, boolean warm) {
+            this.slot = slot;
+            this.warm = warm;
+        }
+
+        public File getTestKitDirectory() {
+            return slot.testKitDirectory;
+        }
+
+        /**
+         * Returns true if the slot was previously used by a compatible invocation, meaning its daemon should be reused.
+         */
+        public boolean isWarm() {
+            return warm;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                release(slot);
+            }
+        }
+    }
+
+    private final class Slot {
+        private final File testKitDirectory;
+        private final FileChannel lockChannel;
+        // The daemon logs outlive the test JVM, only the daemons started since this slot was created count
+        private final Set<Long> initialDaemonPids;
+        private Key key = null;
+        private boolean busy = false;
+        private long lastReleased = 0;
+        private int builds = 0;
+
+        private Slot(File testKitDirectory, FileChannel lockChannel) {
+            this.testKitDirectory = testKitDirectory;
+            this.lockChannel = lockChannel;
+            this.initialDaemonPids = DaemonLogs.findDaemonPids(DaemonLogs.testKitDaemonBaseDirectory(testKitDirectory));
+        }
+
+        private Set<Long> getStartedDaemonPids() {
+            Set<Long> result = DaemonLogs.findDaemonPids(DaemonLogs.testKitDaemonBaseDirectory(testKitDirectory));
+            result.removeAll(initialDaemonPids);
+            return result;
+        }
+
+        private void unlock() {
+            try {
+                // Releases the lock as well
+                lockChannel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private Lease lease(Key key) {
+            boolean warm = key.equals(this.key);
+            this.key = key;
+            this.busy = true;
+            this.builds++;
+            return new Lease(this, warm);
+        }
+    }
+}
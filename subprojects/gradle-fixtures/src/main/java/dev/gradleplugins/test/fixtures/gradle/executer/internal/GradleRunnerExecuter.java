@@ -27,6 +27,12 @@ import org.hamcrest.Matcher;
 import org.junit.Assert;
 
 import javax.annotation.Nullable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -36,6 +42,9 @@ import static org.hamcrest.CoreMatchers.hasItem;
 //    We should instead offer a factory to construct the right executer
 //    The contextual executer would also be beneficial here.
 public class GradleRunnerExecuter extends AbstractGradleExecuter {
+    private static final String JVM_ARGUMENTS_PROPERTY_NAME = "org.gradle.jvmargs";
+    private static final String JVM_ARGUMENTS_ARGUMENT_PREFIX = "-D" + JVM_ARGUMENTS_PROPERTY_NAME + "=";
+
     // TODO: Remove nullability at some point
     public GradleRunnerExecuter(@Nullable GradleDistribution distribution, TestFile testDirectory) {
         super(distribution, testDirectory);
@@ -60,19 +69,103 @@ public class GradleRunnerExecuter extends AbstractGradleExecuter {
         return newInstance(configuration.withPluginClasspath(true));
     }
 
+    /**
+     * Runs the builds inside a TestKit directory leased from the specified pool so compatible invocations reuse a warm daemon.
+     *
+     * @param daemonPool the pool to lease TestKit directories from
+     * @return a new executer configured with the daemon pool, never null
+     */
+    public GradleExecuter withDaemonPool(GradleRunnerDaemonPool daemonPool) {
+        return newInstance(configuration.withDaemonPool(daemonPool));
+    }
+
     @Override
-    public ExecutionResult doRun() {
-        return new GradleRunnerExecutionResult(configureExecuter().build());
+    protected ExecutionResult doRun(ExecutionMetricsRecorder metrics, BuildWatchdog.Watch watch) {
+        List<String> arguments = getAllArguments();
+        try (GradleRunnerDaemonPool.Lease lease = leaseDaemon(arguments)) {
+            GradleRunner runner = configureExecuter(arguments, lease, metrics);
+            metrics.buildStarting(getDaemonBaseDirectory(lease));
+            watch.buildStarting(getDaemonBaseDirectory(lease));
+            BuildResult result = runner.build();
+            metrics.buildFinished();
+            return new GradleRunnerExecutionResult(result);
+        }
     }
 
     @Override
-    public ExecutionFailure doRunWithFailure() {
-        return new GradleRunnerExecutionFailure(configureExecuter().buildAndFail());
+    protected ExecutionFailure doRunWithFailure(ExecutionMetricsRecorder metrics, BuildWatchdog.Watch watch) {
+        List<String> arguments = getAllArguments();
+        try (GradleRunnerDaemonPool.Lease lease = leaseDaemon(arguments)) {
+            GradleRunner runner = configureExecuter(arguments, lease, metrics);
+            metrics.buildStarting(getDaemonBaseDirectory(lease));
+            watch.buildStarting(getDaemonBaseDirectory(lease));
+            BuildResult result = runner.buildAndFail();
+            metrics.buildFinished();
+            return new GradleRunnerExecutionFailure(result);
+        }
+    }
+
+    private static File getDaemonBaseDirectory(@Nullable GradleRunnerDaemonPool.Lease lease) {
+        return DaemonLogs.testKitDaemonBaseDirectory(lease == null ? DaemonLogs.defaultTestKitDirectory() : lease.getTestKitDirectory());
+    }
+
+    @Nullable
+    private GradleRunnerDaemonPool.Lease leaseDaemon(List<String> arguments) {
+        if (configuration.getDaemonPool() == null) {
+            return null;
+        }
+        List<String> systemPropertyArguments = arguments.stream().filter(it -> it.startsWith("-D") && !it.startsWith(JVM_ARGUMENTS_ARGUMENT_PREFIX)).collect(Collectors.toList());
+        return configuration.getDaemonPool().acquire(new GradleRunnerDaemonPool.Key(getRequestedGradleVersion(), getDaemonJvmArguments(arguments), systemPropertyArguments, configuration.getGradleUserHomeDirectory()));
+    }
+
+    // Same precedence as Gradle: the command line, then the gradle.properties of the Gradle user home, then the one of the build
+    @Nullable
+    private String getDaemonJvmArguments(List<String> arguments) {
+        for (String argument : arguments) {
+            if (argument.startsWith(JVM_ARGUMENTS_ARGUMENT_PREFIX)) {
+                return argument.substring(JVM_ARGUMENTS_ARGUMENT_PREFIX.length());
+            }
+        }
+        String result = null;
+        if (configuration.getGradleUserHomeDirectory() != null) {
+            result = readJvmArguments(new File(configuration.getGradleUserHomeDirectory(), "gradle.properties"));
+        }
+        if (result == null) {
+            result = readJvmArguments(new File(getWorkingDirectory(), "gradle.properties"));
+        }
+        return result;
+    }
+
+    @Nullable
+    private static String readJvmArguments(File gradlePropertiesFile) {
+        if (!gradlePropertiesFile.isFile()) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream inputStream = new FileInputStream(gradlePropertiesFile)) {
+            properties.load(inputStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return properties.getProperty(JVM_ARGUMENTS_PROPERTY_NAME);
     }
 
-    private GradleRunner configureExecuter() {
+    @Nullable
+    private String getRequestedGradleVersion() {
+        if (configuration.getDistribution() != null) {
+            return configuration.getDistribution().getVersion().getVersion();
+        }
+        return configuration.getGradleVersion();
+    }
+
+    private GradleRunner configureExecuter(List<String> arguments, @Nullable GradleRunnerDaemonPool.Lease lease, ExecutionMetricsRecorder metrics) {
         GradleRunner runner = GradleRunner.create();
-        runner.forwardOutput();
+        runner.forwardStdOutput(metrics.observe(new OutputStreamWriter(System.out)));
+        runner.forwardStdError(metrics.observe(new OutputStreamWriter(System.err)));
+
+        if (lease != null) {
+            runner.withTestKitDir(lease.getTestKitDirectory());
+        }
 
         if (configuration.isPluginClasspath()) {
             runner.withPluginClasspath();
@@ -84,10 +177,9 @@ public class GradleRunnerExecuter extends AbstractGradleExecuter {
             runner.withDebug(true);
         }
 
-        if (configuration.getDistribution() != null) {
-            runner.withGradleVersion(configuration.getDistribution().getVersion().getVersion());
-        } else if (configuration.getGradleVersion() != null) {
-            runner.withGradleVersion(configuration.getGradleVersion());
+        String gradleVersion = getRequestedGradleVersion();
+        if (gradleVersion != null) {
+            runner.withGradleVersion(gradleVersion);
         }
 
         if (!configuration.getEnvironment().isEmpty()) {
@@ -96,7 +188,7 @@ public class GradleRunnerExecuter extends AbstractGradleExecuter {
             runner.withEnvironment(environment);
         }
 
-        runner.withArguments(getAllArguments());
+        runner.withArguments(arguments);
 
         return runner;
     }
@@ -108,13 +200,55 @@ public class GradleRunnerExecuter extends AbstractGradleExecuter {
         return newInstance(configuration.withGradleVersion(gradleVersion));
     }
 
-    private static class GradleRunnerExecutionResult implements ExecutionResult {
-        private final BuildResult result;
-        private final OutputScrapingExecutionResult delegate;
+    /**
+     * Wraps a TestKit {@link BuildResult}.
+     * The output is only scraped when an assertion requires it, and every derived view is computed at most once.
+     */
+    static class GradleRunnerExecutionResult implements ExecutionResult, MeasuredExecutionResult {
+        private static final List<TaskOutcome> SKIPPED_TASK_OUTCOMES = Arrays.asList(TaskOutcome.FROM_CACHE, TaskOutcome.NO_SOURCE, TaskOutcome.SKIPPED, TaskOutcome.UP_TO_DATE);
+        protected final BuildResult result;
+        private ExecutionMetrics metrics = null;
+        private BuildProfile buildProfile = null;
+        private OutputScrapingExecutionResult delegate;
+        private Set<String> executedTasks;
+        private Set<String> skippedTasks;
+        private Set<String> notSkippedTasks;
 
         GradleRunnerExecutionResult(BuildResult result) {
             this.result = result;
-            delegate = OutputScrapingExecutionResult.from(result.getOutput(), "");
+        }
+
+        @Nullable
+        @Override
+        public ExecutionMetrics getMetrics() {
+            return metrics;
+        }
+
+        @Override
+        public void setMetrics(ExecutionMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        @Nullable
+        @Override
+        public BuildProfile getBuildProfile() {
+            return buildProfile;
+        }
+
+        @Override
+        public void setBuildProfile(BuildProfile buildProfile) {
+            this.buildProfile = buildProfile;
+        }
+
+        protected OutputScrapingExecutionResult getDelegate() {
+            if (delegate == null) {
+                delegate = createDelegate();
+            }
+            return delegate;
+        }
+
+        protected OutputScrapingExecutionResult createDelegate() {
+            return OutputScrapingExecutionResult.from(result.getOutput(), "");
         }
 
         private static List<String> flattenTaskPaths(Object[] taskPaths) {
@@ -135,17 +269,17 @@ public class GradleRunnerExecuter extends AbstractGradleExecuter {
 
         @Override
         public GroupedOutputFixture getGroupedOutput() {
-            return delegate.getGroupedOutput();
+            return getDelegate().getGroupedOutput();
         }
 
         @Override
         public String getPlainTextOutput() {
-            return delegate.getPlainTextOutput();
+            return getDelegate().getPlainTextOutput();
         }
 
         @Override
         public String getOutput() {
-            return delegate.getOutput();
+            return getDelegate().getOutput();
         }
 
         @Override
@@ -180,7 +314,7 @@ public class GradleRunnerExecuter extends AbstractGradleExecuter {
         @Override
         public ExecutionResult assertTasksNotSkipped(Object... taskPaths) {
             Set<String> expectedTasks = new TreeSet<String>(flattenTaskPaths(taskPaths));
-            Set<String> tasks = new TreeSet<String>(getNotSkippedTasks());
+            Set<String> tasks = getNotSkippedTasks();
             if (!expectedTasks.equals(tasks)) {
                 failOnDifferentSets("Build output does not contain the expected non skipped tasks.", expectedTasks, tasks);
             }
@@ -211,46 +345,48 @@ public class GradleRunnerExecuter extends AbstractGradleExecuter {
 
         @Override
         public ExecutionResult assertOutputContains(String expectedOutput) {
-            delegate.assertOutputContains(expectedOutput);
+            getDelegate().assertOutputContains(expectedOutput);
             return this;
         }
 
         @Override
         public ExecutionResult assertNotOutput(String expectedOutput) {
-            delegate.assertNotOutput(expectedOutput);
+            getDelegate().assertNotOutput(expectedOutput);
             return this;
         }
 
         @Override
         public ExecutionResult assertHasPostBuildOutput(String expectedOutput) {
-            delegate.assertHasPostBuildOutput(expectedOutput);
+            getDelegate().assertHasPostBuildOutput(expectedOutput);
             return this;
         }
 
-        private static final List<TaskOutcome> SKIPPED_TASK_OUTCOMES = Arrays.asList(TaskOutcome.FROM_CACHE, TaskOutcome.NO_SOURCE, TaskOutcome.SKIPPED, TaskOutcome.UP_TO_DATE);
-
         private Set<String> findExecutedTasksInOrderStarted() {
-            return result.getTasks().stream().map(BuildTask::getPath).collect(Collectors.toCollection(TreeSet::new));
+            if (executedTasks == null) {
+                executedTasks = Collections.unmodifiableSet(result.getTasks().stream().map(BuildTask::getPath).collect(Collectors.toCollection(TreeSet::new)));
+            }
+            return executedTasks;
         }
 
         private Set<String> getSkippedTasks() {
-            return result.getTasks().stream().filter(it -> SKIPPED_TASK_OUTCOMES.contains(it.getOutcome())).map(BuildTask::getPath).collect(Collectors.toCollection(TreeSet::new));
-        }
-
-        private List<String> getExecutedTasks() {
-            return new ArrayList<>(findExecutedTasksInOrderStarted());
+            if (skippedTasks == null) {
+                skippedTasks = Collections.unmodifiableSet(result.getTasks().stream().filter(it -> SKIPPED_TASK_OUTCOMES.contains(it.getOutcome())).map(BuildTask::getPath).collect(Collectors.toCollection(TreeSet::new)));
+            }
+            return skippedTasks;
         }
 
-        private Collection<String> getNotSkippedTasks() {
-            Set<String> all = new TreeSet<String>(getExecutedTasks());
-            Set<String> skipped = getSkippedTasks();
-            all.removeAll(skipped);
-            return all;
+        private Set<String> getNotSkippedTasks() {
+            if (notSkippedTasks == null) {
+                Set<String> all = new TreeSet<String>(findExecutedTasksInOrderStarted());
+                all.removeAll(getSkippedTasks());
+                notSkippedTasks = Collections.unmodifiableSet(all);
+            }
+            return notSkippedTasks;
         }
 
         @Override
         public ExecutionResult assertTaskNotSkipped(String taskPath) {
-            Assert.assertThat(getExecutedTasks(), hasItem(taskPath));
+            Assert.assertThat(findExecutedTasksInOrderStarted(), hasItem(taskPath));
             return this;
         }
 
@@ -262,31 +398,40 @@ public class GradleRunnerExecuter extends AbstractGradleExecuter {
 
         @Override
         public ExecutionResult assertThatOutput(Matcher<? super String> matcher) {
-            return delegate.assertThatOutput(matcher);
+            return getDelegate().assertThatOutput(matcher);
         }
     }
 
-    private static class GradleRunnerExecutionFailure extends GradleRunnerExecutionResult implements ExecutionFailure {
-        private final OutputScrapingExecutionFailure delegate;
-
+    static class GradleRunnerExecutionFailure extends GradleRunnerExecutionResult implements ExecutionFailure {
         GradleRunnerExecutionFailure(BuildResult result) {
             super(result);
-            delegate = OutputScrapingExecutionFailure.from(result.getOutput(), result.getOutput());
+        }
+
+        @Override
+        protected OutputScrapingExecutionFailure getDelegate() {
+            return (OutputScrapingExecutionFailure) super.getDelegate();
+        }
+
+        @Override
+        protected OutputScrapingExecutionResult createDelegate() {
+            // TestKit mixes both outputs, the same content serves as output and error
+            LogContent output = LogContent.of(result.getOutput());
+            return new OutputScrapingExecutionFailure(output, output, true);
         }
 
         @Override
         public ExecutionFailure assertHasCause(String description) {
-            return delegate.assertHasCause(description);
+            return getDelegate().assertHasCause(description);
         }
 
         @Override
         public ExecutionFailure assertThatCause(Matcher<? super String> matcher) {
-            return delegate.assertThatCause(matcher);
+            return getDelegate().assertThatCause(matcher);
         }
 
         @Override
         public ExecutionFailure assertHasDescription(String context) {
-            return delegate.assertHasDescription(context);
+            return getDelegate().assertHasDescription(context);
         }
     }
 }
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.test.fixtures.gradle.executer.internal;
+
+import dev.gradleplugins.test.fixtures.file.TestFile;
+import dev.gradleplugins.test.fixtures.gradle.executer.ExecutionFailure;
+import dev.gradleplugins.test.fixtures.gradle.executer.ExecutionResult;
+import dev.gradleplugins.test.fixtures.gradle.executer.GradleDistribution;
+import dev.gradleplugins.test.fixtures.gradle.executer.GradleExecuter;
+import org.gradle.tooling.BuildException;
+import org.gradle.tooling.BuildLauncher;
+import org.gradle.tooling.GradleConnector;
+import org.gradle.tooling.ProjectConnection;
+
+import javax.annotation.Nullable;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Executes builds through the Tooling API.
+ * Task assertions of the results are backed by task progress events rather than by the console output.
+ *
+ * Each build opens its own {@link ProjectConnection} and closes it once completed, a connection is bound to the project directory of a single test.
+ * The Tooling API caches the provider loaded from each distribution for the whole JVM, connecting is cheap once the first build loaded it.
+ */
+public class GradleToolingApiExecuter extends AbstractGradleExecuter {
+    private static final String[] DEBUG_SYSPROP_NAMES = {"org.gradle.debug.port", "org.gradle.debug.host", "org.gradle.debug.server"};
+
+    public GradleToolingApiExecuter(@Nullable GradleDistribution distribution, TestFile testDirectory) {
+        super(distribution, testDirectory);
+    }
+
+    private GradleToolingApiExecuter(TestFile testDirectory, GradleExecuterConfiguration configuration) {
+        super(testDirectory, configuration);
+    }
+
+    @Override
+    protected GradleExecuter newInstance(TestFile testDirectory, GradleExecuterConfiguration configuration) {
+        return new GradleToolingApiExecuter(testDirectory, configuration);
+    }
+
+    @Override
+    public GradleExecuter withDebuggerAttached() {
+        return newInstance(configuration.withDebuggerAttached(true));
+    }
+
+    @Override
+    public GradleExecuter withPluginClasspath() {
+        return newInstance(configuration.withPluginClasspath(true));
+    }
+
+    @Override
+    protected ExecutionResult doRun(ExecutionMetricsRecorder metrics, BuildWatchdog.Watch watch) {
+        OutputCapturer standardOutputCapturer = new OutputCapturer(System.out, Charset.defaultCharset());
+        OutputCapturer errorOutputCapturer = new OutputCapturer(System.err, Charset.defaultCharset());
+        TaskProgressRecorder taskProgressRecorder = new TaskProgressRecorder();
+        List<String> arguments = getAllArguments();
+        ProjectConnection connection = connect();
+        try {
+            BuildLauncher launcher = configureLauncher(connection, arguments, standardOutputCapturer, errorOutputCapturer, taskProgressRecorder, metrics);
+            metrics.buildStarting(DaemonLogs.daemonBaseDirectory(configuration.getGradleUserHomeDirectory()));
+            watch.buildStarting(DaemonLogs.daemonBaseDirectory(configuration.getGradleUserHomeDirectory()));
+            launcher.run();
+            metrics.buildFinished();
+        } catch (BuildException e) {
+            throw new AssertionError(String.format("Unexpected build execution failure in %s with arguments %s%n%nOutput:%n%s%nError:%n%s", getWorkingDirectory(), arguments, standardOutputCapturer.getOutputAsString(), errorOutputCapturer.getOutputAsString()), e);
+        } finally {
+            connection.close();
+        }
+        OutputScrapingExecutionResult output = new OutputScrapingExecutionResult(standardOutputCapturer.getOutput(), errorOutputCapturer.getOutput(), true);
+        return new ToolingApiExecutionResult(output, taskProgressRecorder.getExecutedTasks());
+    }
+
+    @Override
+    protected ExecutionFailure doRunWithFailure(ExecutionMetricsRecorder metrics, BuildWatchdog.Watch watch) {
+        OutputCapturer standardOutputCapturer = new OutputCapturer(System.out, Charset.defaultCharset());
+        OutputCapturer errorOutputCapturer = new OutputCapturer(System.err, Charset.defaultCharset());
+        TaskProgressRecorder taskProgressRecorder = new TaskProgressRecorder();
+        List<String> arguments = getAllArguments();
+        ProjectConnection connection = connect();
+        try {
+            BuildLauncher launcher = configureLauncher(connection, arguments, standardOutputCapturer, errorOutputCapturer, taskProgressRecorder, metrics);
+            metrics.buildStarting(DaemonLogs.daemonBaseDirectory(configuration.getGradleUserHomeDirectory()));
+            watch.buildStarting(DaemonLogs.daemonBaseDirectory(configuration.getGradleUserHomeDirectory()));
+            launcher.run();
+        } catch (BuildException e) {
+            metrics.buildFinished();
+            OutputScrapingExecutionFailure output = new OutputScrapingExecutionFailure(standardOutputCapturer.getOutput(), errorOutputCapturer.getOutput(), true);
+            return new ToolingApiExecutionFailure(output, taskProgressRecorder.getExecutedTasks());
+        } finally {
+            connection.close();
+        }
+        throw new AssertionError(String.format("Unexpected build execution success in %s with arguments %s%n%nOutput:%n%s", getWorkingDirectory(), arguments, standardOutputCapturer.getOutputAsString()));
+    }
+
+    private ProjectConnection connect() {
+        GradleConnector connector = GradleConnector.newConnector().forProjectDirectory(getWorkingDirectory());
+        if (configuration.getDistribution() != null) {
+            connector.useInstallation(configuration.getDistribution().getGradleHomeDir());
+        } else if (configuration.getGradleVersion() != null) {
+            connector.useGradleVersion(configuration.getGradleVersion());
+        }
+        if (configuration.getGradleUserHomeDirectory() != null) {
+            connector.useGradleUserHomeDir(configuration.getGradleUserHomeDirectory());
+        }
+        return connector.connect();
+    }
+
+    private BuildLauncher configureLauncher(ProjectConnection connection, List<String> arguments, OutputCapturer standardOutputCapturer, OutputCapturer errorOutputCapturer, TaskProgressRecorder taskProgressRecorder, ExecutionMetricsRecorder metrics) {
+        BuildLauncher launcher = connection.newBuild();
+
+        // Tasks are part of the arguments, the same way TestKit passes them
+        launcher.withArguments(withLauncherArguments(arguments));
+        launcher.setStandardOutput(metrics.observe(standardOutputCapturer.getOutputStream()));
+        launcher.setStandardError(metrics.observe(errorOutputCapturer.getOutputStream()));
+        launcher.addProgressListener(taskProgressRecorder, TaskProgressRecorder.OPERATION_TYPES);
+
+        if (!configuration.getEnvironment().isEmpty()) {
+            Map<String, String> environment = new HashMap<>(System.getenv());
+            configuration.getEnvironment().forEach((key, value) -> environment.put(key, value.toString()));
+            launcher.setEnvironmentVariables(environment);
+        }
+
+        return launcher;
+    }
+
+    private List<String> withLauncherArguments(List<String> arguments) {
+        List<String> result = new ArrayList<>();
+        if (configuration.isPluginClasspath()) {
+            result.add("--init-script");
+            result.add(PluginClasspathInitScript.ofPluginUnderTest().getAbsolutePath());
+        }
+        if (configuration.isDebuggerAttached()) {
+            // Gradle's own daemon debugging, it listens on port 5005 without suspending unless configured otherwise through the same system properties of the test JVM
+            result.add("-Dorg.gradle.debug=true");
+            result.add("-Dorg.gradle.debug.suspend=" + System.getProperty("org.gradle.debug.suspend", "false"));
+            for (String name : DEBUG_SYSPROP_NAMES) {
+                if (System.getProperty(name) != null) {
+                    result.add("-D" + name + "=" + System.getProperty(name));
+                }
+            }
+        }
+        result.addAll(arguments);
+        return result;
+    }
+}
@@ -26,7 +26,7 @@ public class GradleWrapperExecuter extends AbstractGradleExecuter {
     }
 
     @Override
-    protected ExecutionResult doRun() {
+    protected ExecutionResult doRun(ExecutionMetricsRecorder metrics, BuildWatchdog.Watch watch) {
         try {
             List<String> command = new ArrayList<>();
             if (SystemUtils.IS_OS_WINDOWS) {
@@ -41,17 +41,21 @@ public class GradleWrapperExecuter extends AbstractGradleExecuter {
             }
             OutputCapturer standardOutputCapturer = outputCapturerFor(System.out, Charset.defaultCharset());
             OutputCapturer errorOutputCapturer = outputCapturerFor(System.err, Charset.defaultCharset());
+            metrics.buildStarting(DaemonLogs.daemonBaseDirectory(configuration.getGradleUserHomeDirectory()));
+            watch.buildStarting(DaemonLogs.daemonBaseDirectory(configuration.getGradleUserHomeDirectory()));
             Process process = processBuilder.start();
-            Thread outStream = new Thread(new StreamRunner(process.getInputStream(), standardOutputCapturer.getOutputStream()));
-            Thread inStream = new Thread(new StreamRunner(process.getErrorStream(), errorOutputCapturer.getOutputStream()));
+            watch.buildProcessStarted(process);
+            Thread outStream = new Thread(new StreamRunner(process.getInputStream(), metrics.observe(standardOutputCapturer.getOutputStream())));
+            Thread inStream = new Thread(new StreamRunner(process.getErrorStream(), metrics.observe(errorOutputCapturer.getOutputStream())));
             outStream.start();
             inStream.start();
             if (0 != process.waitFor()) {
                 throw new RuntimeException("Build failure (" + process.exitValue() + ")");
             }
+            metrics.buildFinished();
             outStream.join();
             inStream.join();
-            return new OutputScrapingExecutionResult(LogContent.of(standardOutputCapturer.getOutputAsString()), LogContent.of(errorOutputCapturer.getOutputAsString()), true);
+            return new OutputScrapingExecutionResult(standardOutputCapturer.getOutput(), errorOutputCapturer.getOutput(), true);
         } catch (IOException | InterruptedException e) {
             throw new RuntimeException(e);
         }
@@ -81,7 +85,7 @@ public class GradleWrapperExecuter extends AbstractGradleExecuter {
     }
 
     @Override
-    protected ExecutionFailure doRunWithFailure() {
+    protected ExecutionFailure doRunWithFailure(ExecutionMetricsRecorder metrics, BuildWatchdog.Watch watch) {
         return null;
     }
 
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.test.fixtures.gradle.executer.internal;
+
+import java.nio.CharBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Lines stored as a single backing string with the start and end offset of each line.
+ *
+ * Compared to a list of strings, there is no per-line object to keep alive and sub lists are views sharing the same backing string.
+ * A line is only copied into a {@link String} when it is requested through {@link #get(int)}, {@link #getView(int)} returns a zero-copy view instead.
+ */
+final class IndexedLines extends AbstractList<String> implements RandomAccess {
+    private final String text;
+    private final int[] starts;
+    private final int[] ends;
+    private final int fromIndex;
+    private final int toIndex;
+    private final boolean separatedByNewLine;
+
+    /**
+     * @param separatedByNewLine true if each line is followed by a single new line char in the backing string, making the joined lines a substring of it
+     */
+    private IndexedLines(String text, int[] starts, int[] ends, int fromIndex, int toIndex, boolean separatedByNewLine) {
+        this.text = text;
+        this.starts = starts;
+        this.ends = ends;
+        this.fromIndex = fromIndex;
+        this.toIndex = toIndex;
+        this.separatedByNewLine = separatedByNewLine;
+    }
+
+    @Override
+    public String get(int index) {
+        int i = toBackingIndex(index);
+        return text.substring(starts[i], ends[i]);
+    }
+
+    /**
+     * Returns a read-only view of the line, without copying its characters.
+     */
+    CharSequence getView(int index) {
+        int i = toBackingIndex(index);
+        return CharBuffer.wrap(text, starts[i], ends[i]);
+    }
+
+    @Override
+    public int size() {
+        return toIndex - fromIndex;
+    }
+
+    @Override
+    public List<String> subList(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException(String.format("Invalid sub list [%d, %d) of %d lines.", fromIndex, toIndex, size()));
+        }
+        return new IndexedLines(text, starts, ends, this.fromIndex + fromIndex, this.fromIndex + toIndex, separatedByNewLine);
+    }
+
+    /**
+     * Returns the lines joined with a new line char, which doesn't copy anything when the backing string already uses new line chars only.
+     */
+    String join() {
+        if (isEmpty()) {
+            return "";
+        }
+        if (separatedByNewLine) {
+            return text.substring(starts[fromIndex], ends[toIndex - 1]);
+        }
+        return String.join("\n", this);
+    }
+
+    private int toBackingIndex(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException(String.format("Line %d is out of %d lines.", index, size()));
+        }
+        return fromIndex + index;
+    }
+
+    /**
+     * Accumulates lines, with their offsets, into a single text.
+     */
+    static final class Builder {
+        private final StringBuilder text = new StringBuilder();
+        private int[] starts = new int[64];
+        private int[] ends = new int[64];
+        private int size = 0;
+        private boolean separatedByNewLine = true;
+
+        /**
+         * Adds a line ending at the given offset, which must be after the end of the previous line.
+         * The characters between the previous line and this line, if any, are line separators.
+         */
+        Builder addLine(int start, int end) {
+            if (size > 0 && start != ends[size - 1] + 1) {
+                separatedByNewLine = false;
+            }
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+            }
+            starts[size] = start;
+            ends[size] = end;
+            size++;
+            return this;
+        }
+
+        /**
+         * Appends a line (without the line separator) to the text.
+         */
+        Builder append(CharSequence line) {
+            if (size > 0) {
+                text.append('\n');
+            }
+            int start = text.length();
+            text.append(line);
+            return addLine(start, text.length());
+        }
+
+        /**
+         * Returns the number of chars appended so far.
+         */
+        int length() {
+            return text.length();
+        }
+
+        IndexedLines build() {
+            return build(text.toString());
+        }
+
+        /**
+         * Creates the lines over the given text, which the offsets of the added lines refer to.
+         */
+        IndexedLines build(String text) {
+            return new IndexedLines(text, Arrays.copyOf(starts, size), Arrays.copyOf(ends, size), 0, size, separatedByNewLine);
+        }
+    }
+}
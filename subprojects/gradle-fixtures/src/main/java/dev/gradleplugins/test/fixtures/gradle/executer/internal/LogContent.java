@@ -28,9 +28,12 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.UncheckedIOException;
 import java.io.Writer;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.RandomAccess;
 import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
@@ -39,11 +42,17 @@ public class LogContent {
     private final static Pattern DEBUG_PREFIX = Pattern.compile("\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}\\.\\d{3}\\+\\d{4} \\[\\w+] \\[.+?] ");
     private final static Pattern JAVA_ILLEGAL_ACCESS_WARNING_PATTERN = Pattern.compile("(?ms)WARNING: An illegal reflective access operation has occurred$.+?"
         + "^WARNING: All illegal access operations will be denied in a future release\r?\n");
+    private final static String JAVA_ILLEGAL_ACCESS_WARNING_START = "WARNING: An illegal reflective access operation has occurred";
+    private final static String JAVA_ILLEGAL_ACCESS_WARNING_END = "WARNING: All illegal access operations will be denied in a future release";
 
     private final List<String> lines;
     private final boolean definitelyNoDebugPrefix;
     private final boolean definitelyNoAnsiChars;
     private final LogContent rawContent;
+    // Derived contents, computed at most once as the result and failure fixtures share the same content
+    private LogContent withoutDebugPrefix;
+    private LogContent plainText;
+    private String normalizedEol;
 
     private LogContent(List<String> lines, boolean definitelyNoDebugPrefix, boolean definitelyNoAnsiChars, LogContent rawContent) {
         this.lines = lines;
@@ -56,33 +65,62 @@ public class LogContent {
      * Creates a new instance, from raw characters.
      */
     public static LogContent of(String chars) {
-        LogContent raw = new LogContent(toLines(chars), false, false, null);
-        return new LogContent(toLines(stripJavaIllegalAccessWarnings(chars)), false, false, raw);
-    }
-
-    private static List<String> toLines(String chars) {
-        List<String> lines = new ArrayList<String>();
-        int pos = 0;
-        while (pos < chars.length()) {
-            int next = chars.indexOf('\n', pos);
-            if (next < 0) {
-                lines.add(chars.substring(pos));
-                pos = chars.length();
-                continue;
-            }
-            if (next > pos && chars.charAt(next - 1) == '\r') {
-                lines.add(chars.substring(pos, next - 1));
-                pos = next + 1;
-            } else {
-                lines.add(chars.substring(pos, next));
-                pos = next + 1;
-            }
-            if (pos == chars.length()) {
-                // trailing EOL
-                lines.add("");
+        return split(chars, false, null).withoutJavaIllegalAccessWarnings();
+    }
+
+    /**
+     * Splits the characters into lines in a single pass, which also detects whether the lines may contain ANSI control characters or debug prefixes.
+     */
+    private static LogContent split(String chars, boolean definitelyNoDebugPrefix, @Nullable LogContent rawContent) {
+        IndexedLines.Builder lines = new IndexedLines.Builder();
+        boolean noAnsiChars = true;
+        boolean noDebugPrefix = true;
+        int length = chars.length();
+        int lineStart = 0;
+        for (int i = 0; i < length; i++) {
+            char c = chars.charAt(i);
+            if (c == '\n') {
+                int lineEnd = i > lineStart && chars.charAt(i - 1) == '\r' ? i - 1 : i;
+                noDebugPrefix = noDebugPrefix && !mayHaveDebugPrefix(chars, lineStart, lineEnd);
+                lines.addLine(lineStart, lineEnd);
+                lineStart = i + 1;
+            } else if (noAnsiChars && isControlChar(c) && !(c == '\r' && i + 1 < length && chars.charAt(i + 1) == '\n')) {
+                noAnsiChars = false;
             }
         }
-        return Collections.unmodifiableList(lines);
+        if (length > 0) {
+            // last line, empty when the characters end with a line separator
+            noDebugPrefix = noDebugPrefix && !mayHaveDebugPrefix(chars, lineStart, length);
+            lines.addLine(lineStart, length);
+        }
+        return new LogContent(lines.build(chars), definitelyNoDebugPrefix || noDebugPrefix, noAnsiChars, rawContent);
+    }
+
+    /**
+     * Returns true for characters the ANSI console interprets, a line feed aside.
+     */
+    static boolean isControlChar(char c) {
+        return c < ' ' && c != '\t' && c != '\n';
+    }
+
+    /**
+     * Cheap necessary condition for {@link #DEBUG_PREFIX} to match at the start of the line.
+     */
+    static boolean mayHaveDebugPrefix(CharSequence line) {
+        return mayHaveDebugPrefix(line, 0, line.length());
+    }
+
+    private static boolean mayHaveDebugPrefix(CharSequence chars, int start, int end) {
+        return end - start > 10 && Character.isDigit(chars.charAt(start)) && chars.charAt(start + 4) == '-' && chars.charAt(start + 10) == 'T';
+    }
+
+    private LogContent withoutJavaIllegalAccessWarnings() {
+        List<String> result = stripJavaIllegalAccessWarnings(lines);
+        if (result == lines) {
+            return new LogContent(lines, definitelyNoDebugPrefix, definitelyNoAnsiChars, this);
+        }
+        // Merged lines may start differently
+        return new LogContent(result, definitelyNoDebugPrefix || result.stream().noneMatch(LogContent::mayHaveDebugPrefix), definitelyNoAnsiChars, this);
     }
 
     /**
@@ -92,6 +130,18 @@ public class LogContent {
         return new LogContent(Collections.unmodifiableList(lines), false, false, null);
     }
 
+    /**
+     * Creates a new instance from captured lines (without the line separators), see {@link OutputCapturer}.
+     * Unlike {@link #of(List)}, the Java illegal access warnings are removed the same way as {@link #of(String)}.
+     * The lines are not copied nor wrapped, which allows lazily loaded lines; they must not be modified afterward.
+     *
+     * @param definitelyNoDebugPrefix true if no line satisfies {@link #mayHaveDebugPrefix(String)}
+     * @param definitelyNoAnsiChars true if no line contains a char satisfying {@link #isControlChar(char)}
+     */
+    static LogContent ofCapturedLines(List<String> lines, boolean definitelyNoDebugPrefix, boolean definitelyNoAnsiChars) {
+        return new LogContent(lines, definitelyNoDebugPrefix, definitelyNoAnsiChars, null).withoutJavaIllegalAccessWarnings();
+    }
+
     public static LogContent empty() {
         return new LogContent(Collections.emptyList(), true, true, null);
     }
@@ -109,10 +159,21 @@ public class LogContent {
      * Returns this content formatted using a new line char to separate lines.
      */
     public String withNormalizedEol() {
-        if (lines.isEmpty()) {
-            return "";
+        if (normalizedEol == null) {
+            if (lines instanceof IndexedLines) {
+                normalizedEol = ((IndexedLines) lines).join();
+            } else {
+                normalizedEol = lines.isEmpty() ? "" : String.join("\n", lines);
+            }
         }
-        return String.join("\n", lines);
+        return normalizedEol;
+    }
+
+    /**
+     * Returns the content this content was derived from, before removing the Java illegal access warnings or any other transformation.
+     */
+    public LogContent getRawContent() {
+        return rawContent;
     }
 
     /**
@@ -122,6 +183,28 @@ public class LogContent {
         return lines;
     }
 
+    /**
+     * Returns this content separated into lines, as read-only views over the content which don't copy the characters of each line.
+     * The line does not include the line separator.
+     */
+    public List<CharSequence> getLineViews() {
+        if (lines instanceof IndexedLines) {
+            IndexedLines indexedLines = (IndexedLines) lines;
+            return new AbstractList<CharSequence>() {
+                @Override
+                public CharSequence get(int index) {
+                    return indexedLines.getView(index);
+                }
+
+                @Override
+                public int size() {
+                    return indexedLines.size();
+                }
+            };
+        }
+        return Collections.unmodifiableList(lines);
+    }
+
     /**
      * Visits each line in this content. The line does not include the line separator.
      */
@@ -138,11 +221,11 @@ public class LogContent {
      */
     public @Nullable
     Pair<LogContent, LogContent> splitOnFirstMatchingLine(Pattern pattern) {
+        List<CharSequence> lines = getLineViews();
         for (int i = 0; i < lines.size(); i++) {
-            String line = lines.get(i);
-            if (pattern.matcher(line).matches()) {
-                LogContent before = new LogContent(lines.subList(0, i), definitelyNoDebugPrefix, definitelyNoAnsiChars, rawContent);
-                LogContent after = new LogContent(lines.subList(i, lines.size()), definitelyNoDebugPrefix, definitelyNoAnsiChars, rawContent);
+            if (pattern.matcher(lines.get(i)).matches()) {
+                LogContent before = new LogContent(this.lines.subList(0, i), definitelyNoDebugPrefix, definitelyNoAnsiChars, rawContent);
+                LogContent after = new LogContent(this.lines.subList(i, lines.size()), definitelyNoDebugPrefix, definitelyNoAnsiChars, rawContent);
                 return Pair.of(before, after);
             }
         }
@@ -154,7 +237,7 @@ public class LogContent {
      */
     public int countMatches(Pattern pattern) {
         int count = 0;
-        for (String line : lines) {
+        for (CharSequence line : getLineViews()) {
             if (pattern.matcher(line).matches()) {
                 count++;
             }
@@ -176,16 +259,19 @@ public class LogContent {
         if (definitelyNoDebugPrefix) {
             return this;
         }
-        List<String> result = new ArrayList<String>(lines.size());
-        for (String line : lines) {
-            java.util.regex.Matcher matcher = DEBUG_PREFIX.matcher(line);
-            if (matcher.lookingAt()) {
-                result.add(line.substring(matcher.end()));
-            } else {
-                result.add(line);
+        if (withoutDebugPrefix == null) {
+            IndexedLines.Builder result = new IndexedLines.Builder();
+            for (CharSequence line : getLineViews()) {
+                java.util.regex.Matcher matcher = DEBUG_PREFIX.matcher(line);
+                if (mayHaveDebugPrefix(line) && matcher.lookingAt()) {
+                    result.append(line.subSequence(matcher.end(), line.length()));
+                } else {
+                    result.append(line);
+                }
             }
+            withoutDebugPrefix = new LogContent(result.build(), true, definitelyNoAnsiChars, rawContent);
         }
-        return new LogContent(Collections.unmodifiableList(result), true, definitelyNoAnsiChars, rawContent);
+        return withoutDebugPrefix;
     }
 
     /**
@@ -195,6 +281,17 @@ public class LogContent {
         if (definitelyNoAnsiChars) {
             return this;
         }
+        if (plainText != null) {
+            return plainText;
+        }
+
+        // Most captures only use text attributes, which don't need the console emulation
+        List<String> strippedLines = stripSimpleAnsiChars();
+        if (strippedLines != null) {
+            plainText = new LogContent(strippedLines, definitelyNoDebugPrefix || strippedLines.stream().noneMatch(LogContent::mayHaveDebugPrefix), true, rawContent);
+            return plainText;
+        }
+
         try {
             AnsiConsole console = interpretAnsiChars();
             StringBuilder result = new StringBuilder();
@@ -205,12 +302,29 @@ public class LogContent {
                     result.append("\n");
                 }
             });
-            return new LogContent(toLines(result.toString()), definitelyNoDebugPrefix, true, rawContent);
+            plainText = split(result.toString(), definitelyNoDebugPrefix, rawContent).asPlainText();
+            return plainText;
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
     }
 
+    /**
+     * Returns the lines without their ANSI control sequences, or null if any line requires the full console emulation.
+     */
+    @Nullable
+    private List<String> stripSimpleAnsiChars() {
+        IndexedLines.Builder result = new IndexedLines.Builder();
+        for (CharSequence line : getLineViews()) {
+            CharSequence strippedLine = AnsiStripper.strip(line);
+            if (strippedLine == null) {
+                return null;
+            }
+            result.append(strippedLine);
+        }
+        return result.build();
+    }
+
     /**
      * Returns a copy of this log content with ANSI control characters interpreted to produce plain text with text attributes included.
      */
@@ -228,12 +342,16 @@ public class LogContent {
                 }
                 row.visit(diagnosticConsole);
             }
-            return new LogContent(toLines(diagnosticConsole.toString()), definitelyNoDebugPrefix, true, rawContent);
+            return split(diagnosticConsole.toString(), definitelyNoDebugPrefix, rawContent).asPlainText();
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
     }
 
+    private LogContent asPlainText() {
+        return new LogContent(lines, definitelyNoDebugPrefix, true, rawContent);
+    }
+
     private AnsiConsole interpretAnsiChars() throws IOException {
         AnsiConsole console = new AnsiConsole();
         AnsiParser parser = new AnsiParser();
@@ -251,4 +369,98 @@ public class LogContent {
     public static String stripJavaIllegalAccessWarnings(String result) {
         return JAVA_ILLEGAL_ACCESS_WARNING_PATTERN.matcher(result).replaceAll("");
     }
+
+    /**
+     * Line based equivalent of {@link #stripJavaIllegalAccessWarnings(String)}.
+     * Returns the same list when there is no warning, otherwise a view over the remaining lines.
+     */
+    private static List<String> stripJavaIllegalAccessWarnings(List<String> lines) {
+        int start = indexOfWarningStart(lines, 0);
+        if (start < 0 || indexOfWarningEnd(lines, start + 1) < 0) {
+            return lines;
+        }
+
+        // Entries index the source lines, or the merged lines when negative
+        int[] indices = new int[lines.size()];
+        List<String> mergedLines = new ArrayList<>();
+        int size = 0;
+        int index = 0;
+        String prefix = null;
+        while (index < lines.size()) {
+            start = indexOfWarningStart(lines, index);
+            int end = start < 0 ? -1 : indexOfWarningEnd(lines, start + 1);
+            if (end < 0) {
+                if (prefix != null) {
+                    mergedLines.add(prefix + lines.get(index++));
+                    indices[size++] = -mergedLines.size();
+                }
+                while (index < lines.size()) {
+                    indices[size++] = index++;
+                }
+                break;
+            }
+
+            // The warning starts at the end of the start line and removes everything up to the line following the end line
+            for (int i = index; i < start; i++) {
+                if (prefix != null) {
+                    mergedLines.add(prefix + lines.get(i));
+                    indices[size++] = -mergedLines.size();
+                    prefix = null;
+                } else {
+                    indices[size++] = i;
+                }
+            }
+            String startLine = lines.get(start);
+            String startPrefix = startLine.substring(0, startLine.length() - JAVA_ILLEGAL_ACCESS_WARNING_START.length());
+            prefix = (start == index && prefix != null ? prefix : "") + startPrefix;
+            index = end + 1;
+        }
+        if (size == 1 && indices[0] < 0 && mergedLines.get(0).isEmpty()) {
+            // Everything was removed, splitting an empty string gives no lines
+            return Collections.emptyList();
+        }
+        return new MappedLines(lines, Arrays.copyOf(indices, size), mergedLines);
+    }
+
+    private static int indexOfWarningStart(List<String> lines, int fromIndex) {
+        for (int i = fromIndex; i < lines.size(); i++) {
+            if (lines.get(i).endsWith(JAVA_ILLEGAL_ACCESS_WARNING_START)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOfWarningEnd(List<String> lines, int fromIndex) {
+        // The end line must be followed by a line separator, so it can't be the last line
+        for (int i = fromIndex; i < lines.size() - 1; i++) {
+            if (lines.get(i).equals(JAVA_ILLEGAL_ACCESS_WARNING_END)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static final class MappedLines extends AbstractList<String> implements RandomAccess {
+        private final List<String> lines;
+        private final int[] indices;
+        private final List<String> mergedLines;
+
+        private MappedLines(List<String> lines, int[] indices, List<String> mergedLines) {
+            this.lines = lines;
+            this.indices = indices;
+            this.mergedLines = mergedLines;
+        }
+
+        @Override
+        public String get(int index) {
+            int mappedIndex = indices[index];
+            return mappedIndex < 0 ? mergedLines.get(-mappedIndex - 1) : lines.get(mappedIndex);
+        }
+
+        @Override
+        public int size() {
+            return indices.length;
+        }
+    }
 }
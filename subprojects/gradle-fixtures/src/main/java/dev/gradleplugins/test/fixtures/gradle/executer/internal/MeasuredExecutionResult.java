@@ -0,0 +1,29 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.test.fixtures.gradle.executer.internal;
+
+import dev.gradleplugins.test.fixtures.gradle.executer.BuildProfile;
+import dev.gradleplugins.test.fixtures.gradle.executer.ExecutionMetrics;
+
+/**
+ * A result the executer attaches the metrics and the profile of its build to, once the build completed.
+ */
+interface MeasuredExecutionResult {
+    void setMetrics(ExecutionMetrics metrics);
+
+    void setBuildProfile(BuildProfile buildProfile);
+}
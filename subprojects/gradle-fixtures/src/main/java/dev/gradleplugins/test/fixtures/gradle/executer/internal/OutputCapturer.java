@@ -18,33 +18,175 @@ package dev.gradleplugins.test.fixtures.gradle.executer.internal;
 
 import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.apache.commons.io.output.TeeOutputStream;
-import org.gradle.internal.UncheckedException;
 
-import java.io.ByteArrayOutputStream;
 import java.io.OutputStream;
-import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.List;
 
+/**
+ * Captures an output stream as lines while forwarding it to a standard stream.
+ *
+ * The bytes are decoded and split into lines as they arrive so the raw bytes are never buffered.
+ * Lines are kept in memory, in a single buffer, until they add up to more than {@code dev.gradleplugins.outputCaptureThreshold} chars (16M by default), then all of them spill to a temporary file.
+ */
 class OutputCapturer {
-    private final ByteArrayOutputStream buffer;
+    public static final String THRESHOLD_SYSPROP_NAME = "dev.gradleplugins.outputCaptureThreshold";
+    private static final int DEFAULT_THRESHOLD = 16 * 1024 * 1024;
+    private final LineCapturingOutputStream buffer;
     private final OutputStream outputStream;
-    private final Charset outputEncoding;
+    private LogContent output;
 
     public OutputCapturer(OutputStream standardStream, Charset outputEncoding) {
-        this.buffer = new ByteArrayOutputStream();
+        this.buffer = new LineCapturingOutputStream(outputEncoding, Integer.getInteger(THRESHOLD_SYSPROP_NAME, DEFAULT_THRESHOLD));
         this.outputStream = new CloseShieldOutputStream(new TeeOutputStream(standardStream, buffer));
-        this.outputEncoding = outputEncoding;
     }
 
     public OutputStream getOutputStream() {
         return outputStream;
     }
 
+    /**
+     * Returns the captured output, no more output can be captured afterward.
+     */
+    public LogContent getOutput() {
+        if (output == null) {
+            List<String> lines = buffer.complete();
+            output = LogContent.ofCapturedLines(lines, buffer.noDebugPrefix, buffer.noAnsiChars);
+        }
+        return output;
+    }
+
+    /**
+     * Returns the captured output, with new line chars as line separator.
+     * Prefer {@link #getOutput()} which doesn't copy the whole output into a single string.
+     */
     public String getOutputAsString() {
-        try {
-            return buffer.toString(outputEncoding.name());
-        } catch (UnsupportedEncodingException e) {
-            throw UncheckedException.throwAsUncheckedException(e);
+        return String.join("\n", getOutput().getRawContent().getLines());
+    }
+
+    private static final class LineCapturingOutputStream extends OutputStream {
+        private final CharsetDecoder decoder;
+        private final ByteBuffer bytes = ByteBuffer.allocate(8192);
+        private final CharBuffer chars = CharBuffer.allocate(8192);
+        private final StringBuilder currentLine = new StringBuilder();
+        private final int threshold;
+        private IndexedLines.Builder lines = new IndexedLines.Builder();
+        private SpilledLogLines spilledLines;
+        private List<String> completedLines;
+        private boolean seenAnyChars = false;
+        private boolean completed = false;
+        // Detected while splitting, same as LogContent#of(String)
+        private boolean pendingCarriageReturn = false;
+        private boolean noAnsiChars = true;
+        private boolean noDebugPrefix = true;
+
+        private LineCapturingOutputStream(Charset encoding, int threshold) {
+            this.decoder = encoding.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+            this.threshold = threshold;
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            if (completed) {
+                throw new IllegalStateException("Output capture is already completed.");
+            }
+            while (len > 0) {
+                int count = Math.min(len, bytes.remaining());
+                bytes.put(b, off, count);
+                off += count;
+                len -= count;
+                decode(false);
+            }
+        }
+
+        private void decode(boolean endOfInput) {
+            bytes.flip();
+            while (true) {
+                boolean overflow = decoder.decode(bytes, chars, endOfInput).isOverflow();
+                chars.flip();
+                while (chars.hasRemaining()) {
+                    onChar(chars.get());
+                }
+                chars.clear();
+                if (!overflow) {
+                    break;
+                }
+            }
+            bytes.compact();
+        }
+
+        private void onChar(char c) {
+            seenAnyChars = true;
+            if (pendingCarriageReturn && c != '\n') {
+                noAnsiChars = false;
+            }
+            pendingCarriageReturn = c == '\r';
+            if (c != '\r' && LogContent.isControlChar(c)) {
+                noAnsiChars = false;
+            }
+
+            if (c == '\n') {
+                int length = currentLine.length();
+                if (length > 0 && currentLine.charAt(length - 1) == '\r') {
+                    currentLine.setLength(length - 1);
+                }
+                addLine(currentLine);
+                currentLine.setLength(0);
+            } else {
+                currentLine.append(c);
+            }
+        }
+
+        private void addLine(CharSequence line) {
+            noDebugPrefix = noDebugPrefix && !LogContent.mayHaveDebugPrefix(line);
+            if (spilledLines != null) {
+                spilledLines.append(line.toString());
+                return;
+            }
+
+            lines.append(line);
+            if (lines.length() > threshold) {
+                spilledLines = new SpilledLogLines();
+                lines.build().forEach(spilledLines::append);
+                lines = null;
+            }
+        }
+
+        synchronized List<String> complete() {
+            if (!completed) {
+                completed = true;
+                decode(true);
+                chars.clear();
+                decoder.flush(chars);
+                chars.flip();
+                while (chars.hasRemaining()) {
+                    onChar(chars.get());
+                }
+                if (pendingCarriageReturn) {
+                    noAnsiChars = false;
+                }
+                // Same as splitting the whole output: a trailing line separator ends with an empty line
+                if (seenAnyChars) {
+                    addLine(currentLine);
+                }
+                if (spilledLines != null) {
+                    spilledLines.complete();
+                    completedLines = spilledLines;
+                } else {
+                    completedLines = lines.build();
+                    lines = null;
+                }
+            }
+            return completedLines;
         }
     }
 }
@@ -0,0 +1,431 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.test.fixtures.gradle.executer.internal;
+
+import lombok.Value;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Compares expected output lines to actual output lines.
+ *
+ * Each line is reduced once to an integer key, so the comparisons of the diff are integer comparisons.
+ * An actual line may match more than one expected line, for example once normalized, so it holds the keys of every expected line it matches.
+ */
+final class OutputDiff {
+    private static final int CONTEXT_LINES = 3;
+
+    // Beyond this many edits, the remaining lines are reported as replaced rather than searching for the minimal diff
+    private static final int MAX_EDIT_DISTANCE = 2000;
+
+    private final List<String> expectedLines;
+    private final List<String> actualLines;
+    private final int[] expectedKeys;
+    private final int[][] actualKeys;
+
+    private OutputDiff(List<String> expectedLines, List<String> actualLines, int[] expectedKeys, int[][] actualKeys) {
+        this.expectedLines = expectedLines;
+        this.actualLines = actualLines;
+        this.expectedKeys = expectedKeys;
+        this.actualKeys = actualKeys;
+    }
+
+    /**
+     * @param expectedLines the expected lines
+     * @param actualLines the actual lines
+     * @param matchingExpectedLines returns the expected lines an actual line matches
+     */
+    static OutputDiff of(List<String> expectedLines, List<String> actualLines, Function<String, Collection<String>> matchingExpectedLines) {
+        Map<String, Integer> keys = new HashMap<>();
+        int[] expectedKeys = new int[expectedLines.size()];
+        for (int i = 0; i < expectedLines.size(); i++) {
+            Integer key = keys.get(expectedLines.get(i));
+            if (key == null) {
+                key = keys.size();
+                keys.put(expectedLines.get(i), key);
+            }
+            expectedKeys[i] = key;
+        }
+
+        int[][] actualKeys = new int[actualLines.size()][];
+        int[] buffer = new int[4];
+        for (int i = 0; i < actualLines.size(); i++) {
+            int count = 0;
+            for (String line : matchingExpectedLines.apply(actualLines.get(i))) {
+                Integer key = keys.get(line);
+                if (key != null && !contains(buffer, count, key)) {
+                    if (count == buffer.length) {
+                        buffer = Arrays.copyOf(buffer, count * 2);
+                    }
+                    buffer[count++] = key;
+                }
+            }
+            actualKeys[i] = Arrays.copyOf(buffer, count);
+        }
+        return new OutputDiff(expectedLines, actualLines, expectedKeys, actualKeys);
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean matches(int expectedIndex, int actualIndex) {
+        int key = expectedKeys[expectedIndex];
+        for (int candidate : actualKeys[actualIndex]) {
+            if (candidate == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a unified diff from the expected lines to the actual lines.
+     *
+     * @param ignoreExtraLines whether to omit the actual lines added after the last expected line
+     */
+    String toUnifiedDiff(boolean ignoreExtraLines) {
+        char[] operations = diff();
+        int length = operations.length;
+        if (ignoreExtraLines) {
+            while (length > 0 && operations[length - 1] == '+') {
+                length--;
+            }
+        }
+
+        StringBuilder result = new StringBuilder();
+        result.append("--- expected").append(System.lineSeparator());
+        result.append("+++ actual").append(System.lineSeparator());
+        int expectedIndex = 0;
+        int actualIndex = 0;
+        int operationIndex = 0;
+        while (true) {
+            // Find the next change
+            int changeStart = operationIndex;
+            while (changeStart < length && operations[changeStart] == ' ') {
+                changeStart++;
+            }
+            if (changeStart == length) {
+                break;
+            }
+
+            // Extend the hunk while the changes are close enough for their context to overlap
+            int hunkStart = Math.max(operationIndex, changeStart - CONTEXT_LINES);
+            int changeEnd = changeStart;
+            int next = changeStart;
+            while (next < length) {
+                if (operations[next] != ' ') {
+                    changeEnd = next + 1;
+                    next++;
+                } else if (next - changeEnd < 2 * CONTEXT_LINES) {
+                    next++;
+                } else {
+                    break;
+                }
+            }
+            int hunkEnd = Math.min(length, changeEnd + CONTEXT_LINES);
+
+            // Skip the unchanged lines before the hunk
+            for (int i = operationIndex; i < hunkStart; i++) {
+                expectedIndex++;
+                actualIndex++;
+            }
+
+            int expectedCount = 0;
+            int actualCount = 0;
+            for (int i = hunkStart; i < hunkEnd; i++) {
+                if (operations[i] != '+') {
+                    expectedCount++;
+                }
+                if (operations[i] != '-') {
+                    actualCount++;
+                }
+            }
+            result.append(String.format("@@ -%d,%d +%d,%d @@%n", expectedCount == 0 ? expectedIndex : expectedIndex + 1, expectedCount, actualCount == 0 ? actualIndex : actualIndex + 1, actualCount));
+            for (int i = hunkStart; i < hunkEnd; i++) {
+                if (operations[i] == '+') {
+                    result.append('+').append(actualLines.get(actualIndex++));
+                } else if (operations[i] == '-') {
+                    result.append('-').append(expectedLines.get(expectedIndex++));
+                } else {
+                    result.append(' ').append(actualLines.get(actualIndex++));
+                    expectedIndex++;
+                }
+                result.append(System.lineSeparator());
+            }
+            operationIndex = hunkEnd;
+        }
+        return result.toString();
+    }
+
+    /**
+     * Returns the edit script from the expected lines to the actual lines: ' ' for a matching line, '-' for a missing line and '+' for an extra line.
+     * Uses Myers' algorithm on the lines remaining after removing the common prefix and suffix.
+     */
+    private char[] diff() {
+        int prefix = 0;
+        while (prefix < expectedLines.size() && prefix < actualLines.size() && matches(prefix, prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < expectedLines.size() - prefix && suffix < actualLines.size() - prefix && matches(expectedLines.size() - 1 - suffix, actualLines.size() - 1 - suffix)) {
+            suffix++;
+        }
+
+        int n = expectedLines.size() - prefix - suffix;
+        int m = actualLines.size() - prefix - suffix;
+        char[] result = new char[prefix + suffix + n + m];
+        int length = 0;
+        for (int i = 0; i < prefix; i++) {
+            result[length++] = ' ';
+        }
+        length = diff(prefix, n, m, result, length);
+        for (int i = 0; i < suffix; i++) {
+            result[length++] = ' ';
+        }
+        return Arrays.copyOf(result, length);
+    }
+
+    private int diff(int offset, int n, int m, char[] result, int length) {
+        int max = Math.min(n + m, MAX_EDIT_DISTANCE);
+        int[] v = new int[2 * max + 3];
+        List<int[]> trace = new ArrayList<>();
+        int editDistance = -1;
+        for (int d = 0; d <= max && editDistance < 0; d++) {
+            // Snapshot of the furthest reaching paths of the previous step, for diagonals -d-1 to d+1
+            trace.add(Arrays.copyOfRange(v, max - d, max + d + 3));
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+                if (k == -d || (k != d && v[max + 1 + k - 1] < v[max + 1 + k + 1])) {
+                    x = v[max + 1 + k + 1];
+                } else {
+                    x = v[max + 1 + k - 1] + 1;
+                }
+                int y = x - k;
+                while (x < n && y < m && matches(offset + x, offset + y)) {
+                    x++;
+                    y++;
+                }
+                v[max + 1 + k] = x;
+                if (x >= n && y >= m) {
+                    editDistance = d;
+                    break;
+                }
+            }
+        }
+
+        if (editDistance < 0) {
+            // Too many differences, report the remaining lines as replaced
+            for (int i = 0; i < n; i++) {
+                result[length++] = '-';
+            }
+            for (int i = 0; i < m; i++) {
+                result[length++] = '+';
+            }
+            return length;
+        }
+
+        // Walk the snapshots backward from the end, collecting the operations in reverse order
+        int end = length + n + m;
+        int position = end;
+        int x = n;
+        int y = m;
+        for (int d = editDistance; d >= 0; d--) {
+            int[] previous = trace.get(d);
+            int k = x - y;
+            int previousK;
+            if (k == -d || (k != d && previous[k - 1 + d + 1] < previous[k + 1 + d + 1])) {
+                previousK = k + 1;
+            } else {
+                previousK = k - 1;
+            }
+            int previousX = previous[previousK + d + 1];
+            int previousY = previousX - previousK;
+            while (x > previousX && y > previousY) {
+                result[--position] = ' ';
+                x--;
+                y--;
+            }
+            if (d > 0) {
+                result[--position] = x == previousX ? '+' : '-';
+            }
+            x = previousX;
+            y = previousY;
+        }
+
+        // Matching lines use a single operation for both sides, compact the script
+        int size = end - position;
+        System.arraycopy(result, position, result, length, size);
+        return length + size;
+    }
+
+    /**
+     * Matches each expected line to a distinct actual line, in any order.
+     * An actual line can match several expected lines, so a maximum matching is searched with augmenting paths: an expected line without a free actual line may take the actual line of another expected line, which moves on to another actual line.
+     *
+     * @return the indexes of the expected lines without a matching actual line, and of the actual lines not matched by any expected line
+     */
+    Unmatched matchInAnyOrder() {
+        // Expected lines with the same key are interchangeable, the search works on keys
+        int keyCount = 0;
+        for (int key : expectedKeys) {
+            keyCount = Math.max(keyCount, key + 1);
+        }
+        List<List<Integer>> actualIndexesByKey = new ArrayList<>(keyCount);
+        for (int key = 0; key < keyCount; key++) {
+            actualIndexesByKey.add(new ArrayList<>());
+        }
+        for (int i = 0; i < actualKeys.length; i++) {
+            for (int key : actualKeys[i]) {
+                if (key < keyCount) {
+                    actualIndexesByKey.get(key).add(i);
+                }
+            }
+        }
+        int[][] candidates = new int[keyCount][];
+        for (int key = 0; key < keyCount; key++) {
+            candidates[key] = toArray(actualIndexesByKey.get(key));
+        }
+
+        int[] expectedIndexByActual = new int[actualLines.size()];
+        Arrays.fill(expectedIndexByActual, -1);
+        boolean[] matched = new boolean[expectedKeys.length];
+
+        // Most lines have a single candidate, take the free ones first
+        for (int i = 0; i < expectedKeys.length; i++) {
+            for (int candidate : candidates[expectedKeys[i]]) {
+                if (expectedIndexByActual[candidate] < 0) {
+                    expectedIndexByActual[candidate] = i;
+                    matched[i] = true;
+                    break;
+                }
+            }
+        }
+
+        // Once the search fails for a key, it fails for every later expected line with that key
+        boolean[] unmatchableKeys = new boolean[keyCount];
+        Path path = new Path(expectedKeys.length, actualLines.size(), keyCount);
+        List<String> missingLines = new ArrayList<>();
+        for (int i = 0; i < expectedKeys.length; i++) {
+            if (matched[i]) {
+                continue;
+            }
+            if (unmatchableKeys[expectedKeys[i]] || !augment(i, candidates, expectedIndexByActual, path)) {
+                unmatchableKeys[expectedKeys[i]] = true;
+                missingLines.add(expectedLines.get(i));
+            }
+        }
+
+        List<String> extraLines = new ArrayList<>();
+        for (int i = 0; i < expectedIndexByActual.length; i++) {
+            if (expectedIndexByActual[i] < 0) {
+                extraLines.add(actualLines.get(i));
+            }
+        }
+        return new Unmatched(missingLines, extraLines);
+    }
+
+    /**
+     * Searches, depth first, a path from the expected line to a free actual line, alternating through matched actual lines, then shifts the matches along the path.
+     * Each actual line is visited once per search, and the expected lines of a key share a cursor over their candidates, so a search takes time linear in the number of candidates.
+     */
+    private boolean augment(int expectedIndex, int[][] candidates, int[] expectedIndexByActual, Path path) {
+        int[] pathExpected = path.expectedIndexes;
+        int[] pathActual = path.actualIndexes;
+        int stamp = ++path.stamp;
+        int depth = 0;
+        pathExpected[0] = expectedIndex;
+        while (depth >= 0) {
+            int key = expectedKeys[pathExpected[depth]];
+            if (path.searchedKeys[key] != stamp) {
+                path.searchedKeys[key] = stamp;
+                path.nextCandidates[key] = 0;
+            }
+            int[] keyCandidates = candidates[key];
+            if (path.nextCandidates[key] == keyCandidates.length) {
+                depth--;
+                continue;
+            }
+            int candidate = keyCandidates[path.nextCandidates[key]++];
+            if (path.visitedActualLines[candidate] == stamp) {
+                continue;
+            }
+            path.visitedActualLines[candidate] = stamp;
+            pathActual[depth] = candidate;
+            if (expectedIndexByActual[candidate] < 0) {
+                for (int i = 0; i <= depth; i++) {
+                    expectedIndexByActual[pathActual[i]] = pathExpected[i];
+                }
+                return true;
+            }
+            depth++;
+            pathExpected[depth] = expectedIndexByActual[candidate];
+        }
+        return false;
+    }
+
+    /**
+     * The buffers of the augmenting path search, shared by every search.
+     */
+    private static final class Path {
+        // A path visits each expected line at most once
+        private final int[] expectedIndexes;
+        private final int[] actualIndexes;
+        // The actual lines visited and the keys searched by the current search are marked with its stamp
+        private final int[] visitedActualLines;
+        private final int[] nextCandidates;
+        private final int[] searchedKeys;
+        private int stamp = 0;
+
+        Path(int expectedCount, int actualCount, int keyCount) {
+            this.expectedIndexes = new int[expectedCount];
+            this.actualIndexes = new int[expectedCount];
+            this.visitedActualLines = new int[actualCount];
+            this.nextCandidates = new int[keyCount];
+            this.searchedKeys = new int[keyCount];
+        }
+    }
+
+    private static int[] toArray(@Nullable List<Integer> values) {
+        if (values == null) {
+            return new int[0];
+        }
+        int[] result = new int[values.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = values.get(i);
+        }
+        return result;
+    }
+
+    @Value
+    static class Unmatched {
+        List<String> missingLines;
+        List<String> extraLines;
+    }
+}
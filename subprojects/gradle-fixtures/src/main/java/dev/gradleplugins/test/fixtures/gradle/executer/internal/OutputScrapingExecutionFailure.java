@@ -17,7 +17,6 @@ package dev.gradleplugins.test.fixtures.gradle.executer.internal;
 
 import dev.gradleplugins.test.fixtures.Pair;
 import dev.gradleplugins.test.fixtures.gradle.executer.ExecutionFailure;
-import org.gradle.util.TextUtil;
 import org.hamcrest.Matcher;
 import org.hamcrest.Matchers;
 
@@ -30,17 +29,7 @@ import static org.junit.Assert.assertThat;
 
 public class OutputScrapingExecutionFailure extends OutputScrapingExecutionResult implements ExecutionFailure {
     private static final Pattern FAILURE_PATTERN = Pattern.compile("FAILURE: (.+)");
-    private static final Pattern CAUSE_PATTERN = Pattern.compile("(?m)(^\\s*> )");
-    private static final Pattern DESCRIPTION_PATTERN = Pattern.compile("(?ms)^\\* What went wrong:$(.+?)^\\* Try:$");
-    private static final Pattern LOCATION_PATTERN = Pattern.compile("(?ms)^\\* Where:((.+?)'.+?') line: (\\d+)$");
-    private static final Pattern RESOLUTION_PATTERN = Pattern.compile("(?ms)^\\* Try:$(.+?)^\\* Exception is:$");
-    private final String summary;
-    private final List<String> descriptions = new ArrayList<>();
-    private final List<String> lineNumbers = new ArrayList<>();
-    private final List<String> fileNames = new ArrayList<>();
-    private final String resolution;
-    // with normalized line endings
-    private final List<String> causes = new ArrayList<>();
+    private final FailureReport failureReport;
     private final LogContent mainContent;
 
     static boolean hasFailure(String error) {
@@ -55,19 +44,20 @@ public class OutputScrapingExecutionFailure extends OutputScrapingExecutionResul
      * @return A {@link OutputScrapingExecutionResult} for a successful build, or a {@link OutputScrapingExecutionFailure} for a failed build.
      */
     public static OutputScrapingExecutionFailure from(String output, String error) {
-        return new OutputScrapingExecutionFailure(output, error, true);
+        return new OutputScrapingExecutionFailure(LogContent.of(output), LogContent.of(error), true);
     }
 
-    protected OutputScrapingExecutionFailure(String output, String error, boolean includeBuildSrc) {
-        super(LogContent.of(output), LogContent.of(error), includeBuildSrc);
+    protected OutputScrapingExecutionFailure(LogContent output, LogContent error, boolean includeBuildSrc) {
+        super(output, error, includeBuildSrc);
 
-        LogContent withoutDebug = LogContent.of(output).ansiCharsToPlainText().removeDebugPrefix();
+        // Derived contents are memoized, this is the same content the result already normalized
+        LogContent withoutDebug = output.ansiCharsToPlainText().removeDebugPrefix();
 
         // Find failure section
         Pair<LogContent, LogContent> match = withoutDebug.splitOnFirstMatchingLine(FAILURE_PATTERN);
         if (match == null) {
             // Not present in output, check error output.
-            match = LogContent.of(error).ansiCharsToPlainText().removeDebugPrefix().splitOnFirstMatchingLine(FAILURE_PATTERN);
+            match = error.ansiCharsToPlainText().removeDebugPrefix().splitOnFirstMatchingLine(FAILURE_PATTERN);
             if (match != null) {
                 match = Pair.of(withoutDebug, match.getRight());
             } else {
@@ -76,47 +66,22 @@ public class OutputScrapingExecutionFailure extends OutputScrapingExecutionResul
             }
         } else {
             if (match.getRight().countMatches(FAILURE_PATTERN) != 1) {
-                throw new IllegalArgumentException("Found multiple failure sections in log output: " + output);
+                throw new IllegalArgumentException("Found multiple failure sections in log output: " + output.withNormalizedEol());
             }
         }
 
         LogContent failureContent = match.getRight();
         this.mainContent = match.getLeft();
 
-        String failureText = failureContent.withNormalizedEol();
-
-        java.util.regex.Matcher matcher = FAILURE_PATTERN.matcher(failureText);
-        if (matcher.lookingAt()) {
-            summary = matcher.group(1);
-        } else {
-            summary = "";
-        }
-
-        matcher = LOCATION_PATTERN.matcher(failureText);
-        while (matcher.find()) {
-            fileNames.add(matcher.group(1).trim());
-            lineNumbers.add(matcher.group(3));
-        }
-
-        matcher = DESCRIPTION_PATTERN.matcher(failureText);
-        while (matcher.find()) {
-            String problemStr = matcher.group(1);
-            Problem problem = extract(problemStr);
-            descriptions.add(problem.description);
-            causes.addAll(problem.causes);
-        }
-
-        matcher = RESOLUTION_PATTERN.matcher(failureText);
-        if (!matcher.find()) {
-            resolution = "";
-        } else {
-            resolution = matcher.group(1).trim();
-        }
+        this.failureReport = FailureReport.parse(failureContent);
     }
 
     @Override
     public ExecutionFailure getIgnoreBuildSrc() {
-        return new OutputScrapingExecutionFailure(getOutput(), getError(), false);
+        OutputScrapingExecutionFailure result = new OutputScrapingExecutionFailure(getOutputContent(), getErrorContent(), false);
+        result.setMetrics(getMetrics());
+        result.setBuildProfile(getBuildProfile());
+        return result;
     }
 
     @Override
@@ -124,55 +89,45 @@ public class OutputScrapingExecutionFailure extends OutputScrapingExecutionResul
         return mainContent;
     }
 
-    private Problem extract(String problem) {
-        java.util.regex.Matcher matcher = CAUSE_PATTERN.matcher(problem);
-        String description;
-        List<String> causes = new ArrayList<>();
-        if (!matcher.find()) {
-            description = TextUtil.normaliseLineSeparators(problem.trim());
-        } else {
-            description = TextUtil.normaliseLineSeparators(problem.substring(0, matcher.start()).trim());
-            while (true) {
-                int pos = matcher.end();
-                int prefix = matcher.group(1).length();
-                String prefixPattern = toPrefixPattern(prefix);
-                if (matcher.find(pos)) {
-                    String cause = TextUtil.normaliseLineSeparators(problem.substring(pos, matcher.start()).trim().replaceAll(prefixPattern, ""));
-                    causes.add(cause);
-                } else {
-                    String cause = TextUtil.normaliseLineSeparators(problem.substring(pos).trim().replaceAll(prefixPattern, ""));
-                    causes.add(cause);
-                    break;
-                }
-            }
+    /**
+     * Returns the parsed failure section.
+     */
+    public FailureReport getFailureReport() {
+        return failureReport;
+    }
+
+    private List<String> getLineNumbers() {
+        List<String> result = new ArrayList<>();
+        for (FailureReport.Location location : failureReport.getLocations()) {
+            result.add(location.getLineNumber());
         }
-        return new Problem(description, causes);
+        return result;
     }
 
-    private String toPrefixPattern(int prefix) {
-        StringBuilder builder = new StringBuilder("(?m)^");
-        for (int i = 0; i < prefix; i++) {
-            builder.append(' ');
+    private List<String> getFileNames() {
+        List<String> result = new ArrayList<>();
+        for (FailureReport.Location location : failureReport.getLocations()) {
+            result.add(location.getFileName());
         }
-        return builder.toString();
+        return result;
     }
 
     public ExecutionFailure assertHasLineNumber(int lineNumber) {
-        assertThat(this.lineNumbers, hasItem(equalTo(String.valueOf(lineNumber))));
+        assertThat(getLineNumbers(), hasItem(equalTo(String.valueOf(lineNumber))));
         return this;
     }
 
     public ExecutionFailure assertHasFileName(String filename) {
-        assertThat(this.fileNames, hasItem(equalTo(filename)));
+        assertThat(getFileNames(), hasItem(equalTo(filename)));
         return this;
     }
 
     public ExecutionFailure assertHasFailures(int count) {
-        assertThat(this.descriptions.size(), equalTo(count));
+        assertThat(failureReport.getProblems().size(), equalTo(count));
         if (count == 1) {
-            assertThat(summary, equalTo("Build failed with an exception."));
+            assertThat(failureReport.getSummary(), equalTo("Build failed with an exception."));
         } else {
-            assertThat(summary, equalTo(String.format("Build completed with %s failures.", count)));
+            assertThat(failureReport.getSummary(), equalTo(String.format("Build completed with %s failures.", count)));
         }
         return this;
     }
@@ -185,6 +140,7 @@ public class OutputScrapingExecutionFailure extends OutputScrapingExecutionResul
 
     @Override
     public ExecutionFailure assertThatCause(Matcher<? super String> matcher) {
+        List<String> causes = failureReport.getCauses();
         for (String cause : causes) {
             if (matcher.matches(cause)) {
                 return this;
@@ -195,13 +151,13 @@ public class OutputScrapingExecutionFailure extends OutputScrapingExecutionResul
     }
 
     public ExecutionFailure assertHasResolution(String resolution) {
-        assertThat(this.resolution, containsString(resolution));
+        assertThat(failureReport.getResolution(), containsString(resolution));
         return this;
     }
 
     public ExecutionFailure assertHasNoCause(String description) {
         Matcher<String> matcher = containsString(description);
-        for (String cause : causes) {
+        for (String cause : failureReport.getCauses()) {
             if (matcher.matches(cause)) {
                 failureOnUnexpectedOutput(String.format("Expected no failure with description '%s', found: %s", description, cause));
             }
@@ -210,7 +166,7 @@ public class OutputScrapingExecutionFailure extends OutputScrapingExecutionResul
     }
 
     public ExecutionFailure assertHasNoCause() {
-        assertThat(causes, Matchers.empty());
+        assertThat(failureReport.getCauses(), Matchers.empty());
         return this;
     }
 
@@ -221,6 +177,7 @@ public class OutputScrapingExecutionFailure extends OutputScrapingExecutionResul
     }
 
     public ExecutionFailure assertThatDescription(Matcher<? super String> matcher) {
+        List<String> descriptions = failureReport.getDescriptions();
         for (String description : descriptions) {
             if (matcher.matches(description)) {
                 return this;
@@ -238,14 +195,4 @@ public class OutputScrapingExecutionFailure extends OutputScrapingExecutionResul
     public DependencyResolutionFailure assertResolutionFailure(String configurationPath) {
         return new DependencyResolutionFailure(this, configurationPath);
     }
-
-    private static class Problem {
-        final String description;
-        final List<String> causes;
-
-        private Problem(String description, List<String> causes) {
-            this.description = description;
-            this.causes = causes;
-        }
-    }
 }
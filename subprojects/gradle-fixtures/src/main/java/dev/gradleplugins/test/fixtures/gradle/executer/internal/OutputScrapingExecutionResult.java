@@ -16,6 +16,8 @@
 package dev.gradleplugins.test.fixtures.gradle.executer.internal;
 
 import dev.gradleplugins.test.fixtures.Pair;
+import dev.gradleplugins.test.fixtures.gradle.executer.BuildProfile;
+import dev.gradleplugins.test.fixtures.gradle.executer.ExecutionMetrics;
 import dev.gradleplugins.test.fixtures.gradle.executer.ExecutionResult;
 import dev.gradleplugins.test.fixtures.gradle.executer.TaskOrderSpecs;
 import dev.gradleplugins.test.fixtures.gradle.logging.GroupedOutputFixture;
@@ -27,20 +29,12 @@ import org.hamcrest.Matcher;
 import org.junit.Assert;
 import org.junit.ComparisonFailure;
 
+import javax.annotation.Nullable;
 import java.util.*;
-import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
-public class OutputScrapingExecutionResult implements ExecutionResult {
+public class OutputScrapingExecutionResult implements ExecutionResult, MeasuredExecutionResult {
     static final Pattern STACK_TRACE_ELEMENT = Pattern.compile("\\s+(at\\s+)?([\\w.$_]+/)?[\\w.$_]+\\.[\\w$_ =\\+\'-<>]+\\(.+?\\)(\\x1B\\[0K)?");
-    private static final String TASK_PREFIX = "> Task ";
-
-    //for example: ':a SKIPPED' or ':foo:bar:baz UP-TO-DATE' but not ':a'
-    private static final Pattern SKIPPED_TASK_PATTERN = Pattern.compile("(> Task )?(:\\S+?(:\\S+?)*)\\s+((SKIPPED)|(UP-TO-DATE)|(NO-SOURCE)|(FROM-CACHE))");
-
-    //for example: ':hey' or ':a SKIPPED' or ':foo:bar:baz UP-TO-DATE' but not ':a FOO'
-    private static final Pattern TASK_PATTERN = Pattern.compile("(> Task )?(:\\S+?(:\\S+?)*)((\\s+SKIPPED)|(\\s+UP-TO-DATE)|(\\s+FROM-CACHE)|(\\s+NO-SOURCE)|(\\s+FAILED)|(\\s*))");
-
     private static final Pattern BUILD_RESULT_PATTERN = Pattern.compile("BUILD (SUCCESSFUL|FAILED) in( \\d+m?[smh])+");
 
     private final LogContent output;
@@ -50,7 +44,15 @@ public class OutputScrapingExecutionResult implements ExecutionResult {
     private final LogContent postBuild;
     private final LogContent errorContent;
     private GroupedOutputFixture groupedOutputFixture;
-    private Set<String> tasks;
+    private ScrapedTasks tasks;
+    // Search indexes, created on first use, the contents starting the output or the error share their index
+    private TextIndex outputIndex;
+    private TextIndex errorIndex;
+    private TextIndex mainContentIndex;
+    private TextIndex postBuildIndex;
+    private TextIndex errorContentIndex;
+    private ExecutionMetrics metrics = null;
+    private BuildProfile buildProfile = null;
 
     public static List<String> flattenTaskPaths(Object[] taskPaths) {
         List<String> result = new ArrayList<>();
@@ -78,7 +80,7 @@ public class OutputScrapingExecutionResult implements ExecutionResult {
     public static OutputScrapingExecutionResult from(String output, String error) {
         // Should provide a Gradle version as parameter so this check can be more precise
         if (output.contains("BUILD FAILED") || output.contains("FAILURE: Build failed with an exception.") || error.contains("BUILD FAILED")) {
-            return new OutputScrapingExecutionFailure(output, error, true);
+            return new OutputScrapingExecutionFailure(LogContent.of(output), LogContent.of(error), true);
         }
         return new OutputScrapingExecutionResult(LogContent.of(output), LogContent.of(error), true);
     }
@@ -105,8 +107,33 @@ public class OutputScrapingExecutionResult implements ExecutionResult {
         this.errorContent = error.ansiCharsToPlainText();
     }
 
+    @Nullable
+    @Override
+    public ExecutionMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void setMetrics(ExecutionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Nullable
+    @Override
+    public BuildProfile getBuildProfile() {
+        return buildProfile;
+    }
+
+    @Override
+    public void setBuildProfile(BuildProfile buildProfile) {
+        this.buildProfile = buildProfile;
+    }
+
     public ExecutionResult getIgnoreBuildSrc() {
-        return new OutputScrapingExecutionResult(output, error, false);
+        OutputScrapingExecutionResult result = new OutputScrapingExecutionResult(output, error, false);
+        result.setMetrics(metrics);
+        result.setBuildProfile(buildProfile);
+        return result;
     }
 
     @Override
@@ -114,6 +141,14 @@ public class OutputScrapingExecutionResult implements ExecutionResult {
         return output.withNormalizedEol();
     }
 
+    LogContent getOutputContent() {
+        return output;
+    }
+
+    LogContent getErrorContent() {
+        return error;
+    }
+
     /**
      * The main content with debug prefix and ANSI characters removed.
      */
@@ -181,12 +216,15 @@ public class OutputScrapingExecutionResult implements ExecutionResult {
 
     @Override
     public ExecutionResult assertHasPostBuildOutput(String expectedOutput) {
-        return assertContentContains(postBuild.withNormalizedEol(), expectedOutput, "Post-build output");
+        if (postBuildIndex == null) {
+            postBuildIndex = new TextIndex(postBuild.withNormalizedEol());
+        }
+        return assertContentContains(postBuildIndex, expectedOutput, "Post-build output");
     }
 
     public ExecutionResult assertNotOutput(String expectedOutput) {
         String expectedText = LogContent.of(expectedOutput).withNormalizedEol();
-        if (getOutput().contains(expectedText)|| getError().contains(expectedText)) {
+        if (getOutputIndex().contains(expectedText) || getErrorIndex().contains(expectedText)) {
             failureOnUnexpectedOutput(String.format("Found unexpected text in build output.%nExpected not present: %s%n", expectedText));
         }
         return this;
@@ -200,6 +238,14 @@ public class OutputScrapingExecutionResult implements ExecutionResult {
         return this;
     }
 
+    private ExecutionResult assertContentContains(TextIndex actualText, String expectedOutput, String label) {
+        String expectedText = LogContent.of(expectedOutput).withNormalizedEol();
+        if (!actualText.contains(expectedText)) {
+            failOnMissingOutput("Did not find expected text in " + label.toLowerCase() + ".", label, expectedOutput, actualText.getText());
+        }
+        return this;
+    }
+
     public ExecutionResult assertThatOutput(Matcher<? super String> matcher) {
         Assert.assertThat("Output did not match!", getMainContent().withNormalizedEol(), matcher);
         return this;
@@ -207,15 +253,18 @@ public class OutputScrapingExecutionResult implements ExecutionResult {
 
     @Override
     public ExecutionResult assertOutputContains(String expectedOutput) {
-        return assertContentContains(getMainContent().withNormalizedEol(), expectedOutput, "Build output");
+        return assertContentContains(getMainContentIndex(), expectedOutput, "Build output");
     }
 
     public boolean hasErrorOutput(String expectedOutput) {
-        return getError().contains(expectedOutput);
+        return getErrorIndex().contains(expectedOutput);
     }
 
     public ExecutionResult assertHasErrorOutput(String expectedOutput) {
-        return assertContentContains(errorContent.withNormalizedEol(), expectedOutput, "Error output");
+        if (errorContentIndex == null) {
+            errorContentIndex = getErrorIndex().forPrefix(errorContent.withNormalizedEol());
+        }
+        return assertContentContains(errorContentIndex, expectedOutput, "Error output");
     }
 
     public String getError() {
@@ -223,23 +272,49 @@ public class OutputScrapingExecutionResult implements ExecutionResult {
     }
 
     public String getOutputLineThatContains(String text) {
-        Optional<String> foundLine = getMainContent().getLines().stream()
-                .filter(line -> line.contains(text))
-                .findFirst();
-        return foundLine.orElseGet(() -> {
+        // The first occurrence is in the first line containing the text, unless it spans several lines
+        String mainText = getMainContentIndex().getText();
+        int index = text.contains("\n") || getMainContent().getLines().isEmpty() ? -1 : getMainContentIndex().indexOf(text);
+        if (index < 0) {
             failOnMissingOutput("Did not find expected text in build output.", "Build output", text, text);
-            // never returned
-            return "";
-        });
+        }
+        int lineEnd = mainText.indexOf('\n', index);
+        return mainText.substring(mainText.lastIndexOf('\n', index - 1) + 1, lineEnd < 0 ? mainText.length() : lineEnd);
+    }
+
+    private TextIndex getOutputIndex() {
+        if (outputIndex == null) {
+            outputIndex = new TextIndex(getOutput());
+        }
+        return outputIndex;
+    }
+
+    private TextIndex getErrorIndex() {
+        if (errorIndex == null) {
+            errorIndex = new TextIndex(getError());
+        }
+        return errorIndex;
+    }
+
+    private TextIndex getMainContentIndex() {
+        if (mainContentIndex == null) {
+            // Without ANSI chars nor debug prefixes, the main content is the output up to the build result
+            mainContentIndex = getOutputIndex().forPrefix(getMainContent().withNormalizedEol());
+        }
+        return mainContentIndex;
     }
 
     public List<String> getExecutedTasks() {
-        return Collections.unmodifiableList(new ArrayList<>(findExecutedTasksInOrderStarted()));
+        return getTasks().getExecutedTasks();
     }
 
     private Set<String> findExecutedTasksInOrderStarted() {
+        return getTasks().getExecutedTasksInOrderStarted();
+    }
+
+    private ScrapedTasks getTasks() {
         if (tasks == null) {
-            tasks = new LinkedHashSet<>(grepTasks(TASK_PATTERN));
+            tasks = ScrapedTasks.of(getMainContent(), includeBuildSrc);
         }
         return tasks;
     }
@@ -290,7 +365,7 @@ public class OutputScrapingExecutionResult implements ExecutionResult {
     }
 
     public Set<String> getSkippedTasks() {
-        return new TreeSet<String>(grepTasks(SKIPPED_TASK_PATTERN));
+        return getTasks().getSkippedTasks();
     }
 
     @Override
@@ -304,24 +379,21 @@ public class OutputScrapingExecutionResult implements ExecutionResult {
     }
 
     public ExecutionResult assertTaskSkipped(String taskPath) {
-        Set<String> tasks = new TreeSet<String>(getSkippedTasks());
+        Set<String> tasks = getSkippedTasks();
         if (!tasks.contains(taskPath)) {
             failOnMissingElement("Build output does not contain the expected skipped task.", taskPath, tasks);
         }
         return this;
     }
 
-    private Collection<String> getNotSkippedTasks() {
-        Set<String> all = new TreeSet<String>(getExecutedTasks());
-        Set<String> skipped = getSkippedTasks();
-        all.removeAll(skipped);
-        return all;
+    private Set<String> getNotSkippedTasks() {
+        return getTasks().getNotSkippedTasks();
     }
 
     @Override
     public ExecutionResult assertTasksNotSkipped(Object... taskPaths) {
         Set<String> expectedTasks = new TreeSet<String>(flattenTaskPaths(taskPaths));
-        Set<String> tasks = new TreeSet<String>(getNotSkippedTasks());
+        Set<String> tasks = getNotSkippedTasks();
         if (!expectedTasks.equals(tasks)) {
             failOnDifferentSets("Build output does not contain the expected non skipped tasks.", expectedTasks, tasks);
         }
@@ -329,7 +401,7 @@ public class OutputScrapingExecutionResult implements ExecutionResult {
     }
 
     public ExecutionResult assertTaskNotSkipped(String taskPath) {
-        Set<String> tasks = new TreeSet<String>(getNotSkippedTasks());
+        Set<String> tasks = getNotSkippedTasks();
         if (!tasks.contains(taskPath)) {
             failOnMissingElement("Build output does not contain the expected non skipped task.", taskPath, tasks);
         }
@@ -355,38 +427,4 @@ public class OutputScrapingExecutionResult implements ExecutionResult {
     private String unexpectedOutputMessage(String message) {
         return String.format("%s%nOutput:%n=======%n%s%nError:%n======%n%s", message, getOutput(), getError());
     }
-
-    private List<String> grepTasks(final Pattern pattern) {
-        final List<String> tasks = new ArrayList<>();
-        final List<String> taskStatusLines = new ArrayList<>();
-
-        getMainContent().eachLine(new Consumer<String>() {
-            @Override
-            public void accept(String line) {
-                java.util.regex.Matcher matcher = pattern.matcher(line);
-                if (matcher.matches()) {
-                    String taskStatusLine = matcher.group().replace(TASK_PREFIX, "");
-                    String taskName = matcher.group(2);
-                    if (!includeBuildSrc && taskName.startsWith(":buildSrc:")) {
-                        return;
-                    }
-
-                    // The task status line may appear twice - once for the execution, once for the UP-TO-DATE/SKIPPED/etc
-                    // So don't add to the task list if this is an update to a previously added task.
-
-                    // Find the status line for the previous record of this task
-                    String previousTaskStatusLine = tasks.contains(taskName) ? taskStatusLines.get(tasks.lastIndexOf(taskName)) : "";
-                    // Don't add if our last record has a `:taskName` status, and this one is `:taskName SOMETHING`
-                    if (previousTaskStatusLine.equals(taskName) && !taskStatusLine.equals(taskName)) {
-                        return;
-                    }
-
-                    taskStatusLines.add(taskStatusLine);
-                    tasks.add(taskName);
-                }
-            }
-        });
-
-        return tasks;
-    }
 }
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.test.fixtures.gradle.executer.internal;
+
+import com.google.common.hash.Hashing;
+import dev.gradleplugins.internal.files.LocalFiles;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Generates the init script injecting the plugin under test into the builds of the Tooling API executer, the same way {@code GradleRunner#withPluginClasspath()} does for TestKit.
+ *
+ * The Tooling API only injects a classpath through its internal launcher, so the script adds the classpath to the settings script classpath of each build instead.
+ * Being the parent of every project class loader, the {@code plugins {}} blocks find the plugin under test by id, without a version.
+ * Settings can only be reached before their evaluation since Gradle 6.0.
+ *
+ * The scripts are content addressed and shared by every test JVM, the same classpath always maps to the same script.
+ */
+final class PluginClasspathInitScript {
+    static final String PLUGIN_METADATA_FILE_NAME = "plugin-under-test-metadata.properties";
+    static final String IMPLEMENTATION_CLASSPATH_PROPERTY_NAME = "implementation-classpath";
+
+    private PluginClasspathInitScript() {}
+
+    /**
+     * Returns the init script injecting the plugin under test, as described by the plugin metadata file on the test runtime classpath.
+     *
+     * @return the init script, never null
+     */
+    static File ofPluginUnderTest() {
+        return of(new File(LocalFiles.TEST_FIXTURES_DIRECTORY, "init-scripts"), readImplementationClasspath(Thread.currentThread().getContextClassLoader().getResource(PLUGIN_METADATA_FILE_NAME)));
+    }
+
+    static File of(File directory, List<File> classpath) {
+        StringBuilder content = new StringBuilder();
+        content.append("// Generated by the Gradle fixtures, injects the plugin under test into the build").append(System.lineSeparator());
+        content.append("if (org.gradle.util.GradleVersion.current() < org.gradle.util.GradleVersion.version('6.0')) {").append(System.lineSeparator());
+        content.append("    throw new GradleException(\"Injecting the plugin under test through the Tooling API requires Gradle 6.0 or later, this build uses ${org.gradle.util.GradleVersion.current().version}.\")").append(System.lineSeparator());
+        content.append("}").append(System.lineSeparator());
+        content.append("def pluginClasspath = files(");
+        for (int i = 0; i < classpath.size(); i++) {
+            content.append(i == 0 ? "" : ", ").append(quote(classpath.get(i).getAbsolutePath()));
+        }
+        content.append(")").append(System.lineSeparator());
+        content.append("beforeSettings { settings ->").append(System.lineSeparator());
+        content.append("    settings.buildscript.dependencies.add('classpath', pluginClasspath)").append(System.lineSeparator());
+        content.append("}").append(System.lineSeparator());
+
+        File initScript = new File(directory, "plugin-classpath-" + Hashing.sha256().hashString(content, StandardCharsets.UTF_8).toString().substring(0, 16) + ".init.gradle");
+        if (!initScript.isFile()) {
+            try {
+                LocalFiles.writeAtomically(initScript, content.toString());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return initScript;
+    }
+
+    /**
+     * Reads the implementation classpath of the plugin metadata file the {@code java-gradle-plugin} plugin generates for the tests.
+     *
+     * @param pluginMetadata the plugin metadata file, or null if missing from the test runtime classpath
+     * @return the classpath of the plugin under test, never null
+     */
+    static List<File> readImplementationClasspath(@Nullable URL pluginMetadata) {
+        if (pluginMetadata == null) {
+            throw new IllegalStateException(String.format("Test runtime classpath does not contain plugin metadata file '%s'.", PLUGIN_METADATA_FILE_NAME));
+        }
+        Properties properties = new Properties();
+        try (InputStream inputStream = pluginMetadata.openStream()) {
+            properties.load(inputStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        String implementationClasspath = properties.getProperty(IMPLEMENTATION_CLASSPATH_PROPERTY_NAME);
+        if (implementationClasspath == null) {
+            throw new IllegalStateException(String.format("Plugin metadata file '%s' does not contain expected property named '%s'.", pluginMetadata, IMPLEMENTATION_CLASSPATH_PROPERTY_NAME));
+        }
+        List<File> result = new ArrayList<>();
+        for (String path : implementationClasspath.split(File.pathSeparator)) {
+            if (!path.isEmpty()) {
+                result.add(new File(path));
+            }
+        }
+        return result;
+    }
+
+    private static String quote(String value) {
+        return "'" + value.replace("\\", "\\\\").replace("'", "\\'") + "'";
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.test.fixtures.gradle.executer.internal;
+
+import org.apache.commons.lang3.SystemUtils;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds and kills a process along with every process it started, such as the worker processes of a daemon or the JVM started by the wrapper script.
+ *
+ * The fixtures target Java 8, which has no {@code ProcessHandle}, so the tree is read from {@code ps} and Windows relies on {@code taskkill /T}.
+ */
+final class ProcessTree {
+    private static final long COMMAND_TIMEOUT_SECONDS = 30;
+
+    private ProcessTree() {}
+
+    /**
+     * Returns the PID of the given process.
+     *
+     * @return the PID, or null if the JVM doesn't expose it
+     */
+    @Nullable
+    static Long pidOf(Process process) {
+        try {
+            // Java 9+
+            return (Long) Process.class.getMethod("pid").invoke(process);
+        } catch (ReflectiveOperationException e) {
+            try {
+                // Java 8, on Unix
+                Field field = process.getClass().getDeclaredField("pid");
+                field.setAccessible(true);
+                return ((Number) field.get(process)).longValue();
+            } catch (ReflectiveOperationException | RuntimeException ex) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Returns the given process followed by its descendants, parents before their children.
+     * Only the given process is returned on Windows.
+     */
+    static Set<Long> of(long pid) {
+        Set<Long> result = new LinkedHashSet<>();
+        result.add(pid);
+        if (SystemUtils.IS_OS_WINDOWS) {
+            return result;
+        }
+
+        Map<Long, List<Long>> childrenByParent = new HashMap<>();
+        for (String line : run("ps", "-A", "-o", "pid=", "-o", "ppid=").split("\n")) {
+            String[] fields = line.trim().split("\\s+");
+            if (fields.length == 2) {
+                try {
+                    childrenByParent.computeIfAbsent(Long.parseLong(fields[1]), it -> new ArrayList<>()).add(Long.parseLong(fields[0]));
+                } catch (NumberFormatException e) {
+                    // Not a process line
+                }
+            }
+        }
+        Deque<Long> queue = new ArrayDeque<>(result);
+        while (!queue.isEmpty()) {
+            for (long child : childrenByParent.getOrDefault(queue.poll(), new ArrayList<>())) {
+                if (result.add(child)) {
+                    queue.add(child);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Forcefully stops the given process and all its descendants.
+     * The whole tree is listed before killing anything, a child whose parent died first would otherwise be reparented and missed.
+     */
+    static void kill(long pid) {
+        if (SystemUtils.IS_OS_WINDOWS) {
+            run("taskkill", "/F", "/T", "/PID", String.valueOf(pid));
+            return;
+        }
+        List<String> commandLine = new ArrayList<>();
+        commandLine.add("kill");
+        commandLine.add("-9");
+        for (long it : of(pid)) {
+            commandLine.add(String.valueOf(it));
+        }
+        run(commandLine.toArray(new String[0]));
+    }
+
+    /**
+     * Runs the given command and returns its output, or an empty string if it failed to complete in time.
+     */
+    static String run(String... commandLine) {
+        Result result = execute(commandLine);
+        return result == null ? "" : result.output;
+    }
+
+    /**
+     * Runs the given command and returns its output if it succeeded.
+     *
+     * @return the output of the command, or null if the command failed or didn't complete in time
+     */
+    @Nullable
+    static String runSuccessfully(String... commandLine) {
+        Result result = execute(commandLine);
+        return result == null || result.exitValue != 0 ? null : result.output;
+    }
+
+    // The output goes through a file, so a command that hangs, such as jstack on a wedged JVM, can't block the caller on its output
+    @Nullable
+    private static Result execute(String... commandLine) {
+        File outputFile = null;
+        try {
+            outputFile = File.createTempFile("process-tree-", ".out");
+            Process process = new ProcessBuilder(commandLine).redirectErrorStream(true).redirectOutput(outputFile).start();
+            if (!process.waitFor(COMMAND_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                return null;
+            }
+            return new Result(process.exitValue(), new String(Files.readAllBytes(outputFile.toPath()), Charset.defaultCharset()));
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            if (outputFile != null) {
+                outputFile.delete();
+            }
+        }
+    }
+
+    private static final class Result {
+        private final int exitValue;
+        private final String output;
+
+        private Result(int exitValue, String output) {
+            this.exitValue = exitValue;
+            this.output = output;
+        }
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.test.fixtures.gradle.executer.internal;
+
+import dev.gradleplugins.internal.files.LocalFiles;
+import dev.gradleplugins.test.fixtures.gradle.executer.GradleExecuter;
+import lombok.Value;
+import org.apache.commons.io.FileUtils;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A dependency cache seeded once per test suite and shared, read-only, by every build using its own Gradle user home.
+ *
+ * A Gradle user home created for a single test starts empty, so its build downloads every plugin and library again.
+ * Instead, the {@code caches/modules-2} directory of a warm Gradle user home is snapshotted once and handed to those builds through {@code GRADLE_RO_DEP_CACHE}, supported since Gradle 6.2.
+ * Gradle never writes into a read-only cache, whatever is missing still lands in the test's own Gradle user home, so the builds don't share any mutable state.
+ *
+ * The warm Gradle user home is the one of the {@code dev.gradleplugins.dependencyCacheSeed} system property, or the Gradle user home of the current user.
+ * The snapshot hard links the downloaded files, they are never modified once in the cache, and copies the metadata, which is.
+ * The lock files and {@code gc.properties} are left out, as the Gradle documentation requires for a read-only cache.
+ * The seed's cache is locked while it is copied, the same way Gradle processes lock it among themselves.
+ *
+ * The test JVMs of a suite share the snapshot in the directory of the {@code dev.gradleplugins.dependencyCacheDirectory} system property.
+ * The first one takes it under a file lock while the others wait, and a completion marker is written last, so a directory with a marker is always complete.
+ * Without the system property, each test JVM takes its own snapshot, deleted when the JVM shuts down.
+ *
+ * When the {@code dev.gradleplugins.dependencyCacheReportDirectory} system property is set, what each build still downloaded is reported into that directory.
+ */
+public final class ReadOnlyDependencyCache {
+    public static final String SEED_SYSPROP_NAME = "dev.gradleplugins.dependencyCacheSeed";
+    public static final String DIRECTORY_SYSPROP_NAME = "dev.gradleplugins.dependencyCacheDirectory";
+    public static final String REPORT_DIRECTORY_SYSPROP_NAME = "dev.gradleplugins.dependencyCacheReportDirectory";
+    static final String ENVIRONMENT_VARIABLE_NAME = "GRADLE_RO_DEP_CACHE";
+    private static final String MODULES_DIRECTORY_NAME = "modules-2";
+    private static final String FILES_DIRECTORY_NAME = "files-2.1";
+    // Same as Gradle waits for the lock of a cache
+    private static final long SEED_LOCK_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(60);
+    private static ReadOnlyDependencyCache defaultCache = null;
+
+    private final File seedGradleUserHomeDirectory;
+    private final File cacheDirectory;
+    @Nullable private final File reportDirectory;
+    private final List<String> reportLines = new ArrayList<>();
+    private Snapshot snapshot = null;
+
+    public ReadOnlyDependencyCache(File seedGradleUserHomeDirectory, File cacheDirectory) {
+        this(seedGradleUserHomeDirectory, cacheDirectory, null);
+    }
+
+    public ReadOnlyDependencyCache(File seedGradleUserHomeDirectory, File cacheDirectory, @Nullable File reportDirectory) {
+        this.seedGradleUserHomeDirectory = seedGradleUserHomeDirectory;
+        this.cacheDirectory = cacheDirectory;
+        this.reportDirectory = reportDirectory;
+    }
+
+    /**
+     * Returns the cache shared by the test suite, or by the whole test JVM when the suite doesn't provide a directory.
+     */
+    public static synchronized ReadOnlyDependencyCache getDefault() {
+        if (defaultCache == null) {
+            String seed = System.getProperty(SEED_SYSPROP_NAME);
+            String directory = System.getProperty(DIRECTORY_SYSPROP_NAME);
+            String reportDirectory = System.getProperty(REPORT_DIRECTORY_SYSPROP_NAME);
+            File cacheDirectory;
+            if (directory == null) {
+                cacheDirectory = new File(LocalFiles.TEST_FIXTURES_DIRECTORY, "read-only-dependency-cache/" + LocalFiles.getProcessId());
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> FileUtils.deleteQuietly(cacheDirectory), "Read-only dependency cache cleanup"));
+            } else {
+                // Deleted by the build before the suite runs, the other test JVMs may still be using it
+                cacheDirectory = new File(directory);
+            }
+            defaultCache = new ReadOnlyDependencyCache(seed == null ? LocalFiles.getGradleUserHomeDirectory() : new File(seed), cacheDirectory, reportDirectory == null ? null : new File(reportDirectory));
+        }
+        return defaultCache;
+    }
+
+    /**
+     * Returns the snapshot, taking it on the first call unless another test JVM of the suite already did.
+     *
+     * @return the snapshot, or null if the seed has no dependency cache
+     */
+    @Nullable
+    public synchronized Snapshot getSnapshot() {
+        if (snapshot == null) {
+            File seedModulesDirectory = new File(seedGradleUserHomeDirectory, "caches/" + MODULES_DIRECTORY_NAME);
+            if (!seedModulesDirectory.isDirectory()) {
+                return null;
+            }
+            try {
+                snapshot = takeSnapshot(seedModulesDirectory);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return snapshot;
+    }
+
+    private Snapshot takeSnapshot(File seedModulesDirectory) throws IOException {
+        Files.createDirectories(cacheDirectory.toPath());
+        try (FileChannel channel = FileChannel.open(new File(cacheDirectory, ".lock").toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE); FileLock lock = channel.lock()) {
+            File completeMarker = new File(cacheDirectory, MODULES_DIRECTORY_NAME + ".complete");
+            if (completeMarker.isFile()) {
+                String[] values = new String(Files.readAllBytes(completeMarker.toPath()), StandardCharsets.UTF_8).split("\n");
+                return new Snapshot(cacheDirectory, Long.parseLong(values[0]), Long.parseLong(values[1]), Long.parseLong(values[2]));
+            }
+
+            long startTime = System.nanoTime();
+            // Left over by a test JVM dying in the middle of the snapshot
+            FileUtils.deleteDirectory(new File(cacheDirectory, MODULES_DIRECTORY_NAME));
+            Usage usage;
+            try (FileChannel seedLock = lockSeed(seedModulesDirectory)) {
+                usage = copy(seedModulesDirectory.toPath(), new File(cacheDirectory, MODULES_DIRECTORY_NAME).toPath());
+            }
+            Snapshot result = new Snapshot(cacheDirectory, usage.getFileCount(), usage.getByteCount(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+            LocalFiles.writeAtomically(completeMarker, result.getFileCount() + "\n" + result.getByteCount() + "\n" + result.getDurationInMillis());
+            return result;
+        }
+    }
+
+    /**
+     * Takes a shared lock on the seed's dependency cache, so no Gradle process writes into it during the snapshot.
+     * Gradle processes only hold that lock while accessing the cache, but one may hold it for long, so the snapshot is taken without the lock after a while.
+     *
+     * @return the channel holding the lock, or null if the cache couldn't be locked
+     */
+    @Nullable
+    private static FileChannel lockSeed(File seedModulesDirectory) throws IOException {
+        File lockFile = new File(seedModulesDirectory, MODULES_DIRECTORY_NAME + ".lock");
+        if (!lockFile.isFile()) {
+            return null;
+        }
+        FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.READ);
+        try {
+            long deadline = System.currentTimeMillis() + SEED_LOCK_TIMEOUT_MILLIS;
+            do {
+                try {
+                    if (channel.tryLock(0, Long.MAX_VALUE, true) != null) {
+                        return channel;
+                    }
+                } catch (OverlappingFileLockException e) {
+                    // Another cache of this JVM is snapshotting the same seed
+                }
+                Thread.sleep(200);
+            } while (System.currentTimeMillis() < deadline);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        return null;
+    }
+
+    /**
+     * Hands the read-only cache to the builds of the executer, unless its environment already points to one.
+     *
+     * @param executer the executer to configure
+     * @param gradleUserHomeDirectory the Gradle user home of the executer, for reporting what its builds still downloaded
+     * @return the configured executer, never null
+     */
+    public GradleExecuter apply(GradleExecuter executer, File gradleUserHomeDirectory) {
+        if (System.getenv(ENVIRONMENT_VARIABLE_NAME) != null) {
+            return executer;
+        }
+        Snapshot snapshot = getSnapshot();
+        if (snapshot == null) {
+            return executer;
+        }
+
+        executer = executer.withEnvironmentVars(Collections.singletonMap(ENVIRONMENT_VARIABLE_NAME, snapshot.getCacheDirectory().getAbsolutePath()));
+        if (reportDirectory == null) {
+            return executer;
+        }
+        return executer.afterExecute(it -> report(it instanceof AbstractGradleExecuter ? ((AbstractGradleExecuter) it).getTestClassName() : ExecutionMetricsReport.findTestClass(), snapshot, usageOf(new File(gradleUserHomeDirectory, "caches/" + MODULES_DIRECTORY_NAME + "/" + FILES_DIRECTORY_NAME).toPath())));
+    }
+
+    // Rewritten after each build, so the report is complete even when the test JVM dies
+    private synchronized void report(String testClass, Snapshot snapshot, Usage downloaded) {
+        reportLines.add(String.format("%s: %d files (%s) downloaded into its own Gradle user home", testClass, downloaded.getFileCount(), FileUtils.byteCountToDisplaySize(downloaded.getByteCount())));
+        StringBuilder content = new StringBuilder();
+        content.append("Read-only dependency cache: ").append(snapshot).append(", available to every build\n");
+        for (String line : reportLines) {
+            content.append(line).append('\n');
+        }
+
+        // Forked test JVMs share the report directory
+        File reportFile = new File(reportDirectory, "read-only-dependency-cache-" + LocalFiles.getProcessId() + ".txt");
+        try {
+            Files.createDirectories(reportDirectory.toPath());
+            LocalFiles.writeAtomically(reportFile, content.toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Usage copy(Path source, Path target) {
+        long[] usage = new long[2];
+        try {
+            Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    Files.createDirectories(target.resolve(source.relativize(dir)));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    String fileName = file.getFileName().toString();
+                    if (fileName.endsWith(".lock") || fileName.equals("gc.properties")) {
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    Path relativePath = source.relativize(file);
+                    Path targetFile = target.resolve(relativePath);
+                    if (relativePath.startsWith(FILES_DIRECTORY_NAME)) {
+                        try {
+                            Files.createLink(targetFile, file);
+                        } catch (IOException | UnsupportedOperationException e) {
+                            // Across file systems, or not supported by the file system
+                            Files.copy(file, targetFile, StandardCopyOption.COPY_ATTRIBUTES);
+                        }
+                    } else {
+                        Files.copy(file, targetFile, StandardCopyOption.COPY_ATTRIBUTES);
+                    }
+                    usage[0]++;
+                    usage[1] += attrs.size();
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    // Deleted by a concurrent build since listed, it was not needed
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new Usage(usage[0], usage[1]);
+    }
+
+    private static Usage usageOf(Path directory) {
+        long[] usage = new long[2];
+        if (Files.isDirectory(directory)) {
+            try {
+                Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        usage[0]++;
+                        usage[1] += attrs.size();
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return new Usage(usage[0], usage[1]);
+    }
+
+    @Value
+    private static class Usage {
+        long fileCount;
+        long byteCount;
+    }
+
+    @Value
+    public static class Snapshot {
+        /** The directory to point {@code GRADLE_RO_DEP_CACHE} to, it contains {@code modules-2}. */
+        File cacheDirectory;
+        long fileCount;
+        long byteCount;
+        /** How long taking the snapshot took, paid once per test suite instead of once per build. */
+        long durationInMillis;
+
+        @Override
+        public String toString() {
+            return String.format("%d files (%s) snapshotted in %d ms", fileCount, FileUtils.byteCountToDisplaySize(byteCount), durationInMillis);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.test.fixtures.gradle.executer.internal;
+
+import dev.gradleplugins.test.fixtures.file.TestFile;
+import dev.gradleplugins.test.fixtures.gradle.executer.GradleExecuter;
+import dev.gradleplugins.test.fixtures.gradle.executer.ScenarioResult;
+import dev.gradleplugins.test.fixtures.gradle.executer.ScenarioResults;
+import dev.gradleplugins.test.fixtures.gradle.executer.ScenarioSpec;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static java.nio.file.StandardCopyOption.COPY_ATTRIBUTES;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Runs scenarios concurrently, each inside its own copy of the test directory.
+ *
+ * Every file of the executer configuration located inside the test directory is remapped to the scenario copy.
+ * The Gradle user home is shared by all scenarios, Gradle supports concurrent builds against the same user home.
+ */
+final class ScenarioBatchRunner {
+    public static final String PARALLELISM_SYSPROP_NAME = "dev.gradleplugins.scenarioParallelism";
+    private static final String SCENARIOS_DIRECTORY_NAME = ".scenarios";
+    // Rough footprint of a build: the client side plus a daemon with the default heap
+    private static final long MEMORY_PER_BUILD = 1024L * 1024 * 1024;
+
+    private final AbstractGradleExecuter executer;
+
+    ScenarioBatchRunner(AbstractGradleExecuter executer) {
+        this.executer = executer;
+    }
+
+    ScenarioResults runAll(Collection<ScenarioSpec> scenarios) {
+        assertUniqueNames(scenarios);
+        if (scenarios.isEmpty()) {
+            return new ScenarioResults(Collections.emptyList());
+        }
+
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.min(scenarios.size(), getParallelism()));
+        try {
+            List<Future<ScenarioResult>> futures = new ArrayList<>();
+            int index = 0;
+            for (ScenarioSpec scenario : scenarios) {
+                TestFile scenarioDirectory = executer.getTestDirectory().file(SCENARIOS_DIRECTORY_NAME, (index++) + "-" + scenario.getName().replaceAll("[^\\w.-]", "_"));
+                futures.add(executorService.submit(() -> run(scenario, scenarioDirectory)));
+            }
+
+            List<ScenarioResult> results = new ArrayList<>();
+            for (Future<ScenarioResult> future : futures) {
+                results.add(future.get());
+            }
+            return new ScenarioResults(results);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while running scenarios.", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Could not run scenarios.", e.getCause());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private ScenarioResult run(ScenarioSpec scenario, TestFile scenarioDirectory) {
+        try {
+            GradleExecuter scenarioExecuter = scenario.getAction().apply(newScenarioExecuter(scenarioDirectory));
+            if (scenario.isExpectFailure()) {
+                return new ScenarioResult(scenario, scenarioExecuter.runWithFailure(), null);
+            }
+            return new ScenarioResult(scenario, scenarioExecuter.run(), null);
+        } catch (Throwable e) {
+            return new ScenarioResult(scenario, null, e);
+        }
+    }
+
+    private GradleExecuter newScenarioExecuter(TestFile scenarioDirectory) {
+        GradleExecuterConfiguration configuration = executer.configuration;
+        copyTestDirectory(scenarioDirectory, configuration.getGradleUserHomeDirectory());
+
+        configuration = configuration
+                .withWorkingDirectory(remap(executer.getWorkingDirectory(), scenarioDirectory))
+                .withUserHomeDirectory(remap(configuration.getUserHomeDirectory(), scenarioDirectory))
+                .withBuildSystemProperties(configuration.getBuildSystemProperties().entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, it -> remap(it.getValue(), scenarioDirectory), (a, b) -> b, LinkedHashMap::new)))
+                .withSettingsFile(remap(configuration.getSettingsFile(), scenarioDirectory))
+                .withBuildScript(remap(configuration.getBuildScript(), scenarioDirectory))
+                .withProjectDirectory(remap(configuration.getProjectDirectory(), scenarioDirectory))
+                .withInitScripts(configuration.getInitScripts().stream().map(it -> remap(it, scenarioDirectory)).collect(Collectors.toList()));
+        return executer.newInstance(scenarioDirectory, configuration);
+    }
+
+    @Nullable
+    private File remap(@Nullable File file, TestFile scenarioDirectory) {
+        if (file == null || !executer.getTestDirectory().isSelfOrDescendent(file)) {
+            return file;
+        }
+        return scenarioDirectory.toPath().resolve(executer.getTestDirectory().toPath().relativize(file.toPath())).toFile();
+    }
+
+    private String remap(String value, TestFile scenarioDirectory) {
+        File file = new File(value);
+        if (!file.isAbsolute()) {
+            return value;
+        }
+        return remap(file, scenarioDirectory).getAbsolutePath();
+    }
+
+    private void copyTestDirectory(TestFile scenarioDirectory, @Nullable File gradleUserHomeDirectory) {
+        Path sourceDirectory = executer.getTestDirectory().toPath();
+        Path targetDirectory = scenarioDirectory.toPath();
+        Set<Path> excludedDirectories = new HashSet<>();
+        excludedDirectories.add(sourceDirectory.resolve(SCENARIOS_DIRECTORY_NAME));
+        if (gradleUserHomeDirectory != null) {
+            excludedDirectories.add(gradleUserHomeDirectory.toPath());
+        }
+
+        try {
+            Files.walkFileTree(sourceDirectory, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) throws IOException {
+                    if (excludedDirectories.contains(directory)) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    Files.createDirectories(targetDirectory.resolve(sourceDirectory.relativize(directory)));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                    Files.copy(file, targetDirectory.resolve(sourceDirectory.relativize(file)), COPY_ATTRIBUTES, REPLACE_EXISTING);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Could not copy test directory '%s' to '%s'", sourceDirectory, targetDirectory), e);
+        }
+    }
+
+    private static void assertUniqueNames(Collection<ScenarioSpec> scenarios) {
+        Set<String> names = new HashSet<>();
+        for (ScenarioSpec scenario : scenarios) {
+            if (!names.add(scenario.getName())) {
+                throw new IllegalArgumentException(String.format("Scenario names must be unique, '%s' is used more than once.", scenario.getName()));
+            }
+        }
+    }
+
+    /**
+     * Returns the number of scenarios to run concurrently, bounded by the available processors and free physical memory.
+     * It can be overridden with the {@code dev.gradleplugins.scenarioParallelism} system property.
+     */
+    static int getParallelism() {
+        Integer parallelism = Integer.getInteger(PARALLELISM_SYSPROP_NAME);
+        if (parallelism != null) {
+            return Math.max(1, parallelism);
+        }
+
+        int result = Runtime.getRuntime().availableProcessors();
+        OperatingSystemMXBean operatingSystem = ManagementFactory.getOperatingSystemMXBean();
+        if (operatingSystem instanceof com.sun.management.OperatingSystemMXBean) {
+            long freeMemory = ((com.sun.management.OperatingSystemMXBean) operatingSystem).getFreePhysicalMemorySize();
+            result = (int) Math.min(result, freeMemory / MEMORY_PER_BUILD);
+        }
+        return Math.max(1, result);
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.test.fixtures.gradle.executer.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The immutable task outcomes scraped from the task status lines of a build output, such as {@code > Task :foo UP-TO-DATE}.
+ */
+final class ScrapedTasks {
+    private static final String TASK_PREFIX = "> Task ";
+
+    //for example: ':a SKIPPED' or ':foo:bar:baz UP-TO-DATE' but not ':a'
+    private static final Pattern SKIPPED_TASK_PATTERN = Pattern.compile("(> Task )?(:\\S+?(:\\S+?)*)\\s+((SKIPPED)|(UP-TO-DATE)|(NO-SOURCE)|(FROM-CACHE))");
+
+    //for example: ':hey' or ':a SKIPPED' or ':foo:bar:baz UP-TO-DATE' but not ':a FOO'
+    private static final Pattern TASK_PATTERN = Pattern.compile("(> Task )?(:\\S+?(:\\S+?)*)((\\s+SKIPPED)|(\\s+UP-TO-DATE)|(\\s+FROM-CACHE)|(\\s+NO-SOURCE)|(\\s+FAILED)|(\\s*))");
+
+    private final Set<String> executedTasksInOrderStarted;
+    private final List<String> executedTasks;
+    private final SortedSet<String> skippedTasks;
+    private final SortedSet<String> notSkippedTasks;
+
+    private ScrapedTasks(Set<String> executedTasks, SortedSet<String> skippedTasks) {
+        this.executedTasksInOrderStarted = Collections.unmodifiableSet(executedTasks);
+        this.executedTasks = Collections.unmodifiableList(new ArrayList<>(executedTasks));
+        this.skippedTasks = Collections.unmodifiableSortedSet(skippedTasks);
+        SortedSet<String> notSkippedTasks = new TreeSet<>(executedTasks);
+        notSkippedTasks.removeAll(skippedTasks);
+        this.notSkippedTasks = Collections.unmodifiableSortedSet(notSkippedTasks);
+    }
+
+    /**
+     * Scrapes the task status lines of the given content in a single pass.
+     *
+     * @param content the build output, with debug prefix and ANSI characters removed
+     * @param includeBuildSrc whether to include the tasks of the buildSrc build
+     */
+    static ScrapedTasks of(LogContent content, boolean includeBuildSrc) {
+        Set<String> executedTasks = new LinkedHashSet<>();
+        SortedSet<String> skippedTasks = new TreeSet<>();
+
+        // The status line of the last record of each task
+        Map<String, String> taskStatusLines = new HashMap<>();
+        content.eachLine(line -> {
+            if (!line.contains(":")) {
+                return;
+            }
+            Matcher matcher = TASK_PATTERN.matcher(line);
+            if (!matcher.matches()) {
+                return;
+            }
+            String taskName = matcher.group(2);
+            if (!includeBuildSrc && taskName.startsWith(":buildSrc:")) {
+                return;
+            }
+
+            Matcher skippedMatcher = SKIPPED_TASK_PATTERN.matcher(line);
+            if (skippedMatcher.matches()) {
+                skippedTasks.add(skippedMatcher.group(2));
+            }
+
+            // The task status line may appear twice - once for the execution, once for the UP-TO-DATE/SKIPPED/etc
+            // So don't add to the task list if this is an update to a previously added task.
+            String taskStatusLine = matcher.group().replace(TASK_PREFIX, "");
+            String previousTaskStatusLine = taskStatusLines.getOrDefault(taskName, "");
+            if (previousTaskStatusLine.equals(taskName) && !taskStatusLine.equals(taskName)) {
+                return;
+            }
+            taskStatusLines.put(taskName, taskStatusLine);
+            executedTasks.add(taskName);
+        });
+
+        return new ScrapedTasks(executedTasks, skippedTasks);
+    }
+
+    /**
+     * Returns the path of every task, in the order they started.
+     */
+    List<String> getExecutedTasks() {
+        return executedTasks;
+    }
+
+    /**
+     * Returns the path of every task, in the order they started.
+     */
+    Set<String> getExecutedTasksInOrderStarted() {
+        return executedTasksInOrderStarted;
+    }
+
+    SortedSet<String> getSkippedTasks() {
+        return skippedTasks;
+    }
+
+    SortedSet<String> getNotSkippedTasks() {
+        return notSkippedTasks;
+    }
+}
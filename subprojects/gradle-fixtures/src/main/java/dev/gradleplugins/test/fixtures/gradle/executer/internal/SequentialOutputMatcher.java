@@ -23,13 +23,21 @@ import org.junit.Assert;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
  * Check that the actual output lines match the expected output lines in content and order.
  */
 public class SequentialOutputMatcher {
+    private static final Pattern DOWNLOAD_PATTERN = Pattern.compile("Download .+");
+    private static final String TOTAL_TIME = "Total time: 1 secs";
+    private static final Pattern TOTAL_TIME_PATTERN = Pattern.compile("Total time: .+ secs");
+    private static final Pattern OBJECT_TO_STRING_PATTERN = Pattern.compile("(\\w+(\\.\\w+)*)@\\p{XDigit}+");
+
     public void assertOutputMatches(String expected, String actual, boolean ignoreExtraLines) {
         List<String> actualLines = normaliseOutput(readLines(actual)).stream().filter(it -> !it.isEmpty()).collect(Collectors.toList());
         List<String> expectedLines = readLines(expected).stream().filter(it -> !it.isEmpty()).collect(Collectors.toList());
@@ -42,28 +50,33 @@ public class SequentialOutputMatcher {
 
     protected void assertOutputLinesMatch(List<String> expectedLines, List<String> actualLines, boolean ignoreExtraLines, String actual) {
         int pos = 0;
-        for (; pos < actualLines.size() && pos < expectedLines.size(); pos++) {
+        while (pos < actualLines.size() && pos < expectedLines.size() && compare(expectedLines.get(pos), actualLines.get(pos))) {
+            pos++;
+        }
+        if (pos < actualLines.size() && pos < expectedLines.size()) {
             String expectedLine = expectedLines.get(pos);
             String actualLine = actualLines.get(pos);
-            boolean matches = compare(expectedLine, actualLine);
-            if (!matches) {
-                if (expectedLine.contains(actualLine)) {
-                    Assert.fail(String.format("Missing text at line %d.%nExpected: %s%nActual: %s%n---%nActual output:%n%s%n---", pos + 1, expectedLine, actualLine, actual));
-                }
-                if (actualLine.contains(expectedLine)) {
-                    Assert.fail(String.format("Extra text at line %d.%nExpected: %s%nActual: %s%n---%nActual output:%n%s%n---", pos + 1, expectedLine, actualLine, actual));
-                }
-                Assert.fail(String.format("Unexpected value at line %d.%nExpected: %s%nActual: %s%n---%nActual output:%n$actual%n---", pos + 1, expectedLine, actualLine, actual));
+            if (expectedLine.contains(actualLine)) {
+                Assert.fail(String.format("Missing text at line %d.%nExpected: %s%nActual: %s%n---%nDiff:%n%s---", pos + 1, expectedLine, actualLine, toUnifiedDiff(expectedLines, actualLines, ignoreExtraLines)));
             }
+            if (actualLine.contains(expectedLine)) {
+                Assert.fail(String.format("Extra text at line %d.%nExpected: %s%nActual: %s%n---%nDiff:%n%s---", pos + 1, expectedLine, actualLine, toUnifiedDiff(expectedLines, actualLines, ignoreExtraLines)));
+            }
+            Assert.fail(String.format("Unexpected value at line %d.%nExpected: %s%nActual: %s%n---%nDiff:%n%s---", pos + 1, expectedLine, actualLine, toUnifiedDiff(expectedLines, actualLines, ignoreExtraLines)));
         }
         if (pos == actualLines.size() && pos < expectedLines.size()) {
-            Assert.fail(String.format("Lines missing from actual result, starting at line %d.%nExpected: %s%nActual output:%n%s%n---", pos + 1, expectedLines.get(pos), actual));
+            Assert.fail(String.format("Lines missing from actual result, starting at line %d.%nExpected: %s%n---%nDiff:%n%s---", pos + 1, expectedLines.get(pos), toUnifiedDiff(expectedLines, actualLines, ignoreExtraLines)));
         }
         if (!ignoreExtraLines && pos < actualLines.size() && pos == expectedLines.size()) {
-            Assert.fail(String.format("Extra lines in actual result, starting at line %d.%nActual: %s%nActual output:%n%s%n---", pos + 1, actualLines.get(pos), actual));
+            Assert.fail(String.format("Extra lines in actual result, starting at line %d.%nActual: %s%n---%nDiff:%n%s---", pos + 1, actualLines.get(pos), toUnifiedDiff(expectedLines, actualLines, ignoreExtraLines)));
         }
     }
 
+    // Only diff the whole output once it is known not to match
+    private String toUnifiedDiff(List<String> expectedLines, List<String> actualLines, boolean ignoreExtraLines) {
+        return OutputDiff.of(expectedLines, actualLines, this::getMatchingExpectedLines).toUnifiedDiff(ignoreExtraLines);
+    }
+
     private List<String> normaliseOutput(List<String> lines) {
         if (lines.isEmpty()) {
             return lines;
@@ -71,7 +84,7 @@ public class SequentialOutputMatcher {
         boolean seenWarning = false;
         List<String> result = new ArrayList<>();
         for (String line : lines) {
-            if (line.matches("Download .+")) {
+            if (line.startsWith("Download ") && DOWNLOAD_PATTERN.matcher(line).matches()) {
                 // ignore
             } else if (!seenWarning && !Jvm.current().getJavaVersion().isJava7Compatible() && line == "Support for reading or changing file permissions is only available on this platform using Java 7 or later.") {
                 // ignore this warning once only on java < 7
@@ -89,15 +102,35 @@ public class SequentialOutputMatcher {
             return true;
         }
 
-        if (expected.equals("Total time: 1 secs")) {
-            return actual.matches("Total time: .+ secs");
+        if (expected.equals(TOTAL_TIME)) {
+            return TOTAL_TIME_PATTERN.matcher(actual).matches();
         }
 
+        return normalise(actual).equals(expected);
+    }
+
+    /**
+     * Returns the expected lines matching the given actual line, consistent with {@link #compare(String, String)}.
+     * Lines are matched through these candidates so each line is normalized only once.
+     */
+    protected Collection<String> getMatchingExpectedLines(String actual) {
+        String normalised = normalise(actual);
+        boolean totalTime = actual.startsWith("Total time: ") && TOTAL_TIME_PATTERN.matcher(actual).matches();
+        if (totalTime) {
+            return Arrays.asList(actual, normalised, TOTAL_TIME);
+        }
+        if (normalised.equals(actual)) {
+            return Collections.singletonList(actual);
+        }
+        return Arrays.asList(actual, normalised);
+    }
+
+    private static String normalise(String actual) {
         // Normalise default object toString() values
-        actual = actual.replaceAll("(\\w+(\\.\\w+)*)@\\p{XDigit}+", "$1@12345");
+        if (actual.indexOf('@') >= 0) {
+            actual = OBJECT_TO_STRING_PATTERN.matcher(actual).replaceAll("$1@12345");
+        }
         // Normalise file separators
-        actual = TextUtil.normaliseFileSeparators(actual);
-
-        return actual.equals(expected);
+        return TextUtil.normaliseFileSeparators(actual);
     }
 }
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.test.fixtures.gradle.executer.internal;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Log lines stored in a temporary file, encoded as UTF-8 and separated by a new line char.
+ * Only the line offsets are kept in memory, the lines are decoded lazily when accessed.
+ * Reads go through a block cache so sequential access, the common case, reads each block only once.
+ *
+ * The file is deleted when the lines are closed or, as results are rarely closed, once the lines are no longer reachable.
+ * The files left are deleted when the JVM exits.
+ */
+final class SpilledLogLines extends AbstractList<String> implements RandomAccess, Closeable {
+    private static final int BLOCK_SIZE = 64 * 1024;
+    private static final ReferenceQueue<SpilledLogLines> UNREACHABLE_LINES = new ReferenceQueue<>();
+    private static final Set<SpillFile> SPILL_FILES = ConcurrentHashMap.newKeySet();
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> SPILL_FILES.forEach(SpillFile::delete)));
+    }
+    private final SpillFile file;
+    private OutputStream outputStream;
+    // offsets[i] is the start of line i, offsets[size] is the end of the file
+    private long[] offsets = new long[1024];
+    private int size = 0;
+    private byte[] block = new byte[0];
+    private long blockStart = 0;
+    private boolean closed = false;
+
+    SpilledLogLines() {
+        deleteUnreachableSpillFiles();
+        try {
+            this.file = new SpillFile(this, File.createTempFile("gradle-output", ".log"));
+            this.outputStream = new BufferedOutputStream(Files.newOutputStream(file.path.toPath()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void deleteUnreachableSpillFiles() {
+        Reference<? extends SpilledLogLines> reference;
+        while ((reference = UNREACHABLE_LINES.poll()) != null) {
+            ((SpillFile) reference).delete();
+        }
+    }
+
+    void append(String line) {
+        if (outputStream == null) {
+            throw new IllegalStateException("Spilled log lines are already completed.");
+        }
+        try {
+            byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+            outputStream.write(bytes);
+            outputStream.write('\n');
+            if (size + 1 == offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[size + 1] = offsets[size] + bytes.length + 1;
+            size++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Flushes the pending lines to disk, no more lines can be appended afterward.
+     */
+    void complete() {
+        try {
+            outputStream.close();
+            outputStream = null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized String get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (closed) {
+            throw new IllegalStateException("Spilled log lines are already closed.");
+        }
+        if (outputStream != null) {
+            throw new IllegalStateException("Spilled log lines are not completed yet.");
+        }
+
+        long start = offsets[index];
+        int length = (int) (offsets[index + 1] - start - 1);
+        try {
+            if (start < blockStart || start + length > blockStart + block.length) {
+                readBlock(start, Math.max(BLOCK_SIZE, length));
+            }
+            return new String(block, (int) (start - blockStart), length, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Reopens the file for each block, a block spans many lines so keeping the file open saves little
+    private void readBlock(long start, int length) throws IOException {
+        byte[] result = new byte[(int) Math.min(length, offsets[size] - start)];
+        try (RandomAccessFile reader = new RandomAccessFile(file.path, "r")) {
+            reader.seek(start);
+            reader.readFully(result);
+        }
+        block = result;
+        blockStart = start;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Deletes the spill file, the lines can no longer be accessed afterward.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        block = new byte[0];
+        try {
+            if (outputStream != null) {
+                outputStream.close();
+                outputStream = null;
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    File getFile() {
+        return file.path;
+    }
+
+    private static final class SpillFile extends PhantomReference<SpilledLogLines> {
+        private final File path;
+
+        SpillFile(SpilledLogLines lines, File path) {
+            super(lines, UNREACHABLE_LINES);
+            this.path = path;
+            SPILL_FILES.add(this);
+        }
+
+        void delete() {
+            if (SPILL_FILES.remove(this)) {
+                path.delete();
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.test.fixtures.gradle.executer.internal;
+
+import org.gradle.testkit.runner.TaskOutcome;
+import org.gradle.tooling.events.OperationType;
+import org.gradle.tooling.events.ProgressEvent;
+import org.gradle.tooling.events.ProgressListener;
+import org.gradle.tooling.events.task.TaskFailureResult;
+import org.gradle.tooling.events.task.TaskFinishEvent;
+import org.gradle.tooling.events.task.TaskOperationResult;
+import org.gradle.tooling.events.task.TaskSkippedResult;
+import org.gradle.tooling.events.task.TaskStartEvent;
+import org.gradle.tooling.events.task.TaskSuccessResult;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Records task start and finish progress events into an {@link ExecutedTasks} model.
+ * Register with {@link #OPERATION_TYPES} so only task events are sent to the client.
+ */
+final class TaskProgressRecorder implements ProgressListener {
+    static final Set<OperationType> OPERATION_TYPES = EnumSet.of(OperationType.TASK);
+    private final Map<String, ExecutedTask> tasks = new LinkedHashMap<>();
+
+    @Override
+    public synchronized void statusChanged(ProgressEvent event) {
+        if (event instanceof TaskStartEvent) {
+            String taskPath = ((TaskStartEvent) event).getDescriptor().getTaskPath();
+            tasks.put(taskPath, new ExecutedTask(taskPath, null, event.getEventTime(), 0));
+        } else if (event instanceof TaskFinishEvent) {
+            TaskFinishEvent finishEvent = (TaskFinishEvent) event;
+            TaskOperationResult result = finishEvent.getResult();
+            String taskPath = finishEvent.getDescriptor().getTaskPath();
+            // Keeps the start order, a finish event always follows its start event
+            tasks.put(taskPath, new ExecutedTask(taskPath, toOutcome(result), result.getStartTime(), result.getEndTime()));
+        }
+    }
+
+    public synchronized ExecutedTasks getExecutedTasks() {
+        List<ExecutedTask> result = new ArrayList<>(tasks.values());
+        return new ExecutedTasks(result);
+    }
+
+    private static TaskOutcome toOutcome(TaskOperationResult result) {
+        if (result instanceof TaskFailureResult) {
+            return TaskOutcome.FAILED;
+        } else if (result instanceof TaskSkippedResult) {
+            String skipMessage = ((TaskSkippedResult) result).getSkipMessage();
+            if ("UP-TO-DATE".equals(skipMessage)) {
+                return TaskOutcome.UP_TO_DATE;
+            } else if ("NO-SOURCE".equals(skipMessage)) {
+                return TaskOutcome.NO_SOURCE;
+            }
+            return TaskOutcome.SKIPPED;
+        } else if (result instanceof TaskSuccessResult) {
+            TaskSuccessResult successResult = (TaskSuccessResult) result;
+            if (successResult.isFromCache()) {
+                return TaskOutcome.FROM_CACHE;
+            } else if (successResult.isUpToDate()) {
+                return TaskOutcome.UP_TO_DATE;
+            }
+            return TaskOutcome.SUCCESS;
+        }
+        throw new IllegalArgumentException(String.format("Unknown task result type '%s'.", result.getClass().getName()));
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.test.fixtures.gradle.executer.internal;
+
+import java.util.Arrays;
+
+/**
+ * Answers repeated substring queries over the same text.
+ *
+ * The text is scanned until it was queried a few times, most texts never are, and always when it is too short or too long to be worth an index.
+ * A scan is cheaper than any index until the text reaches hundreds of thousands of chars, and the index of a text of millions of chars costs more memory than scanning it costs time.
+ * Otherwise, the text is indexed by a suffix array, built in {@code O(n log n)} time.
+ * Afterward, finding a pattern of length {@code m} takes {@code O(m log n)} time, plus the number of its occurrences to find the first one, instead of {@code O(n)}.
+ * Building the suffix array takes about 20 bytes per char of the text, keeping it 4 bytes per char.
+ *
+ * A text starting another one shares the index of the other text, see {@link #forPrefix(String)}.
+ */
+final class TextIndex {
+    static final int MIN_INDEXED_TEXT_LENGTH = 256 * 1024;
+    static final int MAX_INDEXED_TEXT_LENGTH = 2 * 1024 * 1024;
+    static final int SCANS_BEFORE_INDEXING = 3;
+    private final String text;
+    private final int offset;
+    private final SuffixArray suffixArray;
+
+    TextIndex(String text) {
+        this(text, MIN_INDEXED_TEXT_LENGTH, MAX_INDEXED_TEXT_LENGTH, SCANS_BEFORE_INDEXING);
+    }
+
+    TextIndex(String text, int minIndexedTextLength, int maxIndexedTextLength, int scansBeforeIndexing) {
+        this(text, 0, new SuffixArray(text, text.length() >= minIndexedTextLength && text.length() <= maxIndexedTextLength, scansBeforeIndexing));
+    }
+
+    private TextIndex(String text, int offset, SuffixArray suffixArray) {
+        this.text = text;
+        this.offset = offset;
+        this.suffixArray = suffixArray;
+    }
+
+    /**
+     * Returns an index of the given text, sharing this index if the text starts this one.
+     *
+     * @param prefix the text to index
+     * @return the index, never null
+     */
+    TextIndex forPrefix(String prefix) {
+        if (text.startsWith(prefix)) {
+            return new TextIndex(prefix, offset, suffixArray);
+        }
+        return new TextIndex(prefix);
+    }
+
+    String getText() {
+        return text;
+    }
+
+    boolean contains(String pattern) {
+        return indexOf(pattern) >= 0;
+    }
+
+    /**
+     * Returns the index of the first occurrence of the pattern in the text, or -1 if the pattern doesn't occur.
+     */
+    int indexOf(String pattern) {
+        int[] suffixes = suffixArray.get();
+        if (suffixes == null) {
+            return text.indexOf(pattern);
+        }
+        if (pattern.length() > text.length()) {
+            return -1;
+        }
+
+        // Suffixes starting with the pattern are contiguous in the suffix array, but not ordered by position
+        int lastStart = offset + text.length() - pattern.length();
+        int result = -1;
+        for (int i = bound(suffixes, pattern, false), end = bound(suffixes, pattern, true); i < end; i++) {
+            int start = suffixes[i];
+            if (start >= offset && start <= lastStart && (result < 0 || start < result)) {
+                result = start;
+            }
+        }
+        return result < 0 ? -1 : result - offset;
+    }
+
+    /**
+     * Returns the first position in the suffix array whose suffix, truncated to the pattern length, is not less than the pattern, or greater than the pattern for the upper bound.
+     */
+    private int bound(int[] suffixes, String pattern, boolean upper) {
+        int low = 0;
+        int high = suffixes.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compareSuffix(suffixes[middle], pattern);
+            if (comparison < 0 || upper && comparison == 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Compares the suffix of the indexed text, truncated to the pattern length, with the pattern.
+     */
+    private int compareSuffix(int start, String pattern) {
+        String indexedText = suffixArray.text;
+        int length = Math.min(indexedText.length() - start, pattern.length());
+        for (int i = 0; i < length; i++) {
+            int difference = indexedText.charAt(start + i) - pattern.charAt(i);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return length == pattern.length() ? 0 : -1;
+    }
+
+    /**
+     * The suffix array of a text, shared by the indexes of its prefixes.
+     */
+    private static final class SuffixArray {
+        private final String text;
+        private final boolean indexed;
+        private int remainingScans;
+        private int[] suffixes;
+
+        SuffixArray(String text, boolean indexed, int scansBeforeIndexing) {
+            this.text = text;
+            this.indexed = indexed;
+            this.remainingScans = scansBeforeIndexing;
+        }
+
+        /**
+         * Returns the suffix array, or null while the text should be scanned.
+         */
+        synchronized int[] get() {
+            if (suffixes == null && indexed && remainingScans-- <= 0) {
+                suffixes = suffixArray(text);
+            }
+            return suffixes;
+        }
+    }
+
+    /**
+     * Sorts the suffixes of the text by prefix doubling with counting sorts, in {@code O(n log n)} time.
+     * The empty suffix comes first, the sorted array is kept as is rather than copied without it.
+     */
+    static int[] suffixArray(String text) {
+        // Sort the cyclic shifts of the text followed by a sentinel smaller than any char
+        int n = text.length() + 1;
+        int[] order = new int[n];
+        int[] classes = new int[n];
+        int[] counts = new int[Math.max(Character.MAX_VALUE + 2, n)];
+        for (int i = 0; i < n; i++) {
+            counts[charAt(text, i)]++;
+        }
+        for (int i = 1; i < Character.MAX_VALUE + 2; i++) {
+            counts[i] += counts[i - 1];
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            order[--counts[charAt(text, i)]] = i;
+        }
+        int classCount = 1;
+        for (int i = 1; i < n; i++) {
+            if (charAt(text, order[i]) != charAt(text, order[i - 1])) {
+                classCount++;
+            }
+            classes[order[i]] = classCount - 1;
+        }
+
+        int[] newOrder = new int[n];
+        int[] newClasses = new int[n];
+        for (int length = 1; length < n && classCount < n; length <<= 1) {
+            // Shifts are already sorted by their second half, sort them by their first half
+            for (int i = 0; i < n; i++) {
+                newOrder[i] = order[i] - length < 0 ? order[i] - length + n : order[i] - length;
+            }
+            Arrays.fill(counts, 0, classCount, 0);
+            for (int i = 0; i < n; i++) {
+                counts[classes[newOrder[i]]]++;
+            }
+            for (int i = 1; i < classCount; i++) {
+                counts[i] += counts[i - 1];
+            }
+            for (int i = n - 1; i >= 0; i--) {
+                order[--counts[classes[newOrder[i]]]] = newOrder[i];
+            }
+
+            newClasses[order[0]] = 0;
+            classCount = 1;
+            for (int i = 1; i < n; i++) {
+                int current = order[i];
+                int previous = order[i - 1];
+                int currentSecondHalf = current + length < n ? current + length : current + length - n;
+                int previousSecondHalf = previous + length < n ? previous + length : previous + length - n;
+                if (classes[current] != classes[previous] || classes[currentSecondHalf] != classes[previousSecondHalf]) {
+                    classCount++;
+                }
+                newClasses[current] = classCount - 1;
+            }
+            int[] swap = classes;
+            classes = newClasses;
+            newClasses = swap;
+        }
+
+        // The sentinel shift, that is the empty suffix, comes first
+        return order;
+    }
+
+    private static int charAt(String text, int index) {
+        return index < text.length() ? text.charAt(index) + 1 : 0;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.test.fixtures.gradle.executer.internal;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.SystemUtils;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.LockInfo;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MonitorInfo;
+import java.lang.management.ThreadInfo;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Takes {@code jstack}-like thread dumps of the JVMs involved in a build.
+ *
+ * The current JVM, which hosts the TestKit and Tooling API clients, is dumped through its {@code ThreadMXBean}.
+ * Other JVMs are dumped with the {@code jstack} of the current Java installation.
+ * Without {@code jstack}, as with a JRE, a daemon is sent {@code SIGQUIT} instead and its dump is read back from its log file, where the daemon's standard output goes.
+ */
+final class ThreadDumps {
+    private static final String THREAD_DUMP_HEADER = "Full thread dump";
+    private static final long SIGQUIT_DUMP_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+    private ThreadDumps() {}
+
+    /**
+     * Returns the thread dump of the current JVM.
+     */
+    static String ofCurrentJvm() {
+        StringBuilder result = new StringBuilder();
+        for (ThreadInfo thread : ManagementFactory.getThreadMXBean().dumpAllThreads(true, true)) {
+            // ThreadInfo#toString truncates the stack traces to 8 frames
+            result.append('"').append(thread.getThreadName()).append("\" #").append(thread.getThreadId()).append(' ').append(thread.getThreadState());
+            if (thread.getLockName() != null) {
+                result.append(" on ").append(thread.getLockName());
+            }
+            if (thread.getLockOwnerName() != null) {
+                result.append(" owned by \"").append(thread.getLockOwnerName()).append("\" #").append(thread.getLockOwnerId());
+            }
+            result.append('\n');
+            StackTraceElement[] stackTrace = thread.getStackTrace();
+            for (int i = 0; i < stackTrace.length; i++) {
+                result.append("\tat ").append(stackTrace[i]).append('\n');
+                for (MonitorInfo monitor : thread.getLockedMonitors()) {
+                    if (monitor.getLockedStackDepth() == i) {
+                        result.append("\t- locked ").append(monitor).append('\n');
+                    }
+                }
+            }
+            for (LockInfo lock : thread.getLockedSynchronizers()) {
+                result.append("\t- locked ownable synchronizer ").append(lock).append('\n');
+            }
+            result.append('\n');
+        }
+        return result.toString();
+    }
+
+    /**
+     * Returns the thread dump of another JVM.
+     *
+     * @param pid the PID of the JVM
+     * @param daemonLogFile the log file of the JVM if it's a daemon, for when {@code jstack} is unavailable
+     * @return the thread dump, or null if the process is not a JVM or could not be dumped
+     */
+    @Nullable
+    static String of(long pid, @Nullable File daemonLogFile) {
+        File jstack = findJstack();
+        if (jstack != null) {
+            String result = ProcessTree.runSuccessfully(jstack.getAbsolutePath(), String.valueOf(pid));
+            if (result != null) {
+                return result;
+            }
+        }
+        if (daemonLogFile != null && !SystemUtils.IS_OS_WINDOWS) {
+            return viaSigquit(pid, daemonLogFile);
+        }
+        return null;
+    }
+
+    @Nullable
+    private static File findJstack() {
+        File javaHome = new File(System.getProperty("java.home"));
+        String executableName = SystemUtils.IS_OS_WINDOWS ? "jstack.exe" : "jstack";
+        // On Java 8, java.home is the JRE nested in the JDK
+        for (File candidate : new File[] {new File(javaHome, "bin/" + executableName), new File(javaHome.getParentFile(), "bin/" + executableName)}) {
+            if (candidate.isFile()) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private static String viaSigquit(long pid, File daemonLogFile) {
+        long offset = daemonLogFile.length();
+        ProcessTree.run("kill", "-QUIT", String.valueOf(pid));
+        long deadline = System.currentTimeMillis() + SIGQUIT_DUMP_TIMEOUT_MILLIS;
+        long previousLength = -1;
+        try {
+            while (System.currentTimeMillis() < deadline) {
+                Thread.sleep(200);
+                // The dump is complete once the log stops growing
+                long length = daemonLogFile.length();
+                if (length > offset && length == previousLength) {
+                    break;
+                }
+                previousLength = length;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try (InputStream inputStream = new FileInputStream(daemonLogFile)) {
+            IOUtils.skip(inputStream, offset);
+            String appended = IOUtils.toString(inputStream, Charset.defaultCharset());
+            int start = appended.indexOf(THREAD_DUMP_HEADER);
+            return start < 0 ? null : appended.substring(start);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.test.fixtures.gradle.executer.internal;
+
+import dev.gradleplugins.test.fixtures.gradle.executer.ExecutionFailure;
+import org.hamcrest.Matcher;
+
+public class ToolingApiExecutionFailure extends ToolingApiExecutionResult implements ExecutionFailure {
+    private final OutputScrapingExecutionFailure delegate;
+
+    ToolingApiExecutionFailure(OutputScrapingExecutionFailure delegate, ExecutedTasks executedTasks) {
+        super(delegate, executedTasks);
+        this.delegate = delegate;
+    }
+
+    @Override
+    public ExecutionFailure assertHasCause(String description) {
+        delegate.assertHasCause(description);
+        return this;
+    }
+
+    @Override
+    public ExecutionFailure assertThatCause(Matcher<? super String> matcher) {
+        delegate.assertThatCause(matcher);
+        return this;
+    }
+
+    @Override
+    public ExecutionFailure assertHasDescription(String context) {
+        delegate.assertHasDescription(context);
+        return this;
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.test.fixtures.gradle.executer.internal;
+
+import dev.gradleplugins.test.fixtures.gradle.executer.BuildProfile;
+import dev.gradleplugins.test.fixtures.gradle.executer.ExecutionMetrics;
+import dev.gradleplugins.test.fixtures.gradle.executer.ExecutionResult;
+import dev.gradleplugins.test.fixtures.gradle.executer.TaskOrderSpecs;
+import dev.gradleplugins.test.fixtures.gradle.logging.GroupedOutputFixture;
+import org.hamcrest.Matcher;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static dev.gradleplugins.test.fixtures.gradle.executer.internal.OutputScrapingExecutionResult.flattenTaskPaths;
+
+/**
+ * A result whose task assertions are backed by the task progress events of the build instead of its console output.
+ */
+public class ToolingApiExecutionResult implements ExecutionResult, MeasuredExecutionResult {
+    private final OutputScrapingExecutionResult delegate;
+    private final ExecutedTasks executedTasks;
+    private ExecutionMetrics metrics = null;
+    private BuildProfile buildProfile = null;
+
+    ToolingApiExecutionResult(OutputScrapingExecutionResult delegate, ExecutedTasks executedTasks) {
+        this.delegate = delegate;
+        this.executedTasks = executedTasks;
+    }
+
+    public ExecutedTasks getExecutedTasks() {
+        return executedTasks;
+    }
+
+    @Nullable
+    @Override
+    public ExecutionMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void setMetrics(ExecutionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Nullable
+    @Override
+    public BuildProfile getBuildProfile() {
+        return buildProfile;
+    }
+
+    @Override
+    public void setBuildProfile(BuildProfile buildProfile) {
+        this.buildProfile = buildProfile;
+    }
+
+    @Override
+    public String getOutput() {
+        return delegate.getOutput();
+    }
+
+    @Override
+    public GroupedOutputFixture getGroupedOutput() {
+        return delegate.getGroupedOutput();
+    }
+
+    @Override
+    public String getPlainTextOutput() {
+        return delegate.getPlainTextOutput();
+    }
+
+    public ExecutionResult assertTasksExecutedInOrder(Object... taskPaths) {
+        Set<String> allTasks = TaskOrderSpecs.exact(taskPaths).getTasks();
+        assertTasksExecuted(allTasks);
+        assertTaskOrder(taskPaths);
+        return this;
+    }
+
+    public ExecutionResult assertTaskOrder(Object... taskPaths) {
+        TaskOrderSpecs.exact(taskPaths).assertMatches(-1, new ArrayList<>(executedTasks.getPaths()));
+        return this;
+    }
+
+    @Override
+    public ExecutionResult assertTasksExecuted(Object... taskPaths) {
+        Set<String> expectedTasks = new TreeSet<>(flattenTaskPaths(taskPaths));
+        Set<String> actualTasks = new TreeSet<>(executedTasks.getPaths());
+        if (!expectedTasks.equals(actualTasks)) {
+            failOnDifferentSets("Build did not execute the expected tasks.", expectedTasks, actualTasks);
+        }
+        return this;
+    }
+
+    @Override
+    public ExecutionResult assertTasksExecutedAndNotSkipped(Object... taskPaths) {
+        assertTasksExecuted(taskPaths);
+        return assertTasksNotSkipped(taskPaths);
+    }
+
+    public ExecutionResult assertTaskExecuted(String taskPath) {
+        Set<String> actualTasks = executedTasks.getPaths();
+        if (!actualTasks.contains(taskPath)) {
+            failOnMissingElement("Build did not execute the expected task.", taskPath, actualTasks);
+        }
+        return this;
+    }
+
+    @Override
+    public ExecutionResult assertTaskNotExecuted(String taskPath) {
+        Set<String> actualTasks = executedTasks.getPaths();
+        if (actualTasks.contains(taskPath)) {
+            failOnMissingElement("Build executed an unexpected task.", taskPath, actualTasks);
+        }
+        return this;
+    }
+
+    @Override
+    public ExecutionResult assertTasksSkipped(Object... taskPaths) {
+        Set<String> expectedTasks = new TreeSet<>(flattenTaskPaths(taskPaths));
+        Set<String> skippedTasks = executedTasks.getSkippedPaths();
+        if (!expectedTasks.equals(skippedTasks)) {
+            failOnDifferentSets("Build did not skip the expected tasks.", expectedTasks, skippedTasks);
+        }
+        return this;
+    }
+
+    @Override
+    public ExecutionResult assertTaskSkipped(String taskPath) {
+        Set<String> skippedTasks = executedTasks.getSkippedPaths();
+        if (!skippedTasks.contains(taskPath)) {
+            failOnMissingElement("Build did not skip the expected task.", taskPath, skippedTasks);
+        }
+        return this;
+    }
+
+    @Override
+    public ExecutionResult assertTasksNotSkipped(Object... taskPaths) {
+        Set<String> expectedTasks = new TreeSet<>(flattenTaskPaths(taskPaths));
+        Set<String> notSkippedTasks = executedTasks.getNotSkippedPaths();
+        if (!expectedTasks.equals(notSkippedTasks)) {
+            failOnDifferentSets("Build did not execute the expected non skipped tasks.", expectedTasks, notSkippedTasks);
+        }
+        return this;
+    }
+
+    @Override
+    public ExecutionResult assertTaskNotSkipped(String taskPath) {
+        Set<String> notSkippedTasks = executedTasks.getNotSkippedPaths();
+        if (!notSkippedTasks.contains(taskPath)) {
+            failOnMissingElement("Build did not execute the expected non skipped task.", taskPath, notSkippedTasks);
+        }
+        return this;
+    }
+
+    @Override
+    public ExecutionResult assertOutputContains(String expectedOutput) {
+        delegate.assertOutputContains(expectedOutput);
+        return this;
+    }
+
+    @Override
+    public ExecutionResult assertThatOutput(Matcher<? super String> matcher) {
+        delegate.assertThatOutput(matcher);
+        return this;
+    }
+
+    @Override
+    public ExecutionResult assertNotOutput(String expectedOutput) {
+        delegate.assertNotOutput(expectedOutput);
+        return this;
+    }
+
+    @Override
+    public ExecutionResult assertHasPostBuildOutput(String expectedOutput) {
+        delegate.assertHasPostBuildOutput(expectedOutput);
+        return this;
+    }
+
+    private void failOnDifferentSets(String message, Set<String> expected, Set<String> actual) {
+        throw new AssertionError(String.format("%s%nExpected: %s%nActual: %s%nTasks:%n======%n%s", message, expected, actual, describeTasks()));
+    }
+
+    private void failOnMissingElement(String message, String expected, Set<String> actual) {
+        throw new AssertionError(String.format("%s%nExpected: %s%nActual: %s%nTasks:%n======%n%s", message, expected, actual, describeTasks()));
+    }
+
+    private String describeTasks() {
+        List<String> lines = new ArrayList<>();
+        executedTasks.getTasks().forEach(it -> lines.add(String.format("%s %s (%d ms)", it.getPath(), it.getOutcome(), Math.max(0, it.getEndTime() - it.getStartTime()))));
+        return String.join(System.lineSeparator(), lines);
+    }
+}
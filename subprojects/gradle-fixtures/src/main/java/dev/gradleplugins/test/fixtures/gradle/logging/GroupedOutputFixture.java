@@ -19,10 +19,11 @@ package dev.gradleplugins.test.fixtures.gradle.logging;
 import dev.gradleplugins.test.fixtures.gradle.executer.internal.LogContent;
 import org.apache.commons.lang3.StringUtils;
 
+import javax.annotation.Nullable;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -34,36 +35,13 @@ public class GroupedOutputFixture {
     /**
      * All tasks will start with > Task, captures everything starting with : and going until end of line
      */
-    private final static String TASK_HEADER = "> Task (:[\\w:]*) ?(FAILED|FROM-CACHE|UP-TO-DATE|SKIPPED|NO-SOURCE)?\\n";
-    private final static String TRANSFORMATION_HEADER = "> Transform (artifact|file) ([^\\n]+) with ([^\\n]+)\\n";
+    private final static Pattern TASK_HEADER = Pattern.compile("> Task (:[\\w:]*) ?(FAILED|FROM-CACHE|UP-TO-DATE|SKIPPED|NO-SOURCE)?\\z");
+    private final static Pattern TRANSFORMATION_HEADER = Pattern.compile("> Transform (artifact|file) ([^\\n]+) with ([^\\n]+)\\z");
 
-    private final static String EMBEDDED_BUILD_START = "> :\\w* > [:\\w]+";
+    private final static Pattern EMBEDDED_BUILD_START = Pattern.compile("> :\\w* > [:\\w]+");
     private final static String BUILD_STATUS_FOOTER = "BUILD SUCCESSFUL";
     private final static String BUILD_FAILED_FOOTER = "BUILD FAILED";
-    private final static String ACTIONABLE_TASKS = "[0-9]+ actionable tasks?:";
-
-    /**
-     * Various patterns to detect the end of the task output
-     */
-    private final static String END_OF_GROUPED_OUTPUT = TASK_HEADER + "|" + TRANSFORMATION_HEADER + "|" + BUILD_STATUS_FOOTER + "|" + BUILD_FAILED_FOOTER + "|" + EMBEDDED_BUILD_START + "|" + ACTIONABLE_TASKS + "|\\z";
-
-    /**
-     * Pattern to extract task output.
-     */
-    private static final Pattern TASK_OUTPUT_PATTERN = patternForHeader(TASK_HEADER);
-
-    /**
-     * Pattern to extract task output.
-     */
-    private static final Pattern TRANSFORMATION_OUTPUT_PATTERN = patternForHeader(TRANSFORMATION_HEADER);
-
-    private static Pattern patternForHeader(String header) {
-        String pattern = "(?ms)";
-        pattern += header;
-        // Capture all output, lazily up until two new lines and an END_OF_TASK designation
-        pattern += "([\\s\\S]*?(?=[^\\n]*?" + END_OF_GROUPED_OUTPUT + "))";
-        return Pattern.compile(pattern);
-    }
+    private final static Pattern ACTIONABLE_TASKS = Pattern.compile("[0-9]+ actionable tasks?:");
 
     private final LogContent originalOutput;
     private final String strippedOutput;
@@ -75,22 +53,101 @@ public class GroupedOutputFixture {
         this.strippedOutput = parse(output);
     }
 
+    /**
+     * Walks the lines once.
+     * Each header line opens a group spanning the following lines up to the end of the grouped output.
+     * The grouped output ends at the start of the next line containing a task header, or right before the next transformation header, embedded build, footer or the end of the output.
+     */
     private String parse(LogContent output) {
         tasks = new HashMap<String, GroupedTaskFixture>();
         transformations = new HashMap<String, GroupedTransformationFixture>();
 
-        String strippedOutput = output.ansiCharsToPlainText().withNormalizedEol();
-        findOutputs(strippedOutput, TASK_OUTPUT_PATTERN, this::consumeTaskOutput);
-        findOutputs(strippedOutput, TRANSFORMATION_OUTPUT_PATTERN, this::consumeTransformationOutput);
+        LogContent plainTextOutput = output.ansiCharsToPlainText();
+        List<String> lines = plainTextOutput.getLines();
+        int lastLine = lines.size() - 1;
+        Matcher taskHeader = null;
+        Matcher transformationHeader = null;
+        int groupStart = 0;
+        for (int i = 0; i <= lastLine; i++) {
+            String line = lines.get(i);
+            // Headers include the line separator, so the last line can't be a header
+            Matcher lineTaskHeader = i < lastLine ? findTaskHeader(line) : null;
+            Matcher lineTransformationHeader = i < lastLine ? findTransformationHeader(line) : null;
+            int endOfGroupedOutput = lineTaskHeader != null ? 0 : indexOfEndOfGroupedOutput(line, lineTransformationHeader, i == lastLine);
+            if (endOfGroupedOutput < 0) {
+                continue;
+            }
+
+            if (taskHeader != null || transformationHeader != null) {
+                String groupedOutput = groupedOutput(lines.subList(groupStart, i), line.substring(0, endOfGroupedOutput));
+                if (taskHeader != null) {
+                    consumeTaskOutput(taskHeader, groupedOutput);
+                }
+                if (transformationHeader != null) {
+                    consumeTransformationOutput(transformationHeader, groupedOutput);
+                }
+            }
+            taskHeader = lineTaskHeader;
+            transformationHeader = lineTransformationHeader;
+            groupStart = i + 1;
+        }
 
-        return strippedOutput;
+        return plainTextOutput.withNormalizedEol();
+    }
+
+    @Nullable
+    private static Matcher findTaskHeader(String line) {
+        if (!line.contains("> Task :")) {
+            return null;
+        }
+        Matcher matcher = TASK_HEADER.matcher(line);
+        return matcher.find() ? matcher : null;
+    }
+
+    @Nullable
+    private static Matcher findTransformationHeader(String line) {
+        if (!line.contains("> Transform ")) {
+            return null;
+        }
+        Matcher matcher = TRANSFORMATION_HEADER.matcher(line);
+        return matcher.find() ? matcher : null;
+    }
+
+    /**
+     * Returns the index in the line where the grouped output ends, or -1 if the grouped output continues on the next line.
+     */
+    private static int indexOfEndOfGroupedOutput(String line, @Nullable Matcher transformationHeader, boolean isLastLine) {
+        int result = isLastLine ? line.length() : Integer.MAX_VALUE;
+        if (transformationHeader != null) {
+            result = Math.min(result, transformationHeader.start());
+        }
+        result = minIndex(result, line.indexOf(BUILD_STATUS_FOOTER));
+        result = minIndex(result, line.indexOf(BUILD_FAILED_FOOTER));
+        if (line.contains("> :")) {
+            result = minIndex(result, indexOf(EMBEDDED_BUILD_START, line));
+        }
+        if (line.contains(" actionable task")) {
+            result = minIndex(result, indexOf(ACTIONABLE_TASKS, line));
+        }
+        return result == Integer.MAX_VALUE ? -1 : result;
+    }
+
+    private static int minIndex(int index, int otherIndex) {
+        return otherIndex < 0 ? index : Math.min(index, otherIndex);
+    }
+
+    private static int indexOf(Pattern pattern, String line) {
+        Matcher matcher = pattern.matcher(line);
+        return matcher.find() ? matcher.start() : -1;
     }
 
-    private void findOutputs(String strippedOutput, Pattern outputPattern, Consumer<Matcher> consumer) {
-        Matcher matcher = outputPattern.matcher(strippedOutput);
-        while (matcher.find()) {
-            consumer.accept(matcher);
+    private static String groupedOutput(List<String> lines, String lastLinePrefix) {
+        StringBuilder result = new StringBuilder();
+        for (String line : lines) {
+            result.append(line).append("\n");
         }
+        result.append(lastLinePrefix);
+        return StringUtils.strip(result.toString(), "\n");
     }
 
     public int getTaskCount() {
@@ -130,10 +187,9 @@ public class GroupedOutputFixture {
         return originalOutput.withNormalizedEol();
     }
 
-    private void consumeTaskOutput(Matcher matcher) {
+    private void consumeTaskOutput(Matcher matcher, String taskOutput) {
         String taskName = matcher.group(1);
         String taskOutcome = matcher.group(2);
-        String taskOutput = StringUtils.strip(matcher.group(3), "\n");
 
         GroupedTaskFixture task = tasks.get(taskName);
         if (task == null) {
@@ -145,11 +201,10 @@ public class GroupedOutputFixture {
         task.setOutcome(taskOutcome);
     }
 
-    private void consumeTransformationOutput(Matcher matcher) {
+    private void consumeTransformationOutput(Matcher matcher, String transformationOutput) {
         String initialSubjectType = matcher.group(1);
         String subject = matcher.group(2);
         String transformer = matcher.group(3);
-        String transformationOutput = StringUtils.strip(matcher.group(4), "\n");
 
         String key = initialSubjectType + ";" + subject + ";" + transformer;
 
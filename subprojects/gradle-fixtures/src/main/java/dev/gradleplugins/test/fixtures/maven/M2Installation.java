@@ -131,7 +131,7 @@ public class M2Installation implements Function<GradleExecuter, GradleExecuter>
     }
 
     private static GradleExecuter setMavenLocalLocation(GradleExecuter gradleExecuter, File destination) {
-        return gradleExecuter.withArgument("-Dmaven.repo.local=" + destination.getAbsolutePath());
+        return gradleExecuter.withBuildSystemProperty("maven.repo.local", destination.getAbsolutePath());
     }
 }
 
@@ -16,16 +16,11 @@
 
 package dev.gradleplugins.test.fixtures.versions;
 
-import com.google.gson.Gson;
+import dev.gradleplugins.internal.versions.GradleVersionsService;
 import dev.gradleplugins.test.fixtures.gradle.executer.GradleDistribution;
 import dev.gradleplugins.test.fixtures.gradle.executer.GradleDistributionFactory;
 import org.gradle.util.GradleVersion;
 
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.Reader;
-import java.net.URL;
-import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Properties;
@@ -40,6 +35,7 @@ public class ReleasedVersionDistributions {
 
     private Properties properties;
     private List<GradleDistribution> distributions;
+    private final GradleVersionsService versionsService;
 
 //    private Properties getProperties() {
 //        if (properties == null) {
@@ -49,54 +45,34 @@ public class ReleasedVersionDistributions {
 //        return properties;
 //    }
 
+    public ReleasedVersionDistributions() {
+        this(GradleVersionsService.getDefault());
+    }
+
+    ReleasedVersionDistributions(GradleVersionsService versionsService) {
+        this.versionsService = versionsService;
+    }
+
     public GradleDistribution getMostRecentRelease() {
-        try (Reader reader = new InputStreamReader(new URL("https://services.gradle.org/versions/current").openConnection().getInputStream())) {
-            GradleRelease gradleRelease = new Gson().fromJson(reader, GradleRelease.class);
-            return GradleDistributionFactory.distribution(gradleRelease.version);
-        } catch (IOException e) {
-            throw new RuntimeException("Unable to get the last version", e);
-        }
+        return GradleDistributionFactory.distribution(versionsService.getCurrent().getVersion());
     }
 
     public GradleDistribution getMostRecentReleaseSnapshot() {
-        try (Reader reader = new InputStreamReader(new URL("https://services.gradle.org/versions/release-nightly").openConnection().getInputStream())) {
-            GradleRelease gradleRelease = new Gson().fromJson(reader, GradleRelease.class);
-            return GradleDistributionFactory.distribution(gradleRelease.version);
-        } catch (IOException e) {
-            throw new RuntimeException("Unable to get the last snapshot version", e);
-        }
+        return GradleDistributionFactory.distribution(versionsService.getReleaseNightly().getVersion());
     }
 
     public GradleDistribution getMostRecentSnapshot() {
-        try (Reader reader = new InputStreamReader(new URL("https://services.gradle.org/versions/nightly").openConnection().getInputStream())) {
-            GradleRelease gradleRelease = new Gson().fromJson(reader, GradleRelease.class);
-            return GradleDistributionFactory.distribution(gradleRelease.version);
-        } catch (IOException e) {
-            throw new RuntimeException("Unable to get the last snapshot version", e);
-        }
+        return GradleDistributionFactory.distribution(versionsService.getNightly().getVersion());
     }
 
     public List<GradleDistribution> getAll() {
         if (distributions == null) {
-            try (Reader reader = new InputStreamReader(new URL("https://services.gradle.org/versions/all").openConnection().getInputStream())) {
-                List<GradleRelease> gradleReleases = Arrays.asList(new Gson().fromJson(reader, GradleRelease[].class));
-                gradleReleases = gradleReleases.stream().filter(it -> !it.snapshot && it.rcFor.isEmpty()).collect(Collectors.toList());
-                distributions = gradleReleases.stream().map(it -> GradleDistributionFactory.distribution(it.version)).collect(Collectors.toList());
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-
+            List<GradleVersionsService.GradleRelease> gradleReleases = versionsService.getAll().stream().filter(it -> !it.isSnapshot() && it.getRcFor().isEmpty()).collect(Collectors.toList());
+            distributions = gradleReleases.stream().map(it -> GradleDistributionFactory.distribution(it.getVersion())).collect(Collectors.toList());
         }
         return distributions;
     }
 
-    private static class GradleRelease {
-        String version;
-        boolean snapshot;
-        boolean current;
-        String rcFor;
-    }
-
     public List<GradleDistribution> getSupported() {
         final GradleVersion firstSupported = GradleVersion.version("1.0");
         return getAll().stream().filter(element -> element.getVersion().compareTo(firstSupported) >= 0).collect(Collectors.toList());
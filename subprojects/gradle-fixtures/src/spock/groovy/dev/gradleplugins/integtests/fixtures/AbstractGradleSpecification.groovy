@@ -21,6 +21,7 @@ import dev.gradleplugins.spock.lang.TestNameTestDirectoryProvider
 import dev.gradleplugins.test.fixtures.file.TestFile
 import dev.gradleplugins.test.fixtures.gradle.executer.*
 import dev.gradleplugins.test.fixtures.gradle.executer.internal.GradleRunnerExecuter
+import dev.gradleplugins.test.fixtures.gradle.executer.internal.GradleToolingApiExecuter
 import dev.gradleplugins.test.fixtures.maven.M2Installation
 import groovy.transform.PackageScope
 import org.junit.Rule
@@ -33,6 +34,7 @@ import java.util.function.Function
 @CleanupTestDirectory
 class AbstractGradleSpecification extends Specification {
     public static final String DEFAULT_GRADLE_VERSION_SYSPROP_NAME = "dev.gradleplugins.defaultGradleVersion";
+    public static final String EXECUTER_SYSPROP_NAME = "dev.gradleplugins.executer";
     @Rule
     final TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider(getClass())
     final M2Installation m2 = new M2Installation(TestFile.of(temporaryFolder.testDirectory))
@@ -65,7 +67,11 @@ class AbstractGradleSpecification extends Specification {
     }
 
     private GradleExecuter createExecuter() {
-        return new GradleRunnerExecuter(gradleDistributionUnderTest, TestFile.of(temporaryFolder.testDirectory)).withPluginClasspath()
+        // Select the Tooling API based executer with -Ddev.gradleplugins.executer=toolingApi
+        if (System.getProperty(EXECUTER_SYSPROP_NAME, "testKit") == "toolingApi") {
+            return new GradleToolingApiExecuter(gradleDistributionUnderTest, TestFile.of(temporaryFolder.testDirectory)).withPluginClasspath().withTestClass(getClass())
+        }
+        return new GradleRunnerExecuter(gradleDistributionUnderTest, TestFile.of(temporaryFolder.testDirectory)).withPluginClasspath().withTestClass(getClass())
     }
 
     protected TestFile getProjectDir() {
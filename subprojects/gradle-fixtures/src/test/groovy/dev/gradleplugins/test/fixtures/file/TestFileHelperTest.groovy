@@ -38,6 +38,64 @@ class TestFileHelperTest extends Specification {
         file.canExecute()
     }
 
+    @IgnoreIf({ SystemUtils.IS_OS_WINDOWS })
+    def "can restore symbolic links when unzip files"() {
+        given:
+        def source = temporaryFolder.newFolder('source')
+        new File(source, 'dir').mkdir()
+        new File(source, 'dir/file.txt').text = 'content'
+        def process = "ln -s file.txt dir/link.txt".execute(null, source)
+        assert process.waitFor() == 0
+        process = "zip -r -y ../file.zip dir".execute(null, source)
+        process.consumeProcessOutput(System.out, System.err)
+        assert process.waitFor() == 0
+
+        when:
+        def target = temporaryFolder.newFolder('target')
+        TestFile.of(new File(temporaryFolder.root, 'file.zip')).unzipTo(target)
+
+        then:
+        java.nio.file.Files.isSymbolicLink(new File(target, 'dir/link.txt').toPath())
+        new File(target, 'dir/link.txt').text == 'content'
+    }
+
+    @IgnoreIf({ SystemUtils.IS_OS_WINDOWS })
+    def "does not restore symbolic links pointing outside of the target directory"() {
+        given:
+        def source = temporaryFolder.newFolder('source')
+        new File(source, 'dir').mkdir()
+        new File(source, 'dir/file.txt').text = 'content'
+        def process = "ln -s ../../outside.txt dir/link.txt".execute(null, source)
+        assert process.waitFor() == 0
+        process = "zip -r -y ../file.zip dir".execute(null, source)
+        process.consumeProcessOutput(System.out, System.err)
+        assert process.waitFor() == 0
+
+        when:
+        def target = temporaryFolder.newFolder('target')
+        TestFile.of(new File(temporaryFolder.root, 'file.zip')).unzipTo(target)
+
+        then:
+        thrown(UncheckedIOException)
+        !java.nio.file.Files.exists(new File(target, 'dir/link.txt').toPath(), java.nio.file.LinkOption.NOFOLLOW_LINKS)
+    }
+
+    def "does not unzip entries outside of the target directory"() {
+        given:
+        def zipFile = new File(temporaryFolder.root, 'file.zip')
+        new java.util.zip.ZipOutputStream(new FileOutputStream(zipFile)).withCloseable {
+            it.putNextEntry(new java.util.zip.ZipEntry('../outside.txt'))
+            it.write('content'.bytes)
+        }
+
+        when:
+        TestFile.of(zipFile).unzipTo(temporaryFolder.newFolder('target'))
+
+        then:
+        thrown(UncheckedIOException)
+        !new File(temporaryFolder.root, 'outside.txt').exists()
+    }
+
     @IgnoreIf({ SystemUtils.IS_OS_WINDOWS }) // Because I'm lazy and it's good enough for now
     def "can execute commands with environment variables without value"() {
         given:
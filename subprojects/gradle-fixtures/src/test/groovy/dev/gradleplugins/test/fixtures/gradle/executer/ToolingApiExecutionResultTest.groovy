@@ -0,0 +1,170 @@
+package dev.gradleplugins.test.fixtures.gradle.executer
+
+import dev.gradleplugins.test.fixtures.gradle.executer.internal.LogContent
+import dev.gradleplugins.test.fixtures.gradle.executer.internal.OutputScrapingExecutionFailure
+import dev.gradleplugins.test.fixtures.gradle.executer.internal.OutputScrapingExecutionResult
+import dev.gradleplugins.test.fixtures.gradle.executer.internal.TaskProgressRecorder
+import dev.gradleplugins.test.fixtures.gradle.executer.internal.ToolingApiExecutionFailure
+import dev.gradleplugins.test.fixtures.gradle.executer.internal.ToolingApiExecutionResult
+import org.gradle.testkit.runner.TaskOutcome
+import org.gradle.tooling.events.task.TaskFailureResult
+import org.gradle.tooling.events.task.TaskFinishEvent
+import org.gradle.tooling.events.task.TaskOperationDescriptor
+import org.gradle.tooling.events.task.TaskOperationResult
+import org.gradle.tooling.events.task.TaskSkippedResult
+import org.gradle.tooling.events.task.TaskStartEvent
+import org.gradle.tooling.events.task.TaskSuccessResult
+import spock.lang.Specification
+
+class ToolingApiExecutionResultTest extends Specification {
+    def recorder = new TaskProgressRecorder()
+
+    def "records the tasks in start order with their outcome"() {
+        when:
+        recorder.statusChanged(started(':compileJava', 100))
+        recorder.statusChanged(started(':processResources', 110))
+        recorder.statusChanged(finished(':processResources', skipped('NO-SOURCE', 110, 120)))
+        recorder.statusChanged(finished(':compileJava', success(100, 300, false, true)))
+        recorder.statusChanged(started(':jar', 310))
+        recorder.statusChanged(finished(':jar', success(310, 350, false, false)))
+        recorder.statusChanged(started(':test', 360))
+        recorder.statusChanged(finished(':test', Stub(TaskFailureResult) { getStartTime() >> 360; getEndTime() >> 900 }))
+
+        then:
+        def tasks = recorder.executedTasks
+        tasks.paths as List == [':compileJava', ':processResources', ':jar', ':test']
+        tasks.tasks*.outcome == [TaskOutcome.FROM_CACHE, TaskOutcome.NO_SOURCE, TaskOutcome.SUCCESS, TaskOutcome.FAILED]
+        tasks.find(':compileJava').get().startTime == 100
+        tasks.find(':compileJava').get().endTime == 300
+        tasks.skippedPaths as List == [':compileJava', ':processResources']
+        tasks.notSkippedPaths as List == [':jar', ':test']
+    }
+
+    def "maps the task results to the task outcomes"() {
+        when:
+        recorder.statusChanged(started(':task', 0))
+        recorder.statusChanged(finished(':task', skipMessage == null ? success(0, 1, upToDate, fromCache) : skipped(skipMessage, 0, 1)))
+
+        then:
+        recorder.executedTasks.find(':task').get().outcome == outcome
+
+        where:
+        skipMessage  | upToDate | fromCache | outcome
+        'UP-TO-DATE' | false    | false     | TaskOutcome.UP_TO_DATE
+        'NO-SOURCE'  | false    | false     | TaskOutcome.NO_SOURCE
+        'SKIPPED'    | false    | false     | TaskOutcome.SKIPPED
+        null         | true     | false     | TaskOutcome.UP_TO_DATE
+        null         | false    | true      | TaskOutcome.FROM_CACHE
+        null         | false    | false     | TaskOutcome.SUCCESS
+    }
+
+    def "keeps the tasks that never finished without outcome"() {
+        when:
+        recorder.statusChanged(started(':hung', 100))
+
+        then:
+        def task = recorder.executedTasks.find(':hung').get()
+        task.outcome == null
+        task.endTime == 0
+        !task.skipped
+        recorder.executedTasks.notSkippedPaths == [':hung'] as Set
+    }
+
+    def "asserts the tasks from the progress events instead of the output"() {
+        given:
+        recorder.statusChanged(started(':compileJava', 100))
+        recorder.statusChanged(finished(':compileJava', skipped('UP-TO-DATE', 100, 110)))
+        recorder.statusChanged(started(':jar', 120))
+        recorder.statusChanged(finished(':jar', success(120, 150, false, false)))
+        // Nothing in the output tells which tasks executed
+        def result = new ToolingApiExecutionResult(new OutputScrapingExecutionResult(LogContent.of('BUILD SUCCESSFUL'), LogContent.empty(), true), recorder.executedTasks)
+
+        when:
+        result.assertTasksExecuted(':jar', ':compileJava')
+        result.assertTasksExecutedInOrder(':compileJava', ':jar')
+        result.assertTasksSkipped(':compileJava')
+        result.assertTaskNotSkipped(':jar')
+        result.assertTaskNotExecuted(':test')
+
+        then:
+        noExceptionThrown()
+
+        when:
+        result.assertTasksExecuted(':compileJava', ':test')
+
+        then:
+        def e = thrown(AssertionError)
+        e.message == """Build did not execute the expected tasks.
+            |Expected: [:compileJava, :test]
+            |Actual: [:compileJava, :jar]
+            |Tasks:
+            |======
+            |:compileJava UP_TO_DATE (10 ms)
+            |:jar SUCCESS (30 ms)""".stripMargin().replace('\n', System.lineSeparator())
+    }
+
+    def "asserts the failure from the output"() {
+        given:
+        recorder.statusChanged(started(':compileJava', 100))
+        recorder.statusChanged(finished(':compileJava', Stub(TaskFailureResult) { getStartTime() >> 100; getEndTime() >> 200 }))
+        def error = '''
+            |FAILURE: Build failed with an exception.
+            |
+            |* What went wrong:
+            |Execution failed for task ':compileJava'.
+            |> Compilation failed; see the compiler error output for details.
+            |
+            |* Try:
+            |Run with --stacktrace option to get the stack trace.
+            |'''.stripMargin()
+        def failure = new ToolingApiExecutionFailure(OutputScrapingExecutionFailure.from('', error), recorder.executedTasks)
+
+        when:
+        failure.assertHasDescription("Execution failed for task ':compileJava'.")
+        failure.assertHasCause('Compilation failed; see the compiler error output for details.')
+        failure.assertTasksExecuted(':compileJava')
+        failure.assertTasksNotSkipped(':compileJava')
+
+        then:
+        noExceptionThrown()
+    }
+
+    private TaskStartEvent started(String path, long time) {
+        def descriptor = descriptor(path)
+        return Stub(TaskStartEvent) {
+            getDescriptor() >> descriptor
+            getEventTime() >> time
+        }
+    }
+
+    private TaskFinishEvent finished(String path, TaskOperationResult result) {
+        def descriptor = descriptor(path)
+        return Stub(TaskFinishEvent) {
+            getDescriptor() >> descriptor
+            getResult() >> result
+        }
+    }
+
+    private TaskOperationDescriptor descriptor(String path) {
+        return Stub(TaskOperationDescriptor) {
+            getTaskPath() >> path
+        }
+    }
+
+    private TaskSkippedResult skipped(String skipMessage, long startTime, long endTime) {
+        return Stub(TaskSkippedResult) {
+            getSkipMessage() >> skipMessage
+            getStartTime() >> startTime
+            getEndTime() >> endTime
+        }
+    }
+
+    private TaskSuccessResult success(long startTime, long endTime, boolean upToDate, boolean fromCache) {
+        return Stub(TaskSuccessResult) {
+            isUpToDate() >> upToDate
+            isFromCache() >> fromCache
+            getStartTime() >> startTime
+            getEndTime() >> endTime
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package dev.gradleplugins.test.fixtures.gradle.executer.internal
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class AnsiStripperTest extends Specification {
+    private static final String ESC = '\u001B'
+
+    @Unroll
+    def "strips text attributes and erase to end of line [#line]"() {
+        expect:
+        AnsiStripper.strip(line)?.toString() == expected
+
+        where:
+        line                                          | expected
+        'plain text'                                  | 'plain text'
+        ''                                            | ''
+        "${ESC}[1m> Task :foo${ESC}[m"                | '> Task :foo'
+        "${ESC}[32;1mBUILD SUCCESSFUL${ESC}[0m in 1s" | 'BUILD SUCCESSFUL in 1s'
+        "${ESC}[0K${ESC}[K"                           | ''
+        'tab\tseparated'                              | 'tab\tseparated'
+    }
+
+    @Unroll
+    def "requires the console emulation for cursor movements and carriage returns [#line]"() {
+        expect:
+        AnsiStripper.strip(line) == null
+
+        where:
+        line << ["${ESC}[1A> Task :foo", "${ESC}[2K", "${ESC}[1K", "${ESC}[?25l", "${ESC}7", 'progress\rdone', "${ESC}[1"]
+    }
+
+    def "converts rich console output without text attributes to plain text"() {
+        def output = "${ESC}[0K\n${ESC}[1m> Task :foo${ESC}[m${ESC}[33m UP-TO-DATE${ESC}[m\n\n${ESC}[32;1mBUILD SUCCESSFUL${ESC}[0m in 1s\n"
+
+        expect:
+        LogContent.of(output).ansiCharsToPlainText().lines == ['', '> Task :foo UP-TO-DATE', '', 'BUILD SUCCESSFUL in 1s', '']
+    }
+}
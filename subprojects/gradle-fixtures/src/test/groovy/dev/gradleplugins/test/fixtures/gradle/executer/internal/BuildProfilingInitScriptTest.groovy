@@ -0,0 +1,71 @@
+package dev.gradleplugins.test.fixtures.gradle.executer.internal
+
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+class BuildProfilingInitScriptTest extends Specification {
+    @Rule
+    TemporaryFolder temporaryFolder = new TemporaryFolder()
+
+    def "reads the profile written by the init script"() {
+        given:
+        def profileFile = temporaryFolder.newFile('build-profile.tsv')
+        profileFile.text = [
+            'project\t:\t24',
+            'project\t:app\t282',
+            'task\t:app:compileJava\t69\tFROM_CACHE\t71393aabbb4dbbb7ac4ddfa1e803b4aa',
+            'task\t:app:processResources\t9\tNO_SOURCE\t',
+            'task\t:buildSrc:jar\t16\tSUCCESS\ted2644e90d297d5121bba6edc43017d5',
+            'task\t:app:ja', // truncated by a build that died
+        ].join('\n')
+
+        when:
+        def profile = BuildProfilingInitScript.read(profileFile)
+
+        then:
+        profile.projectConfigurations*.path == [':', ':app']
+        profile.getProjectConfiguration(':app').durationMillis == 282
+        profile.totalConfigurationTimeMillis == 306
+
+        and:
+        profile.taskExecutions*.path == [':app:compileJava', ':app:processResources', ':buildSrc:jar']
+        profile.getTaskExecution(':app:compileJava').outcome == 'FROM_CACHE'
+        profile.getTaskExecution(':app:compileJava').cacheKey == '71393aabbb4dbbb7ac4ddfa1e803b4aa'
+        profile.getTaskExecution(':app:processResources').cacheKey == null
+        profile.totalTaskExecutionTimeMillis == 94
+    }
+
+    def "fails on projects and tasks missing from the profile"() {
+        given:
+        def profileFile = temporaryFolder.newFile('build-profile.tsv')
+        profileFile.text = 'project\t:\t24\n'
+        def profile = BuildProfilingInitScript.read(profileFile)
+
+        when:
+        profile.getTaskExecution(':app:compileJava')
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message.startsWith("Task ':app:compileJava' was not executed by the build")
+
+        and:
+        !profile.findProjectConfiguration(':app').present
+    }
+
+    def "shares the init script between test JVMs"() {
+        expect:
+        BuildProfilingInitScript.get(temporaryFolder.root) == BuildProfilingInitScript.get(temporaryFolder.root)
+        BuildProfilingInitScript.get(temporaryFolder.root).text.contains("projectProperties['dev.gradleplugins.buildProfile']")
+    }
+
+    def "resolves the internal Gradle types by name, so a Gradle version lacking them still runs the build"() {
+        when:
+        def content = BuildProfilingInitScript.get(temporaryFolder.root).text
+
+        then:
+        !content.contains('import org.gradle.')
+        content.contains("'org.gradle.internal.operations.BuildOperationListenerManager'")
+        content.contains('logger.warn(')
+    }
+}
@@ -0,0 +1,32 @@
+package dev.gradleplugins.test.fixtures.gradle.executer.internal
+
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+class BuildSystemPropertiesInitScriptTest extends Specification {
+    @Rule
+    TemporaryFolder temporaryFolder = new TemporaryFolder()
+
+    def "sets the system properties from the init script"() {
+        given:
+        def initScript = BuildSystemPropertiesInitScript.of(temporaryFolder.root, ['dev.gradleplugins.test.path': 'C:\\Users\\it\'s me', 'dev.gradleplugins.test.other': '/tmp/m2'])
+
+        when:
+        new GroovyShell().evaluate(initScript)
+
+        then:
+        System.getProperty('dev.gradleplugins.test.path') == 'C:\\Users\\it\'s me'
+        System.getProperty('dev.gradleplugins.test.other') == '/tmp/m2'
+
+        cleanup:
+        System.clearProperty('dev.gradleplugins.test.path')
+        System.clearProperty('dev.gradleplugins.test.other')
+    }
+
+    def "shares the init script between identical system properties"() {
+        expect:
+        BuildSystemPropertiesInitScript.of(temporaryFolder.root, ['user.home': '/a']) == BuildSystemPropertiesInitScript.of(temporaryFolder.root, ['user.home': '/a'])
+        BuildSystemPropertiesInitScript.of(temporaryFolder.root, ['user.home': '/a']) != BuildSystemPropertiesInitScript.of(temporaryFolder.root, ['user.home': '/b'])
+    }
+}
@@ -0,0 +1,54 @@
+package dev.gradleplugins.test.fixtures.gradle.executer.internal
+
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+import java.time.Duration
+
+class BuildWatchdogTest extends Specification {
+    @Rule
+    TemporaryFolder temporaryFolder = new TemporaryFolder()
+    def watchdog = new BuildWatchdog()
+
+    def "does not time out builds completing in time"() {
+        given:
+        def watch = watchdog.watch(Duration.ofMinutes(1), temporaryFolder.root)
+
+        when:
+        watch.close()
+
+        then:
+        !watch.timedOut
+    }
+
+    def "never times out builds without timeout"() {
+        given:
+        def watch = watchdog.watch(null, temporaryFolder.root)
+
+        when:
+        watch.close()
+
+        then:
+        !watch.timedOut
+    }
+
+    def "dumps the threads of the test JVM when a build running in it times out"() {
+        given:
+        def watch = watchdog.watch(Duration.ofMillis(10), temporaryFolder.root)
+
+        when:
+        Thread.sleep(100)
+        watch.close()
+
+        then:
+        watch.timedOut
+
+        and:
+        def e = watch.toException()
+        e.timeout == Duration.ofMillis(10)
+        e.message.startsWith('Build did not complete within PT0.01S, it was killed along with its daemon.')
+        e.threadDumps.contains('Thread dump of the test JVM, running the Gradle client:')
+        e.threadDumps.contains("\"${Thread.currentThread().name}\"")
+    }
+}
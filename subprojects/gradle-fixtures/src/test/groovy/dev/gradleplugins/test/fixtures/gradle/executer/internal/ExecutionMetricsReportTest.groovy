@@ -0,0 +1,62 @@
+package dev.gradleplugins.test.fixtures.gradle.executer.internal
+
+import dev.gradleplugins.test.fixtures.gradle.executer.ExecutionMetrics
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+class ExecutionMetricsReportTest extends Specification {
+    @Rule
+    TemporaryFolder temporaryFolder = new TemporaryFolder()
+
+    def "aggregates the metrics per test class"() {
+        given:
+        def report = new ExecutionMetricsReport(temporaryFolder.root)
+
+        when:
+        report.record('com.example.FooTest', new ExecutionMetrics(1000L, 200L, false, 300_000_000L, 800L))
+        report.record('com.example.FooTest', new ExecutionMetrics(400L, 100L, true, 250_000_000L, 150L))
+        report.record('com.example.BarTest', new ExecutionMetrics(500L, null, null, null, null))
+
+        then:
+        new File(temporaryFolder.root, "com.example.FooTest-${report.@processId}.csv").readLines() == [
+            'testClass,invocation,wallTimeMillis,timeToFirstOutputMillis,daemonReused,peakResidentSetSizeBytes,cpuTimeMillis',
+            'com.example.FooTest,1,1000,200,false,300000000,800',
+            'com.example.FooTest,2,400,100,true,250000000,150',
+        ]
+        def json = new groovy.json.JsonSlurper().parse(new File(temporaryFolder.root, "com.example.FooTest-${report.@processId}.json"))
+        json.invocationCount == 2
+        json.totalWallTimeMillis == 1400
+        json.maxWallTimeMillis == 1000
+        json.daemonReusedCount == 1
+        json.totalCpuTimeMillis == 950
+        json.maxPeakResidentSetSizeBytes == 300_000_000
+        json.invocations*.daemonReused == [false, true]
+
+        and:
+        def otherJson = new groovy.json.JsonSlurper().parse(new File(temporaryFolder.root, "com.example.BarTest-${report.@processId}.json"))
+        otherJson.invocationCount == 1
+        otherJson.totalCpuTimeMillis == null
+        otherJson.invocations[0].timeToFirstOutputMillis == null
+    }
+
+    def "ignores the metrics without a report directory"() {
+        when:
+        new ExecutionMetricsReport(null).record('com.example.FooTest', new ExecutionMetrics(1000L, 200L, false, null, null))
+
+        then:
+        noExceptionThrown()
+    }
+
+    def "names each report after the test JVM writing it"() {
+        given:
+        def report = new ExecutionMetricsReport(temporaryFolder.root)
+
+        when:
+        report.record('com.example.FooTest', new ExecutionMetrics(1000L, 200L, false, null, null))
+
+        then:
+        temporaryFolder.root.list().sort() == ["com.example.FooTest-${report.@processId}.csv", "com.example.FooTest-${report.@processId}.json"]*.toString()
+        report.@processId ==~ /\d+/
+    }
+}
@@ -0,0 +1,229 @@
+package dev.gradleplugins.test.fixtures.gradle.executer.internal
+
+import org.gradle.util.TextUtil
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.util.regex.Matcher
+import java.util.regex.Pattern
+
+class FailureReportTest extends Specification {
+    def "parses a single failure"() {
+        when:
+        def report = FailureReport.parse(LogContent.of(SINGLE_FAILURE))
+
+        then:
+        report.summary == 'Build failed with an exception.'
+        report.locations == [new FailureReport.Location("Build file '/tmp/foo/build.gradle'", '3')]
+        report.descriptions == ["A problem occurred evaluating root project 'foo'."]
+        report.causes == ["Could not find method foo() for arguments [] on root project 'foo'."]
+        report.resolution == ''
+        report.exceptions == []
+    }
+
+    def "parses each failure of a build with multiple failures"() {
+        when:
+        def report = FailureReport.parse(LogContent.of(MULTIPLE_FAILURES))
+
+        then:
+        report.summary == 'Build completed with 2 failures.'
+        report.locations == [new FailureReport.Location("Build file '/tmp/foo/build.gradle'", '5')]
+        report.problems == [
+            new FailureReport.Problem("Execution failed for task ':a'.", ['boom a']),
+            new FailureReport.Problem("Execution failed for task ':b'.", ['boom b', 'nested cause\nspanning lines'])
+        ]
+    }
+
+    def "parses the resolution and the stack trace of a build run with --stacktrace"() {
+        when:
+        def report = FailureReport.parse(LogContent.of(WITH_STACKTRACE))
+
+        then:
+        report.descriptions == ["Execution failed for task ':compileJava'."]
+        report.causes == ['Compilation failed; see the compiler error output for details.']
+        report.locations == []
+        report.resolution == 'Run with --info or --debug option to get more log output. Run with --scan to get full insights.'
+        report.exceptions == ["org.gradle.api.tasks.TaskExecutionException: Execution failed for task ':compileJava'.\n\tat org.gradle.Foo.bar(Foo.java:42)\nCaused by: java.lang.RuntimeException: Compilation failed"]
+    }
+
+    def "parses the location of a file name spanning several lines"() {
+        when:
+        def report = FailureReport.parse(LogContent.of("FAILURE: Build failed with an exception.\n\n* Where:\nScript '/tmp/some\nscript.gradle' line: 12\n"))
+
+        then:
+        report.locations == [new FailureReport.Location("Script '/tmp/some\nscript.gradle'", '12')]
+    }
+
+    def "uses the first line number separator followed by a line number"() {
+        when:
+        def report = FailureReport.parse(LogContent.of("FAILURE: Build failed with an exception.\n\n* Where:\nBuild file '/tmp/it' line: 4/build.gradle' line: 7\n"))
+
+        then:
+        report.locations == [new FailureReport.Location("Build file '/tmp/it' line: 4/build.gradle'", '7')]
+    }
+
+    @Unroll
+    def "parses the same failure as the regular expressions it replaces [#name]"() {
+        expect:
+        parse(output) == parseWithRegex(output)
+
+        where:
+        name                  | output
+        'single failure'      | SINGLE_FAILURE
+        'multiple failures'   | MULTIPLE_FAILURES
+        'with stack trace'    | WITH_STACKTRACE
+        'without location'    | SINGLE_FAILURE.replace("* Where:\nBuild file '/tmp/foo/build.gradle' line: 3\n\n", '')
+        'no failure details'  | 'FAILURE: Build failed with an exception.\n'
+        'empty'               | ''
+    }
+
+    def "parses the same failures as the regular expressions it replaces for random outputs"() {
+        def vocabulary = [
+            'FAILURE: Build failed with an exception.', 'FAILURE: ', '', '* Where:', "* Where: Build file '/a/b.gradle' line: 3",
+            "Build file '/tmp/x y/build.gradle' line: 12", "Script 'x' line: 1a", "'' line: 2", "' line: 4", "x'", "'a' line: 4' line: 5",
+            '* What went wrong:', 'A problem occurred.', '> boom', '  > nested', '   more', '    > deep', ' ', '\t> tab', '* Try:',
+            'Run with --stacktrace.', '* Exception is:', 'java.lang.RuntimeException: x', '\tat foo', '* Get more help at https://help.gradle.org',
+            'BUILD FAILED in 1s', '1: Task failed with an exception.', '-----------', '==========', '    indented', '> ', '* What went wrong: x',
+            "a ' b", "'q' line: 99"
+        ]
+        def random = new Random(4242)
+
+        expect:
+        20000.times {
+            def output = new StringBuilder()
+            if (random.nextBoolean()) {
+                output.append('FAILURE: Build failed with an exception.\n')
+            }
+            random.nextInt(14).times {
+                output.append(vocabulary[random.nextInt(vocabulary.size())])
+                if (random.nextInt(6) > 0) {
+                    output.append('\n')
+                }
+            }
+            assert parse(output.toString()) == parseWithRegex(output.toString())
+        }
+    }
+
+    private static Map<String, Object> parse(String output) {
+        def report = FailureReport.parse(LogContent.of(output))
+        return [summary: report.summary, fileNames: report.locations*.fileName, lineNumbers: report.locations*.lineNumber, descriptions: report.descriptions, causes: report.causes, resolution: report.resolution]
+    }
+
+    // The regular expressions OutputScrapingExecutionFailure used before parsing the failure section in a single pass, kept as a reference
+    private static final Pattern FAILURE_PATTERN = Pattern.compile('FAILURE: (.+)')
+    private static final Pattern CAUSE_PATTERN = Pattern.compile('(?m)(^\\s*> )')
+    private static final Pattern DESCRIPTION_PATTERN = Pattern.compile('(?ms)^\\* What went wrong:$(.+?)^\\* Try:$')
+    private static final Pattern LOCATION_PATTERN = Pattern.compile("(?ms)^\\* Where:((.+?)'.+?') line: (\\d+)\$")
+    private static final Pattern RESOLUTION_PATTERN = Pattern.compile('(?ms)^\\* Try:$(.+?)^\\* Exception is:$')
+
+    private static Map<String, Object> parseWithRegex(String output) {
+        String failureText = LogContent.of(output).withNormalizedEol()
+        def result = [summary: '', fileNames: [], lineNumbers: [], descriptions: [], causes: [], resolution: '']
+
+        Matcher matcher = FAILURE_PATTERN.matcher(failureText)
+        if (matcher.lookingAt()) {
+            result.summary = matcher.group(1)
+        }
+
+        matcher = LOCATION_PATTERN.matcher(failureText)
+        while (matcher.find()) {
+            result.fileNames << matcher.group(1).trim()
+            result.lineNumbers << matcher.group(3)
+        }
+
+        matcher = DESCRIPTION_PATTERN.matcher(failureText)
+        while (matcher.find()) {
+            String problem = matcher.group(1)
+            Matcher causeMatcher = CAUSE_PATTERN.matcher(problem)
+            if (!causeMatcher.find()) {
+                result.descriptions << TextUtil.normaliseLineSeparators(problem.trim())
+                continue
+            }
+            result.descriptions << TextUtil.normaliseLineSeparators(problem.substring(0, causeMatcher.start()).trim())
+            while (true) {
+                int pos = causeMatcher.end()
+                String prefixPattern = '(?m)^' + ' ' * causeMatcher.group(1).length()
+                if (causeMatcher.find(pos)) {
+                    result.causes << TextUtil.normaliseLineSeparators(problem.substring(pos, causeMatcher.start()).trim().replaceAll(prefixPattern, ''))
+                } else {
+                    result.causes << TextUtil.normaliseLineSeparators(problem.substring(pos).trim().replaceAll(prefixPattern, ''))
+                    break
+                }
+            }
+        }
+
+        matcher = RESOLUTION_PATTERN.matcher(failureText)
+        if (matcher.find()) {
+            result.resolution = matcher.group(1).trim()
+        }
+        return result
+    }
+
+    private static final String SINGLE_FAILURE = '''FAILURE: Build failed with an exception.
+        |
+        |* Where:
+        |Build file '/tmp/foo/build.gradle' line: 3
+        |
+        |* What went wrong:
+        |A problem occurred evaluating root project 'foo'.
+        |> Could not find method foo() for arguments [] on root project 'foo'.
+        |
+        |* Try:
+        |Run with --stacktrace option to get the stack trace. Run with --info or --debug option to get more log output.
+        |
+        |* Get more help at https://help.gradle.org
+        |
+        |BUILD FAILED in 1s
+        |'''.stripMargin()
+
+    private static final String MULTIPLE_FAILURES = '''FAILURE: Build completed with 2 failures.
+        |
+        |1: Task failed with an exception.
+        |-----------
+        |* Where:
+        |Build file '/tmp/foo/build.gradle' line: 5
+        |
+        |* What went wrong:
+        |Execution failed for task ':a'.
+        |> boom a
+        |
+        |* Try:
+        |Run with --stacktrace option to get the stack trace.
+        |==============================================================================
+        |
+        |2: Task failed with an exception.
+        |-----------
+        |* What went wrong:
+        |Execution failed for task ':b'.
+        |> boom b
+        |  > nested cause
+        |    spanning lines
+        |
+        |* Try:
+        |Run with --stacktrace option to get the stack trace.
+        |==============================================================================
+        |
+        |* Get more help at https://help.gradle.org
+        |
+        |BUILD FAILED in 1s
+        |'''.stripMargin()
+
+    private static final String WITH_STACKTRACE = '''FAILURE: Build failed with an exception.
+        |
+        |* What went wrong:
+        |Execution failed for task ':compileJava'.
+        |> Compilation failed; see the compiler error output for details.
+        |
+        |* Try:
+        |Run with --info or --debug option to get more log output. Run with --scan to get full insights.
+        |
+        |* Exception is:
+        |org.gradle.api.tasks.TaskExecutionException: Execution failed for task ':compileJava'.
+        |\tat org.gradle.Foo.bar(Foo.java:42)
+        |Caused by: java.lang.RuntimeException: Compilation failed
+        |
+        |* Get more help at https://help.gradle.org
+        |
+        |BUILD FAILED in 1s
+        |'''.stripMargin()
+}
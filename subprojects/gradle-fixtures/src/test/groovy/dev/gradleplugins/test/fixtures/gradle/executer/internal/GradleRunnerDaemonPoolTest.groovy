@@ -0,0 +1,114 @@
+package dev.gradleplugins.test.fixtures.gradle.executer.internal
+
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+class GradleRunnerDaemonPoolTest extends Specification {
+    @Rule
+    TemporaryFolder temporaryFolder = new TemporaryFolder()
+
+    def "reuses the warm slot of a compatible invocation"() {
+        given:
+        def pool = new GradleRunnerDaemonPool(temporaryFolder.newFolder('pool'), 2)
+        def key = new GradleRunnerDaemonPool.Key('6.5', null, [], null)
+
+        when:
+        def first = pool.acquire(key)
+        first.close()
+        def second = pool.acquire(key)
+
+        then:
+        !first.warm
+        second.warm
+        second.testKitDirectory == first.testKitDirectory
+
+        cleanup:
+        pool.close()
+    }
+
+    def "leases different slots to concurrent and incompatible invocations"() {
+        given:
+        def pool = new GradleRunnerDaemonPool(temporaryFolder.newFolder('pool'), 3)
+        def key = new GradleRunnerDaemonPool.Key('6.5', null, [], null)
+
+        when:
+        def first = pool.acquire(key)
+        def concurrent = pool.acquire(key)
+        def otherJvmArguments = pool.acquire(new GradleRunnerDaemonPool.Key('6.5', '-Xmx1g', [], null))
+
+        then:
+        [first, concurrent, otherJvmArguments]*.testKitDirectory.unique().size() == 3
+        !concurrent.warm
+        !otherJvmArguments.warm
+
+        cleanup:
+        pool.close()
+    }
+
+    def "evicts the least recently used idle slot once full"() {
+        given:
+        def pool = new GradleRunnerDaemonPool(temporaryFolder.newFolder('pool'), 2)
+        def first = pool.acquire(new GradleRunnerDaemonPool.Key('6.5', null, [], null))
+        def second = pool.acquire(new GradleRunnerDaemonPool.Key('6.6', null, [], null))
+        first.close()
+        second.close()
+
+        when:
+        def lease = pool.acquire(new GradleRunnerDaemonPool.Key('6.7', null, [], null))
+
+        then:
+        lease.testKitDirectory == first.testKitDirectory
+        !lease.warm
+        pool.statistics.evictions == 1
+
+        cleanup:
+        pool.close()
+    }
+
+    def "never shares a slot with another pool of the same root directory until it is closed"() {
+        given:
+        def rootDirectory = temporaryFolder.newFolder('pool')
+        def pool = new GradleRunnerDaemonPool(rootDirectory, 1)
+        def otherPool = new GradleRunnerDaemonPool(rootDirectory, 1)
+        def key = new GradleRunnerDaemonPool.Key('6.5', null, [], null)
+
+        when:
+        def lease = pool.acquire(key)
+        lease.close()
+        def otherLease = otherPool.acquire(key)
+
+        then:
+        lease.testKitDirectory != otherLease.testKitDirectory
+
+        when:
+        pool.close()
+        otherPool.close()
+        def thirdPool = new GradleRunnerDaemonPool(rootDirectory, 1)
+
+        then:
+        thirdPool.acquire(key).testKitDirectory == lease.testKitDirectory
+
+        cleanup:
+        thirdPool?.close()
+    }
+
+    def "reports the daemon reuse of the pool"() {
+        given:
+        def reportDirectory = new File(temporaryFolder.root, 'report')
+        def pool = new GradleRunnerDaemonPool(temporaryFolder.newFolder('pool'), 2, reportDirectory)
+        def key = new GradleRunnerDaemonPool.Key('6.5', null, [], null)
+
+        when:
+        3.times { pool.acquire(key).close() }
+        pool.close()
+
+        then:
+        pool.statistics.builds == 3
+        pool.statistics.distinctKeys == 1
+        pool.statistics.hits == 2
+        def report = reportDirectory.listFiles().find { it.name.startsWith('daemon-reuse-') }.text
+        report.contains('builds: 3')
+        report.contains('distinct daemon keys: 1')
+    }
+}
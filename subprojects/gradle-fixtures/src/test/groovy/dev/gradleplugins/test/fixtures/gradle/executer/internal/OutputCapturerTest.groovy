@@ -0,0 +1,59 @@
+package dev.gradleplugins.test.fixtures.gradle.executer.internal
+
+import org.apache.commons.io.output.NullOutputStream
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.nio.charset.StandardCharsets
+
+class OutputCapturerTest extends Specification {
+    def cleanup() {
+        System.clearProperty(OutputCapturer.THRESHOLD_SYSPROP_NAME)
+    }
+
+    @Unroll
+    def "captures the same lines as splitting the whole output [threshold: #threshold]"() {
+        System.setProperty(OutputCapturer.THRESHOLD_SYSPROP_NAME, threshold.toString())
+        def capturer = new OutputCapturer(NullOutputStream.NULL_OUTPUT_STREAM, StandardCharsets.UTF_8)
+
+        when:
+        capture(capturer, output)
+
+        then:
+        capturer.output.lines == LogContent.of(output).lines
+        capturer.output.rawContent.lines == LogContent.of(output).rawContent.lines
+
+        where:
+        [output, threshold] << [
+            ['', 'single line', 'trailing line separator\n', 'windows\r\nline\r\nseparators\r\n', 'non-ascii é 日本\nchars', '\n\n\n', illegalAccessWarnings],
+            [1024, 0]
+        ].combinations()
+    }
+
+    def "strips Java illegal access warnings"() {
+        def capturer = new OutputCapturer(NullOutputStream.NULL_OUTPUT_STREAM, StandardCharsets.UTF_8)
+
+        when:
+        capture(capturer, illegalAccessWarnings)
+
+        then:
+        capturer.output.lines == ['> Task :foo', '> Task :bar', '']
+    }
+
+    private static void capture(OutputCapturer capturer, String output) {
+        def bytes = output.getBytes(StandardCharsets.UTF_8)
+        // Write in small chunks to split lines and multi-byte chars across writes
+        for (int i = 0; i < bytes.length; i += 3) {
+            capturer.outputStream.write(bytes, i, Math.min(3, bytes.length - i))
+        }
+    }
+
+    private static String getIllegalAccessWarnings() {
+        return '''> Task :foo
+            |WARNING: An illegal reflective access operation has occurred
+            |WARNING: Illegal reflective access by org.example.Foo
+            |WARNING: All illegal access operations will be denied in a future release
+            |> Task :bar
+            |'''.stripMargin()
+    }
+}
@@ -0,0 +1,66 @@
+package dev.gradleplugins.test.fixtures.gradle.executer.internal
+
+import spock.lang.Specification
+
+class OutputDiffTest extends Specification {
+    static OutputDiff diff(List<String> expected, List<String> actual) {
+        return OutputDiff.of(expected, actual, { [it] })
+    }
+
+    def "reports the minimal changes with their context"() {
+        def expected = ('a'..'k').toList()
+        def actual = ['a', 'b', 'X', 'c', 'd', 'e', 'f', 'g', 'h', 'j', 'k']
+
+        expect:
+        diff(expected, actual).toUnifiedDiff(false).readLines() == [
+            '--- expected',
+            '+++ actual',
+            '@@ -1,11 +1,11 @@',
+            ' a', ' b', '+X', ' c', ' d', ' e', ' f', ' g', ' h', '-i', ' j', ' k',
+        ]
+    }
+
+    def "can omit extra lines after the last expected line"() {
+        expect:
+        diff(['a', 'b'], ['a', 'X', 'b', 'c']).toUnifiedDiff(true).readLines() == ['--- expected', '+++ actual', '@@ -1,2 +1,3 @@', ' a', '+X', ' b']
+    }
+
+    def "matches each expected line to a distinct actual line in any order"() {
+        def unmatched = diff(['a', 'b', 'a', 'a'], ['b', 'a', 'c', 'a']).matchInAnyOrder()
+
+        expect:
+        unmatched.missingLines == ['a']
+        unmatched.extraLines == ['c']
+    }
+
+    def "matches actual lines through their normalized forms"() {
+        def unmatched = OutputDiff.of(['foo.Bar@12345'], ['foo.Bar@1f2e'], { [it, it.replaceAll('@\\p{XDigit}+', '@12345')] }).matchInAnyOrder()
+
+        expect:
+        unmatched.missingLines.empty
+        unmatched.extraLines.empty
+    }
+
+    def "moves a match to another actual line to match every expected line"() {
+        // 'A' matches both expected lines, 'B' only the first one
+        def unmatched = OutputDiff.of(['x', 'y'], ['A', 'B'], { it == 'A' ? ['x', 'y'] : ['x'] }).matchInAnyOrder()
+
+        expect:
+        unmatched.missingLines.empty
+        unmatched.extraLines.empty
+    }
+
+    def "moves matches along a chain of actual lines"() {
+        // Each actual line matches its own expected line and the next one, the greedy pass leaves the last expected line without a free actual line
+        def expected = ['e0', 'e1', 'e2', 'e3']
+        def actual = ['a0', 'a1', 'a2', 'a3', 'extra']
+        def unmatched = OutputDiff.of(expected, actual, {
+            int index = actual.indexOf(it)
+            index < 3 ? ["e${index + 1}".toString(), "e${index}".toString()] : index == 3 ? ['e0'] : []
+        }).matchInAnyOrder()
+
+        expect:
+        unmatched.missingLines.empty
+        unmatched.extraLines == ['extra']
+    }
+}
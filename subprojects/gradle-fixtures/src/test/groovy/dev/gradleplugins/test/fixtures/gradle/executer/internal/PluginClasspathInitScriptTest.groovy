@@ -0,0 +1,45 @@
+package dev.gradleplugins.test.fixtures.gradle.executer.internal
+
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+class PluginClasspathInitScriptTest extends Specification {
+    @Rule
+    TemporaryFolder temporaryFolder = new TemporaryFolder()
+
+    def "adds the plugin classpath to the settings classpath of the build"() {
+        given:
+        def directory = temporaryFolder.newFolder('init-scripts')
+        def classpath = [new File('/plugin/classes'), new File("/plugin/it's.jar")]
+
+        when:
+        def initScript = PluginClasspathInitScript.of(directory, classpath)
+
+        then:
+        initScript.text.contains("def pluginClasspath = files('/plugin/classes', '/plugin/it\\'s.jar')")
+        initScript.text.contains("settings.buildscript.dependencies.add('classpath', pluginClasspath)")
+
+        and:
+        PluginClasspathInitScript.of(directory, classpath) == initScript
+        PluginClasspathInitScript.of(directory, classpath.take(1)) != initScript
+    }
+
+    def "reads the implementation classpath of the plugin metadata"() {
+        given:
+        def pluginMetadata = temporaryFolder.newFile(PluginClasspathInitScript.PLUGIN_METADATA_FILE_NAME)
+        pluginMetadata.text = "implementation-classpath=/plugin/classes${File.pathSeparator}/plugin/resources\n"
+
+        expect:
+        PluginClasspathInitScript.readImplementationClasspath(pluginMetadata.toURI().toURL()) == [new File('/plugin/classes'), new File('/plugin/resources')]
+    }
+
+    def "fails when the plugin metadata is missing from the test runtime classpath"() {
+        when:
+        PluginClasspathInitScript.readImplementationClasspath(null)
+
+        then:
+        def e = thrown(IllegalStateException)
+        e.message == "Test runtime classpath does not contain plugin metadata file 'plugin-under-test-metadata.properties'."
+    }
+}
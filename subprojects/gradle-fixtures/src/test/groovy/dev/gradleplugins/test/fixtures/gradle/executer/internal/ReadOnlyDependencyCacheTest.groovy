@@ -0,0 +1,75 @@
+package dev.gradleplugins.test.fixtures.gradle.executer.internal
+
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+class ReadOnlyDependencyCacheTest extends Specification {
+    @Rule
+    TemporaryFolder temporaryFolder = new TemporaryFolder()
+
+    def "snapshots the dependency cache of the seed without the lock files"() {
+        given:
+        def seed = temporaryFolder.newFolder('seed')
+        def modulesDirectory = new File(seed, 'caches/modules-2')
+        new File(modulesDirectory, 'files-2.1/com.example/lib/1.0/0123').mkdirs()
+        new File(modulesDirectory, 'files-2.1/com.example/lib/1.0/0123/lib-1.0.jar').text = 'jar'
+        new File(modulesDirectory, 'metadata-2.97').mkdirs()
+        new File(modulesDirectory, 'metadata-2.97/module-metadata.bin').text = 'metadata'
+        new File(modulesDirectory, 'modules-2.lock').text = ''
+        new File(modulesDirectory, 'gc.properties').text = ''
+
+        when:
+        def snapshot = new ReadOnlyDependencyCache(seed, new File(temporaryFolder.root, 'read-only')).snapshot
+
+        then:
+        snapshot.fileCount == 2
+        snapshot.byteCount == 11
+        new File(snapshot.cacheDirectory, 'modules-2/files-2.1/com.example/lib/1.0/0123/lib-1.0.jar').text == 'jar'
+        new File(snapshot.cacheDirectory, 'modules-2/metadata-2.97/module-metadata.bin').text == 'metadata'
+        !new File(snapshot.cacheDirectory, 'modules-2/modules-2.lock').exists()
+        !new File(snapshot.cacheDirectory, 'modules-2/gc.properties').exists()
+    }
+
+    def "reuses the snapshot another test JVM of the suite completed"() {
+        given:
+        def seed = temporaryFolder.newFolder('seed')
+        def modulesDirectory = new File(seed, 'caches/modules-2')
+        new File(modulesDirectory, 'files-2.1/com.example/lib/1.0/0123').mkdirs()
+        new File(modulesDirectory, 'files-2.1/com.example/lib/1.0/0123/lib-1.0.jar').text = 'jar'
+        def cacheDirectory = new File(temporaryFolder.root, 'read-only')
+        def first = new ReadOnlyDependencyCache(seed, cacheDirectory).snapshot
+
+        when:
+        new File(modulesDirectory, 'files-2.1/com.example/lib/1.0/0123/lib-1.0.pom').text = 'pom'
+        def snapshot = new ReadOnlyDependencyCache(seed, cacheDirectory).snapshot
+
+        then:
+        snapshot == first
+        !new File(snapshot.cacheDirectory, 'modules-2/files-2.1/com.example/lib/1.0/0123/lib-1.0.pom').exists()
+    }
+
+    def "snapshots the dependency cache again when the previous snapshot is incomplete"() {
+        given:
+        def seed = temporaryFolder.newFolder('seed')
+        def modulesDirectory = new File(seed, 'caches/modules-2')
+        new File(modulesDirectory, 'files-2.1/com.example/lib/1.0/0123').mkdirs()
+        new File(modulesDirectory, 'files-2.1/com.example/lib/1.0/0123/lib-1.0.jar').text = 'jar'
+        def cacheDirectory = new File(temporaryFolder.root, 'read-only')
+        new File(cacheDirectory, 'modules-2/files-2.1/com.example/other/1.0/4567').mkdirs()
+        new File(cacheDirectory, 'modules-2/files-2.1/com.example/other/1.0/4567/other-1.0.jar').text = 'partial'
+
+        when:
+        def snapshot = new ReadOnlyDependencyCache(seed, cacheDirectory).snapshot
+
+        then:
+        snapshot.fileCount == 1
+        new File(snapshot.cacheDirectory, 'modules-2/files-2.1/com.example/lib/1.0/0123/lib-1.0.jar').text == 'jar'
+        !new File(snapshot.cacheDirectory, 'modules-2/files-2.1/com.example/other').exists()
+    }
+
+    def "has no snapshot without a dependency cache to seed from"() {
+        expect:
+        new ReadOnlyDependencyCache(temporaryFolder.newFolder('seed'), new File(temporaryFolder.root, 'read-only')).snapshot == null
+    }
+}
@@ -0,0 +1,164 @@
+package dev.gradleplugins.test.fixtures.gradle.executer.internal
+
+import dev.gradleplugins.test.fixtures.file.TestFile
+import dev.gradleplugins.test.fixtures.gradle.executer.ExecutionFailure
+import dev.gradleplugins.test.fixtures.gradle.executer.ExecutionResult
+import dev.gradleplugins.test.fixtures.gradle.executer.GradleExecuter
+import dev.gradleplugins.test.fixtures.gradle.executer.ScenarioSpec
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+import static dev.gradleplugins.test.fixtures.gradle.executer.ScenarioSpec.fails
+import static dev.gradleplugins.test.fixtures.gradle.executer.ScenarioSpec.succeeds
+
+class ScenarioBatchRunnerTest extends Specification {
+    @Rule
+    TemporaryFolder temporaryFolder = new TemporaryFolder()
+    TestFile testDirectory
+    GradleExecuter executer
+
+    def setup() {
+        testDirectory = new TestFile(temporaryFolder.newFolder('test'))
+        testDirectory.file('settings.gradle').text = "rootProject.name = 'batch'"
+        testDirectory.file('src/input.txt').text = 'input'
+        executer = new FakeGradleExecuter(testDirectory)
+        System.setProperty(ScenarioBatchRunner.PARALLELISM_SYSPROP_NAME, '4')
+    }
+
+    def cleanup() {
+        System.clearProperty(ScenarioBatchRunner.PARALLELISM_SYSPROP_NAME)
+    }
+
+    def "runs each scenario against its own copy of the test directory"() {
+        when:
+        def results = executer.runAll([succeeds('first', { it.withArgument('first') }), succeeds('second', { it.withArgument('second') })])
+
+        then:
+        results.assertAllSucceeded()
+        def firstDirectory = new File(results.get('first').result.output.readLines().find { it.startsWith('working directory: ') }.substring(19))
+        def secondDirectory = new File(results.get('second').result.output.readLines().find { it.startsWith('working directory: ') }.substring(19))
+        firstDirectory != secondDirectory
+        testDirectory.isSelfOrDescendent(firstDirectory)
+        new File(firstDirectory, 'src/input.txt').text == 'input'
+
+        and:
+        new File(firstDirectory, 'build-output.txt').text == 'first'
+        new File(secondDirectory, 'build-output.txt').text == 'second'
+        !testDirectory.file('build-output.txt').exists()
+    }
+
+    def "remaps the files of the configuration located inside the test directory"() {
+        given:
+        def settingsFile = testDirectory.file('other-settings.gradle')
+        settingsFile.text = ''
+        def outsideFile = temporaryFolder.newFile('outside.gradle')
+
+        when:
+        def results = executer.usingSettingsFile(settingsFile).usingInitScript(outsideFile).runAll([succeeds('scenario', { it })])
+
+        then:
+        def output = results.get('scenario').result.output
+        def scenarioDirectory = output.readLines().find { it.startsWith('working directory: ') }.substring(19)
+        output.contains("--settings-file ${scenarioDirectory}${File.separator}other-settings.gradle")
+        output.contains("--init-script ${outsideFile.absolutePath}")
+    }
+
+    def "keeps the submission order whatever the completion order"() {
+        when:
+        def results = executer.runAll([
+            succeeds('slow', { it.withArgument('sleep=400') }),
+            succeeds('medium', { it.withArgument('sleep=200') }),
+            succeeds('fast', { it.withArgument('sleep=0') }),
+        ])
+
+        then:
+        results.asMap().keySet()*.name == ['slow', 'medium', 'fast']
+    }
+
+    def "reports the scenarios that did not complete as expected without failing the others"() {
+        when:
+        def results = executer.runAll([
+            succeeds('succeeds', { it }),
+            fails('fails as expected', { it.withArgument('fail') }),
+            succeeds('fails unexpectedly', { it.withArgument('fail') }),
+            fails('succeeds unexpectedly', { it }),
+        ])
+
+        then:
+        results.get('succeeds').successful
+        results.get('fails as expected').successful
+        results.get('fails as expected').result instanceof ExecutionFailure
+        results.failures*.scenario*.name == ['fails unexpectedly', 'succeeds unexpectedly']
+
+        when:
+        results.assertAllSucceeded()
+
+        then:
+        def e = thrown(AssertionError)
+        e.message == "2 of 4 scenarios did not complete as expected: [fails unexpectedly, succeeds unexpectedly]"
+        e.suppressed.size() == 2
+    }
+
+    def "rejects scenarios with the same name"() {
+        when:
+        executer.runAll([succeeds('scenario', { it }), fails('scenario', { it })])
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == "Scenario names must be unique, 'scenario' is used more than once."
+    }
+
+    // Records what the build would see instead of running Gradle
+    static class FakeGradleExecuter extends AbstractGradleExecuter {
+        FakeGradleExecuter(TestFile testDirectory) {
+            super(null, testDirectory)
+        }
+
+        private FakeGradleExecuter(TestFile testDirectory, GradleExecuterConfiguration configuration) {
+            super(testDirectory, configuration)
+        }
+
+        @Override
+        protected GradleExecuter newInstance(TestFile testDirectory, GradleExecuterConfiguration configuration) {
+            return new FakeGradleExecuter(testDirectory, configuration)
+        }
+
+        @Override
+        GradleExecuter withDebuggerAttached() {
+            return this
+        }
+
+        @Override
+        GradleExecuter withPluginClasspath() {
+            return this
+        }
+
+        @Override
+        protected ExecutionResult doRun(ExecutionMetricsRecorder metrics, BuildWatchdog.Watch watch) {
+            String output = build()
+            if (configuration.arguments.contains('fail')) {
+                throw new AssertionError("Unexpected build execution failure")
+            }
+            return OutputScrapingExecutionResult.from(output, '')
+        }
+
+        @Override
+        protected ExecutionFailure doRunWithFailure(ExecutionMetricsRecorder metrics, BuildWatchdog.Watch watch) {
+            String output = build()
+            if (!configuration.arguments.contains('fail')) {
+                throw new AssertionError("Unexpected build execution success")
+            }
+            return OutputScrapingExecutionFailure.from(output, 'FAILURE: Build failed with an exception.')
+        }
+
+        private String build() {
+            String sleep = configuration.arguments.find { it.startsWith('sleep=') }
+            if (sleep != null) {
+                Thread.sleep(sleep.substring(6) as long)
+            }
+            new File(workingDirectory, 'build-output.txt').text = configuration.arguments.join(' ')
+            return "working directory: ${workingDirectory.absolutePath}\narguments: ${allArguments.join(' ')}\n"
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package dev.gradleplugins.test.fixtures.gradle.executer.internal
+
+import spock.lang.Specification
+
+import java.util.regex.Pattern
+
+class ScrapedTasksTest extends Specification {
+    def "scrapes the tasks in the order they started"() {
+        when:
+        def tasks = ScrapedTasks.of(LogContent.of('''> Task :compileJava
+            |compiling
+            |> Task :processResources NO-SOURCE
+            |> Task :lib:jar UP-TO-DATE
+            |> Task :test FAILED
+            |'''.stripMargin()), true)
+
+        then:
+        tasks.executedTasks == [':compileJava', ':processResources', ':lib:jar', ':test']
+        tasks.executedTasksInOrderStarted as List == [':compileJava', ':processResources', ':lib:jar', ':test']
+        tasks.skippedTasks as List == [':lib:jar', ':processResources']
+        tasks.notSkippedTasks as List == [':compileJava', ':test']
+    }
+
+    def "counts a task once when its status line follows its start line"() {
+        when:
+        def tasks = ScrapedTasks.of(LogContent.of('''> Task :foo
+            |> Task :bar
+            |> Task :foo UP-TO-DATE
+            |'''.stripMargin()), true)
+
+        then:
+        tasks.executedTasks == [':foo', ':bar']
+        tasks.skippedTasks as List == [':foo']
+        tasks.notSkippedTasks as List == [':bar']
+    }
+
+    def "ignores the lines that are not task status lines"() {
+        when:
+        def tasks = ScrapedTasks.of(LogContent.of('''> Task :foo
+            |:foo FOO
+            |output: with colon
+            |BUILD SUCCESSFUL
+            |'''.stripMargin()), true)
+
+        then:
+        tasks.executedTasks == [':foo']
+    }
+
+    def "excludes the buildSrc tasks when requested"() {
+        def content = LogContent.of('''> Task :buildSrc:compileJava
+            |> Task :buildSrc:jar UP-TO-DATE
+            |> Task :compileJava
+            |'''.stripMargin())
+
+        expect:
+        ScrapedTasks.of(content, true).executedTasks == [':buildSrc:compileJava', ':buildSrc:jar', ':compileJava']
+        ScrapedTasks.of(content, true).skippedTasks as List == [':buildSrc:jar']
+        ScrapedTasks.of(content, false).executedTasks == [':compileJava']
+        ScrapedTasks.of(content, false).skippedTasks.empty
+    }
+
+    def "returns immutable tasks"() {
+        def tasks = ScrapedTasks.of(LogContent.of('> Task :foo\n'), true)
+
+        when:
+        tasks.executedTasks.add(':bar')
+
+        then:
+        thrown(UnsupportedOperationException)
+
+        when:
+        tasks.skippedTasks.add(':bar')
+
+        then:
+        thrown(UnsupportedOperationException)
+    }
+
+    def "scrapes the same tasks as grepping each pattern over the output"() {
+        def vocabulary = [
+            '> Task :a', ':a', '> Task :a UP-TO-DATE', ':a SKIPPED', '> Task :b:c FAILED', ':buildSrc:x', '> Task :buildSrc:x UP-TO-DATE',
+            ':b:c  NO-SOURCE', ':a FOO', 'foo', ':x:y:z FROM-CACHE', '> Task :a ', ':a:b UP-TO-DATE SKIPPED', ':a\tSKIPPED', '', ':'
+        ]
+        def random = new Random(4242)
+
+        expect:
+        20000.times {
+            def content = LogContent.of((0..<random.nextInt(10)).collect { vocabulary[random.nextInt(vocabulary.size())] })
+            def includeBuildSrc = random.nextBoolean()
+            def tasks = ScrapedTasks.of(content, includeBuildSrc)
+            def executedTasks = grepTasks(content, includeBuildSrc, TASK_PATTERN).unique()
+            def skippedTasks = grepTasks(content, includeBuildSrc, SKIPPED_TASK_PATTERN) as SortedSet
+            assert tasks.executedTasks == executedTasks
+            assert tasks.executedTasksInOrderStarted as List == executedTasks
+            assert tasks.skippedTasks == skippedTasks
+            assert tasks.notSkippedTasks == (executedTasks as SortedSet) - skippedTasks
+        }
+    }
+
+    // The scraping OutputScrapingExecutionResult did for each query before the tasks were scraped once, kept as a reference
+    private static final Pattern SKIPPED_TASK_PATTERN = Pattern.compile("(> Task )?(:\\S+?(:\\S+?)*)\\s+((SKIPPED)|(UP-TO-DATE)|(NO-SOURCE)|(FROM-CACHE))")
+    private static final Pattern TASK_PATTERN = Pattern.compile("(> Task )?(:\\S+?(:\\S+?)*)((\\s+SKIPPED)|(\\s+UP-TO-DATE)|(\\s+FROM-CACHE)|(\\s+NO-SOURCE)|(\\s+FAILED)|(\\s*))")
+
+    private static List<String> grepTasks(LogContent content, boolean includeBuildSrc, Pattern pattern) {
+        List<String> tasks = []
+        List<String> taskStatusLines = []
+        content.eachLine { String line ->
+            def matcher = pattern.matcher(line)
+            if (matcher.matches()) {
+                String taskStatusLine = matcher.group().replace('> Task ', '')
+                String taskName = matcher.group(2)
+                if (!includeBuildSrc && taskName.startsWith(':buildSrc:')) {
+                    return
+                }
+                String previousTaskStatusLine = tasks.contains(taskName) ? taskStatusLines.get(tasks.lastIndexOf(taskName)) : ''
+                if (previousTaskStatusLine == taskName && taskStatusLine != taskName) {
+                    return
+                }
+                taskStatusLines.add(taskStatusLine)
+                tasks.add(taskName)
+            }
+        }
+        return tasks
+    }
+}
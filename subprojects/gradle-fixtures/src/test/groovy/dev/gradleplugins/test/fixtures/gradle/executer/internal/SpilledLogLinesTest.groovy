@@ -0,0 +1,54 @@
+package dev.gradleplugins.test.fixtures.gradle.executer.internal
+
+import spock.lang.Specification
+
+class SpilledLogLinesTest extends Specification {
+    def "reads the lines back from the spill file"() {
+        def lines = new SpilledLogLines()
+
+        when:
+        lines.append('first')
+        lines.append('')
+        lines.append('non-ascii é 日本')
+        lines.complete()
+
+        then:
+        lines == ['first', '', 'non-ascii é 日本']
+        lines.get(2) == 'non-ascii é 日本'
+        lines.get(0) == 'first'
+
+        cleanup:
+        lines?.close()
+    }
+
+    def "deletes the spill file when closed"() {
+        def lines = new SpilledLogLines()
+        lines.append('line')
+        lines.complete()
+        lines.get(0)
+
+        when:
+        lines.close()
+
+        then:
+        !lines.file.exists()
+
+        when:
+        lines.get(0)
+
+        then:
+        def e = thrown(IllegalStateException)
+        e.message == 'Spilled log lines are already closed.'
+    }
+
+    def "deletes the spill file when closed before being completed"() {
+        def lines = new SpilledLogLines()
+        lines.append('line')
+
+        when:
+        lines.close()
+
+        then:
+        !lines.file.exists()
+    }
+}
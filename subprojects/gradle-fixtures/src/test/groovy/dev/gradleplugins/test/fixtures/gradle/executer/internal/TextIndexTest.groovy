@@ -0,0 +1,84 @@
+package dev.gradleplugins.test.fixtures.gradle.executer.internal
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class TextIndexTest extends Specification {
+    @Unroll
+    def "finds the first occurrence once indexed [#text]"() {
+        def index = new TextIndex(text, 0, Integer.MAX_VALUE, 0)
+
+        expect:
+        patterns.every { index.contains(it) == text.contains(it) }
+        patterns.every { index.indexOf(it) == text.indexOf(it) }
+        index.@suffixArray.@suffixes != null
+
+        where:
+        text << ['', 'a', 'banana', '> Task :foo\nfoo output\n> Task :bar\nbar output\n\nBUILD SUCCESSFUL in 1s\n', 'aaaaaaaaaa', 'non-ascii é 日本\nchars']
+        patterns = ['', 'a', 'an', 'ana', 'nana', 'banana', 'bananas', 'x', '> Task', ':bar\nbar', 'output\n', 'BUILD SUCCESSFUL', 'aaaa', '日本', '\n']
+    }
+
+    @Unroll
+    def "finds the first occurrence within a prefix sharing the index [#prefix]"() {
+        def text = 'banana bandana'
+        def index = new TextIndex(text, 0, Integer.MAX_VALUE, 0).forPrefix(prefix)
+
+        expect:
+        patterns.every { index.indexOf(it) == prefix.indexOf(it) }
+        index.text == prefix
+
+        where:
+        prefix << ['', 'ban', 'banana', 'banana band', text]
+        patterns = ['', 'a', 'an', 'ana', 'band', 'bandana', 'nan', 'x']
+    }
+
+    def "indexes a prefix on its own when it doesn't start the text"() {
+        def index = new TextIndex('banana', 0, Integer.MAX_VALUE, 0)
+
+        when:
+        def other = index.forPrefix('bandana')
+
+        then:
+        !other.@suffixArray.is(index.@suffixArray)
+        other.indexOf('dan') == 3
+    }
+
+    def "indexes the text only once it was scanned a few times"() {
+        def index = new TextIndex('a' * TextIndex.MIN_INDEXED_TEXT_LENGTH)
+
+        when:
+        TextIndex.SCANS_BEFORE_INDEXING.times { index.contains('aa') }
+
+        then:
+        index.@suffixArray.@suffixes == null
+
+        when:
+        index.contains('aa')
+
+        then:
+        index.@suffixArray.@suffixes != null
+    }
+
+    def "indexes the text by its length"() {
+        def shortText = new TextIndex('a' * (TextIndex.MIN_INDEXED_TEXT_LENGTH - 1), TextIndex.MIN_INDEXED_TEXT_LENGTH, TextIndex.MAX_INDEXED_TEXT_LENGTH, 0)
+        def longText = new TextIndex('a' * TextIndex.MIN_INDEXED_TEXT_LENGTH, TextIndex.MIN_INDEXED_TEXT_LENGTH, TextIndex.MAX_INDEXED_TEXT_LENGTH, 0)
+        def tooLongText = new TextIndex('a' * (TextIndex.MAX_INDEXED_TEXT_LENGTH + 1), TextIndex.MIN_INDEXED_TEXT_LENGTH, TextIndex.MAX_INDEXED_TEXT_LENGTH, 0)
+
+        when:
+        shortText.contains('aa')
+        longText.contains('aa')
+        tooLongText.contains('aa')
+
+        then:
+        shortText.@suffixArray.@suffixes == null
+        longText.@suffixArray.@suffixes != null
+        tooLongText.@suffixArray.@suffixes == null
+    }
+
+    def "sorts the suffixes"() {
+        def text = 'mississippi'
+
+        expect:
+        TextIndex.suffixArray(text).collect { text.substring(it) } == (0..text.length()).collect { text.substring(it) }.sort()
+    }
+}
@@ -0,0 +1,161 @@
+package dev.gradleplugins.test.fixtures.gradle.logging
+
+import dev.gradleplugins.test.fixtures.gradle.executer.internal.LogContent
+import org.apache.commons.lang3.StringUtils
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.util.regex.Matcher
+import java.util.regex.Pattern
+
+class GroupedOutputFixtureTest extends Specification {
+    def "groups the output of each task up to the next task header"() {
+        when:
+        def fixture = new GroupedOutputFixture(LogContent.of('''> Task :compileJava
+            |compiling
+            |
+            |> Task :processResources NO-SOURCE
+            |> Task :lib:test FAILED
+            |running tests
+            |more tests
+            |'''.stripMargin()))
+
+        then:
+        fixture.taskCount == 3
+        fixture.task(':compileJava').output == 'compiling'
+        fixture.task(':compileJava').outcome == null
+        fixture.task(':processResources').output == ''
+        fixture.task(':processResources').outcome == 'NO-SOURCE'
+        fixture.task(':lib:test').output == 'running tests\nmore tests'
+        fixture.task(':lib:test').outcome == 'FAILED'
+    }
+
+    @Unroll
+    def "ends the grouped output right before #end"() {
+        when:
+        def fixture = new GroupedOutputFixture(LogContent.of("> Task :foo\nfoo output\nprefix ${end}\nafter\n"))
+
+        then:
+        fixture.task(':foo').output == 'foo output\nprefix '
+
+        where:
+        end << ['BUILD SUCCESSFUL in 1s', 'BUILD FAILED in 1s', '3 actionable tasks: 3 executed', '> :buildSrc > :compileJava', '> Transform file foo.txt with Bar']
+    }
+
+    def "groups the output of each transformation"() {
+        when:
+        def fixture = new GroupedOutputFixture(LogContent.of('''> Transform artifact foo.jar (project :foo) with Minify
+            |minifying
+            |> Transform file bar.jar with Minify
+            |> Task :compileJava
+            |'''.stripMargin()))
+
+        then:
+        fixture.transformationCount == 2
+        fixture.subjectsFor('Minify') == ['foo.jar (project :foo)', 'bar.jar'] as Set
+        fixture.taskCount == 1
+    }
+
+    def "joins the outputs of a task grouped several times"() {
+        when:
+        def fixture = new GroupedOutputFixture(LogContent.of('''> Task :foo
+            |first
+            |> Task :bar
+            |> Task :foo
+            |second
+            |'''.stripMargin()))
+
+        then:
+        fixture.taskCount == 2
+        fixture.task(':foo').output == 'first\nsecond'
+    }
+
+    def "fails when the outcome of a task is grouped several times"() {
+        when:
+        new GroupedOutputFixture(LogContent.of('''> Task :foo UP-TO-DATE
+            |> Task :foo UP-TO-DATE
+            |'''.stripMargin()))
+
+        then:
+        def e = thrown(AssertionError)
+        e.message == ':foo task\'s outcome is set twice!'
+    }
+
+    def "does not treat the last line as a header"() {
+        when:
+        def fixture = new GroupedOutputFixture(LogContent.of('> Task :foo\nfoo output\n> Task :bar'))
+
+        then:
+        !fixture.hasTask(':bar')
+        fixture.task(':foo').output == 'foo output\n> Task :bar'
+    }
+
+    def "reports missing tasks with the original output"() {
+        when:
+        new GroupedOutputFixture(LogContent.of('> Task :foo\n')).task(':bar')
+
+        then:
+        def e = thrown(AssertionError)
+        e.message.startsWith("The grouped output for task ':bar' could not be found.")
+    }
+
+    def "groups the same outputs as the regular expressions it replaces"() {
+        def vocabulary = [
+            '> Task :a', '> Task :b UP-TO-DATE', '> Task :c:d FAILED', 'x> Task :e', '> Task :aUP-TO-DATE', '> Task :a ',
+            '> Task :b SKIPPED extra', '', '', ' ', 'output line', 'more output', '> Transform artifact foo.jar with Bar',
+            '> Transform file x with y with z', '> Transform file a with > Task :q', 'BUILD SUCCESSFUL in 1s', 'BUILD FAILED',
+            '3 actionable tasks: 3 executed', '1 actionable task:', '> :buildSrc > :compileJava', '> : > x', '> Task',
+            'foo BUILD SUCCESSFUL', 'x 12 actionable tasks: 2', 'a > :b > c', 'pre > Transform file q with r',
+            'BUILD FAILED > Task :z', 'x 1 actionable task: > Transform file q with r', '\t> Task :t:u NO-SOURCE'
+        ]
+        def random = new Random(4242)
+
+        expect:
+        20000.times {
+            def lines = (0..<random.nextInt(12)).collect { vocabulary[random.nextInt(vocabulary.size())] }
+            def output = lines.join('\n') + (random.nextBoolean() ? '\n' : '')
+            assert groupsOf { new GroupedOutputFixture(LogContent.of(output)) } == groupsOf { new RegexGroupedOutput(LogContent.of(output)) }
+        }
+    }
+
+    private static String groupsOf(Closure<?> parse) {
+        def fixture
+        try {
+            fixture = parse()
+        } catch (AssertionError e) {
+            return e.message
+        }
+        def tasks = fixture.@tasks.collect { name, task -> "task ${name} ${task.outcome} ${task.@outputs}" }
+        def transformations = fixture.@transformations.collect { key, transformation -> "transformation ${key} ${transformation.@outputs}" }
+        return (tasks + transformations).sort().join('\n')
+    }
+
+    // The regular expressions GroupedOutputFixture used before parsing the lines in a single pass, kept as a reference
+    static class RegexGroupedOutput {
+        private final static String TASK_HEADER = "> Task (:[\\w:]*) ?(FAILED|FROM-CACHE|UP-TO-DATE|SKIPPED|NO-SOURCE)?\\n"
+        private final static String TRANSFORMATION_HEADER = "> Transform (artifact|file) ([^\\n]+) with ([^\\n]+)\\n"
+        private final static String END_OF_GROUPED_OUTPUT = TASK_HEADER + "|" + TRANSFORMATION_HEADER + "|BUILD SUCCESSFUL|BUILD FAILED|> :\\w* > [:\\w]+|[0-9]+ actionable tasks?:|\\z"
+        private final Map<String, GroupedTaskFixture> tasks = [:]
+        private final Map<String, GroupedTransformationFixture> transformations = [:]
+
+        RegexGroupedOutput(LogContent output) {
+            String strippedOutput = output.ansiCharsToPlainText().withNormalizedEol()
+            Matcher taskMatcher = patternForHeader(TASK_HEADER).matcher(strippedOutput)
+            while (taskMatcher.find()) {
+                def task = tasks.computeIfAbsent(taskMatcher.group(1)) { new GroupedTaskFixture(it) }
+                task.addOutput(StringUtils.strip(taskMatcher.group(3), "\n"))
+                task.setOutcome(taskMatcher.group(2))
+            }
+            Matcher transformationMatcher = patternForHeader(TRANSFORMATION_HEADER).matcher(strippedOutput)
+            while (transformationMatcher.find()) {
+                def key = "${transformationMatcher.group(1)};${transformationMatcher.group(2)};${transformationMatcher.group(3)}".toString()
+                def transformation = transformations.computeIfAbsent(key) { new GroupedTransformationFixture(transformationMatcher.group(1), transformationMatcher.group(2), transformationMatcher.group(3)) }
+                transformation.addOutput(StringUtils.strip(transformationMatcher.group(4), "\n"))
+            }
+        }
+
+        private static Pattern patternForHeader(String header) {
+            return Pattern.compile("(?ms)" + header + "([\\s\\S]*?(?=[^\\n]*?" + END_OF_GROUPED_OUTPUT + "))")
+        }
+    }
+}
@@ -16,6 +16,7 @@ import org.gradle.api.provider.Property;
 import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.TaskContainer;
+import org.gradle.api.tasks.TaskProvider;
 import org.gradle.api.tasks.testing.Test;
 import org.gradle.plugin.devel.tasks.PluginUnderTestMetadata;
 
@@ -31,6 +32,7 @@ public abstract class GradlePluginDevelopmentTestSuiteInternal implements Gradle
     @Getter private final String name;
     @Getter private final SourceSet sourceSet;
     @Getter private final List<Action<? super Test>> testTaskActions = new ArrayList<>();
+    @Getter private final List<TaskProvider<Test>> testTaskProviders = new ArrayList<>();
 
     @Inject
     protected abstract ObjectFactory getObjects();
@@ -0,0 +1,80 @@
+package dev.gradleplugins.internal;
+
+import dev.gradleplugins.internal.versions.GradleVersionsService;
+import org.gradle.util.GradleVersion;
+import org.gradle.util.VersionNumber;
+
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Computes the Gradle versions a functional test task runs against, the same way {@code GradleCompatibilityTestRunner} selects them from the test JVM system properties.
+ */
+public final class GradleVersionCoverage {
+    public static final String VERSIONS_SYSPROP_NAME = "dev.gradleplugins.gradleVersions";
+    public static final String MINIMUM_VERSION_SYSPROP_NAME = "dev.gradleplugins.minimumGradleVersion";
+    private static final String DEFAULT = "default";
+    private static final String LATEST_NIGHTLY = "latestNightly";
+    private static final String LATEST_MINOR = "latestMinor";
+    private static final String MINIMUM = "minimum";
+    private static final String FULL = "all";
+    private final GradleVersionsService versionsService;
+    private List<GradleVersion> allReleasedVersions = null;
+
+    public GradleVersionCoverage(GradleVersionsService versionsService) {
+        this.versionsService = versionsService;
+    }
+
+    /**
+     * Returns the versions selected by the coverage selector.
+     *
+     * @param selector a coverage context such as {@code all} or {@code latestMinor}, or a comma separated list of coverage contexts and versions
+     * @param minimumVersion the minimum Gradle version supported by the plugin under test
+     * @return the selected versions, never null
+     */
+    public Set<String> versionsFor(String selector, String minimumVersion) {
+        GradleVersion minimumGradleVersion = GradleVersion.version(minimumVersion);
+        Set<String> result = new LinkedHashSet<>();
+        for (String candidate : selector.split(",")) {
+            String criteria = candidate.trim();
+            switch (criteria) {
+                case DEFAULT:
+                case MINIMUM:
+                    result.add(minimumGradleVersion.getVersion());
+                    break;
+                case LATEST_NIGHTLY:
+                    result.add(versionsService.getNightly().getVersion());
+                    break;
+                case LATEST_MINOR:
+                    result.addAll(getLatestMinorVersions(minimumGradleVersion));
+                    break;
+                case FULL:
+                    result.addAll(getAllVersions(minimumGradleVersion));
+                    break;
+                default:
+                    getAllVersions(minimumGradleVersion).stream().filter(it -> GradleVersion.version(it).equals(GradleVersion.version(criteria))).forEach(result::add);
+            }
+        }
+        return result;
+    }
+
+    private List<String> getLatestMinorVersions(GradleVersion minimumGradleVersion) {
+        Map<Integer, List<GradleVersion>> groupedGradleReleases = getAllReleasedVersions().stream().filter(it -> it.compareTo(minimumGradleVersion) >= 0).collect(Collectors.groupingBy(it -> VersionNumber.parse(it.getVersion()).getMajor()));
+        return groupedGradleReleases.values().stream().map(it -> it.stream().max(Comparator.naturalOrder()).get()).sorted().map(GradleVersion::getVersion).collect(Collectors.toList());
+    }
+
+    private List<String> getAllVersions(GradleVersion minimumGradleVersion) {
+        return getAllReleasedVersions().stream().filter(it -> it.compareTo(minimumGradleVersion) >= 0).sorted().map(GradleVersion::getVersion).collect(Collectors.toList());
+    }
+
+    private List<GradleVersion> getAllReleasedVersions() {
+        if (allReleasedVersions == null) {
+            allReleasedVersions = versionsService.getAll().stream().filter(it -> !it.isSnapshot() && (it.getRcFor() == null || it.getRcFor().isEmpty())).map(it -> GradleVersion.version(it.getVersion())).collect(Collectors.toList());
+        }
+        return allReleasedVersions;
+    }
+}
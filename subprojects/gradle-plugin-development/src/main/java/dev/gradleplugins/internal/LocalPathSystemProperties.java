@@ -0,0 +1,36 @@
+package dev.gradleplugins.internal;
+
+import org.gradle.api.tasks.Internal;
+import org.gradle.process.CommandLineArgumentProvider;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Passes system properties pointing to local directories to the test JVMs.
+ * Unlike {@code Test#systemProperty}, the absolute paths aren't task inputs, so they don't prevent the test results from being reused from the build cache by another checkout or Gradle user home.
+ */
+public final class LocalPathSystemProperties implements CommandLineArgumentProvider {
+    private final Map<String, File> systemProperties = new LinkedHashMap<>();
+
+    public LocalPathSystemProperties systemProperty(String name, File path) {
+        systemProperties.put(name, path);
+        return this;
+    }
+
+    @Internal
+    public Map<String, File> getSystemProperties() {
+        return Collections.unmodifiableMap(systemProperties);
+    }
+
+    @Override
+    public Iterable<String> asArguments() {
+        List<String> result = new ArrayList<>();
+        systemProperties.forEach((name, path) -> result.add("-D" + name + "=" + path.getAbsolutePath()));
+        return result;
+    }
+}
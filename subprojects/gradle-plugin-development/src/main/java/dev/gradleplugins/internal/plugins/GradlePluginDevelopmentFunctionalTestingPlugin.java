@@ -3,18 +3,48 @@ package dev.gradleplugins.internal.plugins;
 import dev.gradleplugins.GradlePluginDevelopmentCompatibilityExtension;
 import dev.gradleplugins.GradlePluginDevelopmentTestSuite;
 import dev.gradleplugins.internal.GradlePluginDevelopmentTestSuiteInternal;
+import dev.gradleplugins.internal.GradleVersionCoverage;
+import dev.gradleplugins.internal.LocalPathSystemProperties;
+import dev.gradleplugins.internal.distributions.InstalledGradleDistributionLocator;
+import dev.gradleplugins.internal.tasks.PrefetchGradleDistributionsTask;
+import dev.gradleplugins.internal.versions.GradleVersionsService;
 import lombok.val;
+import org.gradle.api.Action;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
+import org.gradle.api.Task;
 import org.gradle.api.plugins.ExtensionAware;
 import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.SourceSetContainer;
+import org.gradle.api.tasks.TaskProvider;
+import org.gradle.api.tasks.testing.Test;
+import org.gradle.language.base.plugins.LifecycleBasePlugin;
 import org.gradle.plugin.devel.GradlePluginDevelopmentExtension;
+import org.gradle.util.GUtil;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import static dev.gradleplugins.internal.GradleVersionCoverage.MINIMUM_VERSION_SYSPROP_NAME;
+import static dev.gradleplugins.internal.GradleVersionCoverage.VERSIONS_SYSPROP_NAME;
 
 public abstract class GradlePluginDevelopmentFunctionalTestingPlugin implements Plugin<Project> {
     private static final String FUNCTIONAL_TEST_NAME = "functionalTest";
+    private static final String PREFETCH_GRADLE_DISTRIBUTIONS_TASK_NAME = "prefetchGradleDistributions";
+    private static final String DISTRIBUTIONS_DIR_SYSPROP_NAME = "dev.gradleplugins.gradleDistributionsDir";
+    private static final String DEFAULT_GRADLE_VERSION_SYSPROP_NAME = "dev.gradleplugins.defaultGradleVersion";
+    private static final String DAEMON_REUSE_REPORT_DIR_SYSPROP_NAME = "dev.gradleplugins.daemonReuseReportDirectory";
+    private static final String DEPENDENCY_CACHE_SEED_SYSPROP_NAME = "dev.gradleplugins.dependencyCacheSeed";
+    private static final String DEPENDENCY_CACHE_DIR_SYSPROP_NAME = "dev.gradleplugins.dependencyCacheDirectory";
+    private static final String DEPENDENCY_CACHE_REPORT_DIR_SYSPROP_NAME = "dev.gradleplugins.dependencyCacheReportDirectory";
+    private static final String EXECUTION_METRICS_REPORT_DIR_SYSPROP_NAME = "dev.gradleplugins.executionMetricsReportDirectory";
+    private static final int DEFAULT_MAX_PARALLEL_DOWNLOADS = 4;
 
     @Override
     public void apply(Project project) {
@@ -41,5 +71,92 @@ public abstract class GradlePluginDevelopmentFunctionalTestingPlugin implements
 
         project.getComponents().add(functionalTestSuite);
         project.getExtensions().add(GradlePluginDevelopmentTestSuite.class, FUNCTIONAL_TEST_NAME, functionalTestSuite);
+
+        createPrefetchGradleDistributionsTask(project, functionalTestSuite);
+
+        functionalTestSuite.getTestTasks().configureEach(task -> {
+            val systemProperties = new LocalPathSystemProperties();
+            task.getJvmArgumentProviders().add(systemProperties);
+
+            // Each test JVM reports how well its builds reused the Gradle daemons
+            systemProperties.systemProperty(DAEMON_REUSE_REPORT_DIR_SYSPROP_NAME, new File(project.getBuildDir(), "reports/daemon-reuse/" + task.getName()));
+
+            // Builds with their own Gradle user home start from the dependencies this build already downloaded
+            systemProperties.systemProperty(DEPENDENCY_CACHE_SEED_SYSPROP_NAME, project.getGradle().getGradleUserHomeDir());
+            // Snapshotted once for all the test JVMs, and again on each run as the seed may have changed since
+            val dependencyCacheDirectory = new File(project.getBuildDir(), "tmp/" + task.getName() + "/read-only-dependency-cache");
+            systemProperties.systemProperty(DEPENDENCY_CACHE_DIR_SYSPROP_NAME, dependencyCacheDirectory);
+            systemProperties.systemProperty(DEPENDENCY_CACHE_REPORT_DIR_SYSPROP_NAME, new File(project.getBuildDir(), "reports/read-only-dependency-cache/" + task.getName()));
+
+            // Next to the test results, and like them, only for the latest run
+            val executionMetricsDirectory = new File(task.getReports().getJunitXml().getDestination(), "execution-metrics");
+            systemProperties.systemProperty(EXECUTION_METRICS_REPORT_DIR_SYSPROP_NAME, executionMetricsDirectory);
+            // Not a lambda, so the task action stays cacheable
+            task.doFirst(new Action<Task>() {
+                @Override
+                public void execute(Task it) {
+                    it.getProject().delete(executionMetricsDirectory, dependencyCacheDirectory);
+                }
+            });
+        });
+    }
+
+    private void createPrefetchGradleDistributionsTask(Project project, GradlePluginDevelopmentTestSuiteInternal functionalTestSuite) {
+        // Shared by every build, concurrent installations are serialized by the distribution directories' lock
+        val distributionsDirectory = new File(project.getGradle().getGradleUserHomeDir(), "caches/dev.gradleplugins/gradle-distributions");
+        val coverage = new GradleVersionCoverage(GradleVersionsService.getDefault());
+        val prefetchTask = project.getTasks().register(PREFETCH_GRADLE_DISTRIBUTIONS_TASK_NAME, PrefetchGradleDistributionsTask.class, task -> {
+            task.setGroup(LifecycleBasePlugin.VERIFICATION_GROUP);
+            task.setDescription("Downloads the Gradle distributions the " + GUtil.toWords(FUNCTIONAL_TEST_NAME) + "s run against.");
+            task.getDistributionsDirectory().set(distributionsDirectory);
+            task.getWrapperDistributionsDirectory().set(new File(project.getGradle().getGradleUserHomeDir(), "wrapper/dists"));
+            task.getMirrorDirectories().from((Callable<List<File>>) () -> {
+                List<File> result = new ArrayList<>();
+                for (TaskProvider<Test> testTask : functionalTestSuite.getTestTaskProviders()) {
+                    result.addAll(mirrorDirectories(testTask.get()));
+                }
+                return result;
+            });
+            task.getMaxParallelDownloads().convention(DEFAULT_MAX_PARALLEL_DOWNLOADS);
+            task.getGradleVersions().set(project.provider(() -> {
+                Set<String> result = new HashSet<>();
+                for (TaskProvider<Test> testTask : functionalTestSuite.getTestTaskProviders()) {
+                    result.addAll(gradleVersionsUnderTest(coverage, testTask.get(), functionalTestSuite));
+                }
+                return result;
+            }));
+        });
+
+        functionalTestSuite.getTestTasks().configureEach(task -> {
+            // A single version is as fast to download lazily, the prefetch only pays off when several versions are covered
+            task.dependsOn((Callable<Object>) () -> prefetchTask.get().getGradleVersions().get().size() > 1 ? prefetchTask : Collections.emptyList());
+            task.getJvmArgumentProviders().add(new LocalPathSystemProperties().systemProperty(DISTRIBUTIONS_DIR_SYSPROP_NAME, distributionsDirectory));
+        });
+    }
+
+    private static List<File> mirrorDirectories(Test testTask) {
+        val result = new ArrayList<File>();
+        val mirrors = testTask.getSystemProperties().get(InstalledGradleDistributionLocator.MIRRORS_SYSPROP_NAME);
+        if (mirrors != null) {
+            for (String mirror : mirrors.toString().split(File.pathSeparator)) {
+                if (!mirror.isEmpty()) {
+                    result.add(new File(mirror));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Set<String> gradleVersionsUnderTest(GradleVersionCoverage coverage, Test testTask, GradlePluginDevelopmentTestSuiteInternal testSuite) {
+        val result = new HashSet<String>();
+        // The version the testing strategy runs the specifications not using the compatibility runner against
+        Optional.ofNullable(testTask.getSystemProperties().get(DEFAULT_GRADLE_VERSION_SYSPROP_NAME)).map(Object::toString).ifPresent(result::add);
+
+        val selector = Optional.ofNullable(testTask.getSystemProperties().get(VERSIONS_SYSPROP_NAME)).map(Object::toString).orElse("default");
+        val minimumVersion = Optional.ofNullable(testTask.getSystemProperties().get(MINIMUM_VERSION_SYSPROP_NAME)).map(Object::toString);
+        // Nothing to select without knowing where the coverage starts
+        val coverageStart = minimumVersion.isPresent() ? minimumVersion : Optional.ofNullable(testSuite.getTestedGradlePlugin().get().getMinimumGradleVersion().getOrNull());
+        coverageStart.ifPresent(it -> result.addAll(coverage.versionsFor(selector, it)));
+        return result;
     }
 }
@@ -3,7 +3,7 @@ package dev.gradleplugins.internal.plugins;
 import dev.gradleplugins.GradlePluginTestingStrategy;
 import dev.gradleplugins.internal.GradlePluginDevelopmentTestSuiteInternal;
 import dev.gradleplugins.internal.GradlePluginTestingStrategyInternal;
-import dev.gradleplugins.internal.ReleasedVersionDistributions;
+import dev.gradleplugins.internal.versions.GradleVersionsService;
 import org.apache.commons.lang3.StringUtils;
 import org.gradle.api.Action;
 import org.gradle.api.Plugin;
@@ -77,10 +77,10 @@ public abstract class GradlePluginDevelopmentTestingBasePlugin implements Plugin
                     version = testSuite.getTestedGradlePlugin().get().getMinimumGradleVersion().get();
                     break;
                 case LATEST_NIGHTLY:
-                    version = new ReleasedVersionDistributions().getMostRecentSnapshot().getVersion();
+                    version = GradleVersionsService.getDefault().getNightly().getVersion();
                     break;
                 case LATEST_GLOBAL_AVAILABLE:
-                    version = new ReleasedVersionDistributions().getMostRecentRelease().getVersion();
+                    version = GradleVersionsService.getDefault().getCurrent().getVersion();
                     break;
                 default:
                     throw new RuntimeException("Unknown testing strategy");
@@ -111,6 +111,7 @@ public abstract class GradlePluginDevelopmentTestingBasePlugin implements Plugin
             it.setTestClassesDirs(sourceSet.getOutput().getClassesDirs());
             it.setClasspath(sourceSet.getRuntimeClasspath());
         });
+        testSuite.getTestTaskProviders().add(result);
         return result;
     }
 }
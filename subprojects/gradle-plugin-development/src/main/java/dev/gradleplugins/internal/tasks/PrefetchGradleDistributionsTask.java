@@ -0,0 +1,124 @@
+package dev.gradleplugins.internal.tasks;
+
+import dev.gradleplugins.internal.distributions.GradleDistributionCache;
+import dev.gradleplugins.internal.distributions.InstalledGradleDistributionLocator;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.SetProperty;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.internal.logging.progress.ProgressLogger;
+import org.gradle.internal.logging.progress.ProgressLoggerFactory;
+import org.gradle.util.GradleVersion;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Downloads and extracts the Gradle distributions the functional tests run against before the tests start, so the tests don't download them lazily one at a time.
+ * The distributions are installed in the directory the Gradle fixtures look them up in, see {@code GradleDistributionFactory#DISTRIBUTIONS_DIR_SYSPROP_NAME}, with the same {@link GradleDistributionCache}.
+ * A version already installed by the wrapper is left to the fixtures, which use it in place, and a version available in a mirror directory is installed from there, see {@link InstalledGradleDistributionLocator}.
+ *
+ * A distribution that can't be prefetched is only reported as a warning, the tests download it lazily instead.
+ */
+public abstract class PrefetchGradleDistributionsTask extends DefaultTask {
+    @Input
+    public abstract SetProperty<String> getGradleVersions();
+
+    // Shared by every build, what is left to install is decided by the installation markers
+    @Internal
+    public abstract DirectoryProperty getDistributionsDirectory();
+
+    @Internal
+    public abstract DirectoryProperty getWrapperDistributionsDirectory();
+
+    @Internal
+    public abstract ConfigurableFileCollection getMirrorDirectories();
+
+    @Internal
+    public abstract Property<Integer> getMaxParallelDownloads();
+
+    @Inject
+    protected abstract ProgressLoggerFactory getProgressLoggerFactory();
+
+    @TaskAction
+    private void doPrefetch() throws InterruptedException {
+        File distributionsDirectory = getDistributionsDirectory().get().getAsFile();
+        InstalledGradleDistributionLocator locator = new InstalledGradleDistributionLocator(getWrapperDistributionsDirectory().get().getAsFile(), new ArrayList<>(getMirrorDirectories().getFiles()));
+        List<String> versions = getGradleVersions().get().stream().filter(it -> !GradleDistributionCache.isInstalled(new File(distributionsDirectory, it), it)).sorted().collect(Collectors.toList());
+        if (versions.isEmpty()) {
+            setDidWork(false);
+            return;
+        }
+
+        ProgressLogger progress = getProgressLoggerFactory().newOperation(PrefetchGradleDistributionsTask.class).start("Prefetch Gradle distributions", String.format("0/%d Gradle distributions", versions.size()));
+        AtomicInteger installedCount = new AtomicInteger();
+        List<Throwable> failures = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(getMaxParallelDownloads().get(), versions.size()));
+        try {
+            for (String version : versions) {
+                executor.execute(() -> {
+                    try {
+                        File versionDir = new File(distributionsDirectory, version);
+                        URL downloadUrl = getDownloadUrl(version);
+                        if (locator.findWrapperInstallation(version, downloadUrl, versionDir) != null) {
+                            getLogger().info("Gradle distribution {} is already installed by the wrapper.", version);
+                        } else {
+                            GradleDistributionCache.install(versionDir, version, locator.findDistribution(version, downloadUrl), downloadUrl, url -> {
+                                getLogger().info("Downloading Gradle distribution {} from '{}'.", version, url);
+                                synchronized (progress) {
+                                    progress.progress(String.format("Downloading Gradle distribution %s", version));
+                                }
+                            });
+                            getLogger().info("Installed Gradle distribution {} into '{}'.", version, distributionsDirectory);
+                        }
+                    } catch (Throwable e) {
+                        synchronized (failures) {
+                            failures.add(new RuntimeException(String.format("Could not prefetch Gradle distribution %s.", version), e));
+                        }
+                    } finally {
+                        // Progress loggers are not thread-safe
+                        synchronized (progress) {
+                            progress.progress(String.format("%d/%d Gradle distributions", installedCount.incrementAndGet(), versions.size()));
+                        }
+                    }
+                });
+            }
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } finally {
+            executor.shutdownNow();
+            progress.completed();
+        }
+
+        // Not worth failing the tests for, they install what is missing on first use
+        if (!failures.isEmpty()) {
+            getLogger().warn("Could not prefetch {} of {} Gradle distributions, the functional tests will download them when needed.", failures.size(), versions.size());
+            for (Throwable failure : failures) {
+                getLogger().warn("{} {}", failure.getMessage(), failure.getCause());
+                getLogger().info(failure.getMessage(), failure.getCause());
+            }
+        }
+    }
+
+    private static URL getDownloadUrl(String version) {
+        String repository = GradleVersion.version(version).isSnapshot() ? "distributions-snapshots" : "distributions";
+        try {
+            return new URL(String.format("https://services.gradle.org/%s/gradle-%s-bin.zip", repository, version));
+        } catch (MalformedURLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
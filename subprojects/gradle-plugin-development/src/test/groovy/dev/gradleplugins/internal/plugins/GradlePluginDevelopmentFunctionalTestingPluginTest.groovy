@@ -1,7 +1,7 @@
 package dev.gradleplugins.internal.plugins
 
 import dev.gradleplugins.GradlePluginDevelopmentTestSuite
-import groovy.json.JsonSlurper
+import dev.gradleplugins.internal.versions.GradleVersionsService
 import org.gradle.testfixtures.ProjectBuilder
 import spock.lang.Specification
 import spock.lang.Unroll
@@ -110,12 +110,87 @@ abstract class AbstractGradlePluginDevelopmentFunctionalTestingPluginTest extend
         project.tasks.functionalTest.systemProperties['dev.gradleplugins.samples'] == 'test-value'
     }
 
+    def "prefetches the Gradle distributions before the functional tests"() {
+        given:
+        project.apply plugin: pluginIdUnderTest
+        project.apply plugin: 'dev.gradleplugins.gradle-plugin-functional-test'
+        project.gradlePlugin.compatibility.minimumGradleVersion = '6.2.1'
+        project.components.functionalTest {
+            testingStrategies = [strategies.coverageForMinimumVersion, strategies.coverageForLatestNightlyVersion]
+        }
+
+        when:
+        project.evaluate()
+
+        then:
+        def prefetchTask = project.tasks.prefetchGradleDistributions
+        project.tasks.functionalTestMinimumGradle.taskDependencies.getDependencies(null).contains(prefetchTask)
+        project.tasks.functionalTestLatestNightly.taskDependencies.getDependencies(null).contains(prefetchTask)
+        project.tasks.functionalTestMinimumGradle.allJvmArgs.contains("-Ddev.gradleplugins.gradleDistributionsDir=${prefetchTask.distributionsDirectory.get().asFile.absolutePath}".toString())
+        !project.tasks.functionalTestMinimumGradle.systemProperties.containsKey('dev.gradleplugins.gradleDistributionsDir')
+        prefetchTask.gradleVersions.get() == ['6.2.1', latestNightlyVersion] as Set
+    }
+
+    def "does not prefetch the Gradle distribution of a single version coverage"() {
+        given:
+        project.apply plugin: pluginIdUnderTest
+        project.apply plugin: 'dev.gradleplugins.gradle-plugin-functional-test'
+        project.gradlePlugin.compatibility.minimumGradleVersion = '6.2.1'
+
+        when:
+        project.evaluate()
+
+        then:
+        def prefetchTask = project.tasks.prefetchGradleDistributions
+        prefetchTask.gradleVersions.get() == ['6.2.1'] as Set
+        !project.tasks.functionalTest.taskDependencies.getDependencies(null).contains(prefetchTask)
+        project.tasks.functionalTest.allJvmArgs.contains("-Ddev.gradleplugins.gradleDistributionsDir=${prefetchTask.distributionsDirectory.get().asFile.absolutePath}".toString())
+        !project.tasks.functionalTest.systemProperties.containsKey('dev.gradleplugins.gradleDistributionsDir')
+    }
+
+    def "prefetches the Gradle distributions from the mirror directories of the functional tests"() {
+        given:
+        project.apply plugin: pluginIdUnderTest
+        project.apply plugin: 'dev.gradleplugins.gradle-plugin-functional-test'
+        project.gradlePlugin.compatibility.minimumGradleVersion = '6.2.1'
+        project.components.functionalTest {
+            testTasks.configureEach {
+                systemProperty('dev.gradleplugins.gradleDistributionMirrors', ['/mirror/a', '', '/mirror/b'].join(File.pathSeparator))
+            }
+        }
+
+        when:
+        project.evaluate()
+
+        then:
+        project.tasks.prefetchGradleDistributions.mirrorDirectories.files == [new File('/mirror/a'), new File('/mirror/b')] as Set
+    }
+
+    def "prefetches the Gradle distributions selected by the test coverage"() {
+        given:
+        project.apply plugin: pluginIdUnderTest
+        project.apply plugin: 'dev.gradleplugins.gradle-plugin-functional-test'
+        project.gradlePlugin.compatibility.minimumGradleVersion = '6.2.1'
+        project.components.functionalTest {
+            testTasks.configureEach {
+                systemProperty('dev.gradleplugins.gradleVersions', 'minimum,6.4.1')
+            }
+        }
+
+        when:
+        project.evaluate()
+
+        then:
+        project.tasks.prefetchGradleDistributions.gradleVersions.get() == ['6.2.1', '6.4.1'] as Set
+        project.tasks.functionalTest.taskDependencies.getDependencies(null).contains(project.tasks.prefetchGradleDistributions)
+    }
+
     private String getLatestNightlyVersion() {
-        return new JsonSlurper().parse(new URL('https://services.gradle.org/versions/nightly')).version
+        return GradleVersionsService.default.nightly.version
     }
 
     private String getLatestGlobalAvailableVersion() {
-        return new JsonSlurper().parse(new URL('https://services.gradle.org/versions/current')).version
+        return GradleVersionsService.default.current.version
     }
 
     protected abstract String getPluginIdUnderTest()
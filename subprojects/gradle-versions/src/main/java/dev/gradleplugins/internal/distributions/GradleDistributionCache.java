@@ -0,0 +1,315 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.internal.distributions;
+
+import dev.gradleplugins.internal.files.LocalFiles;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Installs Gradle distributions into a version directory shared by every test JVM and every build.
+ * It is used by the Gradle fixtures, installing a distribution on first use, and by the Gradle plugin development plugins, prefetching the distributions before the tests.
+ *
+ * The installation of a version directory is guarded by a file lock, so concurrent JVMs wait for the first one instead of racing.
+ * The distribution is downloaded and extracted under temporary names, verified against the checksum published next to it, then renamed in place.
+ * A zip left by an interrupted installation is verified again before being extracted, and downloaded again when it doesn't match or can't be extracted.
+ * A distribution available on the local file system, such as in a mirror directory, is hard linked instead of copied when possible.
+ * A completion marker is written last, so a version directory with a marker is always complete and is reused without locking.
+ *
+ * The layout of a version directory is:
+ * <pre>
+ * gradle-&lt;version&gt;-bin.zip
+ * gradle-&lt;version&gt;/
+ * gradle-&lt;version&gt;.complete             SHA-256 of the zip
+ * gradle-&lt;version&gt;.wrapper-verified     location, size, modification time and SHA-256 of the wrapper zip used instead, see {@link InstalledGradleDistributionLocator}
+ * .lock
+ * </pre>
+ */
+public final class GradleDistributionCache {
+    private static final String PARTIAL_DOWNLOAD_SUFFIX = ".part";
+    private static final String PARTIAL_EXTRACTION_PREFIX = ".extract-";
+    private static final int DOWNLOAD_ATTEMPTS = 3;
+
+    // File locks are held by the JVM, threads of the same JVM must be serialized separately
+    private static final ConcurrentMap<File, Object> JVM_LOCKS = new ConcurrentHashMap<>();
+
+    private GradleDistributionCache() {}
+
+    public static File getBinDistribution(File versionDir, String version) {
+        return new File(versionDir, "gradle-" + version + "-bin.zip");
+    }
+
+    public static File getGradleHomeDir(File versionDir, String version) {
+        return new File(versionDir, "gradle-" + version);
+    }
+
+    private static File getCompleteMarker(File versionDir, String version) {
+        return new File(versionDir, "gradle-" + version + ".complete");
+    }
+
+    static File getWrapperVerificationMarker(File versionDir, String version) {
+        return new File(versionDir, "gradle-" + version + ".wrapper-verified");
+    }
+
+    public static boolean isInstalled(File versionDir, String version) {
+        return getCompleteMarker(versionDir, version).isFile() && getBinDistribution(versionDir, version).isFile() && getGradleHomeDir(versionDir, version).isDirectory();
+    }
+
+    /**
+     * Downloads and extracts the distribution into the version directory, unless it is already installed.
+     *
+     * @param versionDir the version directory
+     * @param version the Gradle version of the distribution
+     * @param url the location of the {@code -bin.zip} distribution, a {@code .sha256} file next to it is used to verify it
+     * @param officialUrl the location the distribution is published at, its {@code .sha256} file is used when there is none next to the distribution
+     * @param downloadListener notified with the location of each download, before it starts
+     */
+    public static void install(File versionDir, String version, URL url, URL officialUrl, Consumer<URL> downloadListener) {
+        if (isInstalled(versionDir, version)) {
+            return;
+        }
+
+        versionDir = versionDir.getAbsoluteFile();
+        synchronized (JVM_LOCKS.computeIfAbsent(versionDir, it -> new Object())) {
+            if (!versionDir.isDirectory() && !versionDir.mkdirs() && !versionDir.isDirectory()) {
+                throw new UncheckedIOException(new IOException(String.format("Could not create directory '%s'.", versionDir)));
+            }
+
+            try (FileChannel channel = FileChannel.open(new File(versionDir, ".lock").toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE); FileLock lock = channel.lock()) {
+                // Another JVM may have installed it while we were waiting
+                if (isInstalled(versionDir, version)) {
+                    return;
+                }
+
+                deletePartialInstallations(versionDir);
+
+                // A zip left over by an interrupted installation, or an installation predating the verification, is verified again
+                File binDistribution = getBinDistribution(versionDir, version);
+                String checksum = binDistribution.isFile() ? sha256(binDistribution) : null;
+                boolean reused = checksum != null && isPublishedChecksumOrUnreachable(checksum, url, officialUrl);
+                if (!reused) {
+                    Files.deleteIfExists(binDistribution.toPath());
+                    checksum = download(url, officialUrl, binDistribution, downloadListener);
+                }
+
+                try {
+                    extract(binDistribution, getGradleHomeDir(versionDir, version));
+                } catch (IOException | RuntimeException e) {
+                    if (!reused) {
+                        throw e;
+                    }
+                    // Without a published checksum, for example offline, a corrupted zip is only detected by the extraction
+                    Files.delete(binDistribution.toPath());
+                    checksum = download(url, officialUrl, binDistribution, downloadListener);
+                    extract(binDistribution, getGradleHomeDir(versionDir, version));
+                }
+                LocalFiles.writeAtomically(getCompleteMarker(versionDir, version), checksum);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Removes what a JVM dying in the middle of an installation left behind.
+     */
+    private static void deletePartialInstallations(File versionDir) throws IOException {
+        File[] files = versionDir.listFiles((dir, name) -> name.endsWith(PARTIAL_DOWNLOAD_SUFFIX) || name.startsWith(PARTIAL_EXTRACTION_PREFIX));
+        if (files != null) {
+            for (File file : files) {
+                deleteRecursively(file);
+            }
+        }
+    }
+
+    private static String download(URL url, URL officialUrl, File binDistribution, Consumer<URL> downloadListener) throws IOException {
+        downloadListener.accept(url);
+        File partialDownload = File.createTempFile(binDistribution.getName(), PARTIAL_DOWNLOAD_SUFFIX, binDistribution.getParentFile());
+        try {
+            String checksum;
+            if ("file".equals(url.getProtocol())) {
+                checksum = linkOrCopy(toFile(url), partialDownload);
+            } else {
+                checksum = copy(url, partialDownload);
+            }
+
+            if (!isPublishedChecksum(checksum, url, officialUrl)) {
+                throw new IllegalStateException(String.format("Checksum verification failed for '%s'. Expected SHA-256 %s but was %s.", url, fetchExpectedChecksum(url, officialUrl), checksum));
+            }
+
+            Files.move(partialDownload.toPath(), binDistribution.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            return checksum;
+        } finally {
+            Files.deleteIfExists(partialDownload.toPath());
+        }
+    }
+
+    /**
+     * Returns whether the checksum matches the one published next to the distribution, or at its official location.
+     * A distribution without a published checksum, such as in an offline mirror, is accepted unverified.
+     */
+    private static boolean isPublishedChecksum(String checksum, URL url, URL officialUrl) throws IOException {
+        String expectedChecksum = fetchExpectedChecksum(url, officialUrl);
+        return expectedChecksum == null || expectedChecksum.equalsIgnoreCase(checksum);
+    }
+
+    // The zip is already here, the checksum being unreachable, for example offline, doesn't prevent using it
+    private static boolean isPublishedChecksumOrUnreachable(String checksum, URL url, URL officialUrl) {
+        try {
+            return isPublishedChecksum(checksum, url, officialUrl);
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    private static String fetchExpectedChecksum(URL url, URL officialUrl) throws IOException {
+        String result = fetchChecksum(url);
+        if (result == null && !url.equals(officialUrl)) {
+            try {
+                result = fetchChecksum(officialUrl);
+            } catch (IOException e) {
+                // Mirrors are meant to work offline
+                result = null;
+            }
+        }
+        return result;
+    }
+
+    private static String copy(URL url, File target) throws IOException {
+        IOException failure = null;
+        for (int attempt = 0; attempt < DOWNLOAD_ATTEMPTS; ++attempt) {
+            try (InputStream inStream = new DigestInputStream(url.openStream(), newSha256())) {
+                Files.copy(inStream, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                return toHex(((DigestInputStream) inStream).getMessageDigest().digest());
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        throw failure;
+    }
+
+    private static File toFile(URL url) {
+        try {
+            return Paths.get(url.toURI()).toFile();
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static String linkOrCopy(File source, File target) throws IOException {
+        Files.delete(target.toPath());
+        try {
+            Files.createLink(target.toPath(), source.toPath());
+        } catch (IOException | UnsupportedOperationException e) {
+            // Across file systems, or not supported by the file system
+            Files.copy(source.toPath(), target.toPath());
+        }
+        return sha256(target);
+    }
+
+    /**
+     * Returns the SHA-256 published next to the distribution, or null if there is none.
+     */
+    static String fetchChecksum(URL url) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new URL(url.toString() + ".sha256").openStream(), StandardCharsets.UTF_8))) {
+            String content = String.valueOf(reader.readLine()).trim();
+            int separator = content.indexOf(' ');
+            return separator < 0 ? content : content.substring(0, separator);
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+    }
+
+    private static void extract(File binDistribution, File gradleHomeDir) throws IOException {
+        File partialExtraction = Files.createTempDirectory(gradleHomeDir.getParentFile().toPath(), PARTIAL_EXTRACTION_PREFIX).toFile();
+        try {
+            // Restores the Unix modes recorded in the zip, not only the launchers' executable bit
+            new ZipExtractor(binDistribution, partialExtraction).extract();
+            File extractedHomeDir = new File(partialExtraction, gradleHomeDir.getName());
+            if (!extractedHomeDir.isDirectory()) {
+                throw new IllegalStateException(String.format("Distribution '%s' does not contain directory '%s'.", binDistribution, gradleHomeDir.getName()));
+            }
+
+            // Left over by an installation predating the completion marker, or deleted from under us
+            deleteRecursively(gradleHomeDir);
+            Files.move(extractedHomeDir.toPath(), gradleHomeDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            deleteRecursively(partialExtraction);
+        }
+    }
+
+    private static void deleteRecursively(File file) throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(file.toPath())) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    static String sha256(File file) throws IOException {
+        try (InputStream inStream = new DigestInputStream(Files.newInputStream(file.toPath()), newSha256())) {
+            byte[] buffer = new byte[8192];
+            while (inStream.read(buffer) != -1) {
+                // Only digesting
+            }
+            return toHex(((DigestInputStream) inStream).getMessageDigest().digest());
+        }
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder result = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return result.toString();
+    }
+}
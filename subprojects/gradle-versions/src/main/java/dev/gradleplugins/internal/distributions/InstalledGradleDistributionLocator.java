@@ -0,0 +1,161 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.internal.distributions;
+
+import dev.gradleplugins.internal.files.LocalFiles;
+import lombok.Value;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Finds a Gradle distribution already on the local file system, so it doesn't have to be downloaded again.
+ *
+ * It looks, in order, for:
+ * <ol>
+ *     <li>a {@code -bin} distribution installed by the wrapper or TestKit under {@code <gradle-user-home>/wrapper/dists}, used in place,</li>
+ *     <li>a {@code gradle-<version>-bin.zip} in one of the mirror directories listed by the {@code dev.gradleplugins.gradleDistributionMirrors} system property, hard linked into the distribution cache.</li>
+ * </ol>
+ *
+ * A wrapper installation is only used once its zip matches the checksum published for the version.
+ * The verification is recorded in the version directory of the distribution cache, so the other test JVMs reuse it as long as the zip is unchanged.
+ * When the checksum can't be fetched, for example offline, the marker the wrapper writes after a successful installation is trusted instead.
+ */
+public final class InstalledGradleDistributionLocator {
+    public static final String MIRRORS_SYSPROP_NAME = "dev.gradleplugins.gradleDistributionMirrors";
+    private static InstalledGradleDistributionLocator defaultLocator = null;
+
+    private final File wrapperDistsDirectory;
+    private final List<File> mirrorDirectories;
+    private final Map<File, Boolean> verifiedDistributions = new ConcurrentHashMap<>();
+
+    public InstalledGradleDistributionLocator(File wrapperDistsDirectory, List<File> mirrorDirectories) {
+        this.wrapperDistsDirectory = wrapperDistsDirectory;
+        this.mirrorDirectories = mirrorDirectories;
+    }
+
+    /**
+     * Returns the locator looking into the Gradle user home of the current user and the mirror directories of the {@code dev.gradleplugins.gradleDistributionMirrors} system property.
+     */
+    public static synchronized InstalledGradleDistributionLocator getDefault() {
+        if (defaultLocator == null) {
+            List<File> mirrorDirectories = new ArrayList<>();
+            String mirrors = System.getProperty(MIRRORS_SYSPROP_NAME);
+            if (mirrors != null) {
+                for (String mirror : mirrors.split(File.pathSeparator)) {
+                    if (!mirror.isEmpty()) {
+                        mirrorDirectories.add(new File(mirror));
+                    }
+                }
+            }
+            defaultLocator = new InstalledGradleDistributionLocator(new File(LocalFiles.getGradleUserHomeDirectory(), "wrapper/dists"), mirrorDirectories);
+        }
+        return defaultLocator;
+    }
+
+    /**
+     * Returns the wrapper installation of the given version, or null if there is none.
+     * Only {@code -bin} installations are used, so the installation's distribution is always the {@code -bin.zip} one.
+     *
+     * @param version the Gradle version
+     * @param downloadUrl the official location of the {@code -bin.zip} distribution
+     * @param versionDir the version directory of the distribution cache, where the verification is recorded for the other test JVMs
+     */
+    public Installation findWrapperInstallation(String version, URL downloadUrl, File versionDir) {
+        String zipName = "gradle-" + version + "-bin.zip";
+        File[] installDirectories = new File(wrapperDistsDirectory, "gradle-" + version + "-bin").listFiles(File::isDirectory);
+        if (installDirectories == null) {
+            return null;
+        }
+
+        // The directory names are hashes of the distribution URL, keep the lookup deterministic
+        Arrays.sort(installDirectories);
+        for (File installDirectory : installDirectories) {
+            File gradleHomeDir = new File(installDirectory, "gradle-" + version);
+            File binDistribution = new File(installDirectory, zipName);
+            File completeMarker = new File(installDirectory, zipName + ".ok");
+            if (completeMarker.isFile() && gradleHomeDir.isDirectory() && binDistribution.isFile() && isVerified(binDistribution, downloadUrl, GradleDistributionCache.getWrapperVerificationMarker(versionDir, version))) {
+                return new Installation(gradleHomeDir, binDistribution);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the location to install the given version from: a mirror if one has it, otherwise the given download location.
+     *
+     * @param version the Gradle version
+     * @param downloadUrl the official location of the {@code -bin.zip} distribution
+     */
+    public URL findDistribution(String version, URL downloadUrl) {
+        for (File mirrorDirectory : mirrorDirectories) {
+            File binDistribution = new File(mirrorDirectory, "gradle-" + version + "-bin.zip");
+            if (binDistribution.isFile()) {
+                try {
+                    return binDistribution.toURI().toURL();
+                } catch (MalformedURLException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+        return downloadUrl;
+    }
+
+    private boolean isVerified(File distribution, URL officialUrl, File verificationMarker) {
+        return verifiedDistributions.computeIfAbsent(distribution, it -> {
+            try {
+                // Hashing the zip and fetching its checksum is done once, not by every test JVM
+                String verification = distribution.getAbsolutePath() + "\n" + distribution.length() + "\n" + distribution.lastModified();
+                if (verificationMarker.isFile() && new String(Files.readAllBytes(verificationMarker.toPath()), StandardCharsets.UTF_8).startsWith(verification + "\n")) {
+                    return true;
+                }
+
+                String expectedChecksum;
+                try {
+                    expectedChecksum = GradleDistributionCache.fetchChecksum(officialUrl);
+                } catch (IOException e) {
+                    // Offline, trust the wrapper marker without recording it, so it is verified once back online
+                    return true;
+                }
+                String checksum = GradleDistributionCache.sha256(distribution);
+                if (expectedChecksum != null && !expectedChecksum.equalsIgnoreCase(checksum)) {
+                    return false;
+                }
+                LocalFiles.writeAtomically(verificationMarker, verification + "\n" + checksum);
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @Value
+    public static class Installation {
+        File gradleHomeDir;
+        File binDistribution;
+    }
+}
@@ -0,0 +1,501 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.internal.distributions;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Extracts a zip archive in the JVM, writing the entries on several threads.
+ *
+ * The central directory is read once, and the archive is validated against it while extracting: every directory is listed once and before the files it contains, no entry escapes the target directory, and the size and CRC of every entry match.
+ * Unix modes recorded in the archive are restored, including symbolic links, as the native {@code unzip} does.
+ * The symbolic links are created after every file, and only when they resolve inside the target directory.
+ */
+public final class ZipExtractor {
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIZE = 20;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06064b50;
+    private static final int CENTRAL_DIRECTORY_SIGNATURE = 0x02014b50;
+    private static final int LOCAL_FILE_HEADER_SIGNATURE = 0x04034b50;
+    private static final int LOCAL_FILE_HEADER_SIZE = 30;
+    private static final int ZIP64_EXTRA_FIELD_ID = 0x0001;
+    private static final int ZIP64_MAGIC_SHORT = 0xFFFF;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+    private static final int ENCRYPTED_FLAG = 1;
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+    private static final int UNIX_HOST = 3;
+    private static final int FILE_TYPE_MASK = 0170000;
+    private static final int SYMBOLIC_LINK_TYPE = 0120000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final boolean POSIX = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+
+    private final File archive;
+    private final Path targetDir;
+
+    public ZipExtractor(File archive, File targetDir) {
+        this.archive = archive;
+        this.targetDir = targetDir.toPath().toAbsolutePath().normalize();
+    }
+
+    public void extract() {
+        try (FileChannel channel = FileChannel.open(archive.toPath(), StandardOpenOption.READ)) {
+            List<Entry> entries = readCentralDirectory(channel);
+            List<Entry> directories = new ArrayList<>();
+            List<Entry> files = new ArrayList<>();
+            Set<String> directoryNames = new HashSet<>();
+            for (Entry entry : entries) {
+                if (entry.isDirectory()) {
+                    if (!directoryNames.add(entry.name)) {
+                        throw new ZipException(String.format("Duplicate directory '%s'.", entry.name));
+                    }
+                    directories.add(entry);
+                } else {
+                    files.add(entry);
+                }
+                if (entry.name.contains("/")) {
+                    String parent = entry.name.substring(0, entry.name.lastIndexOf('/')) + "/";
+                    if (!directoryNames.contains(parent)) {
+                        throw new ZipException(String.format("Missing directory '%s'.", parent));
+                    }
+                }
+            }
+
+            Files.createDirectories(targetDir);
+            for (Entry directory : directories) {
+                Files.createDirectories(directory.target);
+            }
+
+            List<Entry> symbolicLinks = new ArrayList<>();
+            List<Entry> regularFiles = new ArrayList<>();
+            for (Entry file : files) {
+                (file.isSymbolicLink() ? symbolicLinks : regularFiles).add(file);
+            }
+            extractFiles(channel, regularFiles);
+
+            // Last, so no file is ever written through a link
+            extractSymbolicLinks(channel, symbolicLinks);
+
+            // Last, so a directory without write permission can still be filled
+            for (int i = directories.size() - 1; i >= 0; --i) {
+                applyAttributes(directories.get(i));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void extractFiles(FileChannel channel, List<Entry> files) throws IOException {
+        int threadCount = Math.min(Runtime.getRuntime().availableProcessors(), files.size());
+        if (threadCount <= 1) {
+            for (Entry file : files) {
+                extractFile(channel, file);
+            }
+            return;
+        }
+
+        // Largest first, so one large entry doesn't end up alone at the end
+        files.sort(Comparator.comparingLong((Entry it) -> it.compressedSize).reversed());
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (Entry file : files) {
+            tasks.add(() -> {
+                extractFile(channel, file);
+                return null;
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            for (Future<Void> result : executor.invokeAll(tasks)) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void extractFile(FileChannel channel, Entry entry) throws IOException {
+        Files.createDirectories(entry.target.getParent());
+        CRC32 crc = new CRC32();
+        long size = 0;
+        try (InputStream inStream = openEntry(channel, entry); FileChannel outChannel = FileChannel.open(entry.target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            for (int count = inStream.read(buffer); count != -1; count = inStream.read(buffer)) {
+                crc.update(buffer, 0, count);
+                ByteBuffer content = ByteBuffer.wrap(buffer, 0, count);
+                while (content.hasRemaining()) {
+                    outChannel.write(content);
+                }
+                size += count;
+            }
+        }
+        verify(entry, size, crc);
+        applyAttributes(entry);
+    }
+
+    private void extractSymbolicLinks(FileChannel channel, List<Entry> symbolicLinks) throws IOException {
+        List<Entry> extractedLinks = new ArrayList<>();
+        try {
+            // One at a time, so each link is checked against the links extracted before it
+            for (Entry symbolicLink : symbolicLinks) {
+                extractSymbolicLink(channel, symbolicLink);
+                extractedLinks.add(symbolicLink);
+            }
+            // A link extracted later may redirect the target of one extracted earlier
+            for (Entry symbolicLink : symbolicLinks) {
+                verifyLinkTarget(symbolicLink, Files.readSymbolicLink(symbolicLink.target));
+            }
+        } catch (IOException e) {
+            // Latest first, so no link is deleted through a link redirected after it
+            for (int i = extractedLinks.size() - 1; i >= 0; --i) {
+                Files.deleteIfExists(extractedLinks.get(i).target);
+            }
+            throw e;
+        }
+    }
+
+    private void extractSymbolicLink(FileChannel channel, Entry entry) throws IOException {
+        CRC32 crc = new CRC32();
+        long size = 0;
+        ByteArrayOutputStream linkTarget = new ByteArrayOutputStream();
+        try (InputStream inStream = openEntry(channel, entry)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            for (int count = inStream.read(buffer); count != -1; count = inStream.read(buffer)) {
+                crc.update(buffer, 0, count);
+                linkTarget.write(buffer, 0, count);
+                size += count;
+            }
+        }
+        verify(entry, size, crc);
+
+        Path target = Paths.get(new String(linkTarget.toByteArray(), StandardCharsets.UTF_8));
+        verifyLinkTarget(entry, target);
+        Files.createDirectories(entry.target.getParent());
+        Files.deleteIfExists(entry.target);
+        Files.createSymbolicLink(entry.target, target);
+    }
+
+    private void verifyLinkTarget(Entry entry, Path linkTarget) throws IOException {
+        Path realTargetDir = targetDir.toRealPath();
+        // The link itself may be reached through a link extracted before
+        Path linkDir = resolveFollowingLinks(realTargetDir, targetDir.relativize(entry.target.getParent()));
+        if (!linkDir.startsWith(realTargetDir) || !resolveFollowingLinks(linkDir, linkTarget).startsWith(realTargetDir)) {
+            throw new ZipException(String.format("Entry '%s' links to '%s' outside of the target directory '%s'.", entry.name, linkTarget, targetDir));
+        }
+    }
+
+    /**
+     * Resolves the path the way the file system does, following the links met on the way, without requiring the path to exist.
+     */
+    private static Path resolveFollowingLinks(Path directory, Path path) throws IOException {
+        Path result = path.isAbsolute() ? path.getRoot() : directory;
+        for (Path name : path) {
+            result = result.resolve(name);
+            result = Files.exists(result) ? result.toRealPath() : result.normalize();
+        }
+        return result;
+    }
+
+    private static void verify(Entry entry, long size, CRC32 crc) throws ZipException {
+        if (size != entry.size) {
+            throw new ZipException(String.format("Entry '%s' is %d bytes, expected %d bytes.", entry.name, size, entry.size));
+        }
+        if (crc.getValue() != entry.crc) {
+            throw new ZipException(String.format("Entry '%s' has CRC %08x, expected %08x.", entry.name, crc.getValue(), entry.crc));
+        }
+    }
+
+    private static void applyAttributes(Entry entry) throws IOException {
+        Files.setLastModifiedTime(entry.target, FileTime.fromMillis(entry.lastModified));
+        if (POSIX && entry.unixMode != 0) {
+            Files.setPosixFilePermissions(entry.target, toPermissions(entry.unixMode));
+        }
+    }
+
+    private static Set<PosixFilePermission> toPermissions(int unixMode) {
+        Set<PosixFilePermission> result = EnumSet.noneOf(PosixFilePermission.class);
+        PosixFilePermission[] permissions = PosixFilePermission.values(); // OWNER_READ to OTHERS_EXECUTE, matching 0400 to 0001
+        for (int i = 0; i < permissions.length; ++i) {
+            if ((unixMode & (0400 >> i)) != 0) {
+                result.add(permissions[i]);
+            }
+        }
+        return result;
+    }
+
+    private InputStream openEntry(FileChannel channel, Entry entry) throws IOException {
+        ByteBuffer header = read(channel, entry.localHeaderOffset, LOCAL_FILE_HEADER_SIZE);
+        if (header.getInt(0) != LOCAL_FILE_HEADER_SIGNATURE) {
+            throw new ZipException(String.format("Entry '%s' has no local header.", entry.name));
+        }
+        long dataOffset = entry.localHeaderOffset + LOCAL_FILE_HEADER_SIZE + unsignedShort(header, 26) + unsignedShort(header, 28);
+        InputStream data = new ChannelInputStream(channel, dataOffset, entry.compressedSize);
+        if (entry.method == STORED) {
+            return data;
+        }
+        // The inflater may need one byte past the compressed data to notice the end of it
+        return new InflaterInputStream(new SequenceInputStream(data, new ByteArrayInputStream(new byte[1])), new Inflater(true), BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                inf.end();
+            }
+        };
+    }
+
+    private List<Entry> readCentralDirectory(FileChannel channel) throws IOException {
+        long archiveSize = channel.size();
+        int tailSize = (int) Math.min(archiveSize, END_OF_CENTRAL_DIRECTORY_SIZE + ZIP64_MAGIC_SHORT);
+        ByteBuffer tail = read(channel, archiveSize - tailSize, tailSize);
+        int endOfCentralDirectory = -1;
+        for (int i = tailSize - END_OF_CENTRAL_DIRECTORY_SIZE; i >= 0; --i) {
+            if (tail.getInt(i) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                endOfCentralDirectory = i;
+                break;
+            }
+        }
+        if (endOfCentralDirectory < 0) {
+            throw new ZipException(String.format("'%s' is not a zip archive.", archive));
+        }
+
+        long entryCount = unsignedShort(tail, endOfCentralDirectory + 10);
+        long centralDirectorySize = unsignedInt(tail, endOfCentralDirectory + 12);
+        long centralDirectoryOffset = unsignedInt(tail, endOfCentralDirectory + 16);
+        if (entryCount == ZIP64_MAGIC_SHORT || centralDirectorySize == ZIP64_MAGIC || centralDirectoryOffset == ZIP64_MAGIC) {
+            long locatorOffset = archiveSize - tailSize + endOfCentralDirectory - ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIZE;
+            ByteBuffer locator = read(channel, locatorOffset, ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIZE);
+            if (locator.getInt(0) == ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE) {
+                ByteBuffer zip64EndOfCentralDirectory = read(channel, locator.getLong(8), 56);
+                if (zip64EndOfCentralDirectory.getInt(0) != ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                    throw new ZipException(String.format("'%s' has a corrupted ZIP64 end of central directory.", archive));
+                }
+                entryCount = zip64EndOfCentralDirectory.getLong(32);
+                centralDirectorySize = zip64EndOfCentralDirectory.getLong(40);
+                centralDirectoryOffset = zip64EndOfCentralDirectory.getLong(48);
+            }
+        }
+        if (centralDirectorySize > Integer.MAX_VALUE) {
+            throw new ZipException(String.format("'%s' has a central directory too large to be read.", archive));
+        }
+
+        ByteBuffer centralDirectory = read(channel, centralDirectoryOffset, (int) centralDirectorySize);
+        List<Entry> result = new ArrayList<>();
+        int position = 0;
+        for (long i = 0; i < entryCount; ++i) {
+            if (centralDirectory.getInt(position) != CENTRAL_DIRECTORY_SIGNATURE) {
+                throw new ZipException(String.format("'%s' has a corrupted central directory.", archive));
+            }
+            int versionMadeBy = unsignedShort(centralDirectory, position + 4);
+            int flags = unsignedShort(centralDirectory, position + 8);
+            int method = unsignedShort(centralDirectory, position + 10);
+            int dosTime = centralDirectory.getInt(position + 12);
+            long crc = unsignedInt(centralDirectory, position + 16);
+            long compressedSize = unsignedInt(centralDirectory, position + 20);
+            long size = unsignedInt(centralDirectory, position + 24);
+            int nameLength = unsignedShort(centralDirectory, position + 28);
+            int extraLength = unsignedShort(centralDirectory, position + 30);
+            int commentLength = unsignedShort(centralDirectory, position + 32);
+            long externalAttributes = unsignedInt(centralDirectory, position + 38);
+            long localHeaderOffset = unsignedInt(centralDirectory, position + 42);
+            byte[] nameBytes = new byte[nameLength];
+            ((ByteBuffer) centralDirectory.duplicate().position(position + 46)).get(nameBytes);
+            String name = new String(nameBytes, StandardCharsets.UTF_8);
+
+            // The ZIP64 extra field only holds the values that didn't fit, in this order
+            int extra = position + 46 + nameLength;
+            int extraEnd = extra + extraLength;
+            while (extra + 4 <= extraEnd) {
+                int id = unsignedShort(centralDirectory, extra);
+                int length = unsignedShort(centralDirectory, extra + 2);
+                if (id == ZIP64_EXTRA_FIELD_ID) {
+                    int value = extra + 4;
+                    if (size == ZIP64_MAGIC) {
+                        size = centralDirectory.getLong(value);
+                        value += 8;
+                    }
+                    if (compressedSize == ZIP64_MAGIC) {
+                        compressedSize = centralDirectory.getLong(value);
+                        value += 8;
+                    }
+                    if (localHeaderOffset == ZIP64_MAGIC) {
+                        localHeaderOffset = centralDirectory.getLong(value);
+                    }
+                }
+                extra += 4 + length;
+            }
+            position = extraEnd + commentLength;
+
+            if ((flags & ENCRYPTED_FLAG) != 0) {
+                throw new ZipException(String.format("Entry '%s' is encrypted.", name));
+            }
+            if (method != STORED && method != DEFLATED) {
+                throw new ZipException(String.format("Entry '%s' uses unsupported compression method %d.", name, method));
+            }
+            Path target = targetDir.resolve(name).normalize();
+            if (!target.startsWith(targetDir)) {
+                throw new ZipException(String.format("Entry '%s' is outside of the target directory '%s'.", name, targetDir));
+            }
+            int unixMode = (versionMadeBy >> 8) == UNIX_HOST ? (int) (externalAttributes >> 16) : 0;
+            result.add(new Entry(name, target, method, crc, compressedSize, size, localHeaderOffset, unixMode, toJavaTime(dosTime)));
+        }
+        return result;
+    }
+
+    private static long toJavaTime(int dosTime) {
+        try {
+            LocalDateTime dateTime = LocalDateTime.of(((dosTime >> 25) & 0x7f) + 1980, (dosTime >> 21) & 0x0f, (dosTime >> 16) & 0x1f, (dosTime >> 11) & 0x1f, (dosTime >> 5) & 0x3f, (dosTime << 1) & 0x3e);
+            return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (RuntimeException e) {
+            // Not set by the tool creating the archive
+            return System.currentTimeMillis();
+        }
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer result = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (result.hasRemaining()) {
+            if (channel.read(result, position + result.position()) < 0) {
+                throw new ZipException("Unexpected end of archive.");
+            }
+        }
+        result.flip();
+        return result;
+    }
+
+    private static int unsignedShort(ByteBuffer buffer, int index) {
+        return buffer.getShort(index) & 0xFFFF;
+    }
+
+    private static long unsignedInt(ByteBuffer buffer, int index) {
+        return buffer.getInt(index) & 0xFFFFFFFFL;
+    }
+
+    private static final class Entry {
+        final String name;
+        final Path target;
+        final int method;
+        final long crc;
+        final long compressedSize;
+        final long size;
+        final long localHeaderOffset;
+        final int unixMode;
+        final long lastModified;
+
+        Entry(String name, Path target, int method, long crc, long compressedSize, long size, long localHeaderOffset, int unixMode, long lastModified) {
+            this.name = name;
+            this.target = target;
+            this.method = method;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+            this.unixMode = unixMode;
+            this.lastModified = lastModified;
+        }
+
+        boolean isDirectory() {
+            return name.endsWith("/");
+        }
+
+        boolean isSymbolicLink() {
+            return (unixMode & FILE_TYPE_MASK) == SYMBOLIC_LINK_TYPE;
+        }
+    }
+
+    /**
+     * Reads a range of the archive with positional reads, so the threads can share the channel.
+     */
+    private static final class ChannelInputStream extends InputStream {
+        private final FileChannel channel;
+        private long position;
+        private long remaining;
+
+        ChannelInputStream(FileChannel channel, long position, long length) {
+            this.channel = channel;
+            this.position = position;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] buffer = new byte[1];
+            return read(buffer, 0, 1) == -1 ? -1 : buffer[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int count = channel.read(ByteBuffer.wrap(buffer, offset, (int) Math.min(length, remaining)), position);
+            if (count < 0) {
+                throw new ZipException("Unexpected end of archive.");
+            }
+            position += count;
+            remaining -= count;
+            return count;
+        }
+    }
+}
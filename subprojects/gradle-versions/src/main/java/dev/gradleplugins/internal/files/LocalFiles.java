@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.internal.files;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * File system locations and operations shared by the build plugins and the test JVMs.
+ */
+public final class LocalFiles {
+    /**
+     * The temporary directory shared by every test JVM of the current user, for content they can all reuse, such as the generated init scripts.
+     */
+    public static final File TEST_FIXTURES_DIRECTORY = new File(System.getProperty("java.io.tmpdir"), ".gradle-test-fixtures-" + System.getProperty("user.name"));
+
+    private LocalFiles() {}
+
+    /**
+     * Returns the Gradle user home of the current JVM, the same way Gradle resolves it when no {@code --gradle-user-home} is given.
+     *
+     * @return the Gradle user home directory, never null
+     */
+    public static File getGradleUserHomeDirectory() {
+        String gradleUserHome = System.getProperty("gradle.user.home");
+        if (gradleUserHome == null) {
+            gradleUserHome = System.getenv("GRADLE_USER_HOME");
+        }
+        if (gradleUserHome == null) {
+            return new File(System.getProperty("user.home"), ".gradle");
+        }
+        return new File(gradleUserHome);
+    }
+
+    /**
+     * Returns the id of the current process, used to tell apart the files of JVMs sharing a directory.
+     *
+     * @return the process id, or an empty string if the JVM doesn't expose it
+     */
+    public static String getProcessId() {
+        String processName = ManagementFactory.getRuntimeMXBean().getName();
+        return processName.substring(0, Math.max(0, processName.indexOf('@')));
+    }
+
+    /**
+     * Writes the file through a temporary file renamed in place, so concurrent readers never see a partial content.
+     * Concurrent writers of the same file replace each other, whoever renames last wins.
+     * The temporary file ends with {@code .part} and is left behind only if the JVM dies while writing.
+     *
+     * @param file the file to write, its parent directory is created if missing
+     * @param content the content to write, in UTF-8
+     * @throws IOException if the file can't be written
+     */
+    public static void writeAtomically(File file, String content) throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+        File partialFile = File.createTempFile(file.getName(), ".part", file.getParentFile());
+        try {
+            Files.write(partialFile.toPath(), content.getBytes(StandardCharsets.UTF_8));
+            Files.move(partialFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(partialFile.toPath());
+        }
+    }
+}
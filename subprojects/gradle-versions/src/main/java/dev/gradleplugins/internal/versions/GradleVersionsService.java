@@ -0,0 +1,246 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.gradleplugins.internal.versions;
+
+import com.google.gson.Gson;
+import dev.gradleplugins.internal.files.LocalFiles;
+import lombok.Value;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Provides the Gradle versions metadata published at {@code https://services.gradle.org/versions}.
+ *
+ * The responses are cached on disk in the Gradle user home, shared by every JVM, and reused without any request until they are older than the TTL.
+ * Stale responses are revalidated with a conditional request, so an unchanged response is not downloaded again.
+ * When the service can't be reached, the cached responses are used however old they are, then the snapshot of all versions bundled with this library.
+ */
+public final class GradleVersionsService {
+    public static final String CACHE_TTL_SYSPROP_NAME = "dev.gradleplugins.gradleVersionsCacheTtl";
+    public static final String OFFLINE_SYSPROP_NAME = "dev.gradleplugins.offline";
+    private static final Duration DEFAULT_CACHE_TTL = Duration.ofHours(1);
+    private static final String ALL = "all";
+    private static final String CURRENT = "current";
+    private static final String NIGHTLY = "nightly";
+    private static final String RELEASE_NIGHTLY = "release-nightly";
+    private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+    private static final int READ_TIMEOUT_MILLIS = 30000;
+    private static GradleVersionsService defaultService = null;
+    private final Gson gson = new Gson();
+    private final Map<String, CachedResponse> responses = new HashMap<>();
+    private final URL serviceUrl;
+    private final File cacheDirectory;
+    private final Duration cacheTtl;
+    private final boolean offline;
+
+    public GradleVersionsService(URL serviceUrl, File cacheDirectory, Duration cacheTtl, boolean offline) {
+        this.serviceUrl = serviceUrl;
+        this.cacheDirectory = cacheDirectory;
+        this.cacheTtl = cacheTtl;
+        this.offline = offline;
+    }
+
+    /**
+     * Returns the service shared by the whole JVM, caching into the Gradle user home of the current user.
+     * The TTL can be changed with the {@code dev.gradleplugins.gradleVersionsCacheTtl} system property, as an ISO-8601 duration such as {@code PT24H}, and requests can be disabled with the {@code dev.gradleplugins.offline} system property.
+     */
+    public static synchronized GradleVersionsService getDefault() {
+        if (defaultService == null) {
+            Duration cacheTtl = Optional.ofNullable(System.getProperty(CACHE_TTL_SYSPROP_NAME)).map(Duration::parse).orElse(DEFAULT_CACHE_TTL);
+            try {
+                defaultService = new GradleVersionsService(new URL("https://services.gradle.org/versions/"), new File(LocalFiles.getGradleUserHomeDirectory(), "caches/dev.gradleplugins/versions"), cacheTtl, Boolean.getBoolean(OFFLINE_SYSPROP_NAME));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return defaultService;
+    }
+
+    /**
+     * Returns every version, including snapshots and release candidates.
+     */
+    public List<GradleRelease> getAll() {
+        String content = fetch(ALL);
+        if (content == null) {
+            content = getBundledSnapshot();
+        }
+        return Collections.unmodifiableList(Arrays.asList(gson.fromJson(content, GradleRelease[].class)));
+    }
+
+    /**
+     * Returns the latest release.
+     */
+    public GradleRelease getCurrent() {
+        String content = fetch(CURRENT);
+        if (content == null) {
+            // Same answer as the service, as of the last time all versions were fetched
+            return getAll().stream().filter(GradleRelease::isCurrent).findFirst().orElseThrow(() -> new IllegalStateException("Unable to get the last version"));
+        }
+        return gson.fromJson(content, GradleRelease.class);
+    }
+
+    /**
+     * Returns the latest nightly snapshot.
+     */
+    public GradleRelease getNightly() {
+        return gson.fromJson(fetchRequired(NIGHTLY, "Unable to get the last snapshot version"), GradleRelease.class);
+    }
+
+    /**
+     * Returns the latest nightly snapshot of the next release.
+     */
+    public GradleRelease getReleaseNightly() {
+        return gson.fromJson(fetchRequired(RELEASE_NIGHTLY, "Unable to get the last release snapshot version"), GradleRelease.class);
+    }
+
+    private String fetchRequired(String endpoint, String message) {
+        String content = fetch(endpoint);
+        if (content == null) {
+            throw new IllegalStateException(message + (offline ? " while offline." : ", the Gradle versions service can't be reached and nothing is cached."));
+        }
+        return content;
+    }
+
+    /**
+     * Returns the response of the endpoint, or null if it can't be reached and was never cached.
+     */
+    private synchronized String fetch(String endpoint) {
+        long now = System.currentTimeMillis();
+        CachedResponse response = responses.get(endpoint);
+        if (response != null && !isExpired(response.getValidatedAt(), now)) {
+            return response.getContent();
+        }
+
+        File cacheFile = new File(cacheDirectory, endpoint + ".json");
+        File etagFile = new File(cacheDirectory, endpoint + ".etag");
+        String content = null;
+        try {
+            if (cacheFile.isFile() && (offline || !isExpired(cacheFile.lastModified(), now))) {
+                content = read(cacheFile);
+            } else if (!offline) {
+                content = refresh(endpoint, cacheFile, etagFile, now);
+            }
+        } catch (IOException e) {
+            // Can't be reached, a stale response is better than none
+            content = readIfPresent(cacheFile);
+        }
+
+        if (content != null) {
+            responses.put(endpoint, new CachedResponse(content, now));
+        }
+        return content;
+    }
+
+    private boolean isExpired(long validatedAt, long now) {
+        return now - validatedAt >= cacheTtl.toMillis();
+    }
+
+    private String refresh(String endpoint, File cacheFile, File etagFile, long now) throws IOException {
+        URLConnection connection = new URL(serviceUrl, endpoint).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+        String etag = cacheFile.isFile() ? readIfPresent(etagFile) : null;
+        if (etag != null) {
+            connection.setRequestProperty("If-None-Match", etag);
+        }
+
+        if (connection instanceof HttpURLConnection) {
+            int responseCode = ((HttpURLConnection) connection).getResponseCode();
+            if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                // Restarts the TTL for every JVM
+                cacheFile.setLastModified(now);
+                return read(cacheFile);
+            } else if (responseCode != HttpURLConnection.HTTP_OK) {
+                throw new IOException(String.format("Unexpected response %d from '%s'.", responseCode, connection.getURL()));
+            }
+        }
+
+        String content;
+        try (InputStream inStream = connection.getInputStream()) {
+            content = new String(readAllBytes(inStream), StandardCharsets.UTF_8);
+        }
+
+        // Other JVMs read the cache concurrently, they must never see a partial response
+        LocalFiles.writeAtomically(cacheFile, content);
+        String newEtag = connection.getHeaderField("ETag");
+        if (newEtag != null) {
+            LocalFiles.writeAtomically(etagFile, newEtag);
+        } else {
+            Files.deleteIfExists(etagFile.toPath());
+        }
+        return content;
+    }
+
+    private static String getBundledSnapshot() {
+        try (InputStream inStream = GradleVersionsService.class.getResourceAsStream("all.json")) {
+            return new String(readAllBytes(inStream), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String readIfPresent(File file) {
+        try {
+            return file.isFile() ? read(file) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readAllBytes(InputStream inStream) throws IOException {
+        ByteArrayOutputStream outStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for (int count = inStream.read(buffer); count != -1; count = inStream.read(buffer)) {
+            outStream.write(buffer, 0, count);
+        }
+        return outStream.toByteArray();
+    }
+
+    @Value
+    private static class CachedResponse {
+        String content;
+        long validatedAt;
+    }
+
+    @Value
+    public static class GradleRelease {
+        String version;
+        boolean snapshot;
+        boolean current;
+        String rcFor;
+    }
+}
@@ -0,0 +1,209 @@
+package dev.gradleplugins.internal.distributions
+
+import com.sun.net.httpserver.HttpExchange
+import com.sun.net.httpserver.HttpServer
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+import java.security.MessageDigest
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+class GradleDistributionCacheTest extends Specification {
+    @Rule
+    TemporaryFolder temporaryFolder = new TemporaryFolder()
+    File distribution
+    File versionDir
+    def downloads = Collections.synchronizedList([])
+
+    def setup() {
+        distribution = temporaryFolder.newFile('gradle-6.5-bin.zip')
+        distribution.bytes = newDistribution('6.5')
+        versionDir = new File(temporaryFolder.root, 'gradle-distributions/6.5')
+    }
+
+    def "installs a distribution verified against the checksum next to it"() {
+        given:
+        publishChecksum(distribution)
+
+        when:
+        GradleDistributionCache.install(versionDir, '6.5', distribution.toURI().toURL(), missingUrl, downloads.&add)
+
+        then:
+        GradleDistributionCache.isInstalled(versionDir, '6.5')
+        new File(GradleDistributionCache.getGradleHomeDir(versionDir, '6.5'), 'bin/gradle').text == 'launcher'
+        GradleDistributionCache.getBinDistribution(versionDir, '6.5').bytes == distribution.bytes
+        new File(versionDir, 'gradle-6.5.complete').text == sha256(distribution)
+        downloads == [distribution.toURI().toURL()]
+    }
+
+    def "installs a distribution without a published checksum unverified"() {
+        when:
+        GradleDistributionCache.install(versionDir, '6.5', distribution.toURI().toURL(), missingUrl, downloads.&add)
+
+        then:
+        GradleDistributionCache.isInstalled(versionDir, '6.5')
+        new File(versionDir, 'gradle-6.5.complete').text == sha256(distribution)
+    }
+
+    def "verifies the distribution against the checksum of the official location when there is none next to it"() {
+        given:
+        def official = temporaryFolder.newFile('official-gradle-6.5-bin.zip')
+        new File(official.path + '.sha256').text = '0' * 64
+
+        when:
+        GradleDistributionCache.install(versionDir, '6.5', distribution.toURI().toURL(), official.toURI().toURL(), downloads.&add)
+
+        then:
+        def ex = thrown(IllegalStateException)
+        ex.message.startsWith("Checksum verification failed for '${distribution.toURI().toURL()}'.")
+        !GradleDistributionCache.isInstalled(versionDir, '6.5')
+    }
+
+    def "does not install a distribution not matching its checksum"() {
+        given:
+        new File(distribution.path + '.sha256').text = "${'0' * 64}  gradle-6.5-bin.zip\n"
+
+        when:
+        GradleDistributionCache.install(versionDir, '6.5', distribution.toURI().toURL(), missingUrl, downloads.&add)
+
+        then:
+        def ex = thrown(IllegalStateException)
+        ex.message == "Checksum verification failed for '${distribution.toURI().toURL()}'. Expected SHA-256 ${'0' * 64} but was ${sha256(distribution)}."
+        versionDir.list().sort() == ['.lock']
+    }
+
+    def "does not touch an installed distribution"() {
+        given:
+        GradleDistributionCache.install(versionDir, '6.5', distribution.toURI().toURL(), missingUrl, downloads.&add)
+        distribution.delete()
+
+        when:
+        GradleDistributionCache.install(versionDir, '6.5', distribution.toURI().toURL(), missingUrl, downloads.&add)
+
+        then:
+        noExceptionThrown()
+        GradleDistributionCache.isInstalled(versionDir, '6.5')
+        downloads.size() == 1
+    }
+
+    def "removes what an interrupted installation left behind"() {
+        given:
+        versionDir.mkdirs()
+        new File(versionDir, 'gradle-6.5-bin.zip1234.part').text = 'partial'
+        new File(versionDir, '.extract-1234/gradle-6.5/bin').mkdirs()
+        new File(versionDir, 'gradle-6.5/lib').mkdirs()
+
+        when:
+        GradleDistributionCache.install(versionDir, '6.5', distribution.toURI().toURL(), missingUrl, downloads.&add)
+
+        then:
+        versionDir.list().sort() == ['.lock', 'gradle-6.5', 'gradle-6.5-bin.zip', 'gradle-6.5.complete']
+        GradleDistributionCache.getGradleHomeDir(versionDir, '6.5').list().sort() == ['bin']
+    }
+
+    def "reuses a leftover distribution matching its checksum"() {
+        given:
+        publishChecksum(distribution)
+        versionDir.mkdirs()
+        GradleDistributionCache.getBinDistribution(versionDir, '6.5').bytes = distribution.bytes
+        distribution.delete()
+
+        when:
+        GradleDistributionCache.install(versionDir, '6.5', distribution.toURI().toURL(), missingUrl, downloads.&add)
+
+        then:
+        GradleDistributionCache.isInstalled(versionDir, '6.5')
+        downloads.empty
+    }
+
+    def "downloads again a corrupted leftover distribution not matching its checksum"() {
+        given:
+        publishChecksum(distribution)
+        versionDir.mkdirs()
+        GradleDistributionCache.getBinDistribution(versionDir, '6.5').bytes = newDistribution('6.4')
+
+        when:
+        GradleDistributionCache.install(versionDir, '6.5', distribution.toURI().toURL(), missingUrl, downloads.&add)
+
+        then:
+        GradleDistributionCache.isInstalled(versionDir, '6.5')
+        GradleDistributionCache.getBinDistribution(versionDir, '6.5').bytes == distribution.bytes
+    }
+
+    def "downloads again a corrupted leftover distribution failing to extract without a published checksum"() {
+        given:
+        versionDir.mkdirs()
+        GradleDistributionCache.getBinDistribution(versionDir, '6.5').bytes = distribution.bytes[0..<(distribution.bytes.length / 2)] as byte[]
+
+        when:
+        GradleDistributionCache.install(versionDir, '6.5', distribution.toURI().toURL(), missingUrl, downloads.&add)
+
+        then:
+        GradleDistributionCache.isInstalled(versionDir, '6.5')
+        GradleDistributionCache.getBinDistribution(versionDir, '6.5').bytes == distribution.bytes
+    }
+
+    def "installs the distribution once for concurrent installations"() {
+        given:
+        def requests = Collections.synchronizedList([])
+        def server = HttpServer.create(new InetSocketAddress(InetAddress.loopbackAddress, 0), 0)
+        server.createContext('/distributions/') { HttpExchange exchange ->
+            requests << exchange.requestURI.path
+            def body = exchange.requestURI.path.endsWith('.sha256') ? sha256(distribution).bytes : distribution.bytes
+            exchange.sendResponseHeaders(200, body.length)
+            exchange.responseBody.write(body)
+            exchange.close()
+        }
+        server.start()
+        def url = new URL("http://localhost:${server.address.port}/distributions/gradle-6.5-bin.zip")
+        def executor = Executors.newFixedThreadPool(2)
+        def start = new CountDownLatch(1)
+
+        when:
+        def installations = (1..2).collect {
+            executor.submit({
+                start.await()
+                GradleDistributionCache.install(versionDir, '6.5', url, missingUrl, downloads.&add)
+            } as Callable<Void>)
+        }
+        start.countDown()
+        installations*.get()
+
+        then:
+        GradleDistributionCache.isInstalled(versionDir, '6.5')
+        requests.count { it.endsWith('.zip') } == 1
+        downloads == [url]
+
+        cleanup:
+        executor.shutdown()
+        server.stop(0)
+    }
+
+    private URL getMissingUrl() {
+        return new File(temporaryFolder.root, 'missing/gradle-6.5-bin.zip').toURI().toURL()
+    }
+
+    private static void publishChecksum(File distribution) {
+        new File(distribution.path + '.sha256').text = sha256(distribution)
+    }
+
+    private static String sha256(File file) {
+        return MessageDigest.getInstance('SHA-256').digest(file.bytes).encodeHex().toString()
+    }
+
+    private static byte[] newDistribution(String version) {
+        def result = new ByteArrayOutputStream()
+        new ZipOutputStream(result).withCloseable { zip ->
+            zip.putNextEntry(new ZipEntry("gradle-${version}/"))
+            zip.putNextEntry(new ZipEntry("gradle-${version}/bin/"))
+            zip.putNextEntry(new ZipEntry("gradle-${version}/bin/gradle"))
+            zip.write('launcher'.bytes)
+        }
+        return result.toByteArray()
+    }
+}
@@ -0,0 +1,130 @@
+package dev.gradleplugins.internal.distributions
+
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+import java.security.MessageDigest
+
+class InstalledGradleDistributionLocatorTest extends Specification {
+    @Rule
+    TemporaryFolder temporaryFolder = new TemporaryFolder()
+    File wrapperDists
+    File versionDir
+    File official
+
+    def setup() {
+        wrapperDists = temporaryFolder.newFolder('wrapper', 'dists')
+        versionDir = new File(temporaryFolder.root, 'gradle-distributions/6.5')
+        official = new File(temporaryFolder.newFolder('official'), 'gradle-6.5-bin.zip')
+    }
+
+    def "uses a -bin wrapper installation matching the published checksum"() {
+        given:
+        def installDirectory = wrapperInstallation('gradle-6.5-bin', 'abc123')
+        publishChecksum(new File(installDirectory, 'gradle-6.5-bin.zip'))
+
+        when:
+        def installation = newLocator().findWrapperInstallation('6.5', official.toURI().toURL(), versionDir)
+
+        then:
+        installation.gradleHomeDir == new File(installDirectory, 'gradle-6.5')
+        installation.binDistribution == new File(installDirectory, 'gradle-6.5-bin.zip')
+    }
+
+    def "does not use a -all wrapper installation"() {
+        given:
+        wrapperInstallation('gradle-6.5-all', 'abc123', 'gradle-6.5-all.zip')
+
+        expect:
+        newLocator().findWrapperInstallation('6.5', official.toURI().toURL(), versionDir) == null
+    }
+
+    def "does not use a wrapper installation without its completion marker"() {
+        given:
+        def installDirectory = wrapperInstallation('gradle-6.5-bin', 'abc123')
+        publishChecksum(new File(installDirectory, 'gradle-6.5-bin.zip'))
+        new File(installDirectory, 'gradle-6.5-bin.zip.ok').delete()
+
+        expect:
+        newLocator().findWrapperInstallation('6.5', official.toURI().toURL(), versionDir) == null
+    }
+
+    def "does not use a wrapper installation not matching the published checksum"() {
+        given:
+        wrapperInstallation('gradle-6.5-bin', 'abc123')
+        new File(official.path + '.sha256').text = '0' * 64
+
+        expect:
+        newLocator().findWrapperInstallation('6.5', official.toURI().toURL(), versionDir) == null
+        !GradleDistributionCache.getWrapperVerificationMarker(versionDir, '6.5').exists()
+    }
+
+    def "reuses the verification recorded by another locator while the zip is unchanged"() {
+        given:
+        def installDirectory = wrapperInstallation('gradle-6.5-bin', 'abc123')
+        def binDistribution = new File(installDirectory, 'gradle-6.5-bin.zip')
+        publishChecksum(binDistribution)
+        newLocator().findWrapperInstallation('6.5', official.toURI().toURL(), versionDir)
+        // The checksum is no longer fetched, a mismatching one goes unnoticed
+        new File(official.path + '.sha256').text = '0' * 64
+
+        expect:
+        GradleDistributionCache.getWrapperVerificationMarker(versionDir, '6.5').text.endsWith("\n${sha256(binDistribution)}")
+        newLocator().findWrapperInstallation('6.5', official.toURI().toURL(), versionDir) != null
+
+        when:
+        binDistribution.text = 'other zip'
+        binDistribution.lastModified = binDistribution.lastModified() - 10_000
+
+        then:
+        newLocator().findWrapperInstallation('6.5', official.toURI().toURL(), versionDir) == null
+    }
+
+    def "trusts the wrapper completion marker without recording it when the checksum can't be fetched"() {
+        given:
+        def installDirectory = wrapperInstallation('gradle-6.5-bin', 'abc123')
+        def unreachable = new URL('http://localhost:1/distributions/gradle-6.5-bin.zip')
+
+        when:
+        def installation = newLocator().findWrapperInstallation('6.5', unreachable, versionDir)
+
+        then:
+        installation.gradleHomeDir == new File(installDirectory, 'gradle-6.5')
+        !GradleDistributionCache.getWrapperVerificationMarker(versionDir, '6.5').exists()
+    }
+
+    def "finds the distribution in the first mirror directory having it"() {
+        given:
+        def firstMirror = temporaryFolder.newFolder('mirror1')
+        def secondMirror = temporaryFolder.newFolder('mirror2')
+        def thirdMirror = temporaryFolder.newFolder('mirror3')
+        new File(secondMirror, 'gradle-6.5-bin.zip').text = 'zip'
+        new File(thirdMirror, 'gradle-6.5-bin.zip').text = 'zip'
+        def locator = new InstalledGradleDistributionLocator(wrapperDists, [firstMirror, secondMirror, thirdMirror])
+
+        expect:
+        locator.findDistribution('6.5', official.toURI().toURL()) == new File(secondMirror, 'gradle-6.5-bin.zip').toURI().toURL()
+        locator.findDistribution('6.4', official.toURI().toURL()) == official.toURI().toURL()
+    }
+
+    private InstalledGradleDistributionLocator newLocator() {
+        return new InstalledGradleDistributionLocator(wrapperDists, [])
+    }
+
+    private File wrapperInstallation(String distributionName, String hash, String zipName = 'gradle-6.5-bin.zip') {
+        def installDirectory = new File(wrapperDists, "${distributionName}/${hash}")
+        new File(installDirectory, 'gradle-6.5/bin').mkdirs()
+        new File(installDirectory, zipName).text = 'zip'
+        new File(installDirectory, zipName + '.ok').text = ''
+        return installDirectory
+    }
+
+    private void publishChecksum(File distribution) {
+        new File(official.path + '.sha256').text = sha256(distribution)
+    }
+
+    private static String sha256(File file) {
+        return MessageDigest.getInstance('SHA-256').digest(file.bytes).encodeHex().toString()
+    }
+}
@@ -0,0 +1,120 @@
+package dev.gradleplugins.internal.versions
+
+import com.sun.net.httpserver.HttpExchange
+import com.sun.net.httpserver.HttpServer
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+import java.time.Duration
+
+class GradleVersionsServiceTest extends Specification {
+    @Rule
+    TemporaryFolder temporaryFolder = new TemporaryFolder()
+    def server = HttpServer.create(new InetSocketAddress(InetAddress.loopbackAddress, 0), 0)
+    def serverStopped = false
+    def requests = []
+    def current = '{"version":"6.5","current":true}'
+
+    def setup() {
+        server.createContext('/versions/') { HttpExchange exchange ->
+            requests << exchange.requestURI.path
+            if (exchange.requestHeaders.getFirst('If-None-Match') == '"v1"' && current.contains('6.5')) {
+                exchange.sendResponseHeaders(304, -1)
+            } else {
+                def body = current.getBytes(StandardCharsets.UTF_8)
+                exchange.responseHeaders.add('ETag', current.contains('6.5') ? '"v1"' : '"v2"')
+                exchange.sendResponseHeaders(200, body.length)
+                exchange.responseBody.write(body)
+            }
+            exchange.close()
+        }
+        server.start()
+    }
+
+    def cleanup() {
+        stopServer()
+    }
+
+    def "does not request the service again before the TTL expires"() {
+        when:
+        def first = newService(Duration.ofHours(1)).current
+        def second = newService(Duration.ofHours(1)).current
+
+        then:
+        first.version == '6.5'
+        second.version == '6.5'
+        requests.size() == 1
+    }
+
+    def "revalidates an expired response with a conditional request"() {
+        given:
+        newService(Duration.ZERO).current
+
+        when:
+        def unchanged = newService(Duration.ZERO).current
+        then:
+        unchanged.version == '6.5'
+        requests.size() == 2
+        new File(temporaryFolder.root, 'current.json').text == '{"version":"6.5","current":true}'
+
+        when:
+        current = '{"version":"6.6","current":true}'
+        def changed = newService(Duration.ZERO).current
+        then:
+        changed.version == '6.6'
+        new File(temporaryFolder.root, 'current.etag').text == '"v2"'
+    }
+
+    def "uses the cached response when the service can't be reached"() {
+        given:
+        newService(Duration.ZERO).current
+        stopServer()
+
+        expect:
+        newService(Duration.ZERO).current.version == '6.5'
+    }
+
+    def "uses the bundled snapshot when nothing is cached and the service can't be reached"() {
+        given:
+        stopServer()
+
+        when:
+        def service = newService(Duration.ofHours(1))
+
+        then:
+        service.all.any { it.version == '6.2.1' }
+        service.current.current
+    }
+
+    def "does not request the service when offline"() {
+        when:
+        def service = new GradleVersionsService(serviceUrl, temporaryFolder.root, Duration.ZERO, true)
+        service.all
+
+        then:
+        requests.empty
+
+        when:
+        service.nightly
+        then:
+        def ex = thrown(IllegalStateException)
+        ex.message == 'Unable to get the last snapshot version while offline.'
+    }
+
+    private void stopServer() {
+        if (!serverStopped) {
+            server.stop(0)
+            serverStopped = true
+        }
+    }
+
+    private GradleVersionsService newService(Duration cacheTtl) {
+        return new GradleVersionsService(serviceUrl, temporaryFolder.root, cacheTtl, false)
+    }
+
+    private URL getServiceUrl() {
+        return new URL("http://localhost:${server.address.port}/versions/")
+    }
+}